@@ -8,6 +8,7 @@ package org.antlr.mojo.antlr5;
 
 import org.antlr.v5.Tool;
 import org.antlr.v5.codegen.CodeGenerator;
+import org.antlr.v5.misc.GrammarSourceCache;
 import org.antlr.v5.runtime.java._unused.misc.MultiMap;
 import org.antlr.v5.tool.Grammar;
 import org.apache.maven.plugin.AbstractMojo;
@@ -104,6 +105,18 @@ public class Antlr5Mojo extends AbstractMojo {
 	@Parameter(property = "antlr5.forceATN", defaultValue = "false")
 	protected boolean forceATN;
 
+	/**
+	 * Generate lexer DFA tables, for the Java and Kotlin targets.
+	 */
+	@Parameter(property = "antlr5.compiledLexer", defaultValue = "false")
+	protected boolean compiledLexer;
+
+	/**
+	 * Look keywords up in a hash table, for the Java and Kotlin targets.
+	 */
+	@Parameter(property = "antlr5.keywordHash", defaultValue = "false")
+	protected boolean keywordHash;
+
 	/**
 	 * A list of grammar options to explicitly specify to the tool. These
 	 * options are passed to the tool using the
@@ -209,6 +222,13 @@ public class Antlr5Mojo extends AbstractMojo {
      */
     protected Tool tool;
 
+    /**
+     * Grammar text shared by every tool instance created by this plugin. The
+     * plugin class stays loaded across executions in a multi-module build or
+     * a long-lived Maven daemon, so unchanged grammars are not re-read.
+     */
+    private static final GrammarSourceCache grammarSourceCache = new GrammarSourceCache();
+
     /**
      * The main entry point for this Mojo, it is responsible for converting
      * ANTLR 4.x grammars into the target language specified by the grammar.
@@ -361,6 +381,14 @@ public class Antlr5Mojo extends AbstractMojo {
 			args.add("-Xforce-atn");
 		}
 
+		if (compiledLexer) {
+			args.add("-Xcompiled-lexer");
+		}
+
+		if (keywordHash) {
+			args.add("-Xkeyword-hash");
+		}
+
 		if (options != null) {
 			for (Map.Entry<String, String> option : options.entrySet()) {
 				args.add(String.format("-D%s=%s", option.getKey(), option.getValue()));
@@ -508,6 +536,7 @@ public class Antlr5Mojo extends AbstractMojo {
 
 		public CustomTool(String[] args) {
 			super(args);
+			grammarSourceCache = Antlr5Mojo.grammarSourceCache;
 			addListener(new Antlr5ErrorLog(this, buildContext, getLog()));
 		}
 
@@ -28,7 +28,8 @@ public class CustomDescriptors {
 				});
 		descriptors.put("ParserExec",
 				new RuntimeTestDescriptor[] {
-						getMultiTokenAlternativeDescriptor()
+						getMultiTokenAlternativeDescriptor(),
+						getLargeRuleFunctionDescriptor()
 				});
 	}
 
@@ -184,4 +185,51 @@ public class CustomDescriptors {
 				new String[] { grammar }, null,
 				false, false, false, PredictionMode.LL, true, null, uri);
 	}
+
+	private static RuntimeTestDescriptor getLargeRuleFunctionDescriptor() {
+		final int altsCount = 40;
+		final int idsCount = 13;
+
+		// Rules of labeled alternatives too large for one method on the Java and
+		// Kotlin targets, which move alternatives out into methods of their own
+		StringBuilder ids = new StringBuilder();
+		StringBuilder words = new StringBuilder();
+		for (int i = 0; i < idsCount; i++) {
+			ids.append(" ID");
+			words.append(" ").append((char)('a' + i));
+		}
+
+		StringBuilder r = new StringBuilder("r\n  : ");
+		StringBuilder e = new StringBuilder("e\n  : e '+' e # Add\n");
+		for (int i = 0; i < altsCount; i++) {
+			if (i > 0) {
+				r.append("\n  | ");
+			}
+			r.append("'k").append(i).append("' x=ID").append(ids).append(" # R").append(i);
+			e.append("  | 'p").append(i).append("' x=ID").append(ids).append(" # P").append(i).append("\n");
+		}
+		r.append("\n  ;\n");
+		e.append("  ;\n");
+
+		String grammar = "grammar T;\n" +
+				"s @after {<ToStringTree(\"$ctx\"):writeln()>}\n" +
+				"  : r r e EOF ;\n" +
+				r + e +
+				"ID : [a-z]+ ;\n" +
+				"WS : [ ]+ -> skip ;\n";
+
+		String input = "k5 z" + words + " k39 z" + words + " p1 z" + words + " + p2 z" + words;
+		String output = "(s (r k5 z" + words + ") (r k39 z" + words + ") " +
+				"(e (e p1 z" + words + ") + (e p2 z" + words + ")) <EOF>)\n";
+
+		return new RuntimeTestDescriptor(
+				"LargeRuleFunction",
+				"Rule functions over the JVM method size limit are split into private methods",
+				input,
+				output,
+				"",
+				"s",
+				new String[] { grammar }, null,
+				false, false, false, PredictionMode.LL, true, null, uri);
+	}
 }
@@ -53,6 +53,16 @@ public class RuntimeTestDescriptor {
 
 	public final boolean buildParseTree;
 
+	/** Also run the test with a lexer generated with {@code -Xcompiled-lexer},
+	 *  on the targets that support it, expecting the same output.
+	 */
+	public final boolean compiledLexer;
+
+	/** Also run the test with a lexer generated with {@code -Xkeyword-hash},
+	 *  on the targets that support it, expecting the same output.
+	 */
+	public final boolean keywordHash;
+
 	public final String[] skipTargets;
 
 	public final URI uri;
@@ -62,6 +72,16 @@ public class RuntimeTestDescriptor {
 								 String startRule, String[] grammars, String[] slaveGrammars,
 								 boolean showDiagnosticErrors, boolean traceATN, boolean showDFA, PredictionMode predictionMode,
 								 boolean buildParseTree, String[] skipTargets, URI uri) {
+		this(name, notes, input, output, errors, startRule, grammars, slaveGrammars,
+				showDiagnosticErrors, traceATN, showDFA, predictionMode, buildParseTree, false, false, skipTargets, uri);
+	}
+
+	public RuntimeTestDescriptor(String name, String notes,
+								 String input, String output, String errors,
+								 String startRule, String[] grammars, String[] slaveGrammars,
+								 boolean showDiagnosticErrors, boolean traceATN, boolean showDFA, PredictionMode predictionMode,
+								 boolean buildParseTree, boolean compiledLexer, boolean keywordHash,
+								 String[] skipTargets, URI uri) {
 		this.name = name;
 		this.notes = notes;
 		this.input = input;
@@ -75,6 +95,8 @@ public class RuntimeTestDescriptor {
 		this.traceATN = traceATN;
 		this.predictionMode = predictionMode;
 		this.buildParseTree = buildParseTree;
+		this.compiledLexer = compiledLexer;
+		this.keywordHash = keywordHash;
 		this.skipTargets = skipTargets != null ? skipTargets : new String[0];
 		this.uri = uri;
 	}
@@ -122,6 +122,8 @@ public class RuntimeTestDescriptorParser {
 		boolean traceATN = false;
 		PredictionMode predictionMode = PredictionMode.LL;
 		boolean buildParseTree = true;
+		boolean compiledLexer = false;
+		boolean keywordHash = false;
 		String[] skipTargets = new String[0];
 		for (Pair<String,String> p : pairs) {
 			String section = p.getFirst();
@@ -177,6 +179,12 @@ public class RuntimeTestDescriptorParser {
 							case "notBuildParseTree":
 								buildParseTree = false;
 								break;
+							case "compiledLexer":
+								compiledLexer = true;
+								break;
+							case "keywordHash":
+								keywordHash = true;
+								break;
 							default:
 								throw new RuntimeException("Unknown flag: " + parts[0]);
 						}
@@ -191,6 +199,6 @@ public class RuntimeTestDescriptorParser {
 		}
 		return new RuntimeTestDescriptor(name, notes, input, output, errors, startRule,
 				grammars.toArray(new String[0]), slaveGrammars.toArray(new String[0]),
-				showDiagnosticErrors, traceATN, showDFA, predictionMode, buildParseTree, skipTargets, uri);
+				showDiagnosticErrors, traceATN, showDFA, predictionMode, buildParseTree, compiledLexer, keywordHash, skipTargets, uri);
 	}
 }
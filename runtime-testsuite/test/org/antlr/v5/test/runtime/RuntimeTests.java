@@ -45,6 +45,8 @@ public abstract class RuntimeTests {
 	private final static HashMap<String, RuntimeTestDescriptor[]> testDescriptors = new HashMap<>();
 	private final static Map<String, STGroup> cachedTargetTemplates = new HashMap<>();
 	private final static StringRenderer rendered = new StringRenderer();
+	/** The targets that generate lexers with {@code -Xcompiled-lexer} and {@code -Xkeyword-hash} */
+	private final static Set<String> lexerOptionTargets = new HashSet<>(Arrays.asList("Java", "Kotlin"));
 
 	static {
 		File descriptorsDir = new File(Paths.get(RuntimeTestUtils.resourcePath.toString(), "org/antlr/v5/test/runtime/descriptors").toString());
@@ -99,9 +101,23 @@ public abstract class RuntimeTests {
 			for (RuntimeTestDescriptor descriptor : descriptors) {
 				descriptorTests.add(dynamicTest(descriptor.name, descriptor.uri, () -> {
 					try (RuntimeRunner runner = createRuntimeRunner()) {
-						test(descriptor, runner);
+						test(descriptor, runner, null);
 					}
 				}));
+				if (descriptor.compiledLexer) {
+					descriptorTests.add(dynamicTest(descriptor.name + "_CompiledLexer", descriptor.uri, () -> {
+						try (RuntimeRunner runner = createRuntimeRunner()) {
+							test(descriptor, runner, new String[] {"-Xcompiled-lexer"});
+						}
+					}));
+				}
+				if (descriptor.keywordHash) {
+					descriptorTests.add(dynamicTest(descriptor.name + "_KeywordHash", descriptor.uri, () -> {
+						try (RuntimeRunner runner = createRuntimeRunner()) {
+							test(descriptor, runner, new String[] {"-Xkeyword-hash"});
+						}
+					}));
+				}
 			}
 
 			Path descriptorGroupPath = Paths.get(RuntimeTestUtils.resourcePath.toString(), "descriptors", group);
@@ -111,12 +127,15 @@ public abstract class RuntimeTests {
 		return result;
 	}
 
-	private static void test(RuntimeTestDescriptor descriptor, RuntimeRunner runner) {
+	private static void test(RuntimeTestDescriptor descriptor, RuntimeRunner runner, String[] extraGenerationOptions) {
 		String targetName = runner.getLanguage();
 		if (descriptor.ignore(targetName)) {
 			System.out.println("Ignore " + descriptor);
 			return;
 		}
+		if (extraGenerationOptions != null && !lexerOptionTargets.contains(targetName)) {
+			return;
+		}
 
 		Pair<String[], String[]> allGrammars = prepareGrammars(descriptor, runner);
 
@@ -135,7 +154,7 @@ public abstract class RuntimeTests {
 				null,
 				descriptor.predictionMode,
 				descriptor.buildParseTree,
-				null
+				extraGenerationOptions
 		);
 
 		State result = runner.run(runOptions);
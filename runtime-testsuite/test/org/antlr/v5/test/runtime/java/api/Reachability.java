@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+package org.antlr.v5.test.runtime.java.api;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds out which objects can be reached from a root through instance
+ * fields, to check that recognizers let go of the state of a parse.
+ */
+final class Reachability {
+	private Reachability() {
+	}
+
+	/**
+	 * Returns the objects of {@code targets} that can be reached from
+	 * {@code root}, compared by identity. JDK collections and maps are
+	 * followed through their elements; other JDK objects are not followed.
+	 */
+	static Set<Object> reachable(Object root, Collection<?> targets) {
+		Set<Object> wanted = identitySet();
+		wanted.addAll(targets);
+		Set<Object> found = identitySet();
+		Set<Object> seen = identitySet();
+		Deque<Object> pending = new ArrayDeque<>();
+		pending.push(root);
+		while ( !pending.isEmpty() ) {
+			Object o = pending.pop();
+			if ( !seen.add(o) ) continue;
+			if ( wanted.contains(o) ) found.add(o);
+
+			Class<?> c = o.getClass();
+			if ( c.isArray() ) {
+				if ( c.getComponentType().isPrimitive() ) continue;
+				for (int i = 0; i < Array.getLength(o); i++) {
+					push(pending, Array.get(o, i));
+				}
+			}
+			else if ( isJdk(c) ) {
+				if ( o instanceof Collection ) {
+					for (Object e : (Collection<?>)o) push(pending, e);
+				}
+				else if ( o instanceof Map ) {
+					for (Map.Entry<?, ?> e : ((Map<?, ?>)o).entrySet()) {
+						push(pending, e.getKey());
+						push(pending, e.getValue());
+					}
+				}
+			}
+			else {
+				for (; c!=null && !isJdk(c); c = c.getSuperclass()) {
+					for (Field f : c.getDeclaredFields()) {
+						if ( Modifier.isStatic(f.getModifiers()) || f.getType().isPrimitive() ) continue;
+						f.setAccessible(true);
+						try {
+							push(pending, f.get(o));
+						}
+						catch (IllegalAccessException e) {
+							throw new IllegalStateException(e);
+						}
+					}
+				}
+			}
+		}
+		return found;
+	}
+
+	private static void push(Deque<Object> pending, Object o) {
+		if ( o!=null ) pending.push(o);
+	}
+
+	private static boolean isJdk(Class<?> c) {
+		String name = c.getName();
+		return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.") || name.startsWith("sun.");
+	}
+
+	private static Set<Object> identitySet() {
+		return Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+	}
+}
@@ -0,0 +1,19 @@
+grammar StreamingCsv;
+
+file
+	:	row* EOF
+	;
+
+row
+	:	field (',' field)* NL
+	;
+
+field
+	:	TEXT
+	|	STRING
+	|
+	;
+
+TEXT : ~[,\n\r"]+ ;
+STRING : '"' ('""' | ~'"')* '"' ;
+NL : '\r'? '\n' ;
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+package org.antlr.v5.test.runtime.java.api;
+
+import org.antlr.v5.runtime.core.CommonTokenStream;
+import org.antlr.v5.runtime.core.dfa.DFA;
+import org.antlr.v5.runtime.java.CharStreams;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestFrozenDFA {
+	private static String parse(String input, boolean freeze) {
+		VisitorCalcLexer lexer = new VisitorCalcLexer(CharStreams.fromString(input));
+		VisitorCalcParser parser = new VisitorCalcParser(new CommonTokenStream(lexer));
+		String tree = parser.s().toStringTree(parser);
+		assertEquals(0, parser.getNumberOfSyntaxErrors());
+		if (freeze) {
+			parser.getInterpreter().freezeDFA();
+		}
+		return tree;
+	}
+
+	@Test
+	public void testFrozenDFAPredictsAsObjectDFA() {
+		String warm = "1 + 2 * 3 - 4 / 5";
+		String expected = parse(warm, true);
+
+		VisitorCalcParser parser = new VisitorCalcParser(new CommonTokenStream(new VisitorCalcLexer(CharStreams.fromString(""))));
+		try {
+			int frozenStates = 0;
+			for (DFA dfa : parser.getInterpreter().getDecisionToDFA()) {
+				if (dfa.getFrozen() != null) {
+					frozenStates += dfa.getFrozen().getSize();
+				}
+			}
+			assertTrue(frozenStates > 0);
+
+			assertEquals(expected, parse(warm, false));
+
+			// Input the snapshot has not seen continues on the object DFA
+			assertEquals("(s (expr (expr (expr 12) * (expr 34)) + (expr 5)) <EOF>)", parse("12 * 34 + 5", false));
+			assertEquals("(s (expr (expr 1) - (expr (expr 2) / (expr 3))) <EOF>)", parse("1 - 2 / 3", false));
+		}
+		finally {
+			parser.getInterpreter().clearDFA();
+		}
+	}
+}
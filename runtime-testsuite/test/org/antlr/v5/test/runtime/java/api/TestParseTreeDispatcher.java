@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+package org.antlr.v5.test.runtime.java.api;
+
+import org.antlr.v5.runtime.core.CommonTokenStream;
+import org.antlr.v5.runtime.core.context.ParserRuleContext;
+import org.antlr.v5.runtime.core.tree.ErrorNode;
+import org.antlr.v5.runtime.core.tree.ParseTreeListener;
+import org.antlr.v5.runtime.core.tree.TerminalNode;
+import org.antlr.v5.runtime.java.CharStreams;
+import org.antlr.v5.runtime.java.tree.ParseTreeDispatcher;
+import org.antlr.v5.runtime.java.tree.ParseTreeWalker;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestParseTreeDispatcher {
+	static class AddListener extends VisitorCalcBaseListener {
+		final List<String> events = new ArrayList<>();
+
+		@Override
+		public void enterAdd(VisitorCalcParser.AddContext ctx) {
+			events.add("enter " + ctx.getText());
+		}
+
+		@Override
+		public void exitMultiply(VisitorCalcParser.MultiplyContext ctx) {
+			events.add("exit " + ctx.getText());
+		}
+	}
+
+	static class TerminalListener extends VisitorCalcBaseListener {
+		final List<String> events = new ArrayList<>();
+
+		@Override
+		public void visitTerminal(TerminalNode node) {
+			events.add(node.getText());
+		}
+	}
+
+	static class EveryEventListener implements ParseTreeListener {
+		final List<String> events = new ArrayList<>();
+
+		@Override
+		public void visitTerminal(TerminalNode node) {
+			events.add("terminal " + node.getText());
+		}
+
+		@Override
+		public void visitErrorNode(ErrorNode node) {
+			events.add("error " + node.getText());
+		}
+
+		@Override
+		public void enterEveryRule(ParserRuleContext ctx) {
+			events.add("enter " + ctx.getRuleIndex());
+		}
+
+		@Override
+		public void exitEveryRule(ParserRuleContext ctx) {
+			events.add("exit " + ctx.getRuleIndex());
+		}
+	}
+
+	private static VisitorCalcParser.SContext parse(String input) {
+		VisitorCalcLexer lexer = new VisitorCalcLexer(CharStreams.fromString(input));
+		VisitorCalcParser parser = new VisitorCalcParser(new CommonTokenStream(lexer));
+		return parser.s();
+	}
+
+	/**
+	 * Walking several listeners at once delivers the same events to each as
+	 * walking them one at a time.
+	 */
+	@Test
+	public void testSameEventsAsWalker() {
+		VisitorCalcParser.SContext tree = parse("1 + 2 * 3 - 4 / 5");
+
+		AddListener add = new AddListener();
+		TerminalListener terminals = new TerminalListener();
+		EveryEventListener every = new EveryEventListener();
+		new ParseTreeDispatcher(add, terminals, every).walk(tree);
+
+		AddListener expectedAdd = new AddListener();
+		TerminalListener expectedTerminals = new TerminalListener();
+		EveryEventListener expectedEvery = new EveryEventListener();
+		ParseTreeWalker.DEFAULT.walk(expectedAdd, tree);
+		ParseTreeWalker.DEFAULT.walk(expectedTerminals, tree);
+		ParseTreeWalker.DEFAULT.walk(expectedEvery, tree);
+
+		assertEquals(expectedAdd.events, add.events);
+		assertEquals(expectedTerminals.events, terminals.events);
+		assertEquals(expectedEvery.events, every.events);
+		assertEquals("[enter 1+2*3-4/5, enter 1+2*3, exit 2*3, exit 4/5]", add.events.toString());
+	}
+
+	@Test
+	public void testDeepTree() {
+		StringBuilder input = new StringBuilder("0");
+		for (int i = 0; i < 20000; i++) {
+			input.append("+1");
+		}
+		VisitorCalcParser.SContext tree = parse(input.toString());
+
+		TerminalListener terminals = new TerminalListener();
+		ParseTreeDispatcher dispatcher = new ParseTreeDispatcher(terminals);
+		dispatcher.walk(tree);
+		dispatcher.walk(tree);
+
+		assertEquals(2 * (2 * 20000 + 2), terminals.events.size());
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+package org.antlr.v5.test.runtime.java.api;
+
+import org.antlr.v5.runtime.core.CharStream;
+import org.antlr.v5.runtime.core.ParserPool;
+import org.antlr.v5.runtime.core.Token;
+import org.antlr.v5.runtime.java.CharStreams;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class TestParserPool {
+	@Test
+	public void testReuse() {
+		ParserPool<VisitorCalcLexer, VisitorCalcParser> pool =
+			new ParserPool<>(VisitorCalcLexer::new, VisitorCalcParser::new, 1);
+
+		ParserPool.Instance<VisitorCalcLexer, VisitorCalcParser> first = pool.acquire(CharStreams.fromString("1 + 2"));
+		VisitorCalcParser.SContext tree = first.getParser().s();
+		assertEquals("(s (expr (expr 1) + (expr 2)) <EOF>)", tree.toStringTree(first.getParser()));
+		first.close();
+		assertEquals(1, pool.getIdleCount());
+
+		// the same recognizers, reading the new input from a clean state
+		ParserPool.Instance<VisitorCalcLexer, VisitorCalcParser> second = pool.acquire(CharStreams.fromString("3 * ) 4"));
+		assertSame(first, second);
+		second.getParser().s();
+		assertEquals(1, second.getParser().getNumberOfSyntaxErrors());
+		second.close();
+		second.close();
+		assertEquals(1, pool.getIdleCount());
+
+		ParserPool.Instance<VisitorCalcLexer, VisitorCalcParser> third = pool.acquire(CharStreams.fromString("5"));
+		ParserPool.Instance<VisitorCalcLexer, VisitorCalcParser> fourth = pool.acquire(CharStreams.fromString("6"));
+		assertNotSame(third, fourth);
+		assertEquals("(s (expr 5) <EOF>)", third.getParser().s().toStringTree(third.getParser()));
+		assertEquals(0, third.getParser().getNumberOfSyntaxErrors());
+		assertEquals("(s (expr 6) <EOF>)", fourth.getParser().s().toStringTree(fourth.getParser()));
+		third.close();
+		fourth.close();
+		assertEquals(1, pool.getIdleCount());
+
+		// trees outlive their instance
+		assertEquals("(s (expr (expr 1) + (expr 2)) <EOF>)", tree.toStringTree(first.getParser()));
+	}
+
+	/**
+	 * A released instance keeps nothing of its parse, including the
+	 * contexts a streaming parse kept for reuse.
+	 */
+	@Test
+	public void testReleaseDropsParse() {
+		ParserPool<StreamingCsvLexer, StreamingCsvParser> pool =
+			new ParserPool<>(StreamingCsvLexer::new, StreamingCsvParser::new, 1);
+
+		CharStream input = CharStreams.fromString("a,b\nc\n");
+		ParserPool.Instance<StreamingCsvLexer, StreamingCsvParser> instance = pool.acquire(input);
+		final StreamingCsvParser parser = instance.getParser();
+		final List<Object> old = new ArrayList<>();
+		parser.setBuildParseTree(false);
+		parser.setParseEventSink(new TestStreamingParse.RecordingSink() {
+			@Override
+			public void enterRule(int ruleIndex, Token start) {
+				old.add(parser.getContext());
+			}
+		});
+		old.add(parser.file());
+		old.addAll(instance.getTokens().getTokens());
+		old.add(input);
+		assertFalse(Reachability.reachable(instance, old).isEmpty());
+
+		instance.close();
+		assertEquals(1, pool.getIdleCount());
+		assertEquals(Collections.emptySet(), Reachability.reachable(instance, old));
+	}
+}
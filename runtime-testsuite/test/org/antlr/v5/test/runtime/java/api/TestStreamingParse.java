@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+package org.antlr.v5.test.runtime.java.api;
+
+import org.antlr.v5.runtime.core.CommonTokenStream;
+import org.antlr.v5.runtime.core.ParseEventSink;
+import org.antlr.v5.runtime.core.Token;
+import org.antlr.v5.runtime.core.context.ParserRuleContext;
+import org.antlr.v5.runtime.core.tree.ErrorNode;
+import org.antlr.v5.runtime.core.tree.ParseTreeListener;
+import org.antlr.v5.runtime.core.tree.TerminalNode;
+import org.antlr.v5.runtime.java.CharStreams;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class TestStreamingParse {
+	static class RecordingSink implements ParseEventSink {
+		final List<String> events = new ArrayList<>();
+
+		@Override
+		public void enterRule(int ruleIndex, Token start) {
+			events.add("enter " + StreamingCsvParser.ruleNames[ruleIndex]);
+		}
+
+		@Override
+		public void exitRule(int ruleIndex, Token stop) {
+			events.add("exit " + StreamingCsvParser.ruleNames[ruleIndex]);
+		}
+
+		@Override
+		public void token(Token token) {
+			events.add(token.getText());
+		}
+
+		@Override
+		public void errorToken(Token token) {
+			events.add("error " + token.getText());
+		}
+	}
+
+	private static StreamingCsvParser parser(String input) {
+		StreamingCsvLexer lexer = new StreamingCsvLexer(CharStreams.fromString(input));
+		return new StreamingCsvParser(new CommonTokenStream(lexer));
+	}
+
+	/**
+	 * A streaming parse reports the same events as parse listeners see while
+	 * building a tree, and builds no tree.
+	 */
+	@Test
+	public void testSameEventsAsParseListener() {
+		String input = "a,b\n\"c,\"\"d\"\"\",\n";
+
+		final List<String> expected = new ArrayList<>();
+		StreamingCsvParser treeParser = parser(input);
+		treeParser.addParseListener(new ParseTreeListener() {
+			@Override
+			public void visitTerminal(TerminalNode node) {
+				expected.add(node.getText());
+			}
+
+			@Override
+			public void visitErrorNode(ErrorNode node) {
+				expected.add("error " + node.getText());
+			}
+
+			@Override
+			public void enterEveryRule(ParserRuleContext ctx) {
+				expected.add("enter " + StreamingCsvParser.ruleNames[ctx.getRuleIndex()]);
+			}
+
+			@Override
+			public void exitEveryRule(ParserRuleContext ctx) {
+				expected.add("exit " + StreamingCsvParser.ruleNames[ctx.getRuleIndex()]);
+			}
+		});
+		treeParser.file();
+
+		RecordingSink sink = new RecordingSink();
+		StreamingCsvParser streamingParser = parser(input);
+		streamingParser.setBuildParseTree(false);
+		streamingParser.setParseEventSink(sink);
+		StreamingCsvParser.FileContext file = streamingParser.file();
+
+		assertEquals(expected, sink.events);
+		assertNull(file.getChildren());
+	}
+
+	@Test
+	public void testContextsAreRecycled() {
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			input.append("x,y,z\n");
+		}
+
+		final StreamingCsvParser parser = parser(input.toString());
+		final Set<ParserRuleContext> rows = Collections.newSetFromMap(new IdentityHashMap<ParserRuleContext, Boolean>());
+		parser.setBuildParseTree(false);
+		parser.setParseEventSink(new RecordingSink() {
+			@Override
+			public void enterRule(int ruleIndex, Token start) {
+				if ( ruleIndex==StreamingCsvParser.RULE_row ) rows.add(parser.getContext());
+			}
+		});
+		parser.file();
+
+		assertEquals(1, rows.size());
+		assertEquals(0, parser.getNumberOfSyntaxErrors());
+	}
+
+	/**
+	 * Contexts kept for reuse by a streaming parse are dropped when the
+	 * parser is recycled, along with the tokens they reference.
+	 */
+	@Test
+	public void testRecycleDropsContexts() {
+		final StreamingCsvParser parser = parser("x,y\n\"z\"\n");
+		final List<Object> old = new ArrayList<>();
+		parser.setBuildParseTree(false);
+		parser.setParseEventSink(new RecordingSink() {
+			@Override
+			public void enterRule(int ruleIndex, Token start) {
+				old.add(parser.getContext());
+			}
+		});
+		old.add(parser.file());
+		CommonTokenStream tokens = (CommonTokenStream)parser.getTokenStream();
+		old.addAll(tokens.getTokens());
+		old.add(tokens);
+		assertFalse(Reachability.reachable(parser, old).isEmpty());
+
+		parser.recycle(new CommonTokenStream(new StreamingCsvLexer(CharStreams.fromString("a\n"))));
+		assertEquals(Collections.emptySet(), Reachability.reachable(parser, old));
+
+		parser.setBuildParseTree(false);
+		parser.setParseEventSink(new RecordingSink());
+		parser.file();
+		assertEquals(0, parser.getNumberOfSyntaxErrors());
+	}
+}
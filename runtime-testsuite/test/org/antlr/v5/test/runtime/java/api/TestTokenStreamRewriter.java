@@ -13,6 +13,8 @@ import org.antlr.v5.runtime.java.TokenStreamRewriter;
 import org.antlr.v5.tool.LexerGrammar;
 import org.junit.jupiter.api.Test;
 
+import java.io.StringWriter;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
@@ -928,4 +930,48 @@ public class TestTokenStreamRewriter {
 		assertEquals(expecting, result);
 	}
 
+	@Test public void testWriteText() throws Exception {
+		LexerGrammar g = new LexerGrammar(
+											 "lexer grammar T;\n"+
+											 "A : 'a';\n" +
+											 "B : 'b';\n" +
+											 "C : 'c';\n");
+		String input = "abc";
+		LexerInterpreter lexEngine = g.createLexerInterpreter(CharStreams.fromString(input));
+		CommonTokenStream stream = new CommonTokenStream(lexEngine);
+		stream.fill();
+		TokenStreamRewriter tokens = new TokenStreamRewriter(stream);
+		tokens.insertBefore(0, "<");
+		tokens.replace(1, "x");
+		tokens.insertAfter(2, ">");
+		StringWriter out = new StringWriter();
+		tokens.writeText(out);
+		assertEquals("<axc>", out.toString());
+		assertEquals(tokens.getText(), out.toString());
+	}
+
+	@Test public void testManyOperations() throws Exception {
+		LexerGrammar g = new LexerGrammar(
+											 "lexer grammar T;\n"+
+											 "A : 'a';\n" +
+											 "B : 'b';\n" +
+											 "C : 'c';\n");
+		StringBuilder input = new StringBuilder();
+		StringBuilder expecting = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			input.append("abc");
+			expecting.append("<a>x");
+		}
+		LexerInterpreter lexEngine = g.createLexerInterpreter(CharStreams.fromString(input.toString()));
+		CommonTokenStream stream = new CommonTokenStream(lexEngine);
+		stream.fill();
+		TokenStreamRewriter tokens = new TokenStreamRewriter(stream);
+		for (int i = 0; i < 60000; i += 3) {
+			tokens.insertBefore(i, "<");
+			tokens.insertAfter(i, ">");
+			tokens.replace(i+1, i+2, "x");
+		}
+		assertEquals(expecting.toString(), tokens.getText());
+	}
+
 }
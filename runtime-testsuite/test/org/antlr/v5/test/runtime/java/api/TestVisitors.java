@@ -237,4 +237,47 @@ public class TestVisitors {
 		assertEquals(expected, result);
 	}
 
+	/**
+	 * This test verifies the primitive visitor variants, including the default
+	 * {@code visitChildren} for the unhandled {@code s} rule.
+	 */
+	@Test
+	public void testCalculatorIntVisitor() {
+		String input = "2 + 8 / 2 - 3";
+		VisitorCalcLexer lexer = new VisitorCalcLexer(CharStreams.fromString(input));
+		VisitorCalcParser parser = new VisitorCalcParser(new CommonTokenStream(lexer));
+
+		VisitorCalcParser.SContext context = parser.s();
+
+		VisitorCalcBaseVisitor.IntVisitor visitor = new VisitorCalcBaseVisitor.IntVisitor() {
+			@Override
+			public int visitNumber(VisitorCalcParser.NumberContext ctx) {
+				return Integer.parseInt(ctx.INT().getText());
+			}
+
+			@Override
+			public int visitMultiply(VisitorCalcParser.MultiplyContext ctx) {
+				int left = visit(ctx.expr(0));
+				int right = visit(ctx.expr(1));
+				return ctx.MUL() != null ? left * right : left / right;
+			}
+
+			@Override
+			public int visitAdd(VisitorCalcParser.AddContext ctx) {
+				int left = visit(ctx.expr(0));
+				int right = visit(ctx.expr(1));
+				return ctx.ADD() != null ? left + right : left - right;
+			}
+
+			@Override
+			protected int aggregateResult(int aggregate, int nextResult) {
+				// <EOF> visits to 0, so this keeps the value of the expression
+				return aggregate + nextResult;
+			}
+		};
+
+		assertEquals(0, visitor.visit(context.getChild(1)));
+		assertEquals(3, visitor.visit(context));
+	}
+
 }
@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.runtime.core
+
+/**
+ * A [TokenSource] which can produce several tokens per call.
+ *
+ * [BufferedTokenStream] uses [nextTokens] when it needs more than one
+ * token at a time, which saves a call through the [TokenSource]
+ * interface per token.
+ */
+public interface BatchTokenSource : TokenSource {
+  /**
+   * Append up to [max] tokens to [buffer], as if by calling [nextToken]
+   * repeatedly, stopping after the [Token.EOF] token.
+   *
+   * @return The number of tokens appended to [buffer]
+   */
+  public fun nextTokens(buffer: MutableList<Token>, max: Int): Int
+}
@@ -59,6 +59,21 @@ public open class BufferedTokenStream(tokenSource: TokenSource) : TokenStream {
    */
   protected var fetchedEOF: Boolean = false
 
+  /**
+   * The minimum number of tokens to request from [tokenSource] whenever
+   * the buffer needs to grow.
+   *
+   * The default of `1` pulls tokens strictly on demand, which matters
+   * when parser actions change the lexer's state or when the input is
+   * interactive. Larger values let a [BatchTokenSource] such as [Lexer]
+   * produce tokens in chunks.
+   */
+  public var prefetchSize: Int = 1
+    set(value) {
+      require(value > 0) { "prefetchSize must be positive: $value" }
+      field = value
+    }
+
   override var tokenSource: TokenSource = tokenSource
     set(value) {
       field = value
@@ -129,7 +144,7 @@ public open class BufferedTokenStream(tokenSource: TokenSource) : TokenStream {
     val n = i - tokens.size + 1 // How many more elements we need?
 
     if (n > 0) {
-      val fetched = fetch(n)
+      val fetched = fetch(maxOf(n, prefetchSize))
       return fetched >= n
     }
 
@@ -146,8 +161,29 @@ public open class BufferedTokenStream(tokenSource: TokenSource) : TokenStream {
       return 0
     }
 
+    val source = tokenSource
+
+    if (n > 1 && source is BatchTokenSource) {
+      val start = tokens.size
+      val fetched = source.nextTokens(tokens, n)
+
+      for (i in start..<tokens.size) {
+        val t = tokens[i]
+
+        if (t is WritableToken) {
+          t.tokenIndex = i
+        }
+      }
+
+      if (fetched > 0 && tokens[tokens.size - 1].type == Token.EOF) {
+        fetchedEOF = true
+      }
+
+      return fetched
+    }
+
     for (i in 0..<n) {
-      val t = tokenSource.nextToken()
+      val t = source.nextToken()
 
       if (t is WritableToken) {
         t.tokenIndex = tokens.size
@@ -214,6 +250,11 @@ public open class BufferedTokenStream(tokenSource: TokenSource) : TokenStream {
     }
 
   override fun LT(k: Int): Token? {
+    // Fast path for lookahead into tokens we already have
+    if (p >= 0 && k > 0 && p + k - 1 < tokens.size) {
+      return tokens[p + k - 1]
+    }
+
     lazyInit()
 
     if (k == 0) {
@@ -30,9 +30,46 @@ public open class CommonToken : WritableToken {
    */
   private var _text: String? = null
 
+  /**
+   * These are the backing fields for [line] and [charPositionInLine].
+   *
+   * They are [LineIndex.UNRESOLVED] until read for tokens made by a lexer
+   * with [Lexer.lazyPositions].
+   */
+  private var _line: Int = 0
+  private var _charPositionInLine: Int = -1
+
+  /**
+   * The line index of the lexer input for tokens made with
+   * [Lexer.lazyPositions], shared by all tokens of the input.
+   */
+  private var lineIndex: LineIndex? = null
+
   override var type: Int = 0
-  override var line: Int = 0
-  override var charPositionInLine: Int = -1
+  override var line: Int
+    get() {
+      if (_line == LineIndex.UNRESOLVED) {
+        resolvePosition()
+      }
+
+      return _line
+    }
+    set(value) {
+      _line = value
+    }
+
+  override var charPositionInLine: Int
+    get() {
+      if (_charPositionInLine == LineIndex.UNRESOLVED) {
+        resolvePosition()
+      }
+
+      return _charPositionInLine
+    }
+    set(value) {
+      _charPositionInLine = value
+    }
+
   override var channel: Int = Token.DEFAULT_CHANNEL
   override var tokenIndex: Int = -1
   override var startIndex: Int = 0
@@ -84,7 +121,13 @@ public open class CommonToken : WritableToken {
 
     val a = source.first
 
-    if (a != null) {
+    val lineIndex = (a as? Lexer)?.lineIndex
+
+    if (lineIndex != null) {
+      this.lineIndex = lineIndex
+      _line = LineIndex.UNRESOLVED
+      _charPositionInLine = LineIndex.UNRESOLVED
+    } else if (a != null) {
       line = a.line
       charPositionInLine = a.charPositionInLine
     }
@@ -135,6 +178,29 @@ public open class CommonToken : WritableToken {
     }
   }
 
+  /**
+   * Computes [line] and [charPositionInLine] from the [LineIndex] of the
+   * lexer that made this token; see [Lexer.lazyPositions].
+   */
+  private fun resolvePosition() {
+    val lineIndex = lineIndex
+
+    if (lineIndex == null) {
+      // Unknown, as for tokens without a source
+      _line = 0
+      _charPositionInLine = -1
+      return
+    }
+
+    if (_line == LineIndex.UNRESOLVED) {
+      _line = lineIndex.line(startIndex)
+    }
+
+    if (_charPositionInLine == LineIndex.UNRESOLVED) {
+      _charPositionInLine = lineIndex.charPositionInLine(startIndex)
+    }
+  }
+
   override fun toString(): String =
     toString(null)
 
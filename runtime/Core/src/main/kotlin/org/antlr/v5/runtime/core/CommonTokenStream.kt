@@ -82,7 +82,11 @@ public open class CommonTokenStream(tokenSource: TokenSource) : BufferedTokenStr
     var n = 1
 
     // Find k good tokens looking backwards
-    while (n <= k && i > 0) {
+    while (n <= k) {
+      if (i <= 0) {
+        return null
+      }
+
       // skip off-channel tokens
       i = previousTokenOnChannel(i - 1, channel)
       n++
@@ -96,6 +100,11 @@ public open class CommonTokenStream(tokenSource: TokenSource) : BufferedTokenStr
   }
 
   override fun LT(k: Int): Token? {
+    // tokens[p] is always on channel once initialized
+    if (k == 1 && p >= 0) {
+      return tokens[p]
+    }
+
     lazyInit()
 
     if (k == 0) {
@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+package org.antlr.v5.runtime.core
+
+/**
+ * Maps the text of identifier tokens to the types of the keywords they
+ * spell, with a minimal perfect hash.
+ *
+ * Lexer grammars with many keywords (`SELECT : 'select' ;`) and an
+ * identifier rule matching them all (`ID : [a-z]+ ;`) make every keyword
+ * compete with the identifier on its first characters, which gives large
+ * closures and DFA states. With the tool's `-Xkeyword-hash` option, the
+ * keyword rules the identifier rule would otherwise take over are left out
+ * of the lexer's mode, and [Lexer.nextToken] turns the identifiers that
+ * spell them into keyword tokens with this table.
+ *
+ * Keywords are hashed into buckets, and each bucket has a displacement
+ * chosen so that its keywords fall into free slots of the table, so a
+ * lookup hashes the text once and compares it with one keyword. The
+ * displacements are computed by [build] when generating the lexer. If two
+ * keywords have the same hash, or the displacements cannot be found,
+ * [build] tries again with another seed of the hash function.
+ *
+ * @param identifierType The token type of the identifier rule
+ * @param keywords The text of the keywords
+ * @param types The token types of [keywords]
+ * @param displacements The displacement of each bucket, from [build]
+ * @param seed The seed of the hash function, from [build]
+ * @param caseInsensitive Whether keywords match regardless of case
+ */
+public class KeywordTable(
+  public val identifierType: Int,
+  private val keywords: Array<String>,
+  private val types: IntArray,
+  private val displacements: IntArray,
+  public val seed: Int,
+  public val caseInsensitive: Boolean,
+) {
+  public companion object {
+    /**
+     * The average number of keywords per bucket.
+     */
+    private const val BUCKET_SIZE = 4
+
+    /**
+     * The number of seeds [build] tries before giving up.
+     */
+    private const val MAX_SEEDS = 64
+
+    /**
+     * The largest displacement [build] tries for a bucket before
+     * trying another seed.
+     */
+    private const val MAX_DISPLACEMENT = 1 shl 16
+
+    /**
+     * Builds the table of [keywords], whose token types are [types],
+     * choosing the displacements of the buckets.
+     */
+    public fun build(
+      identifierType: Int,
+      keywords: Array<String>,
+      types: IntArray,
+      caseInsensitive: Boolean,
+    ): KeywordTable {
+      require(keywords.size == types.size) { "keywords and types must have the same size" }
+
+      for (seed in 0..<MAX_SEEDS) {
+        val hashes = hashes(keywords, seed, caseInsensitive) ?: continue
+        val displacements = displace(hashes) ?: continue
+        return KeywordTable(identifierType, keywords, types, displacements, seed, caseInsensitive)
+      }
+
+      throw IllegalStateException("cannot build a keyword table for ${keywords.size} keywords")
+    }
+
+    /**
+     * Returns the hashes of [keywords] with [seed], or `null` if two
+     * keywords have the same hash, as no displacement can tell them apart.
+     */
+    private fun hashes(keywords: Array<String>, seed: Int, caseInsensitive: Boolean): IntArray? {
+      val hashes = IntArray(keywords.size)
+      val keywordOfHash = HashMap<Int, Int>()
+
+      for (i in keywords.indices) {
+        hashes[i] = hash(keywords[i], seed, caseInsensitive)
+        val other = keywordOfHash.put(hashes[i], i)
+
+        if (other != null) {
+          require(!equal(keywords[other], keywords[i], caseInsensitive)) {
+            "duplicate keyword ${keywords[i]}"
+          }
+
+          return null
+        }
+      }
+
+      return hashes
+    }
+
+    /**
+     * Chooses the displacements of the buckets of [hashes], or returns
+     * `null` if a bucket needs more than [MAX_DISPLACEMENT].
+     */
+    private fun displace(hashes: IntArray): IntArray? {
+      val n = hashes.size
+      val bucketCount = bucketCount(n)
+      val slotMask = slotCount(n) - 1
+      val buckets = Array(bucketCount) { ArrayList<Int>() }
+
+      for (i in 0..<n) {
+        buckets[mix(hashes[i], 0) and (bucketCount - 1)].add(i)
+      }
+
+      // Place the largest buckets first, while most slots are free
+      val order = (0..<bucketCount).sortedByDescending { buckets[it].size }
+      val used = BooleanArray(slotMask + 1)
+      val displacements = IntArray(bucketCount)
+      val slots = IntArray(buckets.maxOf { it.size })
+
+      for (b in order) {
+        val bucket = buckets[b]
+
+        if (bucket.isEmpty()) {
+          break
+        }
+
+        var d = 0
+
+        search@ while (true) {
+          d++
+
+          if (d > MAX_DISPLACEMENT) {
+            return null
+          }
+
+          for (k in bucket.indices) {
+            val slot = mix(hashes[bucket[k]], d) and slotMask
+
+            if (used[slot]) {
+              continue@search
+            }
+
+            for (j in 0..<k) {
+              if (slots[j] == slot) {
+                continue@search
+              }
+            }
+
+            slots[k] = slot
+          }
+
+          break
+        }
+
+        for (k in bucket.indices) {
+          used[slots[k]] = true
+        }
+
+        displacements[b] = d
+      }
+
+      return displacements
+    }
+
+    private fun bucketCount(n: Int): Int =
+      powerOfTwo((n + BUCKET_SIZE - 1) / BUCKET_SIZE)
+
+    /**
+     * The number of slots for [n] keywords, so that at most 4/5 are used.
+     */
+    private fun slotCount(n: Int): Int =
+      powerOfTwo(n + n / 4 + 1)
+
+    private fun powerOfTwo(n: Int): Int {
+      var p = 1
+
+      while (p < n) {
+        p = p shl 1
+      }
+
+      return p
+    }
+
+    private fun hash(text: CharSequence, seed: Int, caseInsensitive: Boolean): Int {
+      // FNV-1a, from an offset basis that depends on the seed
+      var h = -0x7ee3623b xor mix(seed, 0)
+
+      for (i in text.indices) {
+        val c = if (caseInsensitive) fold(text[i]) else text[i]
+        h = (h xor c.code) * 0x01000193
+      }
+
+      return h
+    }
+
+    private fun mix(hash: Int, displacement: Int): Int {
+      // The finalizer of MurmurHash3
+      var h = hash xor displacement * -0x61c88647
+      h = (h xor (h ushr 16)) * -0x7a143595
+      h = (h xor (h ushr 13)) * -0x3d4d51cb
+      return h xor (h ushr 16)
+    }
+
+    private fun fold(c: Char): Char =
+      c.uppercaseChar().lowercaseChar()
+
+    private fun equal(a: CharSequence, b: CharSequence, caseInsensitive: Boolean): Boolean {
+      if (a.length != b.length) {
+        return false
+      }
+
+      for (i in a.indices) {
+        if (a[i] != b[i] && (!caseInsensitive || fold(a[i]) != fold(b[i]))) {
+          return false
+        }
+      }
+
+      return true
+    }
+  }
+
+  private val slotMask: Int
+  private val slotKeywords: Array<String?>
+  private val slotTypes: IntArray
+
+  /**
+   * The number of keywords.
+   */
+  public val size: Int = keywords.size
+
+  /**
+   * The length of the shortest keyword, in code points.
+   */
+  public val minLength: Int
+
+  /**
+   * The length of the longest keyword, in code points.
+   */
+  public val maxLength: Int
+
+  init {
+    require(keywords.size == types.size) { "keywords and types must have the same size" }
+    require(displacements.size == bucketCount(keywords.size)) { "wrong number of displacements" }
+
+    val slotCount = slotCount(keywords.size)
+    slotMask = slotCount - 1
+    slotKeywords = arrayOfNulls(slotCount)
+    slotTypes = IntArray(slotCount)
+    var min = Int.MAX_VALUE
+    var max = 0
+
+    for (i in keywords.indices) {
+      val keyword = keywords[i]
+      val slot = slot(keyword)
+      require(slotKeywords[slot] == null) { "displacements do not match keywords" }
+      slotKeywords[slot] = keyword
+      slotTypes[slot] = types[i]
+
+      val length = keyword.codePointCount(0, keyword.length)
+      min = minOf(min, length)
+      max = maxOf(max, length)
+    }
+
+    minLength = min
+    maxLength = max
+  }
+
+  /**
+   * Returns the type of the keyword [text] spells, or [identifierType]
+   * if it is not a keyword.
+   */
+  public fun typeOf(text: CharSequence): Int {
+    if (size == 0) {
+      return identifierType
+    }
+
+    val slot = slot(text)
+    val keyword = slotKeywords[slot]
+
+    return if (keyword != null && equal(keyword, text, caseInsensitive)) {
+      slotTypes[slot]
+    } else {
+      identifierType
+    }
+  }
+
+  /**
+   * Returns the text of the keywords, in the order they were given.
+   */
+  public fun getKeywords(): Array<String> =
+    keywords.copyOf()
+
+  /**
+   * Returns the token types of the keywords, in the order they were given.
+   */
+  public fun getTypes(): IntArray =
+    types.copyOf()
+
+  /**
+   * Returns the displacement of each bucket, to generate code that
+   * creates this table.
+   */
+  public fun getDisplacements(): IntArray =
+    displacements.copyOf()
+
+  private fun slot(text: CharSequence): Int {
+    val hash = hash(text, seed, caseInsensitive)
+    val displacement = displacements[mix(hash, 0) and (displacements.size - 1)]
+    return mix(hash, displacement) and slotMask
+  }
+}
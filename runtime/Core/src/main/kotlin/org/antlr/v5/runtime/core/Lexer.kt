@@ -8,6 +8,7 @@ package org.antlr.v5.runtime.core
 import org.antlr.v5.runtime.core.error.LexerNoViableAltException
 import org.antlr.v5.runtime.core.error.RecognitionException
 import org.antlr.v5.runtime.core.atn.LexerATNSimulator
+import org.antlr.v5.runtime.core.ast.SourceText
 import org.antlr.v5.runtime.core.error.EmptyStackException
 import org.antlr.v5.runtime.core.misc.IntegerStack
 import org.antlr.v5.runtime.core.misc.Interval
@@ -22,7 +23,7 @@ import kotlin.collections.ArrayList
  * in the interest of speed.
  */
 @Suppress("MemberVisibilityCanBePrivate", "PropertyName")
-public abstract class Lexer(input: CharStream) : Recognizer<Int, LexerATNSimulator>(), TokenSource {
+public abstract class Lexer(input: CharStream) : Recognizer<Int, LexerATNSimulator>(), BatchTokenSource {
   public companion object {
     public const val DEFAULT_MODE: Int = 0
     public const val MORE: Int = -2
@@ -48,8 +49,54 @@ public abstract class Lexer(input: CharStream) : Recognizer<Int, LexerATNSimulat
       reset()
       _input = value
       _tokenFactorySourcePair = Pair<TokenSource, CharStream>(this, _input)
+      _sourceText = null
+
+      if (lineIndex != null) {
+        lineIndex = LineIndex(value)
+      }
     }
 
+  /**
+   * The line index of the input, with [lazyPositions]; `null` otherwise.
+   */
+  public var lineIndex: LineIndex? = null
+    private set
+
+  /**
+   * Whether the line and position in line of tokens are computed from a
+   * [LineIndex] of the input when they are read, rather than tracked for
+   * every character the lexer consumes.
+   *
+   * This saves work for the lexer when few token positions are read, e.g.,
+   * only those of tokens reported in errors. The tokens must be
+   * [CommonToken]s, as made by [CommonTokenFactory], and the input must
+   * support [CharStream.getText] for any interval already read.
+   * [_tokenStartLine] and [_tokenStartCharPositionInLine] are
+   * [LineIndex.UNRESOLVED] while matching tokens, unless actions set them.
+   * Setting [line] or [charPositionInLine] changes them in the index from
+   * the current character on, as it would when they are tracked.
+   *
+   * Set this before lexing; it applies to the current [interpreter].
+   */
+  public var lazyPositions: Boolean
+    get() = lineIndex != null
+    set(value) {
+      lineIndex = if (value) LineIndex(_input) else null
+      interpreter!!.trackPositions = !value
+    }
+
+  /**
+   * The whole input as a [SourceText], to convert the positions of nodes
+   * built from its tokens without indexing the text for each.
+   *
+   * It is made on first use and dropped when the input changes. The input
+   * must support [CharStream.getText] for all of its text.
+   */
+  public val sourceText: SourceText
+    get() = _sourceText ?: SourceText(_input.getText(Interval.of(0, _input.size() - 1))).also { _sourceText = it }
+
+  private var _sourceText: SourceText? = null
+
   /**
    * How to create token objects.
    */
@@ -119,15 +166,27 @@ public abstract class Lexer(input: CharStream) : Recognizer<Int, LexerATNSimulat
     get() = _input.sourceName
 
   override var line: Int
-    get() = interpreter!!.line
+    get() = lineIndex?.line(_input.index()) ?: interpreter!!.line
     set(line) {
-      interpreter!!.line = line
+      val lineIndex = lineIndex
+
+      if (lineIndex != null) {
+        lineIndex.setLine(_input.index(), line)
+      } else {
+        interpreter!!.line = line
+      }
     }
 
   override var charPositionInLine: Int
-    get() = interpreter!!.charPositionInLine
+    get() = lineIndex?.charPositionInLine(_input.index()) ?: interpreter!!.charPositionInLine
     set(charPositionInLine) {
-      interpreter!!.charPositionInLine = charPositionInLine
+      val lineIndex = lineIndex
+
+      if (lineIndex != null) {
+        lineIndex.setCharPositionInLine(_input.index(), charPositionInLine)
+      } else {
+        interpreter!!.charPositionInLine = charPositionInLine
+      }
     }
 
   /**
@@ -151,6 +210,15 @@ public abstract class Lexer(input: CharStream) : Recognizer<Int, LexerATNSimulat
   public open val modeNames: Array<String> =
     emptyArray()
 
+  /**
+   * The keywords of each mode that are matched as identifiers, then
+   * mapped to their token types; see [KeywordTable].
+   *
+   * Generated lexers override this when generated with `-Xkeyword-hash`.
+   */
+  public open val keywordTables: Array<KeywordTable?>? =
+    null
+
   /**
    * Used to print out token names like ID during debugging and error reporting.
    *
@@ -196,6 +264,11 @@ public abstract class Lexer(input: CharStream) : Recognizer<Int, LexerATNSimulat
     _mode = DEFAULT_MODE
     _modeStack.clear()
 
+    // Tokens already made keep the lines and positions set while lexing
+    if (lineIndex?.isShifted == true) {
+      lineIndex = LineIndex(_input)
+    }
+
     // TODO(Edoardo): 'interpreter' is abstract and might be initialized
     //  only after this method has been called for the first time
     //  (e.g., at instance construction time), so here we explicitly
@@ -205,6 +278,21 @@ public abstract class Lexer(input: CharStream) : Recognizer<Int, LexerATNSimulat
     interpreter?.reset()
   }
 
+  /**
+   * Prepare the lexer to tokenize [input] as if it had just been
+   * constructed, so that it can be pooled and reused.
+   *
+   * Besides what [reset] does, this removes the [parseDeadline]. The
+   * configuration of the lexer is kept: its error listeners, [tokenFactory]
+   * and the DFA cache of its [interpreter].
+   *
+   * @see ParserPool
+   */
+  public open fun recycle(input: CharStream) {
+    parseDeadline = null
+    inputStream = input
+  }
+
   /**
    * Return a token from this source, i.e., match a token on the char stream.
    */
@@ -223,12 +311,21 @@ public abstract class Lexer(input: CharStream) : Recognizer<Int, LexerATNSimulat
         token = null
         channel = Token.DEFAULT_CHANNEL
         _tokenStartCharIndex = _input.index()
-        _tokenStartCharPositionInLine = interpreter!!.charPositionInLine
-        _tokenStartLine = interpreter!!.line
+
+        if (lineIndex == null) {
+          _tokenStartCharPositionInLine = interpreter!!.charPositionInLine
+          _tokenStartLine = interpreter!!.line
+        } else {
+          // Computed when the token's position is read
+          _tokenStartCharPositionInLine = LineIndex.UNRESOLVED
+          _tokenStartLine = LineIndex.UNRESOLVED
+        }
+
         _text = null
 
         do {
           type = Token.INVALID_TYPE
+          val mode = _mode
           var ttype: Int
 
           try {
@@ -246,6 +343,12 @@ public abstract class Lexer(input: CharStream) : Recognizer<Int, LexerATNSimulat
 
           if (type == Token.INVALID_TYPE) {
             type = ttype
+
+            val keywords = keywordTables?.getOrNull(mode)
+
+            if (keywords != null && ttype == keywords.identifierType) {
+              type = keywordType(keywords)
+            }
           }
 
           if (type == SKIP) {
@@ -266,6 +369,45 @@ public abstract class Lexer(input: CharStream) : Recognizer<Int, LexerATNSimulat
     }
   }
 
+  /**
+   * Returns the type of the keyword the identifier just matched spells,
+   * or the identifier type.
+   */
+  private fun keywordType(keywords: KeywordTable): Int {
+    val stop = _input.index()
+    val length = stop - _tokenStartCharIndex
+
+    if (length < keywords.minLength || length > keywords.maxLength) {
+      return keywords.identifierType
+    }
+
+    return keywords.typeOf(_input.getText(Interval.of(_tokenStartCharIndex, stop - 1)))
+  }
+
+  /**
+   * Calls [nextToken] for each token, so that lexers which override it,
+   * for example to queue extra tokens, give the same tokens in batches.
+   * No per-token work of [nextToken] is shared between the tokens of a
+   * batch: what a batch saves is the call from
+   * [BufferedTokenStream.fetch] through the [TokenSource] interface for
+   * each token.
+   */
+  override fun nextTokens(buffer: MutableList<Token>, max: Int): Int {
+    var n = 0
+
+    while (n < max) {
+      val t = nextToken()
+      buffer.add(t)
+      n++
+
+      if (t.type == Token.EOF) {
+        break
+      }
+    }
+
+    return n
+  }
+
   /**
    * Instruct the lexer to skip creating a token for the current
    * lexer rule and look for another token.
@@ -375,7 +517,19 @@ public abstract class Lexer(input: CharStream) : Recognizer<Int, LexerATNSimulat
   public open fun notifyListeners(e: LexerNoViableAltException) {
     val text = _input.getText(Interval.of(_tokenStartCharIndex, _input.index()))
     val msg = "token recognition error at: '${getErrorDisplay(text)}'"
-    errorListenerDispatch.syntaxError(this, null, _tokenStartLine, _tokenStartCharPositionInLine, msg, e)
+    val lineIndex = lineIndex
+    val line = if (lineIndex != null && _tokenStartLine == LineIndex.UNRESOLVED) {
+      lineIndex.line(_tokenStartCharIndex)
+    } else {
+      _tokenStartLine
+    }
+    val charPositionInLine = if (lineIndex != null && _tokenStartCharPositionInLine == LineIndex.UNRESOLVED) {
+      lineIndex.charPositionInLine(_tokenStartCharIndex)
+    } else {
+      _tokenStartCharPositionInLine
+    }
+
+    errorListenerDispatch.syntaxError(this, null, line, charPositionInLine, msg, e)
   }
 
   public open fun getErrorDisplay(s: String): String {
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+package org.antlr.v5.runtime.core
+
+import org.antlr.v5.runtime.core.misc.Interval
+
+/**
+ * The index of the first character of each line of a [CharStream], to
+ * compute the line and position in line of any character index.
+ *
+ * The stream is scanned for line breaks (`'\n'`) lazily, in chunks, as far
+ * as the positions asked for; the positions are then found by binary search.
+ * Lines and positions are the same as those tracked by [Lexer] while
+ * consuming characters: lines start at `1`, and positions count the
+ * characters since the start of the line, from `0`.
+ *
+ * The stream must be able to return the text of any interval already read,
+ * like the streams made by `CharStreams`; unbuffered streams are not
+ * supported.
+ *
+ * Lines and positions can be changed from a character on, as when a lexer
+ * action sets [Lexer.line] or [Lexer.charPositionInLine]; see [setLine]
+ * and [setCharPositionInLine].
+ *
+ * An index may be read from any thread, as tokens are, and is
+ * synchronized on itself.
+ *
+ * @see Lexer.lazyPositions
+ */
+public class LineIndex(private val input: CharStream) {
+  public companion object {
+    /**
+     * The line and position in line of tokens that are computed with
+     * the line index of their lexer when first read.
+     */
+    public const val UNRESOLVED: Int = Int.MIN_VALUE
+
+    /**
+     * The number of characters scanned at once.
+     */
+    private const val CHUNK_SIZE = 4096
+  }
+
+  /**
+   * The index of the first character of each line.
+   */
+  private var starts = IntArray(64)
+
+  /**
+   * The number of lines found so far.
+   */
+  private var lines = 1
+
+  /**
+   * The number of characters scanned for line breaks.
+   */
+  private var scanned = 0
+
+  /**
+   * The last line looked up, which is where the next lookup usually is.
+   */
+  private var lastLine = 0
+
+  /**
+   * The character indexes from which the lines are shifted by
+   * [lineShifts], in increasing order.
+   */
+  private var lineShiftStarts = IntArray(0)
+  private var lineShifts = IntArray(0)
+  private var lineShiftCount = 0
+
+  /**
+   * The character indexes from which the positions in line are shifted by
+   * [positionShifts], up to the end of their line, in increasing order.
+   */
+  private var positionShiftStarts = IntArray(0)
+  private var positionShifts = IntArray(0)
+  private var positionShiftCount = 0
+
+  /**
+   * Whether lines or positions have been changed by [setLine] or
+   * [setCharPositionInLine].
+   */
+  internal val isShifted: Boolean
+    get() = org.antlr.v5.runtime.core.jvm.synchronized(this) { lineShiftCount > 0 || positionShiftCount > 0 }
+
+  /**
+   * Returns the line of the character at [index], from `1`.
+   */
+  public fun line(index: Int): Int =
+    org.antlr.v5.runtime.core.jvm.synchronized(this) {
+      val shift = lastShift(lineShiftStarts, lineShiftCount, index)
+      lineOf(index) + 1 + if (shift >= 0) lineShifts[shift] else 0
+    }
+
+  /**
+   * Returns the position of the character at [index] in its line, from `0`.
+   */
+  public fun charPositionInLine(index: Int): Int =
+    org.antlr.v5.runtime.core.jvm.synchronized(this) {
+      val line = lineOf(index)
+      val shift = lastShift(positionShiftStarts, positionShiftCount, index)
+
+      if (shift >= 0 && positionShiftStarts[shift] >= starts[line]) {
+        index - starts[line] + positionShifts[shift]
+      } else {
+        index - starts[line]
+      }
+    }
+
+  /**
+   * Makes [line] the line of the character at [index], and counts the
+   * lines of the following characters from it. Changes made from [index]
+   * on are discarded.
+   */
+  public fun setLine(index: Int, line: Int) {
+    org.antlr.v5.runtime.core.jvm.synchronized(this) {
+      lineShiftCount = discardShifts(lineShiftStarts, lineShiftCount, index)
+      val shift = line - (lineOf(index) + 1)
+
+      if (lineShiftCount == lineShiftStarts.size) {
+        lineShiftStarts = lineShiftStarts.copyOf(maxOf(4, lineShiftCount * 2))
+        lineShifts = lineShifts.copyOf(lineShiftStarts.size)
+      }
+
+      lineShiftStarts[lineShiftCount] = index
+      lineShifts[lineShiftCount++] = shift
+    }
+  }
+
+  /**
+   * Makes [charPositionInLine] the position of the character at [index],
+   * and counts the positions of the following characters of its line from
+   * it. Changes made from [index] on are discarded.
+   */
+  public fun setCharPositionInLine(index: Int, charPositionInLine: Int) {
+    org.antlr.v5.runtime.core.jvm.synchronized(this) {
+      positionShiftCount = discardShifts(positionShiftStarts, positionShiftCount, index)
+      val shift = charPositionInLine - (index - starts[lineOf(index)])
+
+      if (positionShiftCount == positionShiftStarts.size) {
+        positionShiftStarts = positionShiftStarts.copyOf(maxOf(4, positionShiftCount * 2))
+        positionShifts = positionShifts.copyOf(positionShiftStarts.size)
+      }
+
+      positionShiftStarts[positionShiftCount] = index
+      positionShifts[positionShiftCount++] = shift
+    }
+  }
+
+  /**
+   * Returns the number of the first [count] shifts of [shiftStarts] that
+   * start before [index].
+   */
+  private fun discardShifts(shiftStarts: IntArray, count: Int, index: Int): Int {
+    var n = count
+
+    while (n > 0 && shiftStarts[n - 1] >= index) {
+      n--
+    }
+
+    return n
+  }
+
+  /**
+   * Returns the last of the first [count] shifts of [shiftStarts] that
+   * applies to [index], or `-1` if there is none.
+   */
+  private fun lastShift(shiftStarts: IntArray, count: Int, index: Int): Int {
+    var low = 0
+    var high = count - 1
+
+    while (low <= high) {
+      val mid = (low + high) ushr 1
+
+      if (shiftStarts[mid] <= index) {
+        low = mid + 1
+      } else {
+        high = mid - 1
+      }
+    }
+
+    return high
+  }
+
+  private fun lineOf(index: Int): Int {
+    require(index >= 0) { "index must not be negative" }
+
+    if (index > scanned) {
+      scan(index)
+    }
+
+    val last = lastLine
+
+    if (starts[last] <= index && (last + 1 == lines || index < starts[last + 1])) {
+      return last
+    }
+
+    // The last line that starts at or before index
+    var low = 0
+    var high = lines - 1
+
+    while (low < high) {
+      val mid = (low + high + 1) ushr 1
+
+      if (starts[mid] <= index) {
+        low = mid
+      } else {
+        high = mid - 1
+      }
+    }
+
+    lastLine = low
+    return low
+  }
+
+  /**
+   * Finds the line breaks before [index].
+   */
+  private fun scan(index: Int) {
+    val end = minOf(maxOf(index, scanned + CHUNK_SIZE), input.size())
+
+    if (end <= scanned) {
+      return
+    }
+
+    val text = input.getText(Interval.of(scanned, end - 1))
+    var i = scanned
+    var j = 0
+
+    while (j < text.length) {
+      val c = text.codePointAt(j)
+      i++
+
+      if (c == '\n'.code) {
+        addLine(i)
+      }
+
+      j += if (c >= Character.MIN_SUPPLEMENTARY_CODE_POINT) 2 else 1
+    }
+
+    scanned = end
+  }
+
+  private fun addLine(start: Int) {
+    if (lines == starts.size) {
+      starts = starts.copyOf(lines * 2)
+    }
+
+    starts[lines++] = start
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+package org.antlr.v5.runtime.core
+
+/**
+ * Receives the events of a parse as they happen, without a parse tree,
+ * in the manner of a SAX handler.
+ *
+ * Set [Parser.parseEventSink] and [Parser.buildParseTree]` = false` to
+ * parse in streaming mode. Rule events are reported in the same order as
+ * [Parser.addParseListener] listeners see them, including for
+ * left-recursive rules, but only carry the rule index and tokens.
+ */
+public interface ParseEventSink {
+  /**
+   * A rule was entered; [start] is its first token.
+   */
+  public fun enterRule(ruleIndex: Int, start: Token)
+
+  /**
+   * A rule was exited; [stop] is its last token, or `null` if nothing
+   * was consumed before it.
+   */
+  public fun exitRule(ruleIndex: Int, stop: Token?)
+
+  /**
+   * A token was matched.
+   */
+  public fun token(token: Token)
+
+  /**
+   * A token was consumed during error recovery.
+   */
+  public fun errorToken(token: Token)
+}
@@ -12,6 +12,7 @@ import org.antlr.v5.runtime.core.error.ANTLRErrorStrategy
 import org.antlr.v5.runtime.core.error.DefaultErrorStrategy
 import org.antlr.v5.runtime.core.error.RecognitionException
 import org.antlr.v5.runtime.core.info.ParseInfo
+import org.antlr.v5.runtime.core.info.SharedParseProfile
 import org.antlr.v5.runtime.core.misc.IntegerStack
 import org.antlr.v5.runtime.core.misc.IntervalSet
 import org.antlr.v5.runtime.core.transition.RuleTransition
@@ -123,6 +124,28 @@ public abstract class Parser(input: TokenStream) : Recognizer<Token, ParserATNSi
    */
   protected var _parseListeners: MutableList<ParseTreeListener> = ArrayList()
 
+  /**
+   * Receives rule and token events as they happen.
+   *
+   * Together with [buildParseTree]` = false` and no parse listeners, this
+   * puts the parser in streaming mode: no terminal nodes are created, and
+   * the contexts of rules whose generated code asks for it through
+   * [recycledContext] are reused once the rule has exited, so memory use
+   * does not grow with the input. Contexts returned by rule methods must
+   * then not be kept past the next rule invocation.
+   */
+  public var parseEventSink: ParseEventSink? = null
+
+  /**
+   * Rule index to whether the generated code for the rule reuses contexts.
+   */
+  private var recyclableRules = BooleanArray(0)
+
+  /**
+   * Rule index to contexts released by exited invocations of the rule.
+   */
+  private var contextPools = arrayOfNulls<ArrayList<ParserRuleContext>>(0)
+
   /**
    * The number of syntax errors reported during parsing.
    *
@@ -310,6 +333,32 @@ public abstract class Parser(input: TokenStream) : Recognizer<Token, ParserATNSi
     _precedenceStack.push(0)
     if(interpreter != null)
         interpreter!!.reset()
+
+    // Released contexts still reference the tokens of the previous parse
+    for (pool in contextPools) {
+      pool?.clear()
+    }
+  }
+
+  /**
+   * Prepare the parser to parse [input] as if it had just been
+   * constructed, so that it can be pooled and reused.
+   *
+   * Besides what [reset] does, including dropping the contexts kept for
+   * reuse in streaming mode, this removes the parse listeners,
+   * the [parseEventSink] and the [parseDeadline], which belong to a single
+   * parse. The configuration of the parser is kept: its error listeners
+   * and [errorHandler], [buildParseTree], and the prediction mode, limits
+   * and DFA cache of its [interpreter]. Nothing is allocated.
+   *
+   * @see ParserPool
+   */
+  public open fun recycle(input: TokenStream) {
+    removeParseListeners()
+    _tracer = null
+    parseEventSink = null
+    parseDeadline = null
+    tokenStream = input
   }
 
   /**
@@ -451,6 +500,8 @@ public abstract class Parser(input: TokenStream) : Recognizer<Token, ParserATNSi
       listener.enterEveryRule(context!!)
       context!!.enterRule(listener)
     }
+
+    parseEventSink?.enterRule(context!!.ruleIndex, context!!.start!!)
   }
 
   /**
@@ -459,6 +510,8 @@ public abstract class Parser(input: TokenStream) : Recognizer<Token, ParserATNSi
    * @see addParseListener
    */
   protected open fun triggerExitRuleEvent() {
+    parseEventSink?.exitRule(context!!.ruleIndex, context!!.stop)
+
     // Reverse order walk of listeners
     for (listener in _parseListeners.asReversed()) {
       context!!.exitRule(listener)
@@ -509,6 +562,8 @@ public abstract class Parser(input: TokenStream) : Recognizer<Token, ParserATNSi
       tokenStream.consume()
     }
 
+    val sink = parseEventSink
+
     if (buildParseTree || _parseListeners.isNotEmpty()) {
       if (errorHandler.inErrorRecoveryMode(this)) {
         val node = context!!.addErrorNode(createErrorNode(context, o))
@@ -516,12 +571,22 @@ public abstract class Parser(input: TokenStream) : Recognizer<Token, ParserATNSi
         for (listener in _parseListeners) {
           listener.visitErrorNode(node)
         }
+
+        sink?.errorToken(o)
       } else {
         val node = context!!.addChild(createTerminalNode(context, o))
 
         for (listener in _parseListeners) {
           listener.visitTerminal(node)
         }
+
+        sink?.token(o)
+      }
+    } else if (sink != null) {
+      if (errorHandler.inErrorRecoveryMode(this)) {
+        sink.errorToken(o)
+      } else {
+        sink.token(o)
       }
     }
 
@@ -584,8 +649,60 @@ public abstract class Parser(input: TokenStream) : Recognizer<Token, ParserATNSi
 
     // Trigger event on context, before it reverts to parent
     triggerExitRuleEvent()
-    state = context!!.invokingState
-    context = context!!.getParent()
+    val exited = context!!
+    state = exited.invokingState
+    context = exited.getParent()
+
+    if (isStreaming) {
+      releaseContext(exited)
+    }
+  }
+
+  private val isStreaming: Boolean
+    get() = parseEventSink != null && !buildParseTree && _parseListeners.isEmpty()
+
+  /**
+   * Called by generated parsers upon entry to a rule whose context holds no
+   * labels, attributes or actions, in place of creating a new context.
+   *
+   * In streaming mode (see [parseEventSink]), return a context released by
+   * an earlier invocation of rule [ruleIndex], reset for an invocation from
+   * [parent] at [invokingState]. Otherwise, or if there is none, return `null`
+   * and the generated code creates a new context.
+   */
+  public fun recycledContext(ruleIndex: Int, parent: ParserRuleContext?, invokingState: Int): ParserRuleContext? {
+    if (ruleIndex >= recyclableRules.size) {
+      val size = maxOf(ruleIndex + 1, ruleNames.size)
+      recyclableRules = recyclableRules.copyOf(size)
+      contextPools = contextPools.copyOf(size)
+    }
+
+    recyclableRules[ruleIndex] = true
+
+    if (!isStreaming) {
+      return null
+    }
+
+    val pool = contextPools[ruleIndex]
+
+    if (pool.isNullOrEmpty()) {
+      return null
+    }
+
+    val ctx = pool.removeAt(pool.size - 1)
+    ctx.recycle(parent, invokingState)
+    return ctx
+  }
+
+  private fun releaseContext(ctx: ParserRuleContext) {
+    val ruleIndex = ctx.ruleIndex
+
+    if (ruleIndex < 0 || ruleIndex >= recyclableRules.size || !recyclableRules[ruleIndex]) {
+      return
+    }
+
+    val pool = contextPools[ruleIndex] ?: ArrayList<ParserRuleContext>().also { contextPools[ruleIndex] = it }
+    pool.add(ctx)
   }
 
   public fun enterOuterAlt(localctx: ParserRuleContext, altNum: Int) {
@@ -645,7 +762,7 @@ public abstract class Parser(input: TokenStream) : Recognizer<Token, ParserATNSi
     val retCtx = context
 
     // Unroll so context is as it was before call to recursive method
-    if (parseListeners.isNotEmpty()) {
+    if (parseListeners.isNotEmpty() || parseEventSink != null) {
       while (context !== _parentctx) {
         triggerExitRuleEvent()
         context = context!!.getParent()
@@ -795,16 +912,40 @@ public abstract class Parser(input: TokenStream) : Recognizer<Token, ParserATNSi
   public fun setProfile(profile: Boolean) {
     val interp = interpreter
     val saveMode = interp!!.predictionMode
+    val saveLimits = interp.predictionLimits
 
     if (profile) {
       if (interp !is ProfilingATNSimulator) {
         interpreter = ProfilingATNSimulator(this)
       }
-    } else if (interp is ProfilingATNSimulator) {
+    } else if (interp is ProfilingATNSimulator || interp is SharedProfilingATNSimulator) {
       val sim = ParserATNSimulator(this, atn, interp.decisionToDFA, interp.sharedContextCache!!)
       interpreter = sim
     }
 
     interpreter!!.predictionMode = saveMode
+    interpreter!!.predictionLimits = saveLimits
+  }
+
+  /**
+   * Profile this parser into [profile], which aggregates the decision
+   * counters of every parser profiling into it, across threads.
+   *
+   * The profile usually comes from [SharedParseProfile.forDecisionToDFA]
+   * so that all parsers sharing this parser's DFA cache report together.
+   * [parseInfo] is not available while profiling this way; use
+   * [SharedParseProfile.snapshot] instead. Call `setProfile(false)` to stop.
+   */
+  public fun setProfile(profile: SharedParseProfile) {
+    val interp = interpreter
+    val saveMode = interp!!.predictionMode
+    val saveLimits = interp.predictionLimits
+
+    if (interp !is SharedProfilingATNSimulator || interp.profile !== profile) {
+      interpreter = SharedProfilingATNSimulator(this, profile)
+    }
+
+    interpreter!!.predictionMode = saveMode
+    interpreter!!.predictionLimits = saveLimits
   }
 }
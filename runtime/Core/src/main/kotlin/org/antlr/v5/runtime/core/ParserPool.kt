@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.runtime.core
+
+/**
+ * A pool of lexer, token stream and parser triples, so that parsing many
+ * small inputs does not construct new recognizers and simulators for each.
+ *
+ * [acquire] returns an idle triple re-pointed at the new input with
+ * [Lexer.recycle] and [Parser.recycle], or a new one if none is idle.
+ * Closing the [Instance] returns it to the pool. The pool may be shared
+ * by any number of threads; an instance must only be used by one thread
+ * at a time.
+ *
+ * ```
+ * val pool = ParserPool({ MyLexer(it) }, { MyParser(it) })
+ *
+ * pool.acquire(CharStreams.fromString(text)).use {
+ *   val tree = it.parser.compilationUnit()
+ * }
+ * ```
+ *
+ * Configuration done in [newLexer] and [newParser], such as error
+ * listeners, is kept across uses; see [Parser.recycle] for what is not.
+ * Parse trees remain valid after their instance is closed, as they only
+ * reference the tokens, not the recognizers.
+ *
+ * @param newLexer Creates a lexer reading the given input
+ * @param newParser Creates a parser reading the given token stream
+ * @param maxIdle The maximum number of idle instances kept
+ */
+public class ParserPool<L : Lexer, P : Parser>(
+  private val newLexer: (CharStream) -> L,
+  private val newParser: (TokenStream) -> P,
+  public val maxIdle: Int = 16,
+) {
+  /**
+   * A lexer, the token stream it feeds and the parser reading it.
+   */
+  public class Instance<L : Lexer, P : Parser> internal constructor(
+    internal val pool: ParserPool<L, P>,
+    public val lexer: L,
+    public val tokens: CommonTokenStream,
+    public val parser: P,
+  ) : AutoCloseable {
+    internal var idle = false
+
+    /**
+     * Returns this instance to its pool.
+     */
+    override fun close() {
+      pool.release(this)
+    }
+  }
+
+  private val idle = ArrayList<Instance<L, P>>()
+
+  init {
+    require(maxIdle >= 0) { "maxIdle must not be negative: $maxIdle" }
+  }
+
+  /**
+   * Returns an instance whose lexer reads [input].
+   */
+  public fun acquire(input: CharStream): Instance<L, P> {
+    val instance = org.antlr.v5.runtime.core.jvm.synchronized(idle) {
+      if (idle.isEmpty()) null else idle.removeAt(idle.size - 1)
+    }
+
+    if (instance == null) {
+      val lexer = newLexer(input)
+      val tokens = CommonTokenStream(lexer)
+      return Instance(this, lexer, tokens, newParser(tokens))
+    }
+
+    instance.idle = false
+    instance.lexer.recycle(input)
+    instance.tokens.tokenSource = instance.lexer
+    instance.parser.recycle(instance.tokens)
+    return instance
+  }
+
+  /**
+   * Returns [instance] to the pool, unless it already holds [maxIdle]
+   * instances. The instance lets go of its input, its tokens and the
+   * contexts a streaming parse kept for reuse (see [Parser.recycle]),
+   * keeping only the capacity of its buffers. Releasing an instance twice
+   * has no effect.
+   */
+  public fun release(instance: Instance<L, P>) {
+    require(instance.pool === this) { "instance belongs to another pool" }
+
+    val released = org.antlr.v5.runtime.core.jvm.synchronized(idle) {
+      val wasIdle = instance.idle
+      instance.idle = true
+      !wasIdle
+    }
+
+    if (!released) {
+      return
+    }
+
+    instance.parser.recycle(DummyTokenStream)
+    instance.lexer.recycle(DummyCharStream)
+    instance.tokens.tokenSource = instance.lexer
+
+    org.antlr.v5.runtime.core.jvm.synchronized(idle) {
+      if (idle.size < maxIdle) {
+        idle.add(instance)
+      }
+    }
+  }
+
+  /**
+   * The number of idle instances.
+   */
+  public val idleCount: Int
+    get() = org.antlr.v5.runtime.core.jvm.synchronized(idle) {
+      idle.size
+    }
+}
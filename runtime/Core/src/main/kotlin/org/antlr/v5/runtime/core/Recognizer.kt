@@ -15,6 +15,7 @@ import org.antlr.v5.runtime.core.error.RecognitionException
 import org.antlr.v5.runtime.core.info.ParseInfo
 import org.antlr.v5.runtime.core.jvm.CopyOnWriteArrayList
 import org.antlr.v5.runtime.core.jvm.WeakHashMap
+import org.antlr.v5.runtime.core.misc.ParseDeadline
 import org.antlr.v5.runtime.core.misc.Utils
 import kotlin.collections.HashMap
 
@@ -45,6 +46,14 @@ public abstract class Recognizer<Symbol, ATNInterpreter : ATNSimulator> {
    */
   public abstract var interpreter: ATNInterpreter?
 
+  /**
+   * The time budget and cancellation token checked by [interpreter]
+   * while it predicts or matches, or `null` to run without limit.
+   *
+   * @see ParseDeadline
+   */
+  public var parseDeadline: ParseDeadline? = null
+
   /**
    * Used to print out token names like ID during debugging and error reporting.
    *
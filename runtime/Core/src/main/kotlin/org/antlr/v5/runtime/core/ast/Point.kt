@@ -12,10 +12,6 @@ package org.antlr.v5.runtime.core.ast
  * @param column Should be in the `0..n` range
  */
 public data class Point(val line: Int, val column: Int) {
-  private companion object {
-    private val lineBreakRegex = Regex("\r\n|\r|\n")
-  }
-
   init {
     require(line >= 1) {
       "Line should be equal or greater than 1, but was $line"
@@ -31,36 +27,48 @@ public data class Point(val line: Int, val column: Int) {
 
   /**
    * Translate the point to an offset in the original code stream.
+   *
+   * This indexes the lines of [code]; to translate many points, use a
+   * [SourceText] of it instead.
    */
-  public fun offset(code: String): Int {
-    val lines = code.split("\n")
+  public fun offset(code: String): Int =
+    SourceText(code).offset(this)
 
-    require(lines.size >= line) {
-      "The point does not exist in the given text. It indicates line $line but there are only ${lines.size} lines"
-    }
-
-    require(lines[line - 1].length >= column) {
-      "The column does not exist in the given text. Line $line has ${lines[line - 1].length} columns, the point indicates column $column"
-    }
-
-    val newLines = line - 1
-    val foldedLines = lines.subList(0, line - 1).foldRight(0) { it, acc ->
-      it.length + acc
-    }
-
-    return foldedLines + newLines + column
-  }
+  /**
+   * Translate the point to an offset in [source].
+   */
+  public fun offset(source: SourceText): Int =
+    source.offset(this)
 
   public fun isBefore(other: Point): Boolean =
     line < other.line || (line == other.line && column < other.column)
 
+  /**
+   * Returns the point after [text], if it starts at this point.
+   * Lines end with `"\r\n"`, `'\r'` or `'\n'`.
+   */
   public fun advance(text: String): Point {
-    val matches = lineBreakRegex.findAll(text)
-    val line = line + matches.count()
-    val col = if (matches.none()) {
+    var line = line
+    var lineStart = -1
+    var i = 0
+
+    while (i < text.length) {
+      val c = text[i++]
+
+      if (c == '\n' || c == '\r') {
+        if (c == '\r' && i < text.length && text[i] == '\n') {
+          i++
+        }
+
+        line++
+        lineStart = i
+      }
+    }
+
+    val col = if (lineStart < 0) {
       column + text.length
     } else {
-      text.length - matches.last().range.last - 1
+      text.length - lineStart
     }
 
     return Point(line, col)
@@ -26,10 +26,19 @@ public data class Position(val start: Point, val end: Point) {
    * Given the whole code, extract the portion of text corresponding to this position.
    */
   public fun text(wholeText: String): String =
-    wholeText.substring(start.offset(wholeText), end.offset(wholeText))
+    text(SourceText(wholeText))
+
+  /**
+   * Given the whole code, extract the portion of text corresponding to this position.
+   */
+  public fun text(source: SourceText): String =
+    source.text(this)
 
   public fun length(code: String): Int =
-    end.offset(code) - start.offset(code)
+    length(SourceText(code))
+
+  public fun length(source: SourceText): Int =
+    source.offset(end) - source.offset(start)
 
   public fun contains(point: Point): Boolean =
     ((point == start || start.isBefore(point)) && (point == end || point.isBefore(end)))
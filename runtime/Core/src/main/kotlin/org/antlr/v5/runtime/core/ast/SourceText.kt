@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+package org.antlr.v5.runtime.core.ast
+
+/**
+ * A textual source with the offset of each of its lines, to convert
+ * [Point]s to offsets in [text] and back without scanning the text again.
+ *
+ * Lines end with `'\n'`, as for [Point.offset]. Building the index scans
+ * the text once; converting a point to an offset then takes constant time,
+ * and an offset to a point a binary search. To convert many points of the
+ * same text, make its source once, or use
+ * [org.antlr.v5.runtime.core.Lexer.sourceText].
+ *
+ * @param text The whole source
+ */
+public class SourceText(public val text: String) {
+  /**
+   * The offset of the first character of each line.
+   */
+  private val lineStarts: IntArray
+
+  init {
+    var count = 1
+
+    for (c in text) {
+      if (c == '\n') {
+        count++
+      }
+    }
+
+    lineStarts = IntArray(count)
+    var line = 1
+
+    for (i in text.indices) {
+      if (text[i] == '\n') {
+        lineStarts[line++] = i + 1
+      }
+    }
+  }
+
+  /**
+   * The number of lines.
+   */
+  public val lineCount: Int
+    get() = lineStarts.size
+
+  /**
+   * Returns the length of [line], without its line break.
+   */
+  public fun lineLength(line: Int): Int {
+    require(line in 1..lineCount) {
+      "The line does not exist in the given text. It is line $line but there are only $lineCount lines"
+    }
+
+    val end = if (line < lineCount) lineStarts[line] - 1 else text.length
+    return end - lineStarts[line - 1]
+  }
+
+  /**
+   * Translates [point] to an offset in [text].
+   */
+  public fun offset(point: Point): Int {
+    require(lineCount >= point.line) {
+      "The point does not exist in the given text. It indicates line ${point.line} but there are only $lineCount lines"
+    }
+
+    val length = lineLength(point.line)
+
+    require(length >= point.column) {
+      "The column does not exist in the given text. Line ${point.line} has $length columns, the point indicates column ${point.column}"
+    }
+
+    return lineStarts[point.line - 1] + point.column
+  }
+
+  /**
+   * Translates [offset], in `0..text.length`, to a point.
+   */
+  public fun point(offset: Int): Point {
+    require(offset in 0..text.length) {
+      "The offset does not exist in the given text. It is $offset but the text has ${text.length} characters"
+    }
+
+    // The last line that starts at or before offset
+    var low = 0
+    var high = lineStarts.size - 1
+
+    while (low < high) {
+      val mid = (low + high + 1) ushr 1
+
+      if (lineStarts[mid] <= offset) {
+        low = mid
+      } else {
+        high = mid - 1
+      }
+    }
+
+    return Point(low + 1, offset - lineStarts[low])
+  }
+
+  /**
+   * Extracts the portion of [text] corresponding to [position].
+   */
+  public fun text(position: Position): String =
+    text.substring(offset(position.start), offset(position.end))
+}
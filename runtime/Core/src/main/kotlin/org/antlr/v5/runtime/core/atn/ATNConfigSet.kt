@@ -11,7 +11,6 @@ import org.antlr.v5.runtime.core.context.SemanticContext
 import org.antlr.v5.runtime.core.jvm.BitSet
 import org.antlr.v5.runtime.core.misc.AbstractEqualityComparator
 import org.antlr.v5.runtime.core.misc.Array2DHashSet
-import org.antlr.v5.runtime.core.misc.DoubleKeyMap
 import org.antlr.v5.runtime.core.state.ATNState
 import kotlin.math.max
 
@@ -171,7 +170,7 @@ public open class ATNConfigSet(public val fullCtx: Boolean = true) : MutableSet<
    */
   public fun add(
       config: ATNConfig,
-      mergeCache: DoubleKeyMap<PredictionContext, PredictionContext, PredictionContext>?,
+      mergeCache: PredictionContextMergeCache?,
   ): Boolean {
     if (isReadonly) {
       throw IllegalStateException("This set is readonly")
@@ -225,7 +224,7 @@ public open class ATNConfigSet(public val fullCtx: Boolean = true) : MutableSet<
       throw IllegalStateException("This set is readonly")
     }
 
-    if (configLookup!!.isEmpty()) {
+    if (configLookup!!.isEmpty() || interpreter.sharedContextCache?.interning == true) {
       return
     }
 
@@ -9,6 +9,7 @@ package org.antlr.v5.runtime.core.atn
 import org.antlr.v5.runtime.core.Token
 import org.antlr.v5.runtime.core.action.*
 import org.antlr.v5.runtime.core.misc.IntervalSet
+import org.antlr.v5.runtime.core.misc.IntervalSetMatcher
 import org.antlr.v5.runtime.core.misc.decodeIntsEncodedAs16BitWords
 import org.antlr.v5.runtime.core.state.*
 import org.antlr.v5.runtime.core.transition.*
@@ -25,6 +26,19 @@ public open class ATNDeserializer(deserializationOptions: ATNDeserializationOpti
   private val deserializationOptions: ATNDeserializationOptions =
     deserializationOptions ?: ATNDeserializationOptions.defaultOptions
 
+  /**
+   * The deserialized sets along with their matchers, so that all
+   * [SetTransition]s on the same set share one [IntervalSetMatcher].
+   */
+  private class MatchableSets(private val sets: List<IntervalSet>) : List<IntervalSet> by sets {
+    private val matchers = arrayOfNulls<IntervalSetMatcher>(sets.size)
+
+    fun matcher(index: Int): IntervalSetMatcher =
+      matchers[index] ?: IntervalSetMatcher(sets[index]).also {
+        matchers[index] = it
+      }
+  }
+
   public open fun deserialize(data: CharArray): ATN =
     deserialize(decodeIntsEncodedAs16BitWords(data))
 
@@ -141,8 +155,9 @@ public open class ATNDeserializer(deserializationOptions: ATNDeserializationOpti
     //
     // SETS
     //
-    val sets = ArrayList<IntervalSet>()
-    p = deserializeSets(data, p, sets)
+    val deserializedSets = ArrayList<IntervalSet>()
+    p = deserializeSets(data, p, deserializedSets)
+    val sets = MatchableSets(deserializedSets)
 
     //
     // EDGES
@@ -511,10 +526,10 @@ public open class ATNDeserializer(deserializationOptions: ATNDeserializationOpti
         ActionTransition(target, arg1, arg2, arg3 != 0)
       }
       Transition.SET -> {
-        SetTransition(target, sets[arg1])
+        SetTransition(target, sets[arg1], matcherFor(sets, arg1))
       }
       Transition.NOT_SET -> {
-        NotSetTransition(target, sets[arg1])
+        NotSetTransition(target, sets[arg1], matcherFor(sets, arg1))
       }
       Transition.WILDCARD -> {
         WildcardTransition(target)
@@ -523,6 +538,13 @@ public open class ATNDeserializer(deserializationOptions: ATNDeserializationOpti
     }
   }
 
+  private fun matcherFor(sets: List<IntervalSet>, index: Int): IntervalSetMatcher =
+    if (sets is MatchableSets) {
+      sets.matcher(index)
+    } else {
+      IntervalSetMatcher(sets[index])
+    }
+
   public open fun stateFactory(type: Int, ruleIndex: Int): ATNState? {
     val s: ATNState = when (type) {
       ATNState.INVALID_TYPE -> return null
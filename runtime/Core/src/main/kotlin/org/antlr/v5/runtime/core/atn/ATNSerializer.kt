@@ -30,28 +30,31 @@ public open class ATNSerializer(public var atn: ATN) {
 
       for (set in sets) {
         val containsEof = set.contains(Token.EOF)
-        val intervals = set.intervals!!
+        val n = set.intervalCount
 
-        if (containsEof && intervals[0].b == Token.EOF) {
-          data.add(intervals.size - 1)
+        if (containsEof && set.intervalEnd(0) == Token.EOF) {
+          data.add(n - 1)
         } else {
-          data.add(intervals.size)
+          data.add(n)
         }
 
         data.add(if (containsEof) 1 else 0)
 
-        for (@Suppress("LocalVariableName") I in intervals) {
-          if (I.a == Token.EOF) {
-            if (I.b == Token.EOF) {
+        for (i in 0..<n) {
+          val a = set.intervalStart(i)
+          val b = set.intervalEnd(i)
+
+          if (a == Token.EOF) {
+            if (b == Token.EOF) {
               continue
             } else {
               data.add(0)
             }
           } else {
-            data.add(I.a)
+            data.add(a)
           }
 
-          data.add(I.b)
+          data.add(b)
         }
       }
     }
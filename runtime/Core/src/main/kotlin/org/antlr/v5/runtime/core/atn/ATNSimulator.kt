@@ -7,6 +7,7 @@
 package org.antlr.v5.runtime.core.atn
 
 import org.antlr.v5.runtime.core.context.PredictionContext
+import org.antlr.v5.runtime.core.context.SingletonPredictionContext
 import org.antlr.v5.runtime.core.dfa.DFAState
 import org.antlr.v5.runtime.core.jvm.IdentityHashMap
 
@@ -47,6 +48,17 @@ public abstract class ATNSimulator(
 
   public abstract fun reset()
 
+  /**
+   * Creates the context for a call returning to [returnState],
+   * interned if the [sharedContextCache] is interning.
+   */
+  protected fun createSingletonContext(parent: PredictionContext?, returnState: Int): SingletonPredictionContext =
+    if (sharedContextCache != null && sharedContextCache.interning) {
+      sharedContextCache.singleton(parent, returnState)
+    } else {
+      SingletonPredictionContext.create(parent, returnState)
+    }
+
   /**
    * Clear the DFA cache used by the current instance. Since the DFA cache may
    * be shared by multiple ATN simulators, this method may affect the
@@ -62,7 +74,8 @@ public abstract class ATNSimulator(
     throw UnsupportedOperationException("This ATN simulator does not support clearing the DFA.")
 
   public open fun getCachedContext(context: PredictionContext): PredictionContext {
-    if (sharedContextCache == null) {
+    // Interned contexts are already canonical
+    if (sharedContextCache == null || sharedContextCache.interning) {
       return context
     }
 
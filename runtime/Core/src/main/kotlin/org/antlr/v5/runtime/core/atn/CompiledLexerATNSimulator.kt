@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.runtime.core.atn
+
+import org.antlr.v5.runtime.core.CharStream
+import org.antlr.v5.runtime.core.IntStream
+import org.antlr.v5.runtime.core.Lexer
+import org.antlr.v5.runtime.core.Token
+import org.antlr.v5.runtime.core.dfa.DFA
+
+/**
+ * A lexer simulator that matches tokens with the transition tables of a
+ * [CompiledLexerDFA], without computing configuration sets or DFA states.
+ *
+ * Modes the compiled DFA has no table for are matched by
+ * [LexerATNSimulator]. When no token matches, the input is matched again
+ * by [LexerATNSimulator] too, so errors are reported exactly as before.
+ */
+public open class CompiledLexerATNSimulator(
+  recog: Lexer?,
+  atn: ATN,
+  decisionToDFA: Array<DFA>,
+  sharedContextCache: PredictionContextCache?,
+  public val compiledDFA: CompiledLexerDFA,
+) : LexerATNSimulator(recog, atn, decisionToDFA, sharedContextCache) {
+  override fun match(input: CharStream, mode: Int): Int {
+    val table = compiledDFA.mode(mode) ?: return super.match(input, mode)
+    this.mode = mode
+    this.deadline = recog?.parseDeadline
+    val mark = input.mark()
+
+    try {
+      val startLine = line
+      val startCharPositionInLine = charPositionInLine
+      this.startIndex = input.index()
+      checkDeadline(input)
+
+      var acceptState = CompiledLexerDFA.NONE
+      var acceptIndex = -1
+      var acceptLine = 0
+      var acceptCharPos = -1
+      var s = table.start
+
+      if (table.isAcceptState(s)) {
+        // Allow zero-length tokens
+        acceptState = s
+        acceptIndex = input.index()
+        acceptLine = line
+        acceptCharPos = charPositionInLine
+      }
+
+      var t = input.LA(1)
+
+      while (true) {
+        val target = table.target(s, t)
+
+        if (target == CompiledLexerDFA.NONE) {
+          break
+        }
+
+        // Consume before capturing the accept state, as in execATN
+        if (t != IntStream.EOF) {
+          consume(input)
+        }
+
+        if (table.isAcceptState(target)) {
+          acceptState = target
+          acceptIndex = input.index()
+          acceptLine = line
+          acceptCharPos = charPositionInLine
+
+          if (t == IntStream.EOF) {
+            break
+          }
+        }
+
+        t = input.LA(1)
+        s = target
+      }
+
+      if (acceptState != CompiledLexerDFA.NONE) {
+        accept(input, table.lexerActionExecutor(acceptState), startIndex, acceptIndex, acceptLine, acceptCharPos)
+        return table.prediction(acceptState)
+      }
+
+      // If no accept and EOF is first char, return EOF
+      if (t == IntStream.EOF && input.index() == startIndex) {
+        return Token.EOF
+      }
+
+      input.seek(startIndex)
+      line = startLine
+      charPositionInLine = startCharPositionInLine
+      return super.match(input, mode)
+    } finally {
+      input.release(mark)
+    }
+  }
+}
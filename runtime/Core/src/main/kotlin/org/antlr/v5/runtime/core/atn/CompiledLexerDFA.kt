@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.runtime.core.atn
+
+import org.antlr.v5.runtime.core.action.LexerAction
+import org.antlr.v5.runtime.core.action.LexerActionExecutor
+import org.antlr.v5.runtime.core.misc.IntegerList
+import org.antlr.v5.runtime.core.misc.decodeIntsEncodedAs16BitWords
+import kotlin.jvm.JvmStatic
+
+/**
+ * The complete, minimized DFA of each mode of a lexer ATN, as transition
+ * tables, made ahead of time by [compile] and executed by
+ * [CompiledLexerATNSimulator].
+ *
+ * The characters are grouped into classes that no transition of the mode
+ * tells apart, so each table has one column per class, plus one for EOF.
+ * A mode whose rules evaluate predicates or run custom actions cannot be
+ * determinized ahead of time, and has no table: [mode] returns `null` and
+ * the mode is left to the ATN simulator.
+ *
+ * The tool serializes a compiled DFA into the generated lexer with
+ * `-Xcompiled-lexer`; see [serialize] and [deserialize].
+ */
+public class CompiledLexerDFA internal constructor(
+  private val modes: Array<Mode?>,
+) {
+  public companion object {
+    public const val SERIALIZED_VERSION: Int = 1
+
+    /**
+     * The largest table, in entries, [compile] makes for a mode before it
+     * leaves the mode to the ATN simulator.
+     */
+    public const val DEFAULT_MAX_TABLE_SIZE: Int = 1 shl 18
+
+    /**
+     * A transition to no state, or the prediction of a state that does
+     * not accept.
+     */
+    public const val NONE: Int = -1
+
+    /**
+     * Determinizes each mode of the lexer [atn].
+     *
+     * @param maxTableSize The maximum number of transition table entries
+     *   of a mode; larger modes are left to the ATN simulator
+     */
+    @JvmStatic
+    public fun compile(atn: ATN, maxTableSize: Int = DEFAULT_MAX_TABLE_SIZE): CompiledLexerDFA {
+      require(atn.grammarType == ATNType.LEXER) { "The ATN must be a lexer ATN." }
+      return LexerDFACompiler(atn).compile(maxTableSize)
+    }
+
+    @JvmStatic
+    public fun deserialize(data: CharArray, atn: ATN): CompiledLexerDFA =
+      deserialize(decodeIntsEncodedAs16BitWords(data), atn)
+
+    @JvmStatic
+    public fun deserialize(data: IntArray, atn: ATN): CompiledLexerDFA {
+      var p = 0
+      val version = data[p++]
+
+      if (version != SERIALIZED_VERSION) {
+        val reason = "Could not deserialize lexer DFA with version $version (expected $SERIALIZED_VERSION)."
+        throw UnsupportedOperationException(reason)
+      }
+
+      val lexerActions = atn.lexerActions ?: emptyArray()
+      val executors = Array(data[p++]) {
+        val n = data[p++]
+        LexerActionExecutor(Array(n) { lexerActions[data[p++]] })
+      }
+
+      val modes = Array(data[p++]) {
+        val columns = data[p++]
+
+        if (columns == 0) {
+          null
+        } else {
+          val ranges = data[p++]
+          val rangeStarts = IntArray(ranges)
+          val rangeColumns = IntArray(ranges)
+
+          for (i in 0..<ranges) {
+            rangeStarts[i] = data[p++]
+            rangeColumns[i] = data[p++]
+          }
+
+          val states = data[p++]
+          val start = data[p++]
+          val transitions = data.copyOfRange(p, p + states * columns)
+          p += transitions.size
+          val predictions = data.copyOfRange(p, p + states)
+          p += states
+          val stateExecutors = Array(states) {
+            val e = data[p++]
+            if (e == NONE) null else executors[e]
+          }
+
+          Mode(columns, rangeStarts, rangeColumns, start, transitions, predictions, stateExecutors)
+        }
+      }
+
+      return CompiledLexerDFA(modes)
+    }
+  }
+
+  /**
+   * The transition table of one mode.
+   *
+   * @param columns The number of columns; the last is for EOF
+   * @param rangeStarts The first character of each range of characters
+   *   sharing a column, in increasing order, starting with 0
+   * @param rangeColumns The column of each range
+   */
+  public class Mode internal constructor(
+    internal val columns: Int,
+    internal val rangeStarts: IntArray,
+    internal val rangeColumns: IntArray,
+
+    /**
+     * The start state.
+     */
+    public val start: Int,
+
+    /**
+     * `transitions[state * columns + column]` is the target state, or [NONE].
+     */
+    internal val transitions: IntArray,
+
+    /**
+     * The token type each state accepts, or [NONE].
+     */
+    internal val predictions: IntArray,
+    internal val executors: Array<LexerActionExecutor?>,
+  ) {
+    private val asciiColumns = IntArray(128) { columnOf(it) }
+
+    /**
+     * The number of states.
+     */
+    public val size: Int
+      get() = predictions.size
+
+    /**
+     * Returns the target of the transition of [state] on symbol [t],
+     * or [NONE].
+     */
+    public fun target(state: Int, t: Int): Int {
+      val column = when {
+        t < 0 -> columns - 1
+        t < asciiColumns.size -> asciiColumns[t]
+        else -> columnOf(t)
+      }
+
+      return transitions[state * columns + column]
+    }
+
+    public fun isAcceptState(state: Int): Boolean =
+      predictions[state] != NONE
+
+    /**
+     * Returns the token type [state] accepts, or [NONE].
+     */
+    public fun prediction(state: Int): Int =
+      predictions[state]
+
+    /**
+     * Returns the actions to run when a token ends in [state].
+     */
+    public fun lexerActionExecutor(state: Int): LexerActionExecutor? =
+      executors[state]
+
+    private fun columnOf(c: Int): Int {
+      // The last range starting at or before c
+      var lo = 0
+      var hi = rangeStarts.size - 1
+
+      while (lo < hi) {
+        val mid = (lo + hi + 1) ushr 1
+
+        if (rangeStarts[mid] <= c) {
+          lo = mid
+        } else {
+          hi = mid - 1
+        }
+      }
+
+      return rangeColumns[lo]
+    }
+  }
+
+  /**
+   * The number of modes.
+   */
+  public val modeCount: Int
+    get() = modes.size
+
+  /**
+   * Returns the table of [mode], or `null` if the mode is left to the
+   * ATN simulator.
+   */
+  public fun mode(mode: Int): Mode? =
+    if (mode < 0 || mode >= modes.size) null else modes[mode]
+
+  /**
+   * Serializes this DFA for [deserialize]. Lexer actions are written as
+   * indexes into [ATN.lexerActions] of [atn].
+   */
+  public fun serialize(atn: ATN): IntegerList {
+    val lexerActions = atn.lexerActions ?: emptyArray()
+    val executorIds = LinkedHashMap<LexerActionExecutor, Int>()
+
+    for (mode in modes) {
+      mode?.executors?.forEach {
+        if (it != null && it !in executorIds) {
+          executorIds[it] = executorIds.size
+        }
+      }
+    }
+
+    val data = IntegerList()
+    data.add(SERIALIZED_VERSION)
+    data.add(executorIds.size)
+
+    for (executor in executorIds.keys) {
+      data.add(executor.lexerActions.size)
+
+      for (action in executor.lexerActions) {
+        data.add(indexOf(lexerActions, action))
+      }
+    }
+
+    data.add(modes.size)
+
+    for (mode in modes) {
+      if (mode == null) {
+        data.add(0)
+        continue
+      }
+
+      data.add(mode.columns)
+      data.add(mode.rangeStarts.size)
+
+      for (i in mode.rangeStarts.indices) {
+        data.add(mode.rangeStarts[i])
+        data.add(mode.rangeColumns[i])
+      }
+
+      data.add(mode.size)
+      data.add(mode.start)
+      data.addAll(mode.transitions)
+      data.addAll(mode.predictions)
+
+      for (executor in mode.executors) {
+        data.add(if (executor == null) NONE else executorIds[executor]!!)
+      }
+    }
+
+    return data
+  }
+
+  private fun indexOf(lexerActions: Array<LexerAction>, action: LexerAction): Int {
+    val i = lexerActions.indexOf(action)
+    check(i >= 0) { "lexer action $action is not in the ATN" }
+    return i
+  }
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.runtime.core.atn
+
+import org.antlr.v5.runtime.core.context.ParserRuleContext
+import org.antlr.v5.runtime.core.context.RuleContext
+import org.antlr.v5.runtime.core.misc.MurmurHash
+
+/**
+ * Remembers the alternatives predicted by full-context (LL) prediction
+ * during one parse, so that predicting the same decision at the same
+ * token, in the same rule invocation stack, costs a lookup.
+ *
+ * When SLL prediction of a decision conflicts, [ParserATNSimulator]
+ * simulates the ATN again from the decision, with the full outer context.
+ * Parsers that rewind their input, such as those that try one rule and
+ * then another, or nested constructs that are predicted from several
+ * enclosing rules, may do it several times for the same input.
+ * The result depends only on the decision, the start token, the
+ * [invokingState][RuleContext.invokingState] of each enclosing context,
+ * the [precedence][org.antlr.v5.runtime.core.Parser.precedence] of the
+ * parser and the [PredictionMode], which form the key. Predictions that
+ * evaluated a semantic predicate (other than a precedence predicate)
+ * depend on the parser too, and are not cached.
+ *
+ * Entries are only valid for the input they were predicted on: the cache
+ * is cleared when the parser is reset, e.g., by setting its token stream.
+ * It is a fixed-size open-addressing table, so its memory use is bounded;
+ * once full, new entries replace old ones. On a hit, the full-context
+ * prediction is not reported to the parser's error listeners again.
+ *
+ * A [ParserATNSimulator] has no cache unless one is set as its
+ * [fullContextCache][ParserATNSimulator.fullContextCache].
+ * The cache is not thread-safe.
+ *
+ * @param capacity The number of entries; rounded up to a power of two
+ */
+public class FullContextPredictionCache(capacity: Int = DEFAULT_CAPACITY) {
+  public companion object {
+    public const val DEFAULT_CAPACITY: Int = 1024
+
+    /**
+     * The number of slots looked at for an entry before giving up.
+     */
+    private const val PROBES = 4
+
+    private val NO_STATES = IntArray(0)
+  }
+
+  private val mask: Int
+
+  // Allocated on first use
+  private var decisions: IntArray? = null
+  private var startIndexes: IntArray? = null
+  private var precedences: IntArray? = null
+  private var modes: IntArray? = null
+  private var hashes: IntArray? = null
+  private var alts: IntArray? = null
+
+  /**
+   * Per slot, the invoking states of the outer context, innermost first.
+   */
+  private var invokingStates: Array<IntArray?>? = null
+
+  /**
+   * Per slot, the [generation] it was written in.
+   * A slot of an older generation is empty.
+   */
+  private var stamps: IntArray? = null
+
+  private var generation = 1
+
+  /**
+   * The number of lookups that found a prediction.
+   */
+  public var hits: Long = 0
+    private set
+
+  /**
+   * The number of lookups that did not find a prediction.
+   */
+  public var misses: Long = 0
+    private set
+
+  init {
+    require(capacity > 0) { "capacity must be positive" }
+
+    var n = PROBES
+
+    while (n < capacity) {
+      n = n shl 1
+    }
+
+    mask = n - 1
+  }
+
+  /**
+   * The fraction of lookups that found a prediction.
+   */
+  public val hitRate: Double
+    get() {
+      val lookups = hits + misses
+      return if (lookups == 0L) 0.0 else hits.toDouble() / lookups
+    }
+
+  /**
+   * Returns the alternative predicted for [decision] at token [startIndex]
+   * in [outerContext], or [ATN.INVALID_ALT_NUMBER] if it is not cached.
+   */
+  public fun get(
+    decision: Int,
+    startIndex: Int,
+    precedence: Int,
+    predictionMode: PredictionMode,
+    outerContext: RuleContext?,
+  ): Int {
+    val stamps = stamps
+
+    if (stamps != null) {
+      val hash = hash(decision, startIndex, precedence, predictionMode, outerContext)
+      var i = hash and mask
+
+      for (probe in 0..<PROBES) {
+        if (stamps[i] != generation) {
+          break
+        }
+
+        if (hashes!![i] == hash &&
+          decisions!![i] == decision &&
+          startIndexes!![i] == startIndex &&
+          precedences!![i] == precedence &&
+          modes!![i] == predictionMode.ordinal &&
+          sameStack(invokingStates!![i]!!, outerContext)
+        ) {
+          hits++
+          return alts!![i]
+        }
+
+        i = (i + 1) and mask
+      }
+    }
+
+    misses++
+    return ATN.INVALID_ALT_NUMBER
+  }
+
+  /**
+   * Records [alt] as the alternative predicted for [decision] at token
+   * [startIndex] in [outerContext].
+   */
+  public fun put(
+    decision: Int,
+    startIndex: Int,
+    precedence: Int,
+    predictionMode: PredictionMode,
+    outerContext: RuleContext?,
+    alt: Int,
+  ) {
+    if (stamps == null) {
+      val n = mask + 1
+      decisions = IntArray(n)
+      startIndexes = IntArray(n)
+      precedences = IntArray(n)
+      modes = IntArray(n)
+      hashes = IntArray(n)
+      alts = IntArray(n)
+      invokingStates = arrayOfNulls(n)
+      stamps = IntArray(n)
+    }
+
+    val stamps = stamps!!
+    val hash = hash(decision, startIndex, precedence, predictionMode, outerContext)
+    val first = hash and mask
+    var i = first
+    var probe = 0
+
+    // Take the first empty slot, or else evict the first one
+    while (probe < PROBES && stamps[i] == generation) {
+      i = (i + 1) and mask
+      probe++
+    }
+
+    if (probe == PROBES) {
+      i = first
+    }
+
+    stamps[i] = generation
+    decisions!![i] = decision
+    startIndexes!![i] = startIndex
+    precedences!![i] = precedence
+    modes!![i] = predictionMode.ordinal
+    hashes!![i] = hash
+    alts!![i] = alt
+    invokingStates!![i] = stack(outerContext)
+  }
+
+  /**
+   * Forgets all entries, in constant time. The counters are kept.
+   */
+  public fun clear() {
+    if (++generation ushr 30 != 0) {
+      // Wrapped around; old stamps could look current again
+      generation = 1
+      stamps?.fill(0)
+    }
+  }
+
+  private fun hash(
+    decision: Int,
+    startIndex: Int,
+    precedence: Int,
+    predictionMode: PredictionMode,
+    outerContext: RuleContext?,
+  ): Int {
+    var hash = MurmurHash.initialize()
+    hash = MurmurHash.update(hash, decision)
+    hash = MurmurHash.update(hash, startIndex)
+    hash = MurmurHash.update(hash, precedence)
+    hash = MurmurHash.update(hash, predictionMode.ordinal)
+    var n = 4
+    var p = outerContext
+
+    while (!isRoot(p)) {
+      hash = MurmurHash.update(hash, p!!.invokingState)
+      p = p.getParent()
+      n++
+    }
+
+    return MurmurHash.finish(hash, n)
+  }
+
+  private fun stack(outerContext: RuleContext?): IntArray {
+    var depth = 0
+    var p = outerContext
+
+    while (!isRoot(p)) {
+      p = p!!.getParent()
+      depth++
+    }
+
+    if (depth == 0) {
+      return NO_STATES
+    }
+
+    val states = IntArray(depth)
+    p = outerContext
+
+    for (i in 0..<depth) {
+      states[i] = p!!.invokingState
+      p = p.getParent()
+    }
+
+    return states
+  }
+
+  private fun sameStack(states: IntArray, outerContext: RuleContext?): Boolean {
+    var p = outerContext
+
+    for (state in states) {
+      if (isRoot(p) || p!!.invokingState != state) {
+        return false
+      }
+
+      p = p.getParent()
+    }
+
+    return isRoot(p)
+  }
+
+  /**
+   * Whether [context] is the outermost context, which
+   * [org.antlr.v5.runtime.core.context.PredictionContext.fromRuleContext]
+   * turns into the empty prediction context.
+   */
+  private fun isRoot(context: RuleContext?): Boolean =
+    context == null || context.getParent() == null || context === ParserRuleContext.EMPTY
+}
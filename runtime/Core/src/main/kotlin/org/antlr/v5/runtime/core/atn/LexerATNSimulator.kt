@@ -13,11 +13,12 @@ import org.antlr.v5.runtime.core.Token
 import org.antlr.v5.runtime.core.action.LexerActionExecutor
 import org.antlr.v5.runtime.core.context.EmptyPredictionContext
 import org.antlr.v5.runtime.core.context.PredictionContext
-import org.antlr.v5.runtime.core.context.SingletonPredictionContext
 import org.antlr.v5.runtime.core.dfa.DFA
 import org.antlr.v5.runtime.core.dfa.DFAState
 import org.antlr.v5.runtime.core.error.LexerNoViableAltException
 import org.antlr.v5.runtime.core.misc.Interval
+import org.antlr.v5.runtime.core.misc.ParseCancellationException
+import org.antlr.v5.runtime.core.misc.ParseDeadline
 import org.antlr.v5.runtime.core.misc.assert
 import org.antlr.v5.runtime.core.state.ATNState
 import org.antlr.v5.runtime.core.state.RuleStopState
@@ -66,8 +67,21 @@ public open class LexerATNSimulator(
    */
   public var charPositionInLine: Int = 0
 
+  /**
+   * Whether [consume] updates [line] and [charPositionInLine].
+   *
+   * [Lexer.lazyPositions] turns this off, as the positions of tokens are
+   * then computed from a [org.antlr.v5.runtime.core.LineIndex] when read.
+   */
+  public var trackPositions: Boolean = true
+
   protected var mode: Int = Lexer.DEFAULT_MODE
 
+  /**
+   * The [Lexer.parseDeadline] of the current [match].
+   */
+  protected var deadline: ParseDeadline? = null
+
   /**
    * Used during DFA/ATN exec to record the most recent accept configuration info.
    */
@@ -118,10 +132,12 @@ public open class LexerATNSimulator(
 
   public open fun match(input: CharStream, mode: Int): Int {
     this.mode = mode
+    this.deadline = recog?.parseDeadline
     val mark = input.mark()
 
     try {
       this.startIndex = input.index()
+      checkDeadline(input)
       this.prevAccept.reset()
       val dfa = decisionToDFA[mode]
 
@@ -455,6 +471,7 @@ public open class LexerATNSimulator(
     treatEofAsEpsilon: Boolean,
   ): Boolean {
     var tempCurrentAltReachedAcceptState = currentAltReachedAcceptState
+    checkDeadline(input)
 
     if (debug) {
       System.out.println("closure(${config.toString(recog, true)})")
@@ -530,6 +547,23 @@ public open class LexerATNSimulator(
     return tempCurrentAltReachedAcceptState
   }
 
+  /**
+   * Throws a [ParseCancellationException] if [deadline] has expired.
+   */
+  protected fun checkDeadline(input: CharStream) {
+    val deadline = deadline
+
+    if (deadline != null && deadline.step()) {
+      val reason = deadline.reason
+
+      if (reason != null) {
+        throw ParseCancellationException(
+          "lexing $reason in mode $mode at input index ${input.index()} line $line:$charPositionInLine"
+        )
+      }
+    }
+  }
+
   // Side-effect: can alter configs.hasSemanticContext
   protected open fun getEpsilonTarget(
     input: CharStream,
@@ -544,7 +578,7 @@ public open class LexerATNSimulator(
     when (t.serializationType) {
       Transition.RULE -> {
         val ruleTransition = t as RuleTransition
-        val newContext = SingletonPredictionContext.create(config.context, ruleTransition.followState.stateNumber)
+        val newContext = createSingletonContext(config.context, ruleTransition.followState.stateNumber)
         c = LexerATNConfig(config, t.target, newContext)
       }
       Transition.PRECEDENCE -> throw UnsupportedOperationException("Precedence predicates are not supported in lexers.")
@@ -778,13 +812,15 @@ public open class LexerATNSimulator(
     input.getText(Interval.of(startIndex, input.index() - 1))
 
   public open fun consume(input: CharStream) {
-    val curChar = input.LA(1)
+    if (trackPositions) {
+      val curChar = input.LA(1)
 
-    if (curChar.toChar() == '\n') {
-      line++
-      charPositionInLine = 0
-    } else {
-      charPositionInLine++
+      if (curChar.toChar() == '\n') {
+        line++
+        charPositionInLine = 0
+      } else {
+        charPositionInLine++
+      }
     }
 
     input.consume()
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.runtime.core.atn
+
+import org.antlr.v5.runtime.core.CharStream
+import org.antlr.v5.runtime.core.Lexer
+import org.antlr.v5.runtime.core.action.LexerActionExecutor
+import org.antlr.v5.runtime.core.dfa.DFA
+import org.antlr.v5.runtime.core.dfa.DFAState
+import org.antlr.v5.runtime.core.jvm.IdentityHashMap
+import org.antlr.v5.runtime.core.misc.Interval
+import org.antlr.v5.runtime.core.state.ATNState
+import org.antlr.v5.runtime.core.state.RuleStopState
+import org.antlr.v5.runtime.core.transition.AbstractPredicateTransition
+import org.antlr.v5.runtime.core.transition.ActionTransition
+import org.antlr.v5.runtime.core.transition.RuleTransition
+import org.antlr.v5.runtime.core.transition.Transition
+
+/**
+ * Builds a [CompiledLexerDFA] by subset construction, using the closure
+ * and reach computations of [LexerATNSimulator] itself, so the tables
+ * accept exactly what the simulator accepts, with the same rule priorities
+ * and non-greedy loops.
+ *
+ * A mode is only compiled if no rule reachable from it has a predicate or
+ * a position-dependent (custom) action: everything else the simulator does
+ * for a character depends on the DFA state alone.
+ */
+internal class LexerDFACompiler(atn: ATN) : LexerATNSimulator(
+  null,
+  atn,
+  Array(atn.modeToStartState.size) { DFA(atn.modeToStartState[it], it) },
+  null,
+) {
+  fun compile(maxTableSize: Int): CompiledLexerDFA =
+    CompiledLexerDFA(Array(atn.modeToStartState.size) { compileMode(it, maxTableSize) })
+
+  private fun compileMode(mode: Int, maxTableSize: Int): CompiledLexerDFA.Mode? {
+    val startState = atn.modeToStartState[mode]
+    val transitions = matchTransitions(startState) ?: return null
+
+    // Split the characters into ranges no transition tells apart, then
+    // give ranges matched by the same transitions the same column
+    val bounds = HashSet<Int>()
+    bounds.add(Lexer.MIN_CHAR_VALUE)
+
+    for (t in transitions) {
+      val set = t.label() ?: continue
+
+      for (i in 0..<set.intervalCount) {
+        val a = maxOf(set.intervalStart(i), Lexer.MIN_CHAR_VALUE)
+        val b = set.intervalEnd(i)
+
+        if (b >= a) {
+          bounds.add(a)
+
+          if (b < Lexer.MAX_CHAR_VALUE) {
+            bounds.add(b + 1)
+          }
+        }
+      }
+    }
+
+    val starts = bounds.sorted()
+    val columnOf = HashMap<List<Int>, Int>()
+    val symbols = ArrayList<Int>()
+    val rangeStarts = ArrayList<Int>()
+    val rangeColumns = ArrayList<Int>()
+
+    for (c in starts) {
+      val matching = transitions.indices.filter { transitions[it].matches(c, Lexer.MIN_CHAR_VALUE, Lexer.MAX_CHAR_VALUE) }
+      val column = columnOf.getOrPut(matching) {
+        symbols.add(c)
+        symbols.size - 1
+      }
+
+      if (rangeColumns.isEmpty() || rangeColumns.last() != column) {
+        rangeStarts.add(c)
+        rangeColumns.add(column)
+      }
+    }
+
+    // The last column is for EOF
+    symbols.add(CharStream.EOF)
+    val columns = symbols.size
+
+    // Subset construction
+    this.mode = mode
+    val s0 = addDFAState(computeStartState(NoInput, startState))
+    val ids = IdentityHashMap<DFAState, Int>()
+    val states = ArrayList<DFAState>()
+    val rows = ArrayList<IntArray>()
+    ids[s0] = 0
+    states.add(s0)
+
+    while (rows.size < states.size) {
+      if (states.size.toLong() * columns > maxTableSize) {
+        return null
+      }
+
+      val s = states[rows.size]
+      val row = IntArray(columns)
+
+      for (c in 0..<columns) {
+        val target = computeTargetState(NoInput, s, symbols[c])
+
+        row[c] = if (target === ERROR) {
+          CompiledLexerDFA.NONE
+        } else {
+          ids.getOrPut(target) {
+            states.add(target)
+            states.size - 1
+          }
+        }
+      }
+
+      rows.add(row)
+    }
+
+    return minimize(states, rows, columns, rangeStarts.toIntArray(), rangeColumns.toIntArray())
+  }
+
+  /**
+   * Merges equivalent states by partition refinement: states start out
+   * in one block per accepted token type and actions, and blocks are
+   * split until all states of a block go to the same blocks.
+   */
+  private fun minimize(
+    states: List<DFAState>,
+    rows: List<IntArray>,
+    columns: Int,
+    rangeStarts: IntArray,
+    rangeColumns: IntArray,
+  ): CompiledLexerDFA.Mode {
+    val n = states.size
+    val accepts = HashMap<Pair<Int, LexerActionExecutor?>, Int>()
+    var block = IntArray(n) {
+      val s = states[it]
+      val key = if (s.isAcceptState) s.prediction to s.lexerActionExecutor else CompiledLexerDFA.NONE to null
+      accepts.getOrPut(key) { accepts.size }
+    }
+
+    var blocks = accepts.size
+
+    while (true) {
+      val keys = HashMap<List<Int>, Int>()
+      val next = IntArray(n) { s ->
+        val key = ArrayList<Int>(columns + 1)
+        key.add(block[s])
+
+        for (target in rows[s]) {
+          key.add(if (target == CompiledLexerDFA.NONE) target else block[target])
+        }
+
+        keys.getOrPut(key) { keys.size }
+      }
+
+      val done = keys.size == blocks
+      block = next
+      blocks = keys.size
+
+      if (done) {
+        break
+      }
+    }
+
+    val transitions = IntArray(blocks * columns)
+    val predictions = IntArray(blocks)
+    val executors = arrayOfNulls<LexerActionExecutor>(blocks)
+    val filled = BooleanArray(blocks)
+
+    for (s in 0..<n) {
+      val b = block[s]
+
+      if (filled[b]) {
+        continue
+      }
+
+      filled[b] = true
+      predictions[b] = if (states[s].isAcceptState) states[s].prediction else CompiledLexerDFA.NONE
+      executors[b] = states[s].lexerActionExecutor
+
+      for (c in 0..<columns) {
+        val target = rows[s][c]
+        transitions[b * columns + c] = if (target == CompiledLexerDFA.NONE) target else block[target]
+      }
+    }
+
+    return CompiledLexerDFA.Mode(columns, rangeStarts, rangeColumns, block[0], transitions, predictions, executors)
+  }
+
+  /**
+   * Returns the transitions that match characters in the rules reachable
+   * from [start], or `null` if one of these rules has a predicate or a
+   * position-dependent action.
+   */
+  private fun matchTransitions(start: ATNState): List<Transition>? {
+    val lexerActions = atn.lexerActions
+    val seen = HashSet<Int>()
+    val pending = ArrayList<ATNState>()
+    val result = ArrayList<Transition>()
+    pending.add(start)
+
+    while (pending.isNotEmpty()) {
+      val p = pending.removeAt(pending.size - 1)
+
+      // Returns are followed from the rule transitions
+      if (!seen.add(p.stateNumber) || p is RuleStopState) {
+        continue
+      }
+
+      for (t in p.transitions) {
+        when (t) {
+          is AbstractPredicateTransition -> return null
+          is ActionTransition -> if (lexerActions == null || lexerActions[t.actionIndex].isPositionDependent) return null
+          is RuleTransition -> pending.add(t.followState)
+          else -> if (!t.isEpsilon) result.add(t)
+        }
+
+        pending.add(t.target)
+      }
+    }
+
+    return result
+  }
+
+  /**
+   * The input of the closures: only its index is read, to position
+   * custom actions, which compiled modes do not have.
+   */
+  private object NoInput : CharStream {
+    override val sourceName: String
+      get() = throw UnsupportedOperationException()
+
+    override fun getText(interval: Interval): String =
+      throw UnsupportedOperationException()
+
+    override fun consume() =
+      throw UnsupportedOperationException()
+
+    override fun LA(i: Int): Int =
+      throw UnsupportedOperationException()
+
+    override fun mark(): Int =
+      throw UnsupportedOperationException()
+
+    override fun release(marker: Int): Unit =
+      throw UnsupportedOperationException()
+
+    override fun index(): Int =
+      0
+
+    override fun seek(index: Int): Unit =
+      throw UnsupportedOperationException()
+
+    override fun size(): Int =
+      throw UnsupportedOperationException()
+  }
+}
@@ -11,10 +11,12 @@ import org.antlr.v5.runtime.core.context.*
 import org.antlr.v5.runtime.core.misc.assert
 import org.antlr.v5.runtime.core.dfa.DFA
 import org.antlr.v5.runtime.core.dfa.DFAState
+import org.antlr.v5.runtime.core.dfa.FrozenDFA
 import org.antlr.v5.runtime.core.error.NoViableAltException
-import org.antlr.v5.runtime.core.misc.DoubleKeyMap
 import org.antlr.v5.runtime.core.misc.Interval
 import org.antlr.v5.runtime.core.misc.IntervalSet
+import org.antlr.v5.runtime.core.misc.ParseCancellationException
+import org.antlr.v5.runtime.core.misc.ParseDeadline
 import org.antlr.v5.runtime.core.state.*
 import org.antlr.v5.runtime.core.transition.*
 import org.antlr.v5.runtime.core.jvm.BitSet
@@ -269,23 +271,62 @@ public open class ParserATNSimulator(
   public var predictionMode: PredictionMode = PredictionMode.LL
 
   /**
-   * Each prediction operation uses a cache for merge of prediction contexts.
+   * Bounds on the work of each prediction, or `null` for none.
    *
-   * Don't keep around as it wastes huge amounts of memory. [DoubleKeyMap]
-   * isn't synchronized, but we're ok since two threads shouldn't reuse same
-   * parser/atnsim object because it can only handle one input at a time.
+   * @see PredictionLimits
+   */
+  public var predictionLimits: PredictionLimits? = null
+
+  /**
+   * The cache for merges of prediction contexts.
    *
    * This maps graphs a and b to merged result c. (a,b)c. We can avoid
-   * the merge if we ever see a and b again. Note that (b,a)c should
-   * also be examined during cache lookup.
+   * the merge if we ever see a and b again, in this prediction or a later
+   * one: the same pairs come up over and over while the DFA is cold.
+   * Merge results never go stale and the cache is bounded, so it is kept
+   * across predictions and parses. It isn't synchronized, but we're ok
+   * since two threads shouldn't reuse same parser/atnsim object because
+   * it can only handle one input at a time.
+   *
+   * Simulators used one after the other on a thread may share
+   * [PredictionContextMergeCache.forCurrentThread]; its
+   * [hitRate][PredictionContextMergeCache.hitRate] tells how well it works.
+   */
+  public var mergeCache: PredictionContextMergeCache = PredictionContextMergeCache()
+
+  /**
+   * The cache of full-context predictions of the current parse,
+   * or `null` for none.
+   *
+   * Set one when the same decisions fall back to full-context prediction
+   * at the same tokens more than once, e.g., when the parser rewinds.
+   * It is cleared by [reset].
+   *
+   * @see FullContextPredictionCache
    */
-  protected var mergeCache: DoubleKeyMap<PredictionContext, PredictionContext, PredictionContext>? = null
+  public var fullContextCache: FullContextPredictionCache? = null
 
   // LAME globals to avoid parameters!!!!! I need these down deep in predTransition
   protected var _input: TokenStream? = null
   protected var _startIndex: Int = 0
   protected var _outerContext: ParserRuleContext? = null
   protected var _dfa: DFA? = null
+  protected var _deadline: ParseDeadline? = null
+  protected var _limits: PredictionLimits? = null
+
+  /**
+   * The last complete configuration set of the current prediction,
+   * from which an alternative is chosen if [_limits] are exceeded.
+   */
+  protected var _lastConfigs: ATNConfigSet? = null
+
+  private var limitExceeded: PredictionLimitExceededException? = null
+
+  /**
+   * Whether the current full-context prediction evaluated a semantic
+   * predicate, so that [fullContextCache] must not keep its result.
+   */
+  private var fullContextPredicateEvaluated = false
 
   /**
    * Testing only!
@@ -296,8 +337,17 @@ public open class ParserATNSimulator(
     sharedContextCache: PredictionContextCache,
   ) : this(null, atn, decisionToDFA, sharedContextCache)
 
+  /**
+   * Drops the references the last prediction kept to the parser's input
+   * and context.
+   */
   override fun reset() {
-    // Noop
+    _input = null
+    _outerContext = null
+    _dfa = null
+    _deadline = null
+    _lastConfigs = null
+    fullContextCache?.clear()
   }
 
   override fun clearDFA() {
@@ -306,6 +356,36 @@ public open class ParserATNSimulator(
     }
   }
 
+  /**
+   * Freezes the DFA of every decision; see [DFA.freeze].
+   *
+   * [adaptivePredict] then follows the frozen transition tables as far as
+   * they go, and continues on the object DFA from there.
+   */
+  public fun freezeDFA() {
+    for (dfa in decisionToDFA) {
+      dfa.freeze()
+    }
+  }
+
+  /**
+   * Whether [adaptivePredict] uses [DFA.frozen] when it is available.
+   *
+   * Simulators that observe every DFA transition, such as the profiling
+   * ones, turn it off.
+   */
+  protected open val useFrozenDFA: Boolean
+    get() = true
+
+  /**
+   * Whether [execATN] uses [fullContextCache] when it is set.
+   *
+   * Simulators that observe every full-context prediction, such as the
+   * profiling ones, turn it off.
+   */
+  protected open val useFullContextCache: Boolean
+    get() = true
+
   public open fun adaptivePredict(
     input: TokenStream,
     decision: Int,
@@ -327,6 +407,8 @@ public open class ParserATNSimulator(
 
     val dfa = decisionToDFA[decision]
     _dfa = dfa
+    _deadline = parser?.parseDeadline
+    _limits = predictionLimits
 
     val m = input.mark()
     val index = _startIndex
@@ -334,6 +416,18 @@ public open class ParserATNSimulator(
     // Now we are certain to have a specific decision's DFA
     // But, do we still need an initial state?
     try {
+      checkDeadline()
+
+      val frozen = if (useFrozenDFA) dfa.frozen else null
+
+      if (frozen != null) {
+        val start = frozen.start(if (dfa.isPrecedenceDfa) parser!!.precedence else 0)
+
+        if (start != FrozenDFA.MISSING) {
+          return execFrozenDFA(dfa, frozen, start, input, index, tempOuterContext)
+        }
+      }
+
       var s0 = if (dfa.isPrecedenceDfa) {
         // the start state for a precedence DFA depends on the current
         // parser precedence, and is provided by a DFA method.
@@ -375,16 +469,66 @@ public open class ParserATNSimulator(
         System.out.println("DFA after predictATN: ${dfa.toString(parser!!.vocabulary)}")
       }
 
+      return alt
+    } catch (e: PredictionLimitExceededException) {
+      val configs = _lastConfigs
+      val alt = configs?.alts?.nextSetBit(0) ?: 1
+      reportPredictionLimitExceeded(dfa, e.limit, configs, index, input.index(), alt)
       return alt
     } finally {
-      // Wack cache after each prediction
-      mergeCache = null
       _dfa = null
+      _deadline = null
+      _lastConfigs = null
       input.seek(index)
       input.release(m)
     }
   }
 
+  /**
+   * Follows the transitions of [frozen] from state [start] while it can,
+   * then continues with [execATN] from the last state reached.
+   *
+   * The frozen DFA only holds accept states that predict a single
+   * alternative without predicates, so reaching one ends the prediction.
+   */
+  protected fun execFrozenDFA(
+    dfa: DFA,
+    frozen: FrozenDFA,
+    start: Int,
+    input: TokenStream,
+    startIndex: Int,
+    outerContext: ParserRuleContext?,
+  ): Int {
+    var s = start
+    var t = input.LA(1)
+
+    while (true) {
+      checkDeadline()
+
+      val target = frozen.target(s, t + 1)
+
+      if (target < 0) {
+        return execATN(dfa, frozen.state(s), input, startIndex, outerContext)
+      }
+
+      if (frozen.isAcceptState(target)) {
+        return frozen.prediction(target)
+      }
+
+      s = target
+
+      if (t != IntStream.EOF) {
+        input.consume()
+        t = input.LA(1)
+
+        if (_limits != null) {
+          _lastConfigs = frozen.state(s).configs
+          checkLookahead(input, startIndex)
+        }
+      }
+    }
+  }
+
   /**
    * Performs ATN simulation to compute a predicted alternative based
    * upon the remaining input, but also updates the DFA cache to avoid
@@ -437,8 +581,11 @@ public open class ParserATNSimulator(
 
     var previousD = s0
     var t = input.LA(1)
+    _lastConfigs = s0.configs
 
     while (true) {
+      checkDeadline()
+
       @Suppress("LocalVariableName")
       val D = getExistingTargetState(previousD, t) ?: computeTargetState(dfa, previousD, t)
 
@@ -500,11 +647,28 @@ public open class ParserATNSimulator(
           System.out.println("ctx sensitive state $outerContext in $D")
         }
 
+        val cache = if (useFullContextCache) fullContextCache else null
+        val precedence = parser?.precedence ?: -1
+
+        if (cache != null) {
+          val alt = cache.get(dfa.decision, startIndex, precedence, predictionMode, outerContext)
+
+          if (alt != ATN.INVALID_ALT_NUMBER) {
+            if (debug) {
+              System.out.println("Full LL prediction $alt cached")
+            }
+
+            return alt
+          }
+        }
+
+        // Predicates are evaluated from the start state closure on
+        fullContextPredicateEvaluated = false
         val fullCtx = true
         val s0Closure = computeStartState(dfa.atnStartState, outerContext, fullCtx)
         reportAttemptingFullContext(dfa, conflictingAlts!!, D.configs, startIndex, input.index())
 
-        return execATNWithFullContext(
+        val alt = execATNWithFullContext(
           dfa = dfa,
           D = D,
           s0 = s0Closure,
@@ -512,6 +676,13 @@ public open class ParserATNSimulator(
           startIndex = startIndex,
           outerContext = outerContext,
         )
+
+        // Predicates may depend on anything in the parser
+        if (cache != null && !fullContextPredicateEvaluated) {
+          cache.put(dfa.decision, startIndex, precedence, predictionMode, outerContext, alt)
+        }
+
+        return alt
       }
 
       if (D.isAcceptState) {
@@ -537,10 +708,12 @@ public open class ParserATNSimulator(
       }
 
       previousD = D
+      _lastConfigs = D.configs
 
       if (t != IntStream.EOF) {
         input.consume()
         t = input.LA(1)
+        checkLookahead(input, startIndex)
       }
     }
   }
@@ -670,8 +843,11 @@ public open class ParserATNSimulator(
 
     var t = input.LA(1)
     var predictedAlt: Int
+    var steps = 0
+    _lastConfigs = s0
 
     while (true) {
+      checkDeadline()
       reach = computeReachSet(previous, t, fullCtx)
 
       if (reach == null) {
@@ -735,10 +911,16 @@ public open class ParserATNSimulator(
       }
 
       previous = reach
+      _lastConfigs = reach
 
       if (t != IntStream.EOF) {
         input.consume()
         t = input.LA(1)
+        checkLookahead(input, startIndex)
+
+        if (++steps >= (_limits?.maxFullContextSteps ?: Int.MAX_VALUE)) {
+          throw predictionLimitExceeded(PredictionLimits.Limit.FULL_CONTEXT_STEPS)
+        }
       }
     }
 
@@ -793,10 +975,6 @@ public open class ParserATNSimulator(
       System.out.println("in computeReachSet, starting closure: $closure")
     }
 
-    if (mergeCache == null) {
-      mergeCache = DoubleKeyMap()
-    }
-
     val intermediate = ATNConfigSet(fullCtx)
 
     // Configurations already in a rule stop state indicate reaching the end
@@ -973,7 +1151,7 @@ public open class ParserATNSimulator(
 
   protected open fun computeStartState(p: ATNState, ctx: RuleContext?, fullCtx: Boolean): ATNConfigSet {
     // Always at least the implicit call to start rule
-    val initialContext = PredictionContext.fromRuleContext(atn, ctx)
+    val initialContext = PredictionContext.fromRuleContext(atn, ctx, sharedContextCache)
     val configs = ATNConfigSet(fullCtx)
 
     if (trace_atn_sim) {
@@ -1598,6 +1776,55 @@ public open class ParserATNSimulator(
     )
   }
 
+  /**
+   * Throws a [ParseCancellationException] if [_deadline] has expired.
+   *
+   * Called on entering a prediction, on each step of SLL and LL
+   * simulation, and for each configuration added by [closure].
+   */
+  protected fun checkDeadline() {
+    val deadline = _deadline
+
+    if (deadline != null && deadline.step()) {
+      val reason = deadline.reason
+
+      if (reason != null) {
+        throw ParseCancellationException(cancellationMessage(reason))
+      }
+    }
+  }
+
+  protected fun checkLookahead(input: TokenStream, startIndex: Int) {
+    val limits = _limits
+
+    if (limits != null && input.index() - startIndex >= limits.maxLookahead) {
+      throw predictionLimitExceeded(PredictionLimits.Limit.LOOKAHEAD)
+    }
+  }
+
+  /**
+   * The exception unwinding a prediction to [adaptivePredict] is
+   * allocated once, as it carries no information besides [limit].
+   */
+  private fun predictionLimitExceeded(limit: PredictionLimits.Limit): PredictionLimitExceededException {
+    val e = limitExceeded ?: PredictionLimitExceededException()
+    limitExceeded = e
+    e.limit = limit
+    return e
+  }
+
+  protected open fun cancellationMessage(reason: String): String {
+    val input = _input!!
+    val token = input.LT(1)
+    val decision = _dfa?.decision ?: -1
+    val rule = if (decision >= 0) getRuleName(atn.getDecisionState(decision)!!.ruleIndex) else "<unknown>"
+    val stack = parser?.getRuleInvocationStack(_outerContext)
+    return "parse $reason in decision $decision of rule $rule" +
+      " at input index ${input.index()}" +
+      (if (token != null) " line ${token.line}:${token.charPositionInLine}" else "") +
+      (if (stack != null) ", rule stack $stack" else "")
+  }
+
   /**
    * Do the actual work of walking epsilon edges.
    */
@@ -1611,11 +1838,16 @@ public open class ParserATNSimulator(
     depth: Int,
     treatEofAsEpsilon: Boolean,
   ) {
+    checkDeadline()
     val p = config.state
 
     // Optimization
     if (!p.onlyHasEpsilonTransitions()) {
       configs.add(config, mergeCache)
+
+      if (configs.size > (_limits?.maxConfigs ?: Int.MAX_VALUE)) {
+        throw predictionLimitExceeded(PredictionLimits.Limit.CONFIGS)
+      }
       // Make sure to not return here, because EOF transitions can act as
       // both epsilon transitions and non-epsilon transitions.
     }
@@ -2012,6 +2244,7 @@ public open class ParserATNSimulator(
         // during closure, which dramatically reduces the size of
         // the config sets. It also obviates the need to test predicates
         // later during conflict resolution.
+        fullContextPredicateEvaluated = true
         val currentPosition = _input!!.index()
         _input!!.seek(_startIndex)
 
@@ -2043,7 +2276,7 @@ public open class ParserATNSimulator(
     }
 
     val returnState = t.followState
-    val newContext = SingletonPredictionContext.create(config.context, returnState.stateNumber)
+    val newContext = createSingletonContext(config.context, returnState.stateNumber)
     return ATNConfig(config, t.target, newContext)
   }
 
@@ -2329,6 +2562,35 @@ public open class ParserATNSimulator(
     )
   }
 
+  protected open fun reportPredictionLimitExceeded(
+    dfa: DFA,
+    limit: PredictionLimits.Limit,
+    configs: ATNConfigSet?,
+    startIndex: Int,
+    stopIndex: Int,
+    prediction: Int,
+  ) {
+    if (debug || retry_debug) {
+      val interval = Interval.of(startIndex, stopIndex)
+      System.out.println(
+        "reportPredictionLimitExceeded" +
+          " decision=${dfa.decision}:$limit" +
+          ", prediction=$prediction" +
+          ", input=${parser?.tokenStream?.getText(interval)}"
+      )
+    }
+
+    parser?.errorListenerDispatch?.reportPredictionLimitExceeded(
+      recognizer = parser,
+      dfa = dfa,
+      startIndex = startIndex,
+      stopIndex = stopIndex,
+      limit = limit,
+      prediction = prediction,
+      configs = configs,
+    )
+  }
+
   /**
    * If context-sensitive parsing, we know it's ambiguity not conflict.
    */
@@ -2357,3 +2619,7 @@ public open class ParserATNSimulator(
     )
   }
 }
+
+private class PredictionLimitExceededException : RuntimeException() {
+  var limit: PredictionLimits.Limit = PredictionLimits.Limit.CONFIGS
+}
@@ -6,8 +6,11 @@
 
 package org.antlr.v5.runtime.core.atn
 
+import org.antlr.v5.runtime.core.context.ArrayPredictionContext
 import org.antlr.v5.runtime.core.context.EmptyPredictionContext
 import org.antlr.v5.runtime.core.context.PredictionContext
+import org.antlr.v5.runtime.core.context.SingletonPredictionContext
+import org.antlr.v5.runtime.core.jvm.ConcurrentHashMap
 
 /**
  * Used to cache [PredictionContext] objects.
@@ -15,9 +18,32 @@ import org.antlr.v5.runtime.core.context.PredictionContext
  * It's used for the shared context cash associated with contexts in DFA states.
  *
  * This cache can be used for both lexers and parsers.
+ *
+ * An interning cache instead canonicalizes every context the simulators
+ * create, not only those stored in DFA states: structurally equal contexts
+ * are then always the same object, so [PredictionContext.equals] is a
+ * reference comparison, and [ATNSimulator.getCachedContext] and
+ * [ATNConfigSet.optimizeConfigs] have nothing left to do. The price is
+ * that every context built during closure stays in the cache for as long
+ * as the cache is reachable, and that creating a context means a lookup
+ * in that ever larger table, which makes closure itself slower. Interning
+ * pays off when contexts are compared far more often than they are
+ * created. To use it, construct the parser's simulator with an interning
+ * cache:
+ *
+ * ```
+ * parser.interpreter = ParserATNSimulator(parser, parser.atn, decisionToDFA, PredictionContextCache(interning = true))
+ * ```
+ *
+ * The DFA cache must not be shared with simulators using another context
+ * cache: contexts from different interning caches are still compared
+ * structurally, which is correct but slow.
+ *
+ * @param interning Whether to intern every context created by the simulators
  */
-public open class PredictionContextCache {
-  protected val cache: MutableMap<PredictionContext, PredictionContext> = HashMap()
+public open class PredictionContextCache(public val interning: Boolean = false) {
+  protected val cache: MutableMap<PredictionContext, PredictionContext> =
+    if (interning) ConcurrentHashMap() else HashMap()
 
   /**
    * Add a context to the cache and return it.
@@ -47,4 +73,34 @@ public open class PredictionContextCache {
 
   public open fun size(): Int =
     cache.size
+
+  /**
+   * Returns the canonical context with the given [parent] and [returnState],
+   * creating it if needed.
+   */
+  public fun singleton(parent: PredictionContext?, returnState: Int): SingletonPredictionContext {
+    val ctx = SingletonPredictionContext.create(parent, returnState)
+    return if (ctx === EmptyPredictionContext.Instance) ctx else intern(ctx) as SingletonPredictionContext
+  }
+
+  /**
+   * Returns the canonical context with the given [parents] and
+   * [returnStates], creating it if needed. The arrays must not be
+   * modified afterwards.
+   */
+  public fun array(parents: Array<PredictionContext?>, returnStates: IntArray): PredictionContext =
+    intern(ArrayPredictionContext(parents, returnStates))
+
+  private fun intern(ctx: PredictionContext): PredictionContext {
+    val existing = cache[ctx]
+
+    if (existing != null) {
+      return existing
+    }
+
+    // Tag before publishing; if another thread interned an equal
+    // context first, this one is dropped
+    ctx.internedIn = this
+    return cache.putIfAbsent(ctx, ctx) ?: ctx
+  }
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.runtime.core.atn
+
+import org.antlr.v5.runtime.core.context.PredictionContext
+import org.antlr.v5.runtime.core.jvm.ThreadLocal
+import kotlin.jvm.JvmStatic
+
+/**
+ * Remembers the results of [PredictionContext.merge], so that merging the
+ * same two graphs again costs a lookup.
+ *
+ * Merging is a pure function of the two graphs and of whether the root is a
+ * wildcard, so results stay valid across predictions, parses, and even
+ * grammars. The cache is a fixed-size open-addressing table keyed by the
+ * identity of the two graphs; once full, new entries replace old ones, so
+ * its memory use is bounded, and [clear] only bumps a generation counter.
+ *
+ * A [ParserATNSimulator] keeps its own cache across predictions. Parsers
+ * that run one after the other on the same thread can share theirs with
+ * [forCurrentThread]. The cache is not thread-safe.
+ *
+ * @param capacity The number of entries; rounded up to a power of two
+ */
+public class PredictionContextMergeCache(capacity: Int = DEFAULT_CAPACITY) {
+  public companion object {
+    public const val DEFAULT_CAPACITY: Int = 1024
+
+    /**
+     * The number of slots looked at for an entry before giving up.
+     */
+    private const val PROBES = 4
+
+    private val perThread = object : ThreadLocal<PredictionContextMergeCache>() {
+      override fun initialValue(): PredictionContextMergeCache =
+        PredictionContextMergeCache()
+    }
+
+    /**
+     * Returns the cache shared by all simulators on the current thread.
+     */
+    @JvmStatic
+    public fun forCurrentThread(): PredictionContextMergeCache =
+      perThread.get()
+  }
+
+  private val mask: Int
+
+  // Allocated on first use
+  private var left: Array<PredictionContext?>? = null
+  private var right: Array<PredictionContext?>? = null
+  private var merged: Array<PredictionContext?>? = null
+
+  /**
+   * Per slot, the [generation] it was written in, shifted left by one,
+   * with the lowest bit set for a merge with a wildcard root.
+   * A slot of an older generation is empty.
+   */
+  private var stamps: IntArray? = null
+
+  private var generation = 1
+
+  /**
+   * The number of lookups that found a result.
+   */
+  public var hits: Long = 0
+    private set
+
+  /**
+   * The number of lookups that did not find a result.
+   */
+  public var misses: Long = 0
+    private set
+
+  init {
+    require(capacity > 0) { "capacity must be positive" }
+
+    var n = PROBES
+
+    while (n < capacity) {
+      n = n shl 1
+    }
+
+    mask = n - 1
+  }
+
+  /**
+   * The fraction of lookups that found a result.
+   */
+  public val hitRate: Double
+    get() {
+      val lookups = hits + misses
+      return if (lookups == 0L) 0.0 else hits.toDouble() / lookups
+    }
+
+  /**
+   * Returns the result of merging [a] and [b], in either order,
+   * or `null` if it is not cached.
+   */
+  public operator fun get(a: PredictionContext, b: PredictionContext, rootIsWildcard: Boolean): PredictionContext? {
+    val stamps = stamps
+
+    if (stamps != null) {
+      val left = left!!
+      val right = right!!
+      val stamp = stamp(rootIsWildcard)
+      var i = slot(a, b)
+
+      for (probe in 0..<PROBES) {
+        val s = stamps[i]
+
+        if (s ushr 1 != generation) {
+          break
+        }
+
+        if (s == stamp && (left[i] === a && right[i] === b || left[i] === b && right[i] === a)) {
+          hits++
+          return merged!![i]
+        }
+
+        i = (i + 1) and mask
+      }
+    }
+
+    misses++
+    return null
+  }
+
+  /**
+   * Records [result] as the result of merging [a] and [b].
+   */
+  public fun put(a: PredictionContext, b: PredictionContext, rootIsWildcard: Boolean, result: PredictionContext) {
+    if (stamps == null) {
+      left = arrayOfNulls(mask + 1)
+      right = arrayOfNulls(mask + 1)
+      merged = arrayOfNulls(mask + 1)
+      stamps = IntArray(mask + 1)
+    }
+
+    val stamps = stamps!!
+    val first = slot(a, b)
+    var i = first
+    var probe = 0
+
+    // Take the first empty slot, or else evict the first one
+    while (probe < PROBES && stamps[i] ushr 1 == generation) {
+      i = (i + 1) and mask
+      probe++
+    }
+
+    if (probe == PROBES) {
+      i = first
+    }
+
+    stamps[i] = stamp(rootIsWildcard)
+    left!![i] = a
+    right!![i] = b
+    merged!![i] = result
+  }
+
+  /**
+   * Forgets all entries, in constant time. The counters are kept.
+   *
+   * The graphs of forgotten entries stay reachable until their slots are
+   * reused, which the fixed capacity bounds.
+   */
+  public fun clear() {
+    if (++generation ushr 30 != 0) {
+      // Wrapped around; old stamps could look current again
+      generation = 1
+      stamps?.fill(0)
+    }
+  }
+
+  private fun stamp(rootIsWildcard: Boolean): Int =
+    (generation shl 1) or (if (rootIsWildcard) 1 else 0)
+
+  /**
+   * The first slot for the pair `{a, b}`, the same for either order.
+   */
+  private fun slot(a: PredictionContext, b: PredictionContext): Int {
+    var h = a.hashCode() + b.hashCode()
+    h = h xor (h ushr 16)
+    h *= -0x7a143595
+    h = h xor (h ushr 13)
+    return h and mask
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.runtime.core.atn
+
+/**
+ * Bounds on the work a single [ParserATNSimulator.adaptivePredict] call may
+ * do, to cap the worst-case cost of prediction on hostile input.
+ *
+ * When a limit is exceeded, prediction stops and returns the minimum
+ * alternative of the last complete configuration set, as SLL conflict
+ * resolution would, and the error listeners are told through
+ * [org.antlr.v5.runtime.core.error.ANTLRErrorListener.reportPredictionLimitExceeded].
+ * The chosen alternative may not be viable; the parser then reports a
+ * syntax error as usual. Semantic predicates are not evaluated for the
+ * fallback.
+ *
+ * Limits only apply to work actually done: a decision answered from the
+ * DFA cache costs nothing, whatever its configuration sets, and is not
+ * limited except by [maxLookahead]. Nothing computed by an aborted
+ * prediction is added to the DFA cache.
+ *
+ * @param maxConfigs The maximum number of configurations in a
+ *   configuration set built by closure
+ * @param maxLookahead The maximum number of tokens of lookahead
+ * @param maxFullContextSteps The maximum number of tokens full-context
+ *   prediction may consume
+ */
+public class PredictionLimits(
+  public val maxConfigs: Int = Int.MAX_VALUE,
+  public val maxLookahead: Int = Int.MAX_VALUE,
+  public val maxFullContextSteps: Int = Int.MAX_VALUE,
+) {
+  public enum class Limit {
+    CONFIGS,
+    LOOKAHEAD,
+    FULL_CONTEXT_STEPS,
+  }
+
+  init {
+    require(maxConfigs > 0 && maxLookahead > 0 && maxFullContextSteps > 0) { "limits must be positive" }
+  }
+
+  override fun toString(): String =
+    "PredictionLimits(maxConfigs=$maxConfigs, maxLookahead=$maxLookahead, maxFullContextSteps=$maxFullContextSteps)"
+}
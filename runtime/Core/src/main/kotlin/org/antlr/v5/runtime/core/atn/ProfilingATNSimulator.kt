@@ -59,6 +59,14 @@ public open class ProfilingATNSimulator(parser: Parser) : ParserATNSimulator(
     }
   }
 
+  // Every DFA transition is counted by getExistingTargetState
+  override val useFrozenDFA: Boolean
+    get() = false
+
+  // Every full-context prediction is counted by reportAttemptingFullContext
+  override val useFullContextCache: Boolean
+    get() = false
+
   override fun adaptivePredict(input: TokenStream, decision: Int, outerContext: ParserRuleContext?): Int {
     try {
       _sllStopIndex = -1
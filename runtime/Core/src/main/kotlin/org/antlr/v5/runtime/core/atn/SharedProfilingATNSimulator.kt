@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.runtime.core.atn
+
+import org.antlr.v5.runtime.core.jvm.BitSet
+import org.antlr.v5.runtime.core.Parser
+import org.antlr.v5.runtime.core.context.ParserRuleContext
+import org.antlr.v5.runtime.core.TokenStream
+import org.antlr.v5.runtime.core.context.SemanticContext
+import org.antlr.v5.runtime.core.dfa.DFA
+import org.antlr.v5.runtime.core.dfa.DFAState
+import org.antlr.v5.runtime.core.info.SharedParseProfile
+import kotlin.time.measureTimedValue
+
+/**
+ * Counts the same decision metrics as [ProfilingATNSimulator], but into a
+ * [SharedParseProfile] that aggregates them across parsers and threads.
+ *
+ * The metrics of a prediction are counted in plain fields while it runs
+ * and added to the shared profile once it completes. No event objects are
+ * created.
+ *
+ * @see Parser.setProfile
+ */
+@Suppress("MemberVisibilityCanBePrivate")
+public open class SharedProfilingATNSimulator(
+  parser: Parser,
+  public val profile: SharedParseProfile,
+) : ParserATNSimulator(
+  parser,
+  parser.interpreter!!.atn,
+  parser.interpreter!!.decisionToDFA,
+  parser.interpreter!!.sharedContextCache!!,
+) {
+  private val stripe = profile.nextStripe()
+
+  protected var _sllStopIndex: Int = 0
+  protected var _llStopIndex: Int = 0
+
+  /**
+   * The minimum alternative SLL resolved the conflict to at the point of
+   * LL failover; see [ProfilingATNSimulator.conflictingAltResolvedBySLL].
+   */
+  protected var conflictingAltResolvedBySLL: Int = 0
+
+  private var sllATNTransitions = 0L
+  private var sllDFATransitions = 0L
+  private var llATNTransitions = 0L
+  private var llFallback = 0L
+  private var contextSensitivities = 0L
+  private var errors = 0L
+  private var ambiguities = 0L
+  private var predicateEvals = 0L
+
+  init {
+    require(profile.numDecisions == atn.decisionToState.size) {
+      "profile has ${profile.numDecisions} decisions, ATN has ${atn.decisionToState.size}"
+    }
+  }
+
+  // Every DFA transition is counted by getExistingTargetState
+  override val useFrozenDFA: Boolean
+    get() = false
+
+  // Every full-context prediction is counted by reportAttemptingFullContext
+  override val useFullContextCache: Boolean
+    get() = false
+
+  override fun adaptivePredict(input: TokenStream, decision: Int, outerContext: ParserRuleContext?): Int {
+    _sllStopIndex = -1
+    _llStopIndex = -1
+    sllATNTransitions = 0
+    sllDFATransitions = 0
+    llATNTransitions = 0
+    llFallback = 0
+    contextSensitivities = 0
+    errors = 0
+    ambiguities = 0
+    predicateEvals = 0
+
+    val (alt, duration) = measureTimedValue {
+      super.adaptivePredict(input, decision, outerContext)
+    }
+
+    profile.add(stripe, decision, SharedParseProfile.INVOCATIONS, 1)
+    profile.add(stripe, decision, SharedParseProfile.TIME_IN_PREDICTION, duration.inWholeNanoseconds)
+    profile.addLook(stripe, decision, SharedParseProfile.SLL_TOTAL_LOOK, (_sllStopIndex - _startIndex + 1).toLong())
+
+    if (_llStopIndex >= 0) {
+      profile.addLook(stripe, decision, SharedParseProfile.LL_TOTAL_LOOK, (_llStopIndex - _startIndex + 1).toLong())
+    }
+
+    profile.add(stripe, decision, SharedParseProfile.SLL_ATN_TRANSITIONS, sllATNTransitions)
+    profile.add(stripe, decision, SharedParseProfile.SLL_DFA_TRANSITIONS, sllDFATransitions)
+    profile.add(stripe, decision, SharedParseProfile.LL_ATN_TRANSITIONS, llATNTransitions)
+    profile.add(stripe, decision, SharedParseProfile.LL_FALLBACK, llFallback)
+    profile.add(stripe, decision, SharedParseProfile.CONTEXT_SENSITIVITIES, contextSensitivities)
+    profile.add(stripe, decision, SharedParseProfile.ERRORS, errors)
+    profile.add(stripe, decision, SharedParseProfile.AMBIGUITIES, ambiguities)
+    profile.add(stripe, decision, SharedParseProfile.PREDICATE_EVALS, predicateEvals)
+    return alt
+  }
+
+  protected override fun getExistingTargetState(previousD: DFAState, t: Int): DFAState? {
+    // This method is called after each time the input position advances
+    // during SLL prediction
+    _sllStopIndex = _input!!.index()
+
+    val existingTargetState = super.getExistingTargetState(previousD, t)
+
+    if (existingTargetState != null) {
+      // Count only if we transition over a DFA state
+      sllDFATransitions++
+
+      if (existingTargetState === ERROR) {
+        errors++
+      }
+    }
+
+    return existingTargetState
+  }
+
+  protected override fun computeReachSet(closure: ATNConfigSet, t: Int, fullCtx: Boolean): ATNConfigSet? {
+    if (fullCtx) {
+      // This method is called after each time the input position advances
+      // during full context prediction
+      _llStopIndex = _input!!.index()
+    }
+
+    val reachConfigs = super.computeReachSet(closure, t, fullCtx)
+
+    if (fullCtx) {
+      llATNTransitions++
+    } else {
+      sllATNTransitions++
+    }
+
+    if (reachConfigs == null) {
+      errors++
+    }
+
+    return reachConfigs
+  }
+
+  protected override fun evalSemanticContext(
+    pred: SemanticContext,
+    parserCallStack: ParserRuleContext?,
+    alt: Int,
+    fullCtx: Boolean,
+  ): Boolean {
+    if (pred !is SemanticContext.PrecedencePredicate) {
+      predicateEvals++
+    }
+
+    return super.evalSemanticContext(pred, parserCallStack, alt, fullCtx)
+  }
+
+  protected override fun reportAttemptingFullContext(
+    dfa: DFA,
+    conflictingAlts: BitSet,
+    configs: ATNConfigSet,
+    startIndex: Int,
+    stopIndex: Int,
+  ) {
+    conflictingAltResolvedBySLL = conflictingAlts.nextSetBit(0)
+    llFallback++
+    super.reportAttemptingFullContext(dfa, conflictingAlts, configs, startIndex, stopIndex)
+  }
+
+  protected override fun reportContextSensitivity(
+    dfa: DFA,
+    prediction: Int,
+    configs: ATNConfigSet,
+    startIndex: Int,
+    stopIndex: Int,
+  ) {
+    if (prediction != conflictingAltResolvedBySLL) {
+      contextSensitivities++
+    }
+
+    super.reportContextSensitivity(dfa, prediction, configs, startIndex, stopIndex)
+  }
+
+  @Suppress("LocalVariableName")
+  protected override fun reportAmbiguity(
+    dfa: DFA,
+    D: DFAState,
+    startIndex: Int,
+    stopIndex: Int,
+    exact: Boolean,
+    ambigAlts: BitSet,
+    configs: ATNConfigSet,
+  ) {
+    if (configs.fullCtx && ambigAlts.nextSetBit(0) != conflictingAltResolvedBySLL) {
+      contextSensitivities++
+    }
+
+    ambiguities++
+    super.reportAmbiguity(dfa, D, startIndex, stopIndex, exact, ambigAlts, configs)
+  }
+}
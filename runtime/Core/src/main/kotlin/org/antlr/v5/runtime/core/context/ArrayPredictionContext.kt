@@ -54,6 +54,10 @@ public class ArrayPredictionContext(
       return false
     }
 
+    if (isDistinctInterned(other)) {
+      return false
+    }
+
     if (hashCode() != other.hashCode()) {
       // Can't be same if hash is different
       return false
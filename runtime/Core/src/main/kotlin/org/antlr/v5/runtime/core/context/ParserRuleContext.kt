@@ -8,6 +8,7 @@ package org.antlr.v5.runtime.core.context
 import org.antlr.v5.runtime.core.error.RecognitionException
 import org.antlr.v5.runtime.core.Parser
 import org.antlr.v5.runtime.core.Token
+import org.antlr.v5.runtime.core.atn.ATN
 import org.antlr.v5.runtime.core.ast.Position
 import org.antlr.v5.runtime.core.misc.Interval
 import org.antlr.v5.runtime.core.tree.ErrorNode
@@ -53,8 +54,29 @@ public open class ParserRuleContext : RuleContext {
    * with this rule's context. This is empty for parsing w/o tree constr.
    * operation because we don't have the need to track the details about
    * how we parse this rule.
+   *
+   * The list belongs to this context: a list assigned here is copied,
+   * so that every change to the children goes through the list and
+   * reaches the typed accessors ([getToken], [getRuleContexts], ...).
    */
   public var children: MutableList<ParseTree>? = null
+    set(value) {
+      field = if (value == null || value is ChildList && value.context === this) value else ChildList(value)
+      childrenVersion++
+    }
+
+  /**
+   * Incremented whenever [children] changes, to tell whether
+   * [childIndex] is up to date.
+   */
+  private var childrenVersion = 0
+
+  /**
+   * The children found by the typed accessors so far, such as [getToken]
+   * and [getRuleContexts], so that generated accessors do not scan
+   * [children] on each call.
+   */
+  private var childIndex: ChildIndex? = null
 
   // This does not exist in the Java runtime
   public val position: Position?
@@ -110,6 +132,23 @@ public open class ParserRuleContext : RuleContext {
   override fun getParent(): ParserRuleContext? =
     super.getParent() as ParserRuleContext?
 
+  /**
+   * Reset this context for another invocation of its rule from [parent] at
+   * [invokingStateNumber], as if newly created.
+   *
+   * Used by [Parser.recycledContext] to reuse
+   * contexts when parsing in streaming mode.
+   */
+  public open fun recycle(parent: ParserRuleContext?, invokingStateNumber: Int) {
+    setParent(parent)
+    invokingState = invokingStateNumber
+    children = null
+    start = null
+    stop = null
+    exception = null
+    altNumber = ATN.INVALID_ALT_NUMBER
+  }
+
   /**
    * Copy a context (I'm deliberately not using copy constructor) to avoid
    * confusion with creating node with parent. Does not copy children
@@ -134,7 +173,7 @@ public open class ParserRuleContext : RuleContext {
     val otherChildren = ctx.children
 
     if (otherChildren != null) {
-      children = ArrayList()
+      children = ChildList()
 
       // Reset parent pointer for any error nodes
       for (child in otherChildren) {
@@ -168,7 +207,7 @@ public open class ParserRuleContext : RuleContext {
     var childrenTemp = children
 
     if (childrenTemp == null) {
-      childrenTemp = ArrayList()
+      childrenTemp = ChildList()
       children = childrenTemp
     }
 
@@ -218,88 +257,208 @@ public open class ParserRuleContext : RuleContext {
   }
 
   public fun <T : ParseTree> getChild(ctxType: KClass<T>, i: Int): T? {
-    val tempChildren = children
+    val nodes = children(ctxType)
+    return if (i >= 0 && i < nodes.size) nodes[i] else null
+  }
+
+  public fun getToken(ttype: Int, i: Int): TerminalNode? {
+    val nodes = getTokens(ttype)
+    return if (i >= 0 && i < nodes.size) nodes[i] else null
+  }
 
-    if (tempChildren == null || i < 0 || i >= tempChildren.size) {
-      return null
+  /**
+   * Returns the token children of type [ttype], in order.
+   *
+   * The list is read-only, and shared by all calls until the children of
+   * this context change.
+   */
+  public fun getTokens(ttype: Int): List<TerminalNode> {
+    var index = index()
+
+    if (index.tokenTypes == null) {
+      index = index.withTokens()
+      childIndex = index
     }
 
-    // What element have we found with ctxType?
-    var j = -1
+    val types = index.tokenTypes!!
 
-    for (o in tempChildren) {
-      if (ctxType.isInstance(o)) {
-        j++
+    for (k in types.indices) {
+      if (types[k] == ttype) {
+        return index.tokens!![k]
+      }
+    }
 
-        if (j == i) {
-          @Suppress("UNCHECKED_CAST")
-          return o as T
-        }
+    return emptyList()
+  }
+
+  public fun <T : ParserRuleContext> getRuleContext(ctxType: KClass<T>, i: Int): T? =
+    getChild(ctxType, i)
+
+  /**
+   * Returns the children that are instances of [ctxType], in order.
+   *
+   * The list is read-only, and shared by all calls until the children of
+   * this context change.
+   */
+  public fun <T : ParserRuleContext> getRuleContexts(ctxType: KClass<T>): List<T> =
+    children(ctxType)
+
+  private fun <T : ParseTree> children(type: KClass<T>): List<T> {
+    var index = index()
+    val types = index.types
+
+    for (k in types.indices) {
+      if (types[k] == type) {
+        @Suppress("UNCHECKED_CAST")
+        return index.nodes[k] as List<T>
       }
     }
 
-    return null
+    index = index.with(type)
+    childIndex = index
+
+    @Suppress("UNCHECKED_CAST")
+    return index.nodes[index.nodes.size - 1] as List<T>
   }
 
-  public fun getToken(ttype: Int, i: Int): TerminalNode? {
+  /**
+   * Returns the index of the current children, after dropping the
+   * previous one if they changed.
+   */
+  private fun index(): ChildIndex {
     val tempChildren = children
+    val index = childIndex
 
-    if (tempChildren == null || i < 0 || i >= tempChildren.size) {
-      return null
+    if (index != null && index.children === tempChildren && index.version == childrenVersion) {
+      return index
     }
 
-    // What token with ttype have we found?
-    var j = -1
+    val newIndex = ChildIndex(tempChildren, childrenVersion)
+    childIndex = newIndex
+    return newIndex
+  }
 
-    for (o in tempChildren) {
-      if (o is TerminalNode) {
-        val symbol = o.symbol
+  /**
+   * The list of [children], which tells this context about every change
+   * so that the typed accessors do not return stale children.
+   */
+  private inner class ChildList(children: Collection<ParseTree> = emptyList()) : AbstractMutableList<ParseTree>() {
+    private val list = ArrayList(children)
 
-        if (symbol.type == ttype) {
-          j++
+    val context: ParserRuleContext
+      get() = this@ParserRuleContext
 
-          if (j == i) {
-            return o
-          }
-        }
-      }
+    override val size: Int
+      get() = list.size
+
+    override fun get(index: Int): ParseTree =
+      list[index]
+
+    override fun set(index: Int, element: ParseTree): ParseTree {
+      val previous = list.set(index, element)
+      childrenVersion++
+      return previous
     }
 
-    return null
+    override fun add(index: Int, element: ParseTree) {
+      list.add(index, element)
+      childrenVersion++
+    }
+
+    override fun removeAt(index: Int): ParseTree {
+      val removed = list.removeAt(index)
+      childrenVersion++
+      return removed
+    }
   }
 
-  public fun getTokens(ttype: Int): List<TerminalNode> {
-    val tempChildren = children ?: return emptyList()
-    val tokens = ArrayList<TerminalNode>()
+  /**
+   * The children of a context by token type, and by the classes asked
+   * for so far.
+   *
+   * Instances are not modified once created, so that trees can be read
+   * from several threads: adding a class makes a new index.
+   */
+  private class ChildIndex(
+    val children: List<ParseTree>?,
+    val version: Int,
+    val tokenTypes: IntArray? = null,
+    val tokens: Array<List<TerminalNode>>? = null,
+    val types: Array<KClass<*>> = emptyArray(),
+    val nodes: Array<List<ParseTree>> = emptyArray(),
+  ) {
+    fun withTokens(): ChildIndex {
+      var typeCount = 0
+      var types = IntArray(4)
+      var counts = IntArray(4)
+
+      // Count the tokens of each type first, then fill exact arrays
+      children?.forEach { node ->
+        if (node is TerminalNode) {
+          val ttype = node.symbol.type
+          var k = 0
+
+          while (k < typeCount && types[k] != ttype) {
+            k++
+          }
 
-    for (o in tempChildren) {
-      if (o is TerminalNode) {
-        val symbol = o.symbol
+          if (k == typeCount) {
+            if (k == types.size) {
+              types = types.copyOf(k * 2)
+              counts = counts.copyOf(k * 2)
+            }
+
+            types[k] = ttype
+            typeCount++
+          }
 
-        if (symbol.type == ttype) {
-          tokens.add(o)
+          counts[k]++
         }
       }
-    }
 
-    return tokens
-  }
+      val arrays = Array(typeCount) { arrayOfNulls<Any?>(counts[it]) }
+      val filled = IntArray(typeCount)
 
-  public fun <T : ParserRuleContext> getRuleContext(ctxType: KClass<T>, i: Int): T? =
-    getChild(ctxType, i)
+      children?.forEach { node ->
+        if (node is TerminalNode) {
+          val k = types.indexOf(node.symbol.type)
+          arrays[k][filled[k]++] = node
+        }
+      }
 
-  public fun <T : ParserRuleContext> getRuleContexts(ctxType: KClass<T>): List<T> {
-    val tempChildren = children ?: return emptyList()
-    val contexts = ArrayList<T>()
+      return ChildIndex(
+        children,
+        version,
+        types.copyOf(typeCount),
+        Array(typeCount) { NodeList(arrays[it]) },
+        this.types,
+        nodes,
+      )
+    }
 
-    for (o in tempChildren) {
-      if (ctxType.isInstance(o)) {
-        @Suppress("UNCHECKED_CAST")
-        contexts.add(o as T)
-      }
+    fun with(type: KClass<*>): ChildIndex {
+      val matching = children?.filter { type.isInstance(it) } ?: emptyList()
+      return ChildIndex(
+        children,
+        version,
+        tokenTypes,
+        tokens,
+        types.plusElement(type),
+        nodes.plusElement(NodeList(matching.toTypedArray<Any?>())),
+      )
     }
+  }
+
+  /**
+   * A read-only list of children.
+   */
+  private class NodeList<T>(private val array: Array<Any?>) : AbstractList<T>() {
+    override val size: Int
+      get() = array.size
 
-    return contexts
+    @Suppress("UNCHECKED_CAST")
+    override fun get(index: Int): T =
+      array[index] as T
   }
 
   /**
@@ -10,8 +10,8 @@ import org.antlr.v5.runtime.core.Recognizer
 import org.antlr.v5.runtime.core.atn.ParserATNSimulator
 import org.antlr.v5.runtime.core.atn.ATN
 import org.antlr.v5.runtime.core.atn.PredictionContextCache
+import org.antlr.v5.runtime.core.atn.PredictionContextMergeCache
 import org.antlr.v5.runtime.core.jvm.IdentityHashMap
-import org.antlr.v5.runtime.core.misc.DoubleKeyMap
 import org.antlr.v5.runtime.core.misc.MurmurHash
 import org.antlr.v5.runtime.core.transition.RuleTransition
 import org.antlr.v5.runtime.core.misc.assert
@@ -60,7 +60,14 @@ public abstract class PredictionContext protected constructor(
      *
      * Return [EmptyPredictionContext.Instance] if [outerContext] is empty or `null`.
      */
-    public fun fromRuleContext(atn: ATN, outerContext: RuleContext?): PredictionContext {
+    public fun fromRuleContext(atn: ATN, outerContext: RuleContext?): PredictionContext =
+      fromRuleContext(atn, outerContext, null)
+
+    /**
+     * Convert a [RuleContext] tree to a [PredictionContext] graph,
+     * interning its nodes in [contextCache] if it is an interning cache.
+     */
+    public fun fromRuleContext(atn: ATN, outerContext: RuleContext?, contextCache: PredictionContextCache?): PredictionContext {
       val tempOuterContext = outerContext ?: ParserRuleContext.EMPTY
 
       // If we are in RuleContext of start rule, s, then PredictionContext
@@ -70,10 +77,10 @@ public abstract class PredictionContext protected constructor(
       }
 
       // If we have a parent, convert it to a PredictionContext graph
-      val parent = fromRuleContext(atn, tempOuterContext.getParent())
+      val parent = fromRuleContext(atn, tempOuterContext.getParent(), contextCache)
       val state = atn.states[tempOuterContext.invokingState]
       val transition = state!!.transition(0) as RuleTransition
-      return SingletonPredictionContext.create(parent, transition.followState.stateNumber)
+      return singleton(interner(contextCache), parent, transition.followState.stateNumber)
     }
 
     public fun calculateEmptyHashCode(): Int {
@@ -105,12 +112,21 @@ public abstract class PredictionContext protected constructor(
       return hash
     }
 
+    private fun interner(contextCache: PredictionContextCache?): PredictionContextCache? =
+      if (contextCache != null && contextCache.interning) contextCache else null
+
+    private fun singleton(interner: PredictionContextCache?, parent: PredictionContext?, returnState: Int): SingletonPredictionContext =
+      interner?.singleton(parent, returnState) ?: SingletonPredictionContext.create(parent, returnState)
+
+    private fun array(interner: PredictionContextCache?, parents: Array<PredictionContext?>, returnStates: IntArray): PredictionContext =
+      interner?.array(parents, returnStates) ?: ArrayPredictionContext(parents, returnStates)
+
     // Dispatch
     public fun merge(
         a: PredictionContext?,
         b: PredictionContext?,
         rootIsWildcard: Boolean,
-        mergeCache: DoubleKeyMap<PredictionContext, PredictionContext, PredictionContext>?,
+        mergeCache: PredictionContextMergeCache?,
     ): PredictionContext {
       var aa = a
       var bb = b
@@ -139,6 +155,12 @@ public abstract class PredictionContext protected constructor(
         }
       }
 
+      // Results are interned where the inputs are, and cached under the
+      // inputs: the arrays converted from singletons below are temporaries
+      val interner = aa.internedIn ?: bb.internedIn
+      val keyA = aa
+      val keyB = bb
+
       // Convert singleton so both are arrays to normalize
       if (aa is SingletonPredictionContext) {
         aa = ArrayPredictionContext(aa)
@@ -153,6 +175,9 @@ public abstract class PredictionContext protected constructor(
         bb as ArrayPredictionContext,
         rootIsWildcard,
         mergeCache,
+        interner,
+        keyA,
+        keyB,
       )
     }
 
@@ -191,26 +216,19 @@ public abstract class PredictionContext protected constructor(
       a: SingletonPredictionContext,
       b: SingletonPredictionContext,
       rootIsWildcard: Boolean,
-      mergeCache: DoubleKeyMap<PredictionContext, PredictionContext, PredictionContext>?,
+      mergeCache: PredictionContextMergeCache?,
     ): PredictionContext {
-      if (mergeCache != null) {
-        var previous = mergeCache[a, b]
-
-        if (previous != null) {
-          return previous
-        }
+      val previous = mergeCache?.get(a, b, rootIsWildcard)
 
-        previous = mergeCache[b, a]
-
-        if (previous != null) {
-          return previous
-        }
+      if (previous != null) {
+        return previous
       }
 
-      val rootMerge = mergeRoot(a, b, rootIsWildcard)
+      val interner = a.internedIn ?: b.internedIn
+      val rootMerge = mergeRoot(a, b, rootIsWildcard, interner)
 
       if (rootMerge != null) {
-        mergeCache?.put(a, b, rootMerge)
+        mergeCache?.put(a, b, rootIsWildcard, rootMerge)
         return rootMerge
       }
 
@@ -234,8 +252,8 @@ public abstract class PredictionContext protected constructor(
         // of those graphs. dup a, a' points at merged array
         // new joined parent so create new singleton pointing to it, a'
         @Suppress("LocalVariableName")
-        val a_ = SingletonPredictionContext.create(parent, a.returnState)
-        mergeCache?.put(a, b, a_)
+        val a_ = singleton(interner, parent, a.returnState)
+        mergeCache?.put(a, b, rootIsWildcard, a_)
         return a_
       }
 
@@ -261,8 +279,8 @@ public abstract class PredictionContext protected constructor(
         val parents: Array<PredictionContext?> = arrayOf(singleParent, singleParent)
 
         @Suppress("LocalVariableName")
-        val a_ = ArrayPredictionContext(parents, payloads)
-        mergeCache?.put(a, b, a_)
+        val a_ = array(interner, parents, payloads)
+        mergeCache?.put(a, b, rootIsWildcard, a_)
         return a_
       }
 
@@ -280,8 +298,8 @@ public abstract class PredictionContext protected constructor(
       }
 
       @Suppress("LocalVariableName")
-      val a_ = ArrayPredictionContext(parents, payloads)
-      mergeCache?.put(a, b, a_)
+      val a_ = array(interner, parents, payloads)
+      mergeCache?.put(a, b, rootIsWildcard, a_)
       return a_
     }
 
@@ -327,6 +345,14 @@ public abstract class PredictionContext protected constructor(
       a: SingletonPredictionContext,
       b: SingletonPredictionContext,
       rootIsWildcard: Boolean,
+    ): PredictionContext? =
+      mergeRoot(a, b, rootIsWildcard, a.internedIn ?: b.internedIn)
+
+    private fun mergeRoot(
+      a: SingletonPredictionContext,
+      b: SingletonPredictionContext,
+      rootIsWildcard: Boolean,
+      interner: PredictionContextCache?,
     ): PredictionContext? {
       if (rootIsWildcard) {
         if (a === EmptyPredictionContext.Instance) {
@@ -348,14 +374,14 @@ public abstract class PredictionContext protected constructor(
           // $ + x = [x,$]
           val payloads = intArrayOf(b.returnState, EMPTY_RETURN_STATE)
           val parents = arrayOf(b.parent, null)
-          return ArrayPredictionContext(parents, payloads)
+          return array(interner, parents, payloads)
         }
 
         if (b === EmptyPredictionContext.Instance) {
           // x + $ = [x,$] ($ is always last if present)
           val payloads = intArrayOf(a.returnState, EMPTY_RETURN_STATE)
           val parents = arrayOf(a.parent, null)
-          return ArrayPredictionContext(parents, payloads)
+          return array(interner, parents, payloads)
         }
       }
 
@@ -389,28 +415,27 @@ public abstract class PredictionContext protected constructor(
       a: ArrayPredictionContext,
       b: ArrayPredictionContext,
       rootIsWildcard: Boolean,
-      mergeCache: DoubleKeyMap<PredictionContext, PredictionContext, PredictionContext>?,
-    ): PredictionContext {
-      if (mergeCache != null) {
-        var previous = mergeCache[a, b]
+      mergeCache: PredictionContextMergeCache?,
+    ): PredictionContext =
+      mergeArrays(a, b, rootIsWildcard, mergeCache, a.internedIn ?: b.internedIn, a, b)
 
-        if (previous != null) {
-          if (ParserATNSimulator.trace_atn_sim) {
-            System.out.println("mergeArrays a=$a,b=$b -> previous")
-          }
+    private fun mergeArrays(
+      a: ArrayPredictionContext,
+      b: ArrayPredictionContext,
+      rootIsWildcard: Boolean,
+      mergeCache: PredictionContextMergeCache?,
+      interner: PredictionContextCache?,
+      keyA: PredictionContext,
+      keyB: PredictionContext,
+    ): PredictionContext {
+      val previous = mergeCache?.get(keyA, keyB, rootIsWildcard)
 
-          return previous
+      if (previous != null) {
+        if (ParserATNSimulator.trace_atn_sim) {
+          System.out.println("mergeArrays a=$a,b=$b -> previous")
         }
 
-        previous = mergeCache[b, a]
-
-        if (previous != null) {
-          if (ParserATNSimulator.trace_atn_sim) {
-            System.out.println("mergeArrays a=$a,b=$b -> previous")
-          }
-
-          return previous
-        }
+        return previous
       }
 
       // Merge sorted payloads a + b => M
@@ -485,8 +510,8 @@ public abstract class PredictionContext protected constructor(
         // For just one merged element, return singleton top
         if (k == 1) {
           @Suppress("LocalVariableName")
-          val a_ = SingletonPredictionContext.create(mergedParents[0], mergedReturnStates[0])
-          mergeCache?.put(a, b, a_)
+          val a_ = singleton(interner, mergedParents[0], mergedReturnStates[0])
+          mergeCache?.put(keyA, keyB, rootIsWildcard, a_)
           return a_
         }
 
@@ -495,12 +520,12 @@ public abstract class PredictionContext protected constructor(
       }
 
       @Suppress("LocalVariableName")
-      val M = ArrayPredictionContext(mergedParents, mergedReturnStates)
+      val M = array(interner, mergedParents, mergedReturnStates)
 
       // If we created same array as a or b, return that instead
       // TODO: track whether this is possible above during merge sort for speed
       if (M == a) {
-        mergeCache?.put(a, b, a)
+        mergeCache?.put(keyA, keyB, rootIsWildcard, a)
 
         if (ParserATNSimulator.trace_atn_sim) {
           System.out.println("mergeArrays a=$a,b=$b -> a")
@@ -510,7 +535,7 @@ public abstract class PredictionContext protected constructor(
       }
 
       if (M == b) {
-        mergeCache?.put(a, b, b)
+        mergeCache?.put(keyA, keyB, rootIsWildcard, b)
 
         if (ParserATNSimulator.trace_atn_sim) {
           System.out.println("mergeArrays a=$a,b=$b -> b")
@@ -519,8 +544,13 @@ public abstract class PredictionContext protected constructor(
         return b
       }
 
-       combineCommonParents(mergedParents)
-      mergeCache?.put(a, b, M)
+      // Interned parents are unique already, and an interned
+      // context must not change
+      if (interner == null) {
+        combineCommonParents(mergedParents)
+      }
+
+      mergeCache?.put(keyA, keyB, rootIsWildcard, M)
 
       if (ParserATNSimulator.trace_atn_sim) {
         System.out.println("mergeArrays a=$a,b=$b -> $M")
@@ -654,11 +684,26 @@ public abstract class PredictionContext protected constructor(
   public open val isEmpty: Boolean
     get() = this === EmptyPredictionContext.Instance
 
+  /**
+   * The interning cache this context is the canonical instance in, if any.
+   *
+   * Two contexts interned in the same cache are equal only if they are the
+   * same object.
+   */
+  internal var internedIn: PredictionContextCache? = null
+
   public abstract fun size(): Int
   public abstract fun getParent(index: Int): PredictionContext?
   public abstract fun getReturnState(index: Int): Int
   public abstract override fun equals(other: Any?): Boolean
 
+  /**
+   * Whether this context and [other] are distinct canonical instances,
+   * and therefore not equal.
+   */
+  protected fun isDistinctInterned(other: PredictionContext): Boolean =
+    internedIn != null && internedIn === other.internedIn && this !== other
+
   public fun hasEmptyPath(): Boolean =
     // Since EMPTY_RETURN_STATE can only appear in the last position, we check last one
     getReturnState(size() - 1) == EMPTY_RETURN_STATE
@@ -50,6 +50,10 @@ public open class SingletonPredictionContext internal constructor(
       return false
     }
 
+    if (isDistinctInterned(other)) {
+      return false
+    }
+
     if (hashCode() != other.hashCode()) {
       // Can't be same if hash is different
       return false
@@ -36,6 +36,16 @@ public open class DFA(
   @Volatile
   public var s0: DFAState? = null
 
+  /**
+   * The snapshot made by the last call to [freeze], or `null`.
+   *
+   * The snapshot is not updated as the DFA grows; freeze again to include
+   * the new states and edges.
+   */
+  @Volatile
+  public var frozen: FrozenDFA? = null
+    private set
+
   /**
    * Whether this DFA is a precedence DFA, or not.
    *
@@ -121,6 +131,21 @@ public open class DFA(
     }
   }
 
+  /**
+   * Makes a [FrozenDFA] of the states computed so far and publishes it as
+   * [frozen], for [org.antlr.v5.runtime.core.atn.ParserATNSimulator] to
+   * predict from.
+   *
+   * Call it once the DFA has warmed up, e.g. after parsing representative
+   * input. Lexer DFAs are not frozen: their states already hold a
+   * fixed-size edge array, which is as fast to follow.
+   */
+  public fun freeze(): FrozenDFA {
+    val frozen = freeze(this)
+    this.frozen = frozen
+    return frozen
+  }
+
   /**
    * Return a list of all states in this DFA, ordered by state number.
    */
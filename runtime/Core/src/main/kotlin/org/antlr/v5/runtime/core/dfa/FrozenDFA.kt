@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.runtime.core.dfa
+
+import org.antlr.v5.runtime.core.atn.ATN
+import org.antlr.v5.runtime.core.atn.ATNSimulator
+import org.antlr.v5.runtime.core.atn.ParserATNSimulator
+import org.antlr.v5.runtime.core.jvm.IdentityHashMap
+
+/**
+ * A compact, read-only snapshot of a warmed-up parser [DFA], made by
+ * [DFA.freeze].
+ *
+ * States are numbered densely and their edges packed into a single
+ * transition table, so following an edge reads one `int` instead of
+ * chasing a [DFAState], its edge array and the target state. Whether a
+ * state accepts, and what it predicts, are kept in side arrays.
+ *
+ * The snapshot only answers what it can answer alone. An edge that was not
+ * computed when the DFA was frozen is a [MISSING] entry, and an accept
+ * state that needs predicates or full-context prediction is not numbered
+ * at all: edges into it are [MISSING] too. [ParserATNSimulator] then
+ * resumes on the object DFA from [state], which keeps growing as before.
+ *
+ * Columns are indexes into [DFAState.edges], that is `t + 1` for symbol `t`.
+ */
+public class FrozenDFA internal constructor(
+  /**
+   * The states, indexed by id.
+   */
+  private val states: Array<DFAState>,
+
+  /**
+   * The number of states with a row in [transitions];
+   * they have the ids `0..<rows`.
+   */
+  private val rows: Int,
+
+  /**
+   * The number of columns of [transitions].
+   */
+  public val width: Int,
+
+  /**
+   * `transitions[id * width + column]` is the id of the target state,
+   * or [MISSING], or [ERROR].
+   */
+  private val transitions: IntArray,
+
+  /**
+   * Per state, the alternative it predicts if it is an accept state,
+   * or [ATN.INVALID_ALT_NUMBER].
+   */
+  private val predictions: IntArray,
+
+  /**
+   * Per state, whether it is an accept state.
+   */
+  private val accepts: BooleanArray,
+
+  /**
+   * The id of the start state; for a precedence DFA,
+   * the id of the start state for each precedence.
+   */
+  private val starts: IntArray,
+) {
+  public companion object {
+    /**
+     * An edge that the frozen DFA cannot follow.
+     */
+    public const val MISSING: Int = -1
+
+    /**
+     * An edge to [ATNSimulator.ERROR].
+     */
+    public const val ERROR: Int = -2
+  }
+
+  /**
+   * The number of states.
+   */
+  public val size: Int
+    get() = states.size
+
+  /**
+   * Returns the id of the start state, or [MISSING] if there is none.
+   *
+   * @param precedence The precedence, for a precedence DFA
+   */
+  public fun start(precedence: Int = 0): Int =
+    if (precedence < 0 || precedence >= starts.size) MISSING else starts[precedence]
+
+  /**
+   * Returns the id of the target of the edge of state [id] for [column],
+   * or [MISSING], or [ERROR].
+   */
+  public fun target(id: Int, column: Int): Int =
+    if (id >= rows || column < 0 || column >= width) MISSING else transitions[id * width + column]
+
+  public fun isAcceptState(id: Int): Boolean =
+    accepts[id]
+
+  public fun prediction(id: Int): Int =
+    predictions[id]
+
+  /**
+   * Returns the object DFA state with the given [id].
+   */
+  public fun state(id: Int): DFAState =
+    states[id]
+}
+
+/**
+ * Numbers the states of [dfa] reachable from its start states, and packs
+ * their edges into a [FrozenDFA].
+ *
+ * Accept states that need predicates or full context are left out, and so
+ * are the edges of accept states, which prediction never follows.
+ */
+internal fun freeze(dfa: DFA): FrozenDFA {
+  val s0 = dfa.s0 ?: return FrozenDFA(emptyArray(), 0, 0, IntArray(0), IntArray(0), BooleanArray(0), IntArray(0))
+  val roots = if (dfa.isPrecedenceDfa) s0.edges!!.toList() else listOf(s0)
+
+  fun isPlain(s: DFAState): Boolean =
+    !s.isAcceptState || s.predicates == null && !s.requiresFullContext
+
+  // Prediction ends as soon as it reaches an accept state
+  fun rowOf(s: DFAState): Array<DFAState?>? =
+    if (s.isAcceptState) null else s.edges
+
+  // Collect the reachable states, taking one snapshot of the edges of
+  // each, as other threads may be adding edges. States are told apart
+  // by identity, not by configurations
+  val seen = IdentityHashMap<DFAState, Int>()
+  val reachable = ArrayList<DFAState>()
+  val reachableRows = ArrayList<Array<DFAState?>?>()
+  var width = 0
+
+  fun visit(s: DFAState?) {
+    if (s != null && s !== ATNSimulator.ERROR && isPlain(s) && seen.put(s, 0) == null) {
+      reachable.add(s)
+    }
+  }
+
+  roots.forEach(::visit)
+
+  while (reachableRows.size < reachable.size) {
+    val row = rowOf(reachable[reachableRows.size])
+    reachableRows.add(row)
+
+    if (row != null) {
+      width = maxOf(width, row.size)
+      row.forEach(::visit)
+    }
+  }
+
+  // Give the states with a row the first ids
+  val order = reachable.indices.sortedBy { if (reachableRows[it] != null) 0 else 1 }
+  val states = Array(order.size) { reachable[order[it]] }
+  val rows = reachableRows.count { it != null }
+  val ids = seen
+
+  for (i in states.indices) {
+    ids[states[i]] = i
+  }
+
+  fun idOf(s: DFAState?): Int =
+    when {
+      s == null -> FrozenDFA.MISSING
+      s === ATNSimulator.ERROR -> FrozenDFA.ERROR
+      else -> ids[s] ?: FrozenDFA.MISSING
+    }
+
+  val transitions = IntArray(rows * width)
+  val predictions = IntArray(states.size)
+  val accepts = BooleanArray(states.size)
+
+  for (i in states.indices) {
+    val s = states[i]
+    accepts[i] = s.isAcceptState
+    predictions[i] = if (s.isAcceptState) s.prediction else ATN.INVALID_ALT_NUMBER
+
+    if (i < rows) {
+      val edges = reachableRows[order[i]]!!
+      val row = i * width
+
+      for (c in 0..<width) {
+        transitions[row + c] = if (c < edges.size) idOf(edges[c]) else FrozenDFA.MISSING
+      }
+    }
+  }
+
+  val starts = IntArray(roots.size) { idOf(roots[it]) }
+  return FrozenDFA(states, rows, width, transitions, predictions, accepts, starts)
+}
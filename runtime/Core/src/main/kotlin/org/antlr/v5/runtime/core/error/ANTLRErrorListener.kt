@@ -13,6 +13,7 @@ import org.antlr.v5.runtime.core.atn.ATNConfigSet
 import org.antlr.v5.runtime.core.info.DecisionInfo
 import org.antlr.v5.runtime.core.atn.ParserATNSimulator
 import org.antlr.v5.runtime.core.atn.PredictionMode
+import org.antlr.v5.runtime.core.atn.PredictionLimits
 import org.antlr.v5.runtime.core.dfa.DFA
 
 /**
@@ -176,4 +177,32 @@ public interface ANTLRErrorListener {
           prediction: Int,
           configs: ATNConfigSet,
   )
+
+  /**
+   * This method is called by the parser when a prediction was stopped
+   * because it exceeded one of the [ParserATNSimulator.predictionLimits].
+   *
+   * The parser continues with [prediction], the minimum alternative
+   * of [configs], which may turn out not to be viable.
+   *
+   * This method is not used by lexers.
+   *
+   * @param recognizer The parser instance
+   * @param dfa The DFA for the current decision
+   * @param startIndex The input index where the decision started
+   * @param stopIndex The input index where the limit was exceeded
+   * @param limit The limit that was exceeded
+   * @param prediction The alternative chosen instead of a full prediction
+   * @param configs The last complete ATN configuration set before the limit
+   *   was exceeded, or `null` if the start state could not be computed
+   */
+  public fun reportPredictionLimitExceeded(
+    recognizer: Parser,
+    dfa: DFA,
+    startIndex: Int,
+    stopIndex: Int,
+    limit: PredictionLimits.Limit,
+    prediction: Int,
+    configs: ATNConfigSet?,
+  )
 }
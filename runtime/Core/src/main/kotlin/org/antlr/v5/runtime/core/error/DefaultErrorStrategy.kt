@@ -61,11 +61,15 @@ public open class DefaultErrorStrategy : ANTLRErrorStrategy {
   protected var nextTokensState: Int = 0
 
   /**
-   * The default implementation simply calls [endErrorCondition] to
-   * ensure that the handler is not in error recovery mode.
+   * The default implementation calls [endErrorCondition] to ensure that
+   * the handler is not in error recovery mode, and forgets the lookahead
+   * context of the previous match.
    */
-  override fun reset(recognizer: Parser): Unit =
+  override fun reset(recognizer: Parser) {
     endErrorCondition(recognizer)
+    nextTokensContext = null
+    nextTokensState = ATNState.INVALID_STATE_NUMBER
+  }
 
   /**
    * This method is called to enter error recovery mode when a recognition
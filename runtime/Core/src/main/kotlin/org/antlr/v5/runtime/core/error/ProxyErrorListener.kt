@@ -8,6 +8,7 @@ package org.antlr.v5.runtime.core.error
 import org.antlr.v5.runtime.core.Parser
 import org.antlr.v5.runtime.core.Recognizer
 import org.antlr.v5.runtime.core.atn.ATNConfigSet
+import org.antlr.v5.runtime.core.atn.PredictionLimits
 import org.antlr.v5.runtime.core.dfa.DFA
 import org.antlr.v5.runtime.core.error.ANTLRErrorListener
 import org.antlr.v5.runtime.core.error.RecognitionException
@@ -74,4 +75,18 @@ public class ProxyErrorListener(private val delegates: Collection<ANTLRErrorList
       listener.reportContextSensitivity(recognizer, dfa, startIndex, stopIndex, prediction, configs)
     }
   }
+
+  override fun reportPredictionLimitExceeded(
+    recognizer: Parser,
+    dfa: DFA,
+    startIndex: Int,
+    stopIndex: Int,
+    limit: PredictionLimits.Limit,
+    prediction: Int,
+    configs: ATNConfigSet?,
+  ) {
+    for (listener in delegates) {
+      listener.reportPredictionLimitExceeded(recognizer, dfa, startIndex, stopIndex, limit, prediction, configs)
+    }
+  }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.runtime.core.info
+
+import org.antlr.v5.runtime.core.info.SharedParseProfile.Companion.AMBIGUITIES
+import org.antlr.v5.runtime.core.info.SharedParseProfile.Companion.CONTEXT_SENSITIVITIES
+import org.antlr.v5.runtime.core.info.SharedParseProfile.Companion.ERRORS
+import org.antlr.v5.runtime.core.info.SharedParseProfile.Companion.FIELDS
+import org.antlr.v5.runtime.core.info.SharedParseProfile.Companion.INVOCATIONS
+import org.antlr.v5.runtime.core.info.SharedParseProfile.Companion.LL_ATN_TRANSITIONS
+import org.antlr.v5.runtime.core.info.SharedParseProfile.Companion.LL_DFA_TRANSITIONS
+import org.antlr.v5.runtime.core.info.SharedParseProfile.Companion.LL_FALLBACK
+import org.antlr.v5.runtime.core.info.SharedParseProfile.Companion.LL_MAX_LOOK
+import org.antlr.v5.runtime.core.info.SharedParseProfile.Companion.LL_MIN_LOOK
+import org.antlr.v5.runtime.core.info.SharedParseProfile.Companion.LL_TOTAL_LOOK
+import org.antlr.v5.runtime.core.info.SharedParseProfile.Companion.PREDICATE_EVALS
+import org.antlr.v5.runtime.core.info.SharedParseProfile.Companion.SLL_ATN_TRANSITIONS
+import org.antlr.v5.runtime.core.info.SharedParseProfile.Companion.SLL_DFA_TRANSITIONS
+import org.antlr.v5.runtime.core.info.SharedParseProfile.Companion.SLL_MAX_LOOK
+import org.antlr.v5.runtime.core.info.SharedParseProfile.Companion.SLL_MIN_LOOK
+import org.antlr.v5.runtime.core.info.SharedParseProfile.Companion.SLL_TOTAL_LOOK
+import org.antlr.v5.runtime.core.info.SharedParseProfile.Companion.TIME_IN_PREDICTION
+import kotlin.time.Duration
+
+/**
+ * The counts of a [SharedParseProfile] over an interval.
+ *
+ * [decisionInfo] holds the counters in the same form as
+ * [ParseInfo.decisionInfo]; its event lists are always empty, and the
+ * number of events of each kind is available from the `get*Count`
+ * methods instead.
+ *
+ * @param interval The time since the profile was created or last reset
+ */
+@Suppress("MemberVisibilityCanBePrivate")
+public class ParseProfileSnapshot internal constructor(
+  public val numDecisions: Int,
+  private val counters: LongArray,
+  public val interval: Duration,
+) {
+  /**
+   * An array of [DecisionInfo] instances containing the counters for
+   * each decision in the ATN.
+   */
+  public val decisionInfo: Array<DecisionInfo> by lazy {
+    Array(numDecisions) {
+      val info = DecisionInfo(it)
+      info.invocations = get(it, INVOCATIONS)
+      info.timeInPrediction = get(it, TIME_IN_PREDICTION)
+      info.SLL_TotalLook = get(it, SLL_TOTAL_LOOK)
+      info.SLL_MinLook = get(it, SLL_MIN_LOOK)
+      info.SLL_MaxLook = get(it, SLL_MAX_LOOK)
+      info.LL_TotalLook = get(it, LL_TOTAL_LOOK)
+      info.LL_MinLook = get(it, LL_MIN_LOOK)
+      info.LL_MaxLook = get(it, LL_MAX_LOOK)
+      info.SLL_ATNTransitions = get(it, SLL_ATN_TRANSITIONS)
+      info.SLL_DFATransitions = get(it, SLL_DFA_TRANSITIONS)
+      info.LL_Fallback = get(it, LL_FALLBACK)
+      info.LL_ATNTransitions = get(it, LL_ATN_TRANSITIONS)
+      info.LL_DFATransitions = get(it, LL_DFA_TRANSITIONS)
+      info
+    }
+  }
+
+  /**
+   * The decision numbers for decisions that required one or more
+   * full-context predictions during the interval.
+   */
+  public val llDecisions: List<Int>
+    get() = (0..<numDecisions).filter { get(it, LL_FALLBACK) > 0 }
+
+  /**
+   * The total number of predictions across all decisions.
+   */
+  public val totalInvocations: Long
+    get() = sum(INVOCATIONS)
+
+  /**
+   * The total time spent during prediction across all decisions, in nanoseconds.
+   */
+  public val totalTimeInPrediction: Long
+    get() = sum(TIME_IN_PREDICTION)
+
+  /**
+   * The total number of SLL lookahead operations across all decisions.
+   */
+  public val totalSLLLookaheadOps: Long
+    get() = sum(SLL_TOTAL_LOOK)
+
+  /**
+   * The total number of LL lookahead operations across all decisions.
+   */
+  public val totalLLLookaheadOps: Long
+    get() = sum(LL_TOTAL_LOOK)
+
+  /**
+   * The total number of ATN lookahead operations for SLL and LL
+   * prediction across all decisions.
+   */
+  public val totalATNLookaheadOps: Long
+    get() = sum(SLL_ATN_TRANSITIONS) + sum(LL_ATN_TRANSITIONS)
+
+  /**
+   * The number of context sensitivities found by LL prediction for [decision].
+   */
+  public fun getContextSensitivityCount(decision: Int): Long =
+    get(decision, CONTEXT_SENSITIVITIES)
+
+  /**
+   * The number of syntax errors found by prediction for [decision].
+   */
+  public fun getErrorCount(decision: Int): Long =
+    get(decision, ERRORS)
+
+  /**
+   * The number of ambiguities found by prediction for [decision].
+   */
+  public fun getAmbiguityCount(decision: Int): Long =
+    get(decision, AMBIGUITIES)
+
+  /**
+   * The number of predicate evaluations during prediction for [decision].
+   */
+  public fun getPredicateEvalCount(decision: Int): Long =
+    get(decision, PREDICATE_EVALS)
+
+  private fun get(decision: Int, field: Int): Long =
+    counters[decision * FIELDS + field]
+
+  private fun sum(field: Int): Long {
+    var n = 0L
+
+    for (d in 0..<numDecisions) {
+      n += get(d, field)
+    }
+
+    return n
+  }
+
+  override fun toString(): String =
+    buildString {
+      append("{interval=")
+      append(interval)
+      append(", decisions=[")
+
+      for (d in 0..<numDecisions) {
+        if (d > 0) {
+          append(", ")
+        }
+
+        val info = decisionInfo[d]
+        append("{decision=")
+        append(d)
+        append(", invocations=")
+        append(info.invocations)
+        append(", contextSensitivities=")
+        append(getContextSensitivityCount(d))
+        append(", errors=")
+        append(getErrorCount(d))
+        append(", ambiguities=")
+        append(getAmbiguityCount(d))
+        append(", SLL_lookahead=")
+        append(info.SLL_TotalLook)
+        append(", SLL_ATNTransitions=")
+        append(info.SLL_ATNTransitions)
+        append(", SLL_DFATransitions=")
+        append(info.SLL_DFATransitions)
+        append(", LL_Fallback=")
+        append(info.LL_Fallback)
+        append(", LL_lookahead=")
+        append(info.LL_TotalLook)
+        append(", LL_ATNTransitions=")
+        append(info.LL_ATNTransitions)
+        append("}")
+      }
+
+      append("]}")
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.runtime.core.info
+
+import org.antlr.v5.runtime.core.atn.SharedProfilingATNSimulator
+import org.antlr.v5.runtime.core.dfa.DFA
+import org.antlr.v5.runtime.core.jvm.AtomicLongArray
+import org.antlr.v5.runtime.core.jvm.WeakHashMap
+import org.antlr.v5.runtime.core.jvm.platformAvailableProcessors
+import kotlin.concurrent.Volatile
+import kotlin.jvm.JvmStatic
+import kotlin.time.TimeSource
+
+/**
+ * Profiling counters for each decision of a grammar, shared by every
+ * parser that profiles into it, possibly from many threads at once.
+ *
+ * Each [SharedProfilingATNSimulator] counts one prediction in plain
+ * fields and then adds the result to one of several stripes of atomic
+ * counters, so parsers on different threads rarely contend. Only counters
+ * are kept: unlike [DecisionInfo], no event objects referencing the input
+ * are retained, and memory use does not grow while profiling.
+ *
+ * Use [forDecisionToDFA] to get the profile of all parsers sharing a DFA
+ * cache, install it with [org.antlr.v5.runtime.core.Parser.setProfile],
+ * and call [snapshotAndReset] periodically to read the counts for the
+ * elapsed interval.
+ *
+ * @param numDecisions The number of decisions in the ATN
+ * @param numStripes The number of counter stripes; rounded up to a power of two
+ */
+public class SharedParseProfile(
+  public val numDecisions: Int,
+  numStripes: Int = platformAvailableProcessors(),
+) {
+  public companion object {
+    internal const val INVOCATIONS: Int = 0
+    internal const val TIME_IN_PREDICTION: Int = 1
+    internal const val SLL_TOTAL_LOOK: Int = 2
+    internal const val SLL_MIN_LOOK: Int = 3
+    internal const val SLL_MAX_LOOK: Int = 4
+    internal const val LL_TOTAL_LOOK: Int = 5
+    internal const val LL_MIN_LOOK: Int = 6
+    internal const val LL_MAX_LOOK: Int = 7
+    internal const val SLL_ATN_TRANSITIONS: Int = 8
+    internal const val SLL_DFA_TRANSITIONS: Int = 9
+    internal const val LL_FALLBACK: Int = 10
+    internal const val LL_ATN_TRANSITIONS: Int = 11
+    internal const val LL_DFA_TRANSITIONS: Int = 12
+    internal const val CONTEXT_SENSITIVITIES: Int = 13
+    internal const val ERRORS: Int = 14
+    internal const val AMBIGUITIES: Int = 15
+    internal const val PREDICATE_EVALS: Int = 16
+    internal const val FIELDS: Int = 17
+
+    private val profiles = WeakHashMap<Array<DFA>, SharedParseProfile>()
+
+    /**
+     * Returns the profile shared by all parsers using [decisionToDFA],
+     * creating it on first use. Profiles are dropped along with the
+     * DFA cache they belong to.
+     */
+    @JvmStatic
+    public fun forDecisionToDFA(decisionToDFA: Array<DFA>): SharedParseProfile =
+      org.antlr.v5.runtime.core.jvm.synchronized(profiles) {
+        profiles.getOrPut(decisionToDFA) {
+          SharedParseProfile(decisionToDFA.size)
+        }
+      }
+  }
+
+  private val stripes: Array<AtomicLongArray>
+
+  private var nextStripe = 0
+
+  @Volatile
+  private var intervalStart = TimeSource.Monotonic.markNow()
+
+  init {
+    var n = 1
+
+    while (n < numStripes) {
+      n = n shl 1
+    }
+
+    stripes = Array(n) {
+      AtomicLongArray(numDecisions * FIELDS)
+    }
+  }
+
+  /**
+   * Hands out stripes round-robin, so that simulators created by different
+   * threads count into different stripes.
+   */
+  internal fun nextStripe(): AtomicLongArray =
+    org.antlr.v5.runtime.core.jvm.synchronized(this) {
+      stripes[nextStripe++ and (stripes.size - 1)]
+    }
+
+  internal fun add(stripe: AtomicLongArray, decision: Int, field: Int, value: Long) {
+    if (value != 0L) {
+      stripe.getAndAdd(decision * FIELDS + field, value)
+    }
+  }
+
+  internal fun addLook(stripe: AtomicLongArray, decision: Int, totalField: Int, look: Long) {
+    val i = decision * FIELDS + totalField
+    stripe.getAndAdd(i, look)
+
+    // The minimum and maximum follow the total; they rarely change once
+    // warmed up, so the compare-and-set loops seldom run
+    var min = stripe.get(i + 1)
+
+    while ((min == 0L || look < min) && !stripe.compareAndSet(i + 1, min, look)) {
+      min = stripe.get(i + 1)
+    }
+
+    var max = stripe.get(i + 2)
+
+    while (look > max && !stripe.compareAndSet(i + 2, max, look)) {
+      max = stripe.get(i + 2)
+    }
+  }
+
+  /**
+   * Returns the counts accumulated since the profile was created or last
+   * reset.
+   */
+  public fun snapshot(): ParseProfileSnapshot =
+    collect(false)
+
+  /**
+   * Returns the counts accumulated since the profile was created or last
+   * reset, and resets them.
+   *
+   * Each count is read and cleared atomically, so every prediction
+   * is counted in exactly one snapshot, even while parsers keep running.
+   */
+  public fun snapshotAndReset(): ParseProfileSnapshot =
+    collect(true)
+
+  public fun reset() {
+    collect(true)
+  }
+
+  private fun collect(reset: Boolean): ParseProfileSnapshot {
+    val counters = LongArray(numDecisions * FIELDS)
+    val start = intervalStart
+
+    if (reset) {
+      intervalStart = TimeSource.Monotonic.markNow()
+    }
+
+    for (stripe in stripes) {
+      for (i in counters.indices) {
+        val value = if (reset) stripe.getAndSet(i, 0) else stripe.get(i)
+
+        counters[i] = when (i % FIELDS) {
+          SLL_MIN_LOOK, LL_MIN_LOOK -> minLook(counters[i], value)
+          SLL_MAX_LOOK, LL_MAX_LOOK -> maxOf(counters[i], value)
+          else -> counters[i] + value
+        }
+      }
+    }
+
+    return ParseProfileSnapshot(numDecisions, counters, start.elapsedNow())
+  }
+}
+
+/**
+ * The minimum of two lookahead depths, where `0` means none was recorded.
+ */
+internal fun minLook(a: Long, b: Long): Long =
+  if (a == 0L) b else if (b == 0L) a else minOf(a, b)
@@ -10,3 +10,11 @@ import java.lang.System as JavaSystem
 @Suppress("NOTHING_TO_INLINE")
 internal inline fun platformGetEnv(name: String): String? =
   JavaSystem.getenv(name)
+
+@Suppress("NOTHING_TO_INLINE")
+internal inline fun platformAvailableProcessors(): Int =
+  Runtime.getRuntime().availableProcessors()
+
+@Suppress("NOTHING_TO_INLINE")
+internal inline fun platformIsInterrupted(): Boolean =
+  Thread.currentThread().isInterrupted
@@ -6,7 +6,7 @@ import org.antlr.v5.runtime.core.Vocabulary
 
 /**
  * This class implements the [IntSet] backed by a sorted array of
- * non-overlapping intervals. It is particularly efficient for representing
+ * non-overlapping interval bounds. It is particularly efficient for representing
  * large collections of numbers, where the majority of elements appear as part
  * of a sequential range of numbers that are all part of the set. For example,
  * the set `{ 1, 2, 3, 4, 7, 8 }` may be represented as `{ [1, 4], [7, 8] }`.
@@ -68,85 +68,131 @@ public open class IntervalSet : IntSet {
         return IntervalSet()
       }
 
-      val result = IntervalSet(left)
-
       if (right == null || right.isNil) {
         // Right set has no elements; just return the copy of the current set
-        return result
+        return IntervalSet(left)
       }
 
-      var resultI = 0
-      var rightI = 0
+      val result = IntervalSet()
+      result.ensureCapacity(left.count + right.count)
 
-      while (resultI < result.intervals!!.size && rightI < right.intervals!!.size) {
-        val resultInterval = result.intervals!![resultI]
-        val rightInterval = right.intervals!![rightI]
+      val lb = left.bounds
+      val rb = right.bounds
+      val rightCount = right.count
+      var rightI = 0
 
-        // Operation: (resultInterval - rightInterval) and update indexes
+      for (leftI in 0..<left.count) {
+        val a = lb[2 * leftI]
+        val b = lb[2 * leftI + 1]
 
-        if (rightInterval.b < resultInterval.a) {
+        // Skip right intervals which end before this one starts
+        while (rightI < rightCount && rb[2 * rightI + 1] < a) {
           rightI++
-          continue
         }
 
-        if (rightInterval.a > resultInterval.b) {
-          resultI++
-          continue
-        }
+        // Long, so that b + 1 cannot overflow
+        var current = a.toLong()
+        var k = rightI
 
-        var beforeCurrent: Interval? = null
-        var afterCurrent: Interval? = null
+        while (k < rightCount && rb[2 * k] <= b) {
+          val ra = rb[2 * k]
 
-        if (rightInterval.a > resultInterval.a) {
-          beforeCurrent = Interval(resultInterval.a, rightInterval.a - 1)
-        }
+          if (ra > current) {
+            result.append(current.toInt(), ra - 1)
+          }
 
-        if (rightInterval.b < resultInterval.b) {
-          afterCurrent = Interval(rightInterval.b + 1, resultInterval.b)
-        }
+          current = rb[2 * k + 1].toLong() + 1
 
-        if (beforeCurrent != null) {
-          if (afterCurrent != null) {
-            // Split the current interval into two
-            result.intervals!![resultI] = beforeCurrent
-            result.intervals!!.add(resultI + 1, afterCurrent)
-            resultI++
-            rightI++
-            continue
-          } else {
-            // Replace the current interval
-            result.intervals!![resultI] = beforeCurrent
-            resultI++
-            continue
-          }
-        } else {
-          if (afterCurrent != null) {
-            // Replace the current interval
-            result.intervals!![resultI] = afterCurrent
-            rightI++
-            continue
-          } else {
-            // Remove the current interval (thus no need to increment resultI)
-            result.intervals!!.removeAt(resultI)
-            continue
+          if (current > b) {
+            // This right interval may also cover the next left interval
+            break
           }
+
+          k++
+        }
+
+        rightI = k
+
+        if (current <= b) {
+          result.append(current.toInt(), b)
         }
       }
 
-      // If rightI reached right.intervals.size(), no more intervals to subtract from result.
-      // If resultI reached result.intervals.size(), we would be subtracting from an empty set.
-      // Either way, we are done.
       return result
     }
+
+    /**
+     * Initial number of interval bound slots; two per interval.
+     */
+    private const val INITIAL_CAPACITY = 4
   }
 
+  /**
+   * Interval bounds, two slots per interval: interval `i` is
+   * `bounds[2 * i]..bounds[2 * i + 1]`. Only the first [count] intervals
+   * are in use. They are sorted, disjoint, and never adjacent, so that
+   * lookups are a binary search and set algebra is a linear merge
+   * without per-interval allocation.
+   */
+  private var bounds: IntArray = IntArray(INITIAL_CAPACITY)
+
+  /**
+   * Number of intervals stored in [bounds].
+   */
+  private var count: Int = 0
+
   /**
    * The list of sorted, disjoint intervals.
+   *
+   * The set is not backed by [Interval] objects, so reading this
+   * property builds a new list; modifying it does not alter the set.
+   * Prefer [intervalCount], [intervalStart] and [intervalEnd] when
+   * walking the intervals.
    */
-  public var intervals: MutableList<Interval>? = null
+  public var intervals: MutableList<Interval>?
+    get() {
+      val list = ArrayList<Interval>(count)
+
+      for (i in 0..<count) {
+        list.add(Interval(bounds[2 * i], bounds[2 * i + 1]))
+      }
+
+      return list
+    }
+    set(value) {
+      count = 0
+
+      if (value != null) {
+        for (@Suppress("LocalVariableName") I in value) {
+          union(I.a, I.b)
+        }
+      }
+    }
+
+  /**
+   * The number of disjoint intervals in the set.
+   */
+  public val intervalCount: Int
+    get() = count
+
+  /**
+   * Returns the first element of the [i]th interval, in ascending order.
+   */
+  public fun intervalStart(i: Int): Int {
+    checkIntervalIndex(i)
+    return bounds[2 * i]
+  }
+
+  /**
+   * Returns the last element of the [i]th interval, in ascending order.
+   */
+  public fun intervalEnd(i: Int): Int {
+    checkIntervalIndex(i)
+    return bounds[2 * i + 1]
+  }
 
   override val isNil: Boolean
-    get() = intervals.isNullOrEmpty()
+    get() = count == 0
 
   /**
    * Returns the maximum value contained in the set if not [isNil].
@@ -160,10 +206,7 @@ public open class IntervalSet : IntSet {
         throw RuntimeException("set is empty")
       }
 
-      // Note(Edoardo): !isNil ensures intervals is not null
-      val tempIntervals = intervals!!
-      val last = tempIntervals[tempIntervals.size - 1]
-      return last.b
+      return bounds[2 * count - 1]
     }
 
   /**
@@ -178,8 +221,7 @@ public open class IntervalSet : IntSet {
         throw RuntimeException("set is empty")
       }
 
-      // Note(Edoardo): !isNil ensures intervals is not null
-      return intervals!![0].a
+      return bounds[0]
     }
 
   public var isReadonly: Boolean = false
@@ -192,29 +234,27 @@ public open class IntervalSet : IntSet {
     }
 
   public constructor(intervals: MutableList<Interval>) {
-    this.intervals = intervals
+    ensureCapacity(intervals.size)
+
+    for (@Suppress("LocalVariableName") I in intervals) {
+      union(I.a, I.b)
+    }
   }
 
-  public constructor(set: IntervalSet) : this() {
-    @Suppress("LeakingThis")
-    addAll(set)
+  public constructor(set: IntervalSet) {
+    bounds = set.bounds.copyOf(maxOf(set.count * 2, INITIAL_CAPACITY))
+    count = set.count
   }
 
   public constructor(vararg els: Int) {
-    intervals = ArrayList(els.size)
-
     for (e in els) {
-      @Suppress("LeakingThis")
-      add(e)
+      union(e, e)
     }
   }
 
   public fun clear() {
-    if (isReadonly) {
-      throw IllegalStateException("can't alter readonly IntervalSet")
-    }
-
-    intervals!!.clear()
+    checkWritable()
+    count = 0
   }
 
   /**
@@ -223,11 +263,8 @@ public open class IntervalSet : IntSet {
    * An isolated element is stored as a range `el..el`.
    */
   override fun add(el: Int) {
-    if (isReadonly) {
-      throw IllegalStateException("can't alter readonly IntervalSet")
-    }
-
-    add(el, el)
+    checkWritable()
+    union(el, el)
   }
 
   /**
@@ -237,68 +274,16 @@ public open class IntervalSet : IntSet {
    * Keep list in sorted order (by left range value).
    * If there is overlap, combine ranges. For example,
    * if this is `{1..5, 10..20}`, adding `6..7` yields
-   * `{1..5, 6..7, 10..20}`. Adding `4..8` yields `{1..8, 10..20}`.
+   * `{1..7, 10..20}`. Adding `4..8` yields `{1..8, 10..20}`.
    */
-  public fun add(a: Int, b: Int): Unit =
-    add(Interval.of(a, b))
+  public fun add(a: Int, b: Int) {
+    checkWritable()
+    union(a, b)
+  }
 
-  // Copy on write, so we can cache a..a intervals and sets of that
   protected fun add(addition: Interval) {
-    if (isReadonly) {
-      throw IllegalStateException("can't alter readonly IntervalSet")
-    }
-
-    if (addition.b < addition.a) {
-      return
-    }
-
-    // Find position in list.
-    // Use iterators as we modify list in place
-    val iter = intervals!!.listIterator()
-
-    while (iter.hasNext()) {
-      val r = iter.next()
-
-      if (addition == r) {
-        return
-      }
-
-      if (addition.adjacent(r) || !addition.disjoint(r)) {
-        // Next to each other, make a single larger interval
-        val bigger = addition.union(r)
-        iter.set(bigger)
-
-        // Make sure we didn't just create an interval that
-        // should be merged with next interval in list
-        while (iter.hasNext()) {
-          val next = iter.next()
-
-          if (!bigger.adjacent(next) && bigger.disjoint(next)) {
-            break
-          }
-
-          // If we bump up against or overlap next, merge
-          iter.remove()                 // Remove this one
-          iter.previous()               // Move backwards to what we just set
-          iter.set(bigger.union(next))  // Set to 3 merged ones
-          iter.next()                   // First call to next after previous duplicates the result
-        }
-
-        return
-      }
-
-      if (addition.startsBeforeDisjoint(r)) {
-        // Insert before r
-        iter.previous()
-        iter.add(addition)
-        return
-      }
-
-      // If disjoint and after r, a future iteration will handle it
-    }
-
-    // Ok, must be after last interval (and disjoint from last interval), just add it
-    intervals!!.add(addition)
+    checkWritable()
+    union(addition.a, addition.b)
   }
 
   override fun addAll(set: IntSet?): IntervalSet {
@@ -306,20 +291,21 @@ public open class IntervalSet : IntSet {
       return this
     }
 
-    if (set is IntervalSet) {
-      val other = set as IntervalSet?
-
-      // Walk set and add each interval
-      val n = other!!.intervals!!.size
+    checkWritable()
 
-      for (i in 0..<n) {
-        @Suppress("LocalVariableName")
-        val I = other.intervals!![i]
-        add(I.a, I.b)
+    if (set is IntervalSet) {
+      when {
+        set.count == 0 -> {}
+        set.count == 1 -> union(set.bounds[0], set.bounds[1])
+        count == 0 -> {
+          bounds = set.bounds.copyOf(maxOf(set.count * 2, INITIAL_CAPACITY))
+          count = set.count
+        }
+        else -> merge(set)
       }
     } else {
       for (value in set.toList()) {
-        add(value)
+        union(value, value)
       }
     }
 
@@ -361,8 +347,7 @@ public open class IntervalSet : IntSet {
   }
 
   override fun or(a: IntSet?): IntervalSet {
-    val o = IntervalSet()
-    o.addAll(this)
+    val o = IntervalSet(this)
     o.addAll(a)
     return o
   }
@@ -373,83 +358,56 @@ public open class IntervalSet : IntSet {
       return null
     }
 
-    val myIntervals = intervals
-    val theirIntervals = (a as IntervalSet).intervals
-    var intersection: IntervalSet? = null
-    val mySize = myIntervals!!.size
-    val theirSize = theirIntervals!!.size
+    val other = if (a is IntervalSet) {
+      a
+    } else {
+      IntervalSet().addAll(a)
+    }
+
+    val intersection = IntervalSet()
+    val myBounds = bounds
+    val theirBounds = other.bounds
+    val mySize = count
+    val theirSize = other.count
     var i = 0
     var j = 0
 
-    // Iterate down both interval lists looking for nondisjoint intervals
+    // Iterate down both interval lists looking for nondisjoint intervals.
+    // Pieces come out sorted and never adjacent, so they are appended as is.
     while (i < mySize && j < theirSize) {
-      val mine = myIntervals[i]
-      val theirs = theirIntervals[j]
-
-      if (mine.startsBeforeDisjoint(theirs)) {
-        // Move this iterator looking for interval that might overlap
-        i++
-      } else if (theirs.startsBeforeDisjoint(mine)) {
-        // Move other iterator looking for interval that might overlap
-        j++
-      } else if (mine.properlyContains(theirs)) {
-        // Overlap, add intersection, get next theirs
-        if (intersection == null) {
-          intersection = IntervalSet()
-        }
+      val myEnd = myBounds[2 * i + 1]
+      val theirEnd = theirBounds[2 * j + 1]
+      val start = maxOf(myBounds[2 * i], theirBounds[2 * j])
+      val end = minOf(myEnd, theirEnd)
 
-        intersection.add(mine.intersection(theirs))
-        j++
-      } else if (theirs.properlyContains(mine)) {
-        // Overlap, add intersection, get next mine
-        if (intersection == null) {
-          intersection = IntervalSet()
-        }
+      if (start <= end) {
+        intersection.append(start, end)
+      }
 
-        intersection.add(mine.intersection(theirs))
+      // Move the iterator of the range which ends first; the other one
+      // may still overlap the next range of its counterpart
+      if (myEnd < theirEnd) {
         i++
-      } else if (!mine.disjoint(theirs)) {
-        // Overlap, add intersection
-        if (intersection == null) {
-          intersection = IntervalSet()
-        }
-
-        intersection.add(mine.intersection(theirs))
-        // Move the iterator of lower range [a..b], but not
-        // the upper range as it may contain elements that will collide
-        // with the next iterator. So, if mine=[0..115] and
-        // theirs=[115..200], then intersection is 115 and move mine
-        // but not theirs as theirs may collide with the next range
-        // in thisIter.
-        // Move both iterators to next ranges
-        if (mine.startsAfterNonDisjoint(theirs)) {
-          j++
-        } else if (theirs.startsAfterNonDisjoint(mine)) {
-          i++
-        }
+      } else {
+        j++
       }
     }
 
-    return intersection ?: IntervalSet()
+    return intersection
   }
 
   override operator fun contains(el: Int): Boolean {
-    val n = intervals!!.size
+    val b = bounds
     var l = 0
-    var r = n - 1
+    var r = count - 1
 
     // Binary search for the element in the (sorted, disjoint) array of intervals
     while (l <= r) {
-      val m = (l + r) / 2
+      val m = (l + r) ushr 1
 
-      @Suppress("LocalVariableName")
-      val I = intervals!![m]
-      val a = I.a
-      val b = I.b
-
-      if (b < el) {
+      if (b[2 * m + 1] < el) {
         l = m + 1
-      } else if (a > el) {
+      } else if (b[2 * m] > el) {
         r = m - 1
       } else { // el >= a && el <= b
         return true
@@ -462,31 +420,38 @@ public open class IntervalSet : IntSet {
   override fun hashCode(): Int {
     var hash = MurmurHash.initialize()
 
-    @Suppress("LocalVariableName")
-    for (I in intervals!!) {
-      hash = MurmurHash.update(hash, I.a)
-      hash = MurmurHash.update(hash, I.b)
+    for (i in 0..<count * 2) {
+      hash = MurmurHash.update(hash, bounds[i])
     }
 
-    hash = MurmurHash.finish(hash, intervals!!.size * 2)
+    hash = MurmurHash.finish(hash, count * 2)
     return hash
   }
 
   /**
    * Are two `IntervalSets` equal? Because all intervals are sorted
-   * and disjoint, equals is a simple linear walk over both lists
-   * to make sure they are the same.
-   *
-   * [Interval.equals] is used by the [List.equals] method to check the ranges.
+   * and disjoint, equals is a simple linear walk over both bound
+   * arrays to make sure they are the same.
    */
-  override fun equals(other: Any?): Boolean =
-    other is IntervalSet && intervals == other.intervals
+  override fun equals(other: Any?): Boolean {
+    if (other !is IntervalSet || count != other.count) {
+      return false
+    }
+
+    for (i in 0..<count * 2) {
+      if (bounds[i] != other.bounds[i]) {
+        return false
+      }
+    }
+
+    return true
+  }
 
   override fun toString(): String =
     toString(false)
 
   public fun toString(elemAreChar: Boolean): String {
-    if (intervals == null || intervals!!.isEmpty()) {
+    if (count == 0) {
       return "{}"
     }
 
@@ -496,13 +461,9 @@ public open class IntervalSet : IntSet {
       buf.append("{")
     }
 
-    val iter = intervals!!.iterator()
-
-    while (iter.hasNext()) {
-      @Suppress("LocalVariableName")
-      val I = iter.next()
-      val a = I.a
-      val b = I.b
+    for (i in 0..<count) {
+      val a = bounds[2 * i]
+      val b = bounds[2 * i + 1]
 
       if (a == b) {
         if (a == Token.EOF) {
@@ -528,7 +489,7 @@ public open class IntervalSet : IntSet {
         }
       }
 
-      if (iter.hasNext()) {
+      if (i < count - 1) {
         buf.append(", ")
       }
     }
@@ -541,7 +502,7 @@ public open class IntervalSet : IntSet {
   }
 
   public fun toString(vocabulary: Vocabulary): String {
-    if (intervals == null || intervals!!.isEmpty()) {
+    if (count == 0) {
       return "{}"
     }
 
@@ -551,27 +512,23 @@ public open class IntervalSet : IntSet {
       buf.append("{")
     }
 
-    val iter = intervals!!.iterator()
-
-    while (iter.hasNext()) {
-      @Suppress("LocalVariableName")
-      val I = iter.next()
-      val a = I.a
-      val b = I.b
+    for (i in 0..<count) {
+      val a = bounds[2 * i]
+      val b = bounds[2 * i + 1]
 
       if (a == b) {
         buf.append(elementName(vocabulary, a))
       } else {
-        for (i in a..b) {
-          if (i > a) {
+        for (v in a..b) {
+          if (v > a) {
             buf.append(", ")
           }
 
-          buf.append(elementName(vocabulary, i))
+          buf.append(elementName(vocabulary, v))
         }
       }
 
-      if (iter.hasNext()) {
+      if (i < count - 1) {
         buf.append(", ")
       }
     }
@@ -592,17 +549,9 @@ public open class IntervalSet : IntSet {
 
   override fun size(): Int {
     var n = 0
-    val numIntervals = intervals!!.size
-
-    if (numIntervals == 1) {
-      val firstInterval = intervals!![0]
-      return firstInterval.b - firstInterval.a + 1
-    }
 
-    for (i in 0..<numIntervals) {
-      @Suppress("LocalVariableName")
-      val I = intervals!![i]
-      n += (I.b - I.a + 1)
+    for (i in 0..<count) {
+      n += bounds[2 * i + 1] - bounds[2 * i] + 1
     }
 
     return n
@@ -610,15 +559,9 @@ public open class IntervalSet : IntSet {
 
   public fun toIntegerList(): IntegerList {
     val values = IntegerList(size())
-    val n = intervals!!.size
 
-    for (i in 0..<n) {
-      @Suppress("LocalVariableName")
-      val I = intervals!![i]
-      val a = I.a
-      val b = I.b
-
-      for (v in a..b) {
+    for (i in 0..<count) {
+      for (v in bounds[2 * i]..bounds[2 * i + 1]) {
         values.add(v)
       }
     }
@@ -628,15 +571,9 @@ public open class IntervalSet : IntSet {
 
   override fun toList(): List<Int> {
     val values = ArrayList<Int>()
-    val n = intervals!!.size
-
-    for (i in 0..<n) {
-      @Suppress("LocalVariableName")
-      val I = intervals!![i]
-      val a = I.a
-      val b = I.b
 
-      for (v in a..b) {
+    for (i in 0..<count) {
+      for (v in bounds[2 * i]..bounds[2 * i + 1]) {
         values.add(v)
       }
     }
@@ -647,12 +584,8 @@ public open class IntervalSet : IntSet {
   public fun toSet(): Set<Int> {
     val s = HashSet<Int>()
 
-    @Suppress("LocalVariableName")
-    for (I in intervals!!) {
-      val a = I.a
-      val b = I.b
-
-      for (v in a..b) {
+    for (i in 0..<count) {
+      for (v in bounds[2 * i]..bounds[2 * i + 1]) {
         s.add(v)
       }
     }
@@ -667,22 +600,21 @@ public open class IntervalSet : IntSet {
    * if you're not doing that for a new ANTLR code gen target.
    */
   public operator fun get(i: Int): Int {
-    val n = intervals!!.size
-    var index = 0
-
-    for (j in 0..<n) {
-      @Suppress("LocalVariableName")
-      val I = intervals!![j]
-      val a = I.a
-      val b = I.b
-
-      for (v in a..b) {
-        if (index == i) {
-          return v
-        }
+    if (i < 0) {
+      return -1
+    }
+
+    var index = i.toLong()
 
-        index++
+    for (j in 0..<count) {
+      val a = bounds[2 * j]
+      val length = bounds[2 * j + 1].toLong() - a + 1
+
+      if (index < length) {
+        return (a + index).toInt()
       }
+
+      index -= length
     }
 
     return -1
@@ -692,48 +624,179 @@ public open class IntervalSet : IntSet {
     toIntegerList().toArray()
 
   override fun remove(el: Int) {
+    checkWritable()
+
+    val i = firstEndingAtOrAfter(el)
+
+    if (i == count) {
+      return
+    }
+
+    val a = bounds[2 * i]
+    val b = bounds[2 * i + 1]
+
+    if (el < a) {
+      return // Sorted and el is before this interval; not here
+    }
+
+    if (el == a && el == b) {
+      // If whole interval x..x, rm
+      removeIntervals(i, i + 1)
+    } else if (el == a) {
+      // If on left edge x..b, adjust left
+      bounds[2 * i] = a + 1
+    } else if (el == b) {
+      // If on right edge a..x, adjust right
+      bounds[2 * i + 1] = b - 1
+    } else {
+      // If in middle a..x..b, split interval into [a..x-1] and [x+1..b]
+      insertInterval(i + 1, el + 1, b)
+      bounds[2 * i + 1] = el - 1
+    }
+  }
+
+  private fun checkWritable() {
     if (isReadonly) {
       throw IllegalStateException("can't alter readonly IntervalSet")
     }
+  }
 
-    val n = intervals!!.size
+  private fun checkIntervalIndex(i: Int) {
+    if (i < 0 || i >= count) {
+      throw IndexOutOfBoundsException("interval index $i, count $count")
+    }
+  }
 
-    for (i in 0..<n) {
-      @Suppress("LocalVariableName")
-      val I = intervals!![i]
-      val a = I.a
-      val b = I.b
+  private fun ensureCapacity(intervalCount: Int) {
+    val needed = intervalCount * 2
 
-      if (el < a) {
-        break // List is sorted and el is before this interval; not here
-      }
+    if (needed > bounds.size) {
+      bounds = bounds.copyOf(maxOf(needed, bounds.size * 2))
+    }
+  }
 
-      // If whole interval x..x, rm
-      if (el == a && el == b) {
-        intervals!!.removeAt(i)
-        break
-      }
+  /**
+   * Returns the index of the first interval whose last element is
+   * at least [el], or [count] if there is none.
+   */
+  private fun firstEndingAtOrAfter(el: Int): Int {
+    var l = 0
+    var r = count
 
-      // If on left edge x..b, adjust left
-      if (el == a) {
-        I.a++
-        break
+    while (l < r) {
+      val m = (l + r) ushr 1
+
+      if (bounds[2 * m + 1] < el) {
+        l = m + 1
+      } else {
+        r = m
       }
+    }
 
-      // If on right edge a..x, adjust right
-      if (el == b) {
-        I.b--
-        break
+    return l
+  }
+
+  /**
+   * Adds `a..b` after all existing intervals. The caller guarantees
+   * that it starts after, and is not adjacent to, the last interval.
+   */
+  private fun append(a: Int, b: Int) {
+    ensureCapacity(count + 1)
+    bounds[2 * count] = a
+    bounds[2 * count + 1] = b
+    count++
+  }
+
+  private fun insertInterval(i: Int, a: Int, b: Int) {
+    ensureCapacity(count + 1)
+    bounds.copyInto(bounds, 2 * i + 2, 2 * i, 2 * count)
+    bounds[2 * i] = a
+    bounds[2 * i + 1] = b
+    count++
+  }
+
+  /**
+   * Removes intervals `from..<to`.
+   */
+  private fun removeIntervals(from: Int, to: Int) {
+    bounds.copyInto(bounds, 2 * from, 2 * to, 2 * count)
+    count -= to - from
+  }
+
+  /**
+   * Adds `a..b` without the read-only check, merging it with any
+   * overlapping or adjacent intervals.
+   */
+  private fun union(a: Int, b: Int) {
+    if (b < a) {
+      return
+    }
+
+    // First interval which overlaps or touches a..b from the left
+    val i = firstEndingAtOrAfter(if (a == Int.MIN_VALUE) a else a - 1)
+
+    // Intervals i..<j overlap or touch a..b
+    val limit = if (b == Int.MAX_VALUE) b else b + 1
+    var j = i
+
+    while (j < count && bounds[2 * j] <= limit) {
+      j++
+    }
+
+    if (i == j) {
+      insertInterval(i, a, b)
+      return
+    }
+
+    bounds[2 * i] = minOf(a, bounds[2 * i])
+    bounds[2 * i + 1] = maxOf(b, bounds[2 * j - 1])
+
+    if (j > i + 1) {
+      removeIntervals(i + 1, j)
+    }
+  }
+
+  /**
+   * Replaces the contents of this set with the union of this set and
+   * [other] in a single linear pass over both.
+   */
+  private fun merge(other: IntervalSet) {
+    val myBounds = bounds
+    val theirBounds = other.bounds
+    val mySize = count
+    val theirSize = other.count
+    val result = IntArray((mySize + theirSize) * 2)
+    var n = 0
+    var i = 0
+    var j = 0
+
+    while (i < mySize || j < theirSize) {
+      val a: Int
+      val b: Int
+
+      if (j >= theirSize || (i < mySize && myBounds[2 * i] <= theirBounds[2 * j])) {
+        a = myBounds[2 * i]
+        b = myBounds[2 * i + 1]
+        i++
+      } else {
+        a = theirBounds[2 * j]
+        b = theirBounds[2 * j + 1]
+        j++
       }
 
-      // If in middle a..x..b, split interval
-      @Suppress("ConvertTwoComparisonsToRangeCheck")
-      if (el > a && el < b) {
-        // Found in this interval
-        val oldB = I.b
-        I.b = el - 1      // [a..x-1]
-        add(el + 1, oldB) // add [x+1..b]
+      // Long, so that the adjacency check cannot overflow
+      if (n > 0 && a.toLong() <= result[2 * n - 1].toLong() + 1) {
+        if (b > result[2 * n - 1]) {
+          result[2 * n - 1] = b
+        }
+      } else {
+        result[2 * n] = a
+        result[2 * n + 1] = b
+        n++
       }
     }
+
+    bounds = result
+    count = n
   }
-}
\ No newline at end of file
+}
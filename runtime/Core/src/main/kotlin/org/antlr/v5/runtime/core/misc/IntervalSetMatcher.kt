@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+package org.antlr.v5.runtime.core.misc
+
+/**
+ * A read-only membership test for an [IntervalSet], precomputed so that
+ * the lookups done by `SetTransition.matches` for every character
+ * leaving the lexer DFA are O(1) in the common case.
+ *
+ * - Elements in the BMP are tested against a flat bitmap which only
+ *   extends up to the largest BMP element of the set.
+ * - Supplementary code points are tested through a two-level table:
+ *   an index of 256-element blocks pointing into a pool of blocks in
+ *   which identical blocks (typically all-empty or all-full) are shared.
+ * - Anything else, such as `EOF` or values above `U+10FFFF`, falls back
+ *   to a binary search of the set.
+ *
+ * The matcher works on a copy of the set, so later changes to the set
+ * are not reflected.
+ */
+public class IntervalSetMatcher(set: IntervalSet) {
+  private companion object {
+    const val MIN_SUPPLEMENTARY = 0x10000
+    const val MAX_CODE_POINT = 0x10FFFF
+    const val BLOCK_SHIFT = 8
+    const val WORDS_PER_BLOCK = (1 shl BLOCK_SHIFT) / 64
+
+    fun setBits(bits: LongArray, from: Int, to: Int) {
+      var i = from
+
+      while (i <= to && (i and 63) != 0) {
+        bits[i ushr 6] = bits[i ushr 6] or (1L shl i)
+        i++
+      }
+
+      // Whole words
+      while (i + 63 <= to) {
+        bits[i ushr 6] = -1L
+        i += 64
+      }
+
+      while (i <= to) {
+        bits[i ushr 6] = bits[i ushr 6] or (1L shl i)
+        i++
+      }
+    }
+  }
+
+  private val set: IntervalSet = IntervalSet(set)
+
+  /**
+   * One bit per element in `0..bmpBits.size * 64 - 1`.
+   */
+  private val bmpBits: LongArray
+
+  /**
+   * For each 256-element block of supplementary code points, the
+   * offset of its words in [blocks].
+   */
+  private val blockIndex: IntArray
+
+  /**
+   * Pool of distinct blocks, [WORDS_PER_BLOCK] words each.
+   */
+  private val blocks: LongArray
+
+  init {
+    var maxBmp = -1
+    var maxSupplementary = -1
+
+    for (i in 0..<this.set.intervalCount) {
+      val a = this.set.intervalStart(i)
+      val b = this.set.intervalEnd(i)
+
+      if (a < MIN_SUPPLEMENTARY && b >= 0) {
+        maxBmp = maxOf(maxBmp, minOf(b, MIN_SUPPLEMENTARY - 1))
+      }
+
+      if (b >= MIN_SUPPLEMENTARY && a <= MAX_CODE_POINT) {
+        maxSupplementary = maxOf(maxSupplementary, minOf(b, MAX_CODE_POINT))
+      }
+    }
+
+    bmpBits = LongArray(if (maxBmp < 0) 0 else (maxBmp ushr 6) + 1)
+
+    val nBlocks = if (maxSupplementary < 0) 0 else ((maxSupplementary - MIN_SUPPLEMENTARY) ushr BLOCK_SHIFT) + 1
+    val supplementaryBits = LongArray(nBlocks * WORDS_PER_BLOCK)
+
+    for (i in 0..<this.set.intervalCount) {
+      val a = this.set.intervalStart(i)
+      val b = this.set.intervalEnd(i)
+
+      if (maxBmp >= 0 && a <= maxBmp && b >= 0) {
+        setBits(bmpBits, maxOf(a, 0), minOf(b, maxBmp))
+      }
+
+      if (maxSupplementary >= 0 && b >= MIN_SUPPLEMENTARY && a <= maxSupplementary) {
+        setBits(
+          supplementaryBits,
+          maxOf(a, MIN_SUPPLEMENTARY) - MIN_SUPPLEMENTARY,
+          minOf(b, maxSupplementary) - MIN_SUPPLEMENTARY,
+        )
+      }
+    }
+
+    // Share identical blocks
+    blockIndex = IntArray(nBlocks)
+    val distinct = HashMap<List<Long>, Int>()
+    val pool = ArrayList<Long>()
+
+    for (block in 0..<nBlocks) {
+      val start = block * WORDS_PER_BLOCK
+      val words = supplementaryBits.asList().subList(start, start + WORDS_PER_BLOCK)
+      val offset = distinct.getOrPut(words) {
+        val o = pool.size
+        pool.addAll(words)
+        o
+      }
+
+      blockIndex[block] = offset
+    }
+
+    blocks = pool.toLongArray()
+  }
+
+  public operator fun contains(el: Int): Boolean {
+    if (el >= 0) {
+      val word = el ushr 6
+
+      if (word < bmpBits.size) {
+        return bmpBits[word] and (1L shl el) != 0L
+      }
+
+      if (el < MIN_SUPPLEMENTARY) {
+        return false
+      }
+
+      val block = (el - MIN_SUPPLEMENTARY) ushr BLOCK_SHIFT
+
+      if (block < blockIndex.size) {
+        val offset = blockIndex[block] + ((el and 0xFF) ushr 6)
+        return blocks[offset] and (1L shl el) != 0L
+      }
+
+      if (el <= MAX_CODE_POINT) {
+        return false
+      }
+    }
+
+    return set.contains(el)
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.runtime.core.misc
+
+import org.antlr.v5.runtime.core.jvm.platformIsInterrupted
+import kotlin.concurrent.Volatile
+import kotlin.time.Duration.Companion.milliseconds
+import kotlin.time.TimeMark
+import kotlin.time.TimeSource
+
+/**
+ * A time budget and cancellation token for a parse.
+ *
+ * Set it as the [org.antlr.v5.runtime.core.Recognizer.parseDeadline] of a
+ * parser and its lexer. The ATN simulators then call [step] as they make
+ * progress, and throw a [ParseCancellationException] describing where they
+ * were once the deadline has passed, [cancel] has been called, or the
+ * parsing thread has been interrupted.
+ *
+ * Checking is cheap: [step] only decrements a counter, and reads the clock
+ * and the cancellation state once every [checkInterval] steps. A cancelled
+ * prediction leaves the shared DFA cache consistent, so the parser can be
+ * reused after the exception.
+ *
+ * ```
+ * val deadline = ParseDeadline(timeoutMillis = 200)
+ * lexer.parseDeadline = deadline
+ * parser.parseDeadline = deadline
+ * ```
+ *
+ * @param timeoutMillis The time budget from now, in milliseconds,
+ *   or a negative value for a token that is only cancelled explicitly
+ * @param checkInterval The number of steps between two checks
+ */
+public class ParseDeadline(
+  public val timeoutMillis: Long = -1,
+  public val checkInterval: Int = DEFAULT_CHECK_INTERVAL,
+) {
+  public companion object {
+    /**
+     * A closure step takes in the order of 10-100ns,
+     * so this checks the clock every few tens of microseconds.
+     */
+    public const val DEFAULT_CHECK_INTERVAL: Int = 1024
+  }
+
+  private val deadline: TimeMark? =
+    if (timeoutMillis >= 0) {
+      TimeSource.Monotonic.markNow() + timeoutMillis.milliseconds
+    } else {
+      null
+    }
+
+  @Volatile
+  private var cancelled = false
+
+  private var countdown = checkInterval
+
+  init {
+    require(checkInterval > 0) { "checkInterval must be positive" }
+  }
+
+  /**
+   * Cancels the parse. May be called from any thread.
+   */
+  public fun cancel() {
+    cancelled = true
+  }
+
+  /**
+   * Why the parse should stop, or `null` if it may continue.
+   */
+  public val reason: String?
+    get() =
+      when {
+        cancelled -> "cancelled"
+        deadline != null && deadline.hasPassedNow() -> "deadline of ${timeoutMillis}ms exceeded"
+        platformIsInterrupted() -> "thread interrupted"
+        else -> null
+      }
+
+  public val isExpired: Boolean
+    get() = reason != null
+
+  /**
+   * Records a unit of work; every [checkInterval] calls, returns whether
+   * the parse should stop.
+   */
+  public fun step(): Boolean {
+    if (--countdown > 0) {
+      return false
+    }
+
+    countdown = checkInterval
+    return isExpired
+  }
+}
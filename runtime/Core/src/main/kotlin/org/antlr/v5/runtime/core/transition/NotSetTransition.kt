@@ -1,9 +1,14 @@
 package org.antlr.v5.runtime.core.transition
 
 import org.antlr.v5.runtime.core.misc.IntervalSet
+import org.antlr.v5.runtime.core.misc.IntervalSetMatcher
 import org.antlr.v5.runtime.core.state.ATNState
 
 public class NotSetTransition(target: ATNState, set: IntervalSet) : SetTransition(target, set) {
+  public constructor(target: ATNState, set: IntervalSet, matcher: IntervalSetMatcher) : this(target, set) {
+    this.matcher = matcher
+  }
+
   override val serializationType: Int =
     NOT_SET
 
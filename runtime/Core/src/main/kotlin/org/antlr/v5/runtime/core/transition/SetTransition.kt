@@ -2,6 +2,7 @@ package org.antlr.v5.runtime.core.transition
 
 import org.antlr.v5.runtime.core.Token
 import org.antlr.v5.runtime.core.misc.IntervalSet
+import org.antlr.v5.runtime.core.misc.IntervalSetMatcher
 import org.antlr.v5.runtime.core.state.ATNState
 
 /**
@@ -12,14 +13,29 @@ import org.antlr.v5.runtime.core.state.ATNState
 public open class SetTransition(target: ATNState, set: IntervalSet?) : Transition(target) {
   public val set: IntervalSet = set ?: IntervalSet.of(Token.INVALID_TYPE)
 
+  /**
+   * Precomputed membership test for [set]. Supplied by the deserializer,
+   * which shares one matcher among all transitions on the same set, or
+   * built on the first call to [matches]; the ATN is complete by then,
+   * so [set] no longer changes.
+   */
+  protected var matcher: IntervalSetMatcher? = null
+
+  public constructor(target: ATNState, set: IntervalSet?, matcher: IntervalSetMatcher) : this(target, set) {
+    this.matcher = matcher
+  }
+
   override val serializationType: Int =
     SET
 
   override fun label(): IntervalSet =
     set
 
-  override fun matches(symbol: Int, minVocabSymbol: Int, maxVocabSymbol: Int): Boolean =
-    set.contains(symbol)
+  override fun matches(symbol: Int, minVocabSymbol: Int, maxVocabSymbol: Int): Boolean {
+    // A race only builds an equivalent matcher twice
+    val m = matcher ?: IntervalSetMatcher(set).also { matcher = it }
+    return m.contains(symbol)
+  }
 
   override fun toString(): String =
     set.toString()
@@ -17,8 +17,7 @@ import org.antlr.v5.runtime.core.context.ParserRuleContext
  * ```
  *
  * If you want to trigger events in multiple listeners during a single
- * tree walk, you can use the `ParseTreeDispatcher` object available at
- * [antlr4#841](https://github.com/antlr/antlr4/issues/841)
+ * tree walk, you can use the `ParseTreeDispatcher` of the Java runtime.
  */
 public interface ParseTreeListener {
   public fun visitTerminal(node: TerminalNode)
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+package org.antlr.v5.core
+
+import org.antlr.v5.runtime.core.KeywordTable
+import org.junit.jupiter.api.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+
+class KeywordTableTest {
+  @Test
+  fun lookup() {
+    val table = KeywordTable.build(1, arrayOf("if", "else", "while", "return"), intArrayOf(2, 3, 4, 5), false)
+    assertEquals(2, table.typeOf("if"))
+    assertEquals(5, table.typeOf("return"))
+    assertEquals(1, table.typeOf("iff"))
+    assertEquals(1, table.typeOf("IF"))
+    assertEquals(2, table.minLength)
+    assertEquals(6, table.maxLength)
+  }
+
+  @Test
+  fun caseInsensitiveLookup() {
+    val table = KeywordTable.build(1, arrayOf("select", "from"), intArrayOf(2, 3), true)
+    assertEquals(2, table.typeOf("SeLeCt"))
+    assertEquals(3, table.typeOf("FROM"))
+    assertEquals(1, table.typeOf("where"))
+  }
+
+  /**
+   * Keywords whose hashes are equal for the first seed.
+   */
+  @Test
+  fun hashCollisions() {
+    val pair = KeywordTable.build(1, arrayOf("liquid", "costarring"), intArrayOf(2, 3), false)
+    assertEquals(2, pair.typeOf("liquid"))
+    assertEquals(3, pair.typeOf("costarring"))
+
+    val triple = KeywordTable.build(1, arrayOf("altarage", "zinke", "select"), intArrayOf(2, 3, 4), false)
+    assertEquals(2, triple.typeOf("altarage"))
+    assertEquals(3, triple.typeOf("zinke"))
+    assertEquals(4, triple.typeOf("select"))
+  }
+
+  @Test
+  fun sameTableFromGeneratedArguments() {
+    val keywords = arrayOf("liquid", "costarring", "if")
+    val types = intArrayOf(2, 3, 4)
+    val built = KeywordTable.build(1, keywords, types, false)
+    val generated = KeywordTable(1, keywords, types, built.getDisplacements(), built.seed, false)
+
+    for (keyword in keywords) {
+      assertEquals(built.typeOf(keyword), generated.typeOf(keyword))
+    }
+  }
+
+  @Test
+  fun duplicateKeywords() {
+    assertFailsWith<IllegalArgumentException> {
+      KeywordTable.build(1, arrayOf("select", "SELECT"), intArrayOf(2, 3), true)
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+package org.antlr.v5.core
+
+import org.antlr.v5.runtime.core.CharStream
+import org.antlr.v5.runtime.core.IntStream
+import org.antlr.v5.runtime.core.LineIndex
+import org.antlr.v5.runtime.core.misc.Interval
+import org.junit.jupiter.api.Test
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.test.assertEquals
+
+class LineIndexTest {
+  /**
+   * A stream of the characters of [text], which has no surrogate pairs.
+   */
+  private class StringStream(private val text: String) : CharStream {
+    private var p = 0
+
+    override val sourceName: String = IntStream.UNKNOWN_SOURCE_NAME
+
+    override fun consume() {
+      p++
+    }
+
+    override fun LA(i: Int): Int {
+      val index = p + i - 1
+      return if (index < text.length) text[index].code else IntStream.EOF
+    }
+
+    override fun mark(): Int = -1
+
+    override fun release(marker: Int) {}
+
+    override fun index(): Int = p
+
+    override fun seek(index: Int) {
+      p = index
+    }
+
+    override fun size(): Int = text.length
+
+    override fun getText(interval: Interval): String =
+      text.substring(interval.a, interval.b + 1)
+  }
+
+  /**
+   * Returns the line and position in line of each character of [text],
+   * and of the end of the input, as a lexer tracks them.
+   */
+  private fun positions(text: String): List<Pair<Int, Int>> {
+    val positions = ArrayList<Pair<Int, Int>>()
+    var line = 1
+    var charPositionInLine = 0
+
+    for (c in text) {
+      positions.add(line to charPositionInLine)
+
+      if (c == '\n') {
+        line++
+        charPositionInLine = 0
+      } else {
+        charPositionInLine++
+      }
+    }
+
+    positions.add(line to charPositionInLine)
+    return positions
+  }
+
+  @Test
+  fun linesAndPositions() {
+    val text = "a\nbc\n\nd\n"
+    val index = LineIndex(StringStream(text))
+    val expected = positions(text)
+
+    for (i in expected.indices.reversed()) {
+      assertEquals(expected[i], index.line(i) to index.charPositionInLine(i))
+    }
+  }
+
+  @Test
+  fun longInput() {
+    val text = buildString {
+      for (i in 0..<5000) {
+        append("x".repeat(i % 7))
+        append('\n')
+      }
+    }
+
+    val index = LineIndex(StringStream(text))
+    val expected = positions(text)
+
+    for (i in expected.indices step 13) {
+      assertEquals(expected[i], index.line(i) to index.charPositionInLine(i))
+    }
+
+    assertEquals(expected.last(), index.line(text.length) to index.charPositionInLine(text.length))
+  }
+
+  @Test
+  fun shiftedLinesAndPositions() {
+    val index = LineIndex(StringStream("ab\ncd\nef"))
+    index.setCharPositionInLine(1, 7)
+    index.setLine(4, 10)
+
+    assertEquals(1 to 0, index.line(0) to index.charPositionInLine(0))
+    assertEquals(1 to 7, index.line(1) to index.charPositionInLine(1))
+    assertEquals(1 to 8, index.line(2) to index.charPositionInLine(2))
+    assertEquals(2 to 0, index.line(3) to index.charPositionInLine(3))
+    assertEquals(10 to 1, index.line(4) to index.charPositionInLine(4))
+    assertEquals(11 to 0, index.line(6) to index.charPositionInLine(6))
+
+    // Set again from an earlier character, as after seeking back
+    index.setLine(6, 20)
+    index.setLine(3, 5)
+    assertEquals(5 to 1, index.line(4) to index.charPositionInLine(4))
+    assertEquals(6 to 1, index.line(7) to index.charPositionInLine(7))
+  }
+
+  @Test
+  fun concurrentReads() {
+    val text = buildString {
+      for (i in 0..<20000) {
+        append("x".repeat(i % 11))
+        append('\n')
+      }
+    }
+
+    val index = LineIndex(StringStream(text))
+    val expected = positions(text)
+    val failures = AtomicInteger()
+    val threads = List(4) { t ->
+      Thread {
+        for (i in expected.indices.reversed()) {
+          if (i % 4 == t && expected[i] != index.line(i) to index.charPositionInLine(i)) {
+            failures.incrementAndGet()
+          }
+        }
+      }
+    }
+
+    threads.forEach { it.start() }
+    threads.forEach { it.join() }
+    assertEquals(0, failures.get())
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+package org.antlr.v5.core.ast
+
+import org.antlr.v5.runtime.core.ast.Point
+import org.antlr.v5.runtime.core.ast.Position
+import org.antlr.v5.runtime.core.ast.SourceText
+import org.junit.jupiter.api.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+
+class SourceTextTest {
+  private val code = "ab\ncde\n\nf"
+
+  @Test
+  fun offsets() {
+    val source = SourceText(code)
+
+    assertEquals(4, source.lineCount)
+    assertEquals(0, source.offset(Point(1, 0)))
+    assertEquals(2, source.offset(Point(1, 2)))
+    assertEquals(5, source.offset(Point(2, 2)))
+    assertEquals(7, source.offset(Point(3, 0)))
+    assertEquals(9, source.offset(Point(4, 1)))
+    assertEquals(5, Point(2, 2).offset(code))
+  }
+
+  @Test
+  fun points() {
+    val source = SourceText(code)
+
+    for (offset in 0..code.length) {
+      assertEquals(offset, source.offset(source.point(offset)))
+    }
+
+    assertEquals(Point(2, 0), source.point(3))
+    assertEquals(Point(4, 1), source.point(code.length))
+  }
+
+  @Test
+  fun pointsOutOfText() {
+    val source = SourceText(code)
+
+    assertFailsWith<IllegalArgumentException> { source.offset(Point(5, 0)) }
+    assertFailsWith<IllegalArgumentException> { source.offset(Point(1, 3)) }
+    assertFailsWith<IllegalArgumentException> { source.point(code.length + 1) }
+  }
+
+  @Test
+  fun text() {
+    val position = Position(1, 1, 2, 2)
+
+    assertEquals("b\ncd", position.text(code))
+    assertEquals("b\ncd", position.text(SourceText(code)))
+    assertEquals(4, position.length(code))
+  }
+
+  @Test
+  fun advance() {
+    assertEquals(Point(1, 5), Point(1, 2).advance("abc"))
+    assertEquals(Point(2, 1), Point(1, 2).advance("a\nb"))
+    assertEquals(Point(3, 0), Point(1, 2).advance("a\r\nb\r"))
+    assertEquals(Point(4, 2), Point(1, 0).advance("\n\r\rcd"))
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+package org.antlr.v5.core.context
+
+import org.antlr.v5.runtime.core.CommonToken
+import org.antlr.v5.runtime.core.context.ParserRuleContext
+import org.antlr.v5.runtime.core.tree.TerminalNodeImpl
+import org.junit.jupiter.api.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
+import kotlin.test.assertSame
+
+class ParserRuleContextTest {
+  private class AContext(parent: ParserRuleContext?) : ParserRuleContext(parent, 0)
+  private class BContext(parent: ParserRuleContext?) : ParserRuleContext(parent, 0)
+
+  private fun context(): ParserRuleContext {
+    val ctx = ParserRuleContext()
+    ctx.addChild(AContext(ctx))
+    ctx.addChild(TerminalNodeImpl(CommonToken(1, "a")))
+    ctx.addChild(BContext(ctx))
+    ctx.addChild(TerminalNodeImpl(CommonToken(2, ",")))
+    ctx.addChild(AContext(ctx))
+    ctx.addChild(TerminalNodeImpl(CommonToken(1, "b")))
+    return ctx
+  }
+
+  @Test
+  fun typedAccessors() {
+    val ctx = context()
+
+    assertEquals(2, ctx.getRuleContexts(AContext::class).size)
+    assertEquals(3, ctx.getRuleContexts(ParserRuleContext::class).size)
+    assertSame(ctx.getChild(4), ctx.getRuleContext(AContext::class, 1))
+    assertNull(ctx.getRuleContext(AContext::class, 2))
+    assertSame(ctx.getChild(5), ctx.getToken(1, 1))
+    assertEquals(1, ctx.getTokens(2).size)
+    assertNull(ctx.getToken(3, 0))
+    assertEquals(0, ctx.getTokens(3).size)
+  }
+
+  @Test
+  fun typedAccessorsSeeChangedChildren() {
+    val ctx = context()
+    val tokens = ctx.getTokens(1)
+
+    assertSame(tokens, ctx.getTokens(1))
+
+    ctx.removeLastChild()
+    assertEquals(1, ctx.getTokens(1).size)
+    assertEquals(2, tokens.size)
+
+    ctx.addChild(BContext(ctx))
+    assertEquals(2, ctx.getRuleContexts(BContext::class).size)
+
+    ctx.children!![0] = BContext(ctx)
+    assertEquals(1, ctx.getRuleContexts(AContext::class).size)
+
+    ctx.children!!.sortBy { it is BContext }
+    assertSame(ctx.getChild(0), ctx.getToken(1, 0))
+  }
+
+  @Test
+  fun assignedChildrenAreCopied() {
+    val ctx = context()
+    val children = ArrayList(ctx.children!!)
+
+    ctx.children = children
+    assertEquals(2, ctx.getTokens(1).size)
+
+    children.clear()
+    assertEquals(6, ctx.childCount)
+    assertEquals(2, ctx.getTokens(1).size)
+
+    ctx.children!!.clear()
+    assertEquals(0, ctx.getTokens(1).size)
+  }
+}
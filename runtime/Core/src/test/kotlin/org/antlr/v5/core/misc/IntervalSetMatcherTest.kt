@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+package org.antlr.v5.core.misc
+
+import org.antlr.v5.runtime.core.misc.IntervalSet
+import org.antlr.v5.runtime.core.misc.IntervalSetMatcher
+import org.junit.jupiter.api.Test
+import kotlin.random.Random
+import kotlin.test.*
+
+class IntervalSetMatcherTest {
+  @Test
+  fun bmpAndSupplementary() {
+    val set = IntervalSet.of('a'.code, 'z'.code)
+    set.add('_'.code)
+    set.add(0x1F600, 0x1F64F)
+    set.add(-1)
+
+    val matcher = IntervalSetMatcher(set)
+
+    assertTrue(matcher.contains(-1))
+    assertTrue(matcher.contains('a'.code))
+    assertTrue(matcher.contains('z'.code))
+    assertTrue(matcher.contains('_'.code))
+    assertFalse(matcher.contains('A'.code))
+    assertFalse(matcher.contains(0xFFFF))
+    assertTrue(matcher.contains(0x1F600))
+    assertTrue(matcher.contains(0x1F64F))
+    assertFalse(matcher.contains(0x1F5FF))
+    assertFalse(matcher.contains(0x1F650))
+    assertFalse(matcher.contains(0x10FFFF))
+    assertFalse(matcher.contains(0x110000))
+  }
+
+  @Test
+  fun emptySet() {
+    val matcher = IntervalSetMatcher(IntervalSet())
+
+    assertFalse(matcher.contains(-1))
+    assertFalse(matcher.contains(0))
+    assertFalse(matcher.contains(0x10000))
+  }
+
+  @Test
+  fun agreesWithIntervalSet() {
+    val random = Random(42)
+
+    repeat(200) {
+      val set = IntervalSet()
+
+      repeat(random.nextInt(20)) {
+        val a = random.nextInt(-2, 0x110010)
+        set.add(a, a + random.nextInt(if (random.nextBoolean()) 4 else 70000))
+      }
+
+      val matcher = IntervalSetMatcher(set)
+
+      repeat(2000) {
+        val el = random.nextInt(-3, 0x110010)
+        assertEquals(set.contains(el), matcher.contains(el), "$el in $set")
+      }
+    }
+  }
+}
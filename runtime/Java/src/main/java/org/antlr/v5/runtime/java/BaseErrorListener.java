@@ -6,6 +6,7 @@
 package org.antlr.v5.runtime.java;
 
 import org.antlr.v5.runtime.core.atn.ATNConfigSet;
+import org.antlr.v5.runtime.core.atn.PredictionLimits;
 import org.antlr.v5.runtime.core.Parser;
 import org.antlr.v5.runtime.core.Recognizer;
 import org.antlr.v5.runtime.core.error.ANTLRErrorListener;
@@ -63,4 +64,15 @@ public class BaseErrorListener implements ANTLRErrorListener {
 										 ATNConfigSet configs)
 	{
 	}
+
+	@Override
+	public void reportPredictionLimitExceeded(Parser recognizer,
+											  DFA dfa,
+											  int startIndex,
+											  int stopIndex,
+											  PredictionLimits.Limit limit,
+											  int prediction,
+											  ATNConfigSet configs)
+	{
+	}
 }
@@ -9,6 +9,7 @@ package org.antlr.v5.runtime.java;
 import org.antlr.v5.runtime.core.Parser;
 import org.antlr.v5.runtime.core.atn.ATNConfig;
 import org.antlr.v5.runtime.core.atn.ATNConfigSet;
+import org.antlr.v5.runtime.core.atn.PredictionLimits;
 import org.antlr.v5.runtime.core.dfa.DFA;
 import org.antlr.v5.runtime.core.misc.Interval;
 
@@ -111,6 +112,22 @@ public class DiagnosticErrorListener extends BaseErrorListener {
 		recognizer.notifyErrorListeners(message);
 	}
 
+	@Override
+	public void reportPredictionLimitExceeded(Parser recognizer,
+											  DFA dfa,
+											  int startIndex,
+											  int stopIndex,
+											  PredictionLimits.Limit limit,
+											  int prediction,
+											  ATNConfigSet configs)
+	{
+		String format = "reportPredictionLimitExceeded d=%s, limit=%s, prediction=%d, input='%s'";
+		String decision = getDecisionDescription(recognizer, dfa);
+		String text = recognizer.getTokenStream().getText(Interval.Companion.of(startIndex, stopIndex));
+		String message = String.format(format, decision, limit, prediction, text);
+		recognizer.notifyErrorListeners(message);
+	}
+
 	protected String getDecisionDescription(Parser recognizer, DFA dfa) {
 		int decision = dfa.getDecision();
 		int ruleIndex = dfa.getAtnStartState().getRuleIndex();
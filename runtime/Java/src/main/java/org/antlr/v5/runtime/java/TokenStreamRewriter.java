@@ -9,10 +9,16 @@ import org.antlr.v5.runtime.core.Token;
 import org.antlr.v5.runtime.core.TokenStream;
 import org.antlr.v5.runtime.core.misc.Interval;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Useful for rewriting out a buffered input token stream after doing some
@@ -89,6 +95,10 @@ import java.util.Map;
  * <p>
  * If you don't use named rewrite streams, a "default" stream is used as the
  * first example shows.</p>
+ *
+ * <p>
+ * To render a large rewrite without building the whole result in memory,
+ * use {@link #writeText(String, Interval, Writer)}.</p>
  */
 public class TokenStreamRewriter {
 	public static final String DEFAULT_PROGRAM_NAME = "default";
@@ -115,7 +125,7 @@ public class TokenStreamRewriter {
 		/** Execute the rewrite operation by possibly adding to the buffer.
 		 *  Return the index of the next token to operate on.
 		 */
-		public int execute(StringBuilder buf) {
+		public int execute(Appendable buf) throws IOException {
 			return index;
 		}
 
@@ -135,8 +145,8 @@ public class TokenStreamRewriter {
 		}
 
 		@Override
-		public int execute(StringBuilder buf) {
-			buf.append(text);
+		public int execute(Appendable buf) throws IOException {
+			buf.append(String.valueOf(text));
 			if ( tokens.get(index).getType()!=Token.EOF ) {
 				buf.append(tokens.get(index).getText());
 			}
@@ -164,9 +174,9 @@ public class TokenStreamRewriter {
 			lastIndex = to;
 		}
 		@Override
-		public int execute(StringBuilder buf) {
+		public int execute(Appendable buf) throws IOException {
 			if ( text!=null ) {
-				buf.append(text);
+				buf.append(text.toString());
 			}
 			return lastIndex+1;
 		}
@@ -181,6 +191,20 @@ public class TokenStreamRewriter {
 		}
 	}
 
+	private static final Comparator<RewriteOperation> BY_INDEX = new Comparator<RewriteOperation>() {
+		@Override
+		public int compare(RewriteOperation a, RewriteOperation b) {
+			return Integer.compare(a.index, b.index);
+		}
+	};
+
+	private static final Comparator<RewriteOperation> BY_INSTRUCTION_INDEX = new Comparator<RewriteOperation>() {
+		@Override
+		public int compare(RewriteOperation a, RewriteOperation b) {
+			return Integer.compare(a.instructionIndex, b.instructionIndex);
+		}
+	};
+
 	/** Our source stream */
 	protected final TokenStream tokens;
 
@@ -383,6 +407,28 @@ public class TokenStreamRewriter {
 	}
 
 	public String getText(String programName, Interval interval) {
+		StringBuilder buf = new StringBuilder();
+		try {
+			render(programName, interval, buf);
+		}
+		catch (IOException ioe) {
+			throw new UncheckedIOException(ioe); // can't happen with a StringBuilder
+		}
+		return buf.toString();
+	}
+
+	public void writeText(Writer out) throws IOException {
+		writeText(DEFAULT_PROGRAM_NAME, Interval.Companion.of(0,tokens.size()-1), out);
+	}
+
+	/** Like {@link #getText(String, Interval)} but write the text to
+	 *  {@code out} as it is produced instead of building a string.
+	 */
+	public void writeText(String programName, Interval interval, Writer out) throws IOException {
+		render(programName, interval, out);
+	}
+
+	protected void render(String programName, Interval interval, Appendable buf) throws IOException {
 		List<RewriteOperation> rewrites = programs.get(programName);
 		int start = interval.getA();
 		int stop = interval.getB();
@@ -392,9 +438,9 @@ public class TokenStreamRewriter {
 		if ( start<0 ) start = 0;
 
 		if ( rewrites==null || rewrites.isEmpty() ) {
-			return tokens.getText(interval); // no instructions to execute
+			buf.append(tokens.getText(interval)); // no instructions to execute
+			return;
 		}
-		StringBuilder buf = new StringBuilder();
 
 		// First, optimize instruction stream
 		Map<Integer, RewriteOperation> indexToOp = reduceToSingleOperationPerIndex(rewrites);
@@ -402,11 +448,10 @@ public class TokenStreamRewriter {
 		// Walk buffer, executing instructions and emitting tokens
 		int i = start;
 		while ( i <= stop && i < tokens.size() ) {
-			RewriteOperation op = indexToOp.get(i);
-			indexToOp.remove(i); // remove so any left have index size-1
-			Token t = tokens.get(i);
+			RewriteOperation op = indexToOp.remove(i); // remove so any left have index size-1
 			if ( op==null ) {
 				// no operation at that index, just dump token
+				Token t = tokens.get(i);
 				if ( t.getType()!= Token.EOF ) buf.append(t.getText());
 				i++; // move to next token
 			}
@@ -421,11 +466,15 @@ public class TokenStreamRewriter {
 		if ( stop==tokens.size()-1 ) {
 			// Scan any remaining operations after last token
 			// should be included (they will be inserts).
+			List<RewriteOperation> remaining = new ArrayList<RewriteOperation>();
 			for (RewriteOperation op : indexToOp.values()) {
-				if ( op.index >= tokens.size()-1 ) buf.append(op.text);
+				if ( op.index >= tokens.size()-1 ) remaining.add(op);
+			}
+			Collections.sort(remaining, BY_INDEX);
+			for (RewriteOperation op : remaining) {
+				buf.append(String.valueOf(op.text));
 			}
 		}
-		return buf.toString();
 	}
 
 	/** We need to combine operations and report invalid operations (like
@@ -478,34 +527,62 @@ public class TokenStreamRewriter {
 	 *  Return a map from token index to operation.
 	 */
 	protected Map<Integer, RewriteOperation> reduceToSingleOperationPerIndex(List<RewriteOperation> rewrites) {
-//		System.out.println("rewrites="+rewrites);
+		// Rather than comparing each op with every op before it, index the
+		// live prior ops by token index. Live replaces never overlap one
+		// another, so the only ones a new op can interact with are found
+		// with a range query. The result is the same as checking the
+		// prior ops in instruction order.
+
+		// live inserts seen so far, by token index, in instruction order
+		TreeMap<Integer, List<InsertBeforeOp>> insertsByIndex = new TreeMap<Integer, List<InsertBeforeOp>>();
+		// live replaces seen so far, by start index
+		TreeMap<Integer, ReplaceOp> replacesByIndex = new TreeMap<Integer, ReplaceOp>();
 
 		// WALK REPLACES
 		for (int i = 0; i < rewrites.size(); i++) {
 			RewriteOperation op = rewrites.get(i);
 			if ( op==null ) continue;
+			if ( op instanceof InsertBeforeOp ) {
+				List<InsertBeforeOp> inserts = insertsByIndex.get(op.index);
+				if ( inserts==null ) {
+					inserts = new ArrayList<InsertBeforeOp>(1);
+					insertsByIndex.put(op.index, inserts);
+				}
+				inserts.add((InsertBeforeOp)op);
+				continue;
+			}
 			if ( !(op instanceof ReplaceOp) ) continue;
-			ReplaceOp rop = (ReplaceOp)rewrites.get(i);
+			ReplaceOp rop = (ReplaceOp)op;
 			// Wipe prior inserts within range
-			List<? extends InsertBeforeOp> inserts = getKindOfOps(rewrites, InsertBeforeOp.class, i);
-			for (InsertBeforeOp iop : inserts) {
-				if ( iop.index == rop.index ) {
-					// E.g., insert before 2, delete 2..2; update replace
-					// text to include insert before, kill insert
-					rewrites.set(iop.instructionIndex, null);
-					rop.text = iop.text.toString() + (rop.text!=null?rop.text.toString():"");
-				}
-				else if ( iop.index > rop.index && iop.index <= rop.lastIndex ) {
-					// delete insert as it's a no-op.
-					rewrites.set(iop.instructionIndex, null);
+			Map<Integer, List<InsertBeforeOp>> insertsInRange = insertsByIndex.subMap(rop.index, true, rop.lastIndex, true);
+			for (List<InsertBeforeOp> inserts : insertsInRange.values()) {
+				for (InsertBeforeOp iop : inserts) {
+					if ( iop.index == rop.index ) {
+						// E.g., insert before 2, delete 2..2; update replace
+						// text to include insert before, kill insert
+						rewrites.set(iop.instructionIndex, null);
+						rop.text = iop.text.toString() + (rop.text!=null?rop.text.toString():"");
+					}
+					else {
+						// delete insert as it's a no-op.
+						rewrites.set(iop.instructionIndex, null);
+					}
 				}
 			}
+			insertsInRange.clear();
 			// Drop any prior replaces contained within
-			List<? extends ReplaceOp> prevReplaces = getKindOfOps(rewrites, ReplaceOp.class, i);
+			List<ReplaceOp> prevReplaces = new ArrayList<ReplaceOp>();
+			Map.Entry<Integer, ReplaceOp> left = replacesByIndex.lowerEntry(rop.index);
+			if ( left!=null && left.getValue().lastIndex >= rop.index ) {
+				prevReplaces.add(left.getValue());
+			}
+			prevReplaces.addAll(replacesByIndex.subMap(rop.index, true, rop.lastIndex, true).values());
+			Collections.sort(prevReplaces, BY_INSTRUCTION_INDEX);
 			for (ReplaceOp prevRop : prevReplaces) {
 				if ( prevRop.index>=rop.index && prevRop.lastIndex <= rop.lastIndex ) {
 					// delete replace as it's a no-op.
 					rewrites.set(prevRop.instructionIndex, null);
+					replacesByIndex.remove(prevRop.index);
 					continue;
 				}
 				// throw exception unless disjoint or identical
@@ -516,6 +593,7 @@ public class TokenStreamRewriter {
 				if ( prevRop.text==null && rop.text==null && !disjoint ) {
 					//System.out.println("overlapping deletes: "+prevRop+", "+rop);
 					rewrites.set(prevRop.instructionIndex, null); // kill first delete
+					replacesByIndex.remove(prevRop.index);
 					rop.index = Math.min(prevRop.index, rop.index);
 					rop.lastIndex = Math.max(prevRop.lastIndex, rop.lastIndex);
 					System.out.println("new rop "+rop);
@@ -524,43 +602,46 @@ public class TokenStreamRewriter {
 					throw new IllegalArgumentException("replace op boundaries of "+rop+" overlap with previous "+prevRop);
 				}
 			}
+			replacesByIndex.put(rop.index, rop);
 		}
 
 		// WALK INSERTS
+		// the live insert at each index; prior inserts at the same index
+		// are folded into the next one, so there is at most one
+		Map<Integer, InsertBeforeOp> insertAt = new HashMap<Integer, InsertBeforeOp>();
 		for (int i = 0; i < rewrites.size(); i++) {
 			RewriteOperation op = rewrites.get(i);
 			if ( op==null ) continue;
 			if ( !(op instanceof InsertBeforeOp) ) continue;
-			InsertBeforeOp iop = (InsertBeforeOp)rewrites.get(i);
+			InsertBeforeOp iop = (InsertBeforeOp)op;
 			// combine current insert with prior if any at same index
-			List<? extends InsertBeforeOp> prevInserts = getKindOfOps(rewrites, InsertBeforeOp.class, i);
-			for (InsertBeforeOp prevIop : prevInserts) {
-				if ( prevIop.index==iop.index ) {
-					if ( InsertAfterOp.class.isInstance(prevIop) ) {
-						iop.text = catOpText(prevIop.text, iop.text);
-						rewrites.set(prevIop.instructionIndex, null);
-					}
-					else if ( InsertBeforeOp.class.isInstance(prevIop) ) { // combine objects
-						// convert to strings...we're in process of toString'ing
-						// whole token buffer so no lazy eval issue with any templates
-						iop.text = catOpText(iop.text, prevIop.text);
-						// delete redundant prior insert
-						rewrites.set(prevIop.instructionIndex, null);
-					}
+			InsertBeforeOp prevIop = insertAt.remove(iop.index);
+			if ( prevIop!=null ) {
+				if ( prevIop instanceof InsertAfterOp ) {
+					iop.text = catOpText(prevIop.text, iop.text);
+				}
+				else { // combine objects
+					// convert to strings...we're in process of toString'ing
+					// whole token buffer so no lazy eval issue with any templates
+					iop.text = catOpText(iop.text, prevIop.text);
 				}
+				// delete redundant prior insert
+				rewrites.set(prevIop.instructionIndex, null);
 			}
 			// look for replaces where iop.index is in range; error
-			List<? extends ReplaceOp> prevReplaces = getKindOfOps(rewrites, ReplaceOp.class, i);
-			for (ReplaceOp rop : prevReplaces) {
+			Map.Entry<Integer, ReplaceOp> e = replacesByIndex.floorEntry(iop.index);
+			ReplaceOp rop = e!=null ? e.getValue() : null;
+			if ( rop!=null && rop.instructionIndex < i ) {
 				if ( iop.index == rop.index ) {
 					rop.text = catOpText(iop.text,rop.text);
 					rewrites.set(i, null);	// delete current insert
 					continue;
 				}
-				if ( iop.index >= rop.index && iop.index <= rop.lastIndex ) {
+				if ( iop.index <= rop.lastIndex ) {
 					throw new IllegalArgumentException("insert op "+iop+" within boundaries of previous "+rop);
 				}
 			}
+			insertAt.put(iop.index, iop);
 		}
 		// System.out.println("rewrites after="+rewrites);
 		Map<Integer, RewriteOperation> m = new HashMap<Integer, RewriteOperation>();
@@ -21,7 +21,9 @@ import org.antlr.v5.runtime.core.tree.TerminalNode;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A tree pattern matching mechanism for ANTLR {@link ParseTree}s.
@@ -106,6 +108,24 @@ public class ParseTreePatternMatcher {
 	protected String stop = ">";
 	protected String escape = "\\"; // e.g., \< and \> must escape BOTH!
 
+	/** How many compiled patterns {@link #compile} keeps */
+	public static final int MAX_CACHED_PATTERNS = 256;
+
+	/**
+	 * Patterns already compiled by {@link #compile}, keyed by rule index and
+	 * pattern text, so that the string forms of {@link #match} and
+	 * {@link #matches} only parse each pattern once. Up to
+	 * {@link #MAX_CACHED_PATTERNS} are kept, dropping the least recently
+	 * used first.
+	 */
+	protected final Map<String, ParseTreePattern> compiledPatterns =
+		new LinkedHashMap<String, ParseTreePattern>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, ParseTreePattern> eldest) {
+				return size() > MAX_CACHED_PATTERNS;
+			}
+		};
+
 	/**
 	 * Constructs a {@link ParseTreePatternMatcher} or from a {@link Lexer} and
 	 * {@link Parser} object. The lexer input stream is altered for tokenizing
@@ -140,6 +160,7 @@ public class ParseTreePatternMatcher {
 		this.start = start;
 		this.stop = stop;
 		this.escape = escapeLeft;
+		compiledPatterns.clear();
 	}
 
 	/** Does {@code pattern} matched as rule {@code patternRuleIndex} match {@code tree}? */
@@ -182,9 +203,23 @@ public class ParseTreePatternMatcher {
 
 	/**
 	 * For repeated use of a tree pattern, compile it to a
-	 * {@link ParseTreePattern} using this method.
+	 * {@link ParseTreePattern} using this method. Recently compiled patterns
+	 * are cached, so compiling the same pattern for the same rule again is
+	 * cheap. To match
+	 * many patterns against the same trees, add them to a
+	 * {@link ParseTreePatternSet}.
 	 */
 	public ParseTreePattern compile(String pattern, int patternRuleIndex) {
+		String key = patternRuleIndex + ":" + pattern;
+		ParseTreePattern p = compiledPatterns.get(key);
+		if ( p==null ) {
+			p = compilePattern(pattern, patternRuleIndex);
+			compiledPatterns.put(key, p);
+		}
+		return p;
+	}
+
+	protected ParseTreePattern compilePattern(String pattern, int patternRuleIndex) {
 		List<? extends Token> tokenList = tokenize(pattern);
 		ListTokenSource tokenSrc = new ListTokenSource(tokenList);
 		CommonTokenStream tokens = new CommonTokenStream(tokenSrc);
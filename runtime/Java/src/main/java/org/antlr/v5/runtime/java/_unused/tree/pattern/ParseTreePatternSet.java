@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.runtime.java._unused.tree.pattern;
+
+import org.antlr.v5.runtime.java._unused.misc.MultiMap;
+import org.antlr.v5.runtime.core.Token;
+import org.antlr.v5.runtime.core.context.ParserRuleContext;
+import org.antlr.v5.runtime.core.tree.ParseTree;
+import org.antlr.v5.runtime.core.tree.TerminalNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of compiled {@link ParseTreePattern}s that are matched together in a
+ * single walk of a parse tree.
+ *
+ * <p>Patterns are indexed by the rule index of their root and by the type of
+ * their first token, so each node of the tree is only compared against the
+ * patterns that can possibly match it. Unlike
+ * {@link ParseTreePatternMatcher#match(ParseTree, ParseTreePattern)}, a
+ * pattern in a set is only tried against nodes of the rule it was compiled
+ * for.</p>
+ *
+ * <pre>
+ * ParseTreePatternSet set = new ParseTreePatternSet(matcher);
+ * set.add("&lt;ID&gt; = &lt;expr&gt;;", MyParser.RULE_statement);
+ * set.add("return &lt;expr&gt;;", MyParser.RULE_statement);
+ * for (ParseTreeMatch m : set.findAll(tree)) { ... }
+ * </pre>
+ */
+public class ParseTreePatternSet {
+	/** First token type of a pattern whose leftmost element is a rule tag */
+	protected static final int ANY_TOKEN = Integer.MIN_VALUE;
+
+	/** First token type of a pattern or subtree without any leaves */
+	protected static final int NO_TOKEN = Token.INVALID_TYPE;
+
+	/** The candidate patterns for nodes of one rule */
+	protected static class Candidates {
+		/** Patterns that may match whatever the first token is */
+		final List<ParseTreePattern> anyFirstToken = new ArrayList<ParseTreePattern>();
+
+		/**
+		 * First token type &rarr; patterns starting with that token, followed
+		 * by the {@link #anyFirstToken} patterns, in the order they were added.
+		 */
+		final Map<Integer, List<ParseTreePattern>> byFirstToken = new HashMap<Integer, List<ParseTreePattern>>();
+
+		void add(ParseTreePattern pattern, int firstTokenType) {
+			if ( firstTokenType==ANY_TOKEN ) {
+				anyFirstToken.add(pattern);
+				for (List<ParseTreePattern> patterns : byFirstToken.values()) {
+					patterns.add(pattern);
+				}
+				return;
+			}
+
+			List<ParseTreePattern> patterns = byFirstToken.get(firstTokenType);
+			if ( patterns==null ) {
+				patterns = new ArrayList<ParseTreePattern>(anyFirstToken);
+				byFirstToken.put(firstTokenType, patterns);
+			}
+			patterns.add(pattern);
+		}
+
+		List<ParseTreePattern> get(int firstTokenType) {
+			List<ParseTreePattern> patterns = byFirstToken.get(firstTokenType);
+			return patterns!=null ? patterns : anyFirstToken;
+		}
+	}
+
+	protected final ParseTreePatternMatcher matcher;
+
+	protected final List<ParseTreePattern> patterns = new ArrayList<ParseTreePattern>();
+
+	/** Root rule index &rarr; candidate patterns */
+	protected final Map<Integer, Candidates> candidates = new HashMap<Integer, Candidates>();
+
+	/**
+	 * Label bindings of the match in progress, as parallel lists; only turned
+	 * into a {@link MultiMap} once a pattern has matched.
+	 */
+	private final List<String> boundLabels = new ArrayList<String>();
+	private final List<ParseTree> boundNodes = new ArrayList<ParseTree>();
+
+	public ParseTreePatternSet(ParseTreePatternMatcher matcher) {
+		this.matcher = matcher;
+	}
+
+	/** Compile {@code pattern} as rule {@code patternRuleIndex} and add it to this set. */
+	public ParseTreePattern add(String pattern, int patternRuleIndex) {
+		ParseTreePattern p = matcher.compile(pattern, patternRuleIndex);
+		add(p);
+		return p;
+	}
+
+	public void add(ParseTreePattern pattern) {
+		ParseTree patternTree = pattern.getPatternTree();
+		if ( !(patternTree instanceof ParserRuleContext) ) {
+			throw new IllegalArgumentException("pattern tree must be a rule node: "+pattern.getPattern());
+		}
+
+		int ruleIndex = ((ParserRuleContext)patternTree).getRuleIndex();
+		Candidates c = candidates.get(ruleIndex);
+		if ( c==null ) {
+			c = new Candidates();
+			candidates.put(ruleIndex, c);
+		}
+		c.add(pattern, patternFirstTokenType(patternTree));
+		patterns.add(pattern);
+	}
+
+	public List<ParseTreePattern> getPatterns() {
+		return patterns;
+	}
+
+	/**
+	 * Return the successful matches of all patterns against all subtrees of
+	 * {@code tree}, nodes in preorder and, for each node, patterns in the order
+	 * they were added.
+	 */
+	public List<ParseTreeMatch> findAll(ParseTree tree) {
+		List<ParseTreeMatch> matches = new ArrayList<ParseTreeMatch>();
+		findAll(tree, firstTokenType(tree), matches);
+		return matches;
+	}
+
+	/** Return the successful matches of all patterns against {@code tree} itself. */
+	public List<ParseTreeMatch> match(ParseTree tree) {
+		List<ParseTreeMatch> matches = new ArrayList<ParseTreeMatch>();
+		matchNode(tree, firstTokenType(tree), matches);
+		return matches;
+	}
+
+	/**
+	 * {@code firstTokenType} is passed down to the first child, which starts
+	 * with the same token, so that finding the first token of every node costs
+	 * a single pass over the tree.
+	 */
+	protected void findAll(ParseTree t, int firstTokenType, List<ParseTreeMatch> matches) {
+		matchNode(t, firstTokenType, matches);
+		int n = t.getChildCount();
+		for (int i = 0; i < n; i++) {
+			ParseTree child = t.getChild(i);
+			findAll(child, i==0 ? firstTokenType : firstTokenType(child), matches);
+		}
+	}
+
+	protected void matchNode(ParseTree t, int firstTokenType, List<ParseTreeMatch> matches) {
+		if ( !(t instanceof ParserRuleContext) ) return;
+		Candidates c = candidates.get(((ParserRuleContext)t).getRuleIndex());
+		if ( c==null ) return;
+
+		List<ParseTreePattern> patterns = c.get(firstTokenType);
+		for (int i = 0; i < patterns.size(); i++) {
+			ParseTreePattern p = patterns.get(i);
+			boundLabels.clear();
+			boundNodes.clear();
+			if ( matches(t, p.getPatternTree()) ) {
+				MultiMap<String, ParseTree> labels = new MultiMap<String, ParseTree>();
+				for (int j = 0; j < boundLabels.size(); j++) {
+					labels.map(boundLabels.get(j), boundNodes.get(j));
+				}
+				matches.add(new ParseTreeMatch(t, p, labels, null));
+			}
+		}
+	}
+
+	/**
+	 * Same as {@link ParseTreePatternMatcher#matchImpl} but only answers
+	 * whether {@code tree} matches, recording labels in {@link #boundLabels}
+	 * and {@link #boundNodes}.
+	 */
+	protected boolean matches(ParseTree tree, ParseTree patternTree) {
+		if ( tree instanceof TerminalNode && patternTree instanceof TerminalNode ) {
+			Token t1 = ((TerminalNode)tree).getSymbol();
+			Token t2 = ((TerminalNode)patternTree).getSymbol();
+			if ( t1.getType()!=t2.getType() ) return false;
+			if ( t2 instanceof TokenTagToken ) {
+				TokenTagToken tokenTagToken = (TokenTagToken)t2;
+				bind(tokenTagToken.getTokenName(), tree);
+				if ( tokenTagToken.getLabel()!=null ) {
+					bind(tokenTagToken.getLabel(), tree);
+				}
+				return true;
+			}
+			return tree.getText().equals(patternTree.getText());
+		}
+
+		if ( tree instanceof ParserRuleContext && patternTree instanceof ParserRuleContext ) {
+			ParserRuleContext r1 = (ParserRuleContext)tree;
+			ParserRuleContext r2 = (ParserRuleContext)patternTree;
+			RuleTagToken ruleTagToken = matcher.getRuleTagToken(r2);
+			if ( ruleTagToken!=null ) {
+				if ( r1.getRuleIndex()!=r2.getRuleIndex() ) return false;
+				bind(ruleTagToken.getRuleName(), tree);
+				if ( ruleTagToken.getLabel()!=null ) {
+					bind(ruleTagToken.getLabel(), tree);
+				}
+				return true;
+			}
+
+			int n = r1.getChildCount();
+			if ( n!=r2.getChildCount() ) return false;
+			for (int i = 0; i < n; i++) {
+				if ( !matches(r1.getChild(i), r2.getChild(i)) ) return false;
+			}
+			return true;
+		}
+
+		return false;
+	}
+
+	private void bind(String label, ParseTree node) {
+		boundLabels.add(label);
+		boundNodes.add(node);
+	}
+
+	/** The type of the leftmost leaf of {@code t}, or {@link #NO_TOKEN} */
+	protected static int firstTokenType(ParseTree t) {
+		while ( t.getChildCount()>0 ) {
+			t = t.getChild(0);
+		}
+		return t instanceof TerminalNode ? ((TerminalNode)t).getSymbol().getType() : NO_TOKEN;
+	}
+
+	/**
+	 * Like {@link #firstTokenType}, but {@link #ANY_TOKEN} if the leftmost
+	 * element of the pattern is a rule tag, which matches subtrees starting
+	 * with any token.
+	 */
+	protected int patternFirstTokenType(ParseTree t) {
+		while ( t.getChildCount()>0 ) {
+			if ( matcher.getRuleTagToken(t)!=null ) return ANY_TOKEN;
+			t = t.getChild(0);
+		}
+		return t instanceof TerminalNode ? ((TerminalNode)t).getSymbol().getType() : NO_TOKEN;
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.runtime.java._unused.tree.xpath;
+
+import org.antlr.v5.runtime.core.context.ParserRuleContext;
+import org.antlr.v5.runtime.core.misc.IntegerList;
+import org.antlr.v5.runtime.core.tree.ParseTree;
+import org.antlr.v5.runtime.core.tree.TerminalNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The nodes of a parse tree in preorder, indexed by rule index and token
+ * type. Build one per tree and pass it to {@link XPath#evaluate(ParseTree, ParseTreeIndex)}
+ * when running many queries over the same tree: paths that start with
+ * {@code //rule} or {@code //TOKEN} then only visit the subtrees below
+ * matching nodes instead of the whole tree.
+ *
+ * <p>
+ * The index is a snapshot; it must be rebuilt if the tree changes.</p>
+ */
+public class ParseTreeIndex {
+	protected final ParseTree root;
+
+	/** All nodes in preorder */
+	protected final List<ParseTree> nodes = new ArrayList<ParseTree>();
+
+	/** For each node position, the position just past its subtree */
+	protected final IntegerList subtreeEnds = new IntegerList();
+
+	/** Rule index &rarr; positions of the rule nodes with that index */
+	protected final Map<Integer, IntegerList> rulePositions = new HashMap<Integer, IntegerList>();
+
+	/** Token type &rarr; positions of the token nodes with that type */
+	protected final Map<Integer, IntegerList> tokenPositions = new HashMap<Integer, IntegerList>();
+
+	public ParseTreeIndex(ParseTree root) {
+		this.root = root;
+		add(root);
+	}
+
+	protected void add(ParseTree t) {
+		int position = nodes.size();
+		nodes.add(t);
+		subtreeEnds.add(-1);
+
+		if ( t instanceof ParserRuleContext ) {
+			positionsFor(rulePositions, ((ParserRuleContext)t).getRuleIndex()).add(position);
+		}
+		else if ( t instanceof TerminalNode ) {
+			positionsFor(tokenPositions, ((TerminalNode)t).getSymbol().getType()).add(position);
+		}
+
+		int n = t.getChildCount();
+		for (int i = 0; i < n; i++) {
+			add(t.getChild(i));
+		}
+		subtreeEnds.set(position, nodes.size());
+	}
+
+	private static IntegerList positionsFor(Map<Integer, IntegerList> index, int key) {
+		IntegerList positions = index.get(key);
+		if ( positions==null ) {
+			positions = new IntegerList();
+			index.put(key, positions);
+		}
+		return positions;
+	}
+
+	public ParseTree getRoot() {
+		return root;
+	}
+
+	/** Return the number of nodes in the tree */
+	public int size() {
+		return nodes.size();
+	}
+
+	/** Return the node at preorder position {@code position} */
+	public ParseTree get(int position) {
+		return nodes.get(position);
+	}
+
+	/** Return the position just past the last descendant of the node at {@code position} */
+	public int getSubtreeEnd(int position) {
+		return subtreeEnds.get(position);
+	}
+
+	/** Return the positions of all rule nodes with index {@code ruleIndex}, in preorder, or {@code null} */
+	public IntegerList getRulePositions(int ruleIndex) {
+		return rulePositions.get(ruleIndex);
+	}
+
+	/** Return the positions of all token nodes of type {@code ttype}, in preorder, or {@code null} */
+	public IntegerList getTokenPositions(int ttype) {
+		return tokenPositions.get(ttype);
+	}
+
+	/** Return all rule nodes with index {@code ruleIndex}, in preorder */
+	public List<ParseTree> getRuleNodes(int ruleIndex) {
+		return getNodes(getRulePositions(ruleIndex));
+	}
+
+	/** Return all token nodes of type {@code ttype}, in preorder */
+	public List<ParseTree> getTokenNodes(int ttype) {
+		return getNodes(getTokenPositions(ttype));
+	}
+
+	protected List<ParseTree> getNodes(IntegerList positions) {
+		if ( positions==null ) return new ArrayList<ParseTree>();
+		List<ParseTree> result = new ArrayList<ParseTree>(positions.size());
+		for (int i = 0; i < positions.size(); i++) {
+			result.add(nodes.get(positions.get(i)));
+		}
+		return result;
+	}
+}
@@ -12,15 +12,18 @@ import org.antlr.v5.runtime.core.context.ParserRuleContext;
 import org.antlr.v5.runtime.core.error.*;
 import org.antlr.v5.runtime.core.CharStream;
 import org.antlr.v5.runtime.core.Parser;
+import org.antlr.v5.runtime.core.misc.IntegerList;
 import org.antlr.v5.runtime.core.tree.ParseTree;
 import org.antlr.v5.runtime.java.CharStreams;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * Represent a subset of XPath XML path syntax for use in identifying nodes in
@@ -64,32 +67,89 @@ import java.util.List;
  *
  * <p>
  * Whitespace is not allowed.</p>
+ *
+ * <p>
+ * {@link #compile} caches the split path per grammar, so the same query
+ * can be run many times without re-lexing it. Up to
+ * {@link #MAX_CACHED_PATHS} paths are kept per grammar, dropping the least
+ * recently compiled first. A path is evaluated as an
+ * automaton over the path elements in a single preorder walk of the tree,
+ * skipping subtrees where no element can match any more. The result is in
+ * document order. To run many queries over one tree, build a
+ * {@link ParseTreeIndex} for it once and pass it to
+ * {@link #evaluate(ParseTree, ParseTreeIndex)}.</p>
  */
 public class XPath {
 	public static final String WILDCARD = "*"; // word not operator/separator
 	public static final String NOT = "!"; 	   // word for invert operator
 
+	/** The automaton walk tracks active path elements in a {@code long} */
+	protected static final int MAX_COMPILED_ELEMENTS = 63;
+
+	/** How many split paths {@link #compile} keeps for each grammar */
+	public static final int MAX_CACHED_PATHS = 256;
+
+	/** Rule names array of a grammar &rarr; path &rarr; split path, least
+	 *  recently used first
+	 */
+	protected static final Map<String[], Map<String, XPathElement[]>> compiledPaths =
+		new WeakHashMap<String[], Map<String, XPathElement[]>>();
+
 	protected String path;
 	protected XPathElement[] elements;
 	protected Parser parser;
 
+	/** Elements in {@code //} position, as a bit set */
+	protected long anywhereElements;
+
 	public XPath(Parser parser, String path) {
+		this(parser, path, null);
+	}
+
+	protected XPath(Parser parser, String path, XPathElement[] elements) {
 		this.parser = parser;
 		this.path = path;
-		elements = split(path);
+		this.elements = elements!=null ? elements : split(path);
 //		System.out.println(Arrays.toString(elements));
+		for (int i = 0; i < this.elements.length && i < MAX_COMPILED_ELEMENTS; i++) {
+			if ( this.elements[i].isAnywhere() ) anywhereElements |= 1L << i;
+		}
+	}
+
+	/**
+	 * Return an {@link XPath} for {@code path}, reusing the split path from
+	 * an earlier call for the same grammar if there was one.
+	 */
+	public static XPath compile(Parser parser, String path) {
+		String[] ruleNames = parser.getRuleNames();
+		XPathElement[] elements;
+		synchronized (compiledPaths) {
+			Map<String, XPathElement[]> paths = compiledPaths.get(ruleNames);
+			elements = paths!=null ? paths.get(path) : null;
+		}
+		if ( elements==null ) {
+			elements = new XPath(parser, path).elements;
+			synchronized (compiledPaths) {
+				Map<String, XPathElement[]> paths = compiledPaths.get(ruleNames);
+				if ( paths==null ) {
+					paths = new LinkedHashMap<String, XPathElement[]>(16, 0.75f, true) {
+						@Override
+						protected boolean removeEldestEntry(Map.Entry<String, XPathElement[]> eldest) {
+							return size() > MAX_CACHED_PATHS;
+						}
+					};
+					compiledPaths.put(ruleNames, paths);
+				}
+				paths.put(path, elements);
+			}
+		}
+		return new XPath(parser, path, elements);
 	}
 
 	// TODO: check for invalid token/rule names, bad syntax
 
 	public XPathElement[] split(String path) {
-		CharStream in;
-		try {
-			in = CharStreams.fromFileName(path);
-		}
-		catch (IOException ioe) {
-			throw new IllegalArgumentException("Could not read path: "+path, ioe);
-		}
+		CharStream in = CharStreams.fromString(path);
 		XPathLexer lexer = new XPathLexer(in) {
 			@Override
 			public void recover(LexerNoViableAltException e) { throw e;	}
@@ -192,7 +252,7 @@ loop:
 
 
 	public static Collection<ParseTree> findAll(ParseTree tree, String xpath, Parser parser) {
-		XPath p = new XPath(parser, xpath);
+		XPath p = compile(parser, xpath);
 		return p.evaluate(tree);
 	}
 
@@ -205,6 +265,101 @@ loop:
 		ParserRuleContext dummyRoot = new ParserRuleContext();
 		dummyRoot.setChildren(Collections.singletonList(t)); // don't set t's parent.
 
+		if ( elements.length > MAX_COMPILED_ELEMENTS ) {
+			return evaluateByElement(dummyRoot);
+		}
+
+		List<ParseTree> result = new ArrayList<ParseTree>();
+		walk(dummyRoot, 1L, 0L, result);
+		return result;
+	}
+
+	/**
+	 * Like {@link #evaluate(ParseTree)} but use {@code index}, built for
+	 * {@code t}, to start directly at the matches of a leading
+	 * {@code //rule} or {@code //TOKEN} element.
+	 */
+	public Collection<ParseTree> evaluate(final ParseTree t, ParseTreeIndex index) {
+		if ( index.getRoot()!=t ) {
+			throw new IllegalArgumentException("index was not built for this tree");
+		}
+		if ( elements.length==0 || elements.length > MAX_COMPILED_ELEMENTS ) {
+			return evaluate(t);
+		}
+
+		IntegerList starts;
+		XPathElement first = elements[0];
+		if ( first instanceof XPathRuleAnywhereElement ) {
+			starts = index.getRulePositions(((XPathRuleAnywhereElement)first).ruleIndex);
+		}
+		else if ( first instanceof XPathTokenAnywhereElement ) {
+			starts = index.getTokenPositions(((XPathTokenAnywhereElement)first).tokenType);
+		}
+		else {
+			return evaluate(t);
+		}
+
+		List<ParseTree> result = new ArrayList<ParseTree>();
+		if ( starts==null ) return result;
+		if ( elements.length==1 ) return index.getNodes(starts);
+
+		// Every match lies below a node matching the first element; walk
+		// the outermost such subtrees. Nested ones are covered by those
+		// walks, where the first element is still active.
+		int skipTo = 0;
+		for (int i = 0; i < starts.size(); i++) {
+			int position = starts.get(i);
+			if ( position < skipTo ) continue;
+			walk(index.get(position), 1L << 1, 1L, result);
+			skipTo = index.getSubtreeEnd(position);
+		}
+		return result;
+	}
+
+	/**
+	 * Visit {@code t} and, if anything can still match, its subtree.
+	 *
+	 * @param states bit {@code k} is set if {@code t} is selected by
+	 *               the first {@code k} elements of the path
+	 * @param inherited bits of the {@code //} elements that are active for
+	 *                  {@code t} because of one of its ancestors
+	 */
+	protected void walk(ParseTree t, long states, long inherited, List<ParseTree> result) {
+		int n = t.getChildCount();
+		if ( n>0 ) {
+			// A // element applied to t also selects t itself
+			for (int k = 0; k < elements.length; k++) {
+				if ( (states & (1L << k))!=0 && elements[k].isAnywhere() && elements[k].matches(t) ) {
+					states |= 1L << (k+1);
+				}
+			}
+		}
+		if ( (states & (1L << elements.length))!=0 ) {
+			result.add(t);
+		}
+		if ( n==0 ) return;
+
+		long below = (1L << elements.length) - 1;
+		long anywhere = inherited | (states & anywhereElements);
+		long active = anywhere | (states & below);
+		if ( active==0 ) return; // nothing in this subtree can match
+
+		for (int i = 0; i < n; i++) {
+			ParseTree c = t.getChild(i);
+			long childStates = 0;
+			for (long m = active; m!=0; m &= m - 1) {
+				int k = Long.numberOfTrailingZeros(m);
+				if ( elements[k].matches(c) ) childStates |= 1L << (k+1);
+			}
+			walk(c, childStates, anywhere, result);
+		}
+	}
+
+	/**
+	 * Evaluate the path one element at a time, collecting the set of nodes
+	 * selected so far. Used for paths too long for {@link #walk}.
+	 */
+	protected Collection<ParseTree> evaluateByElement(ParserRuleContext dummyRoot) {
 		Collection<ParseTree> work = Collections.<ParseTree>singleton(dummyRoot);
 
 		int i = 0;
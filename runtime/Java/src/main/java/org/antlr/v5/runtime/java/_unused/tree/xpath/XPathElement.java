@@ -27,6 +27,21 @@ public abstract class XPathElement {
 	 */
 	public abstract Collection<ParseTree> evaluate(ParseTree t);
 
+	/**
+	 * Return {@code true} if node {@code t} passes this element's test,
+	 * i.e. if {@link #evaluate} would include {@code t} when applied to its
+	 * parent (or, for {@code //} elements, to any of its ancestors).
+	 */
+	public abstract boolean matches(ParseTree t);
+
+	/**
+	 * Return {@code true} for {@code //} elements, which select matching
+	 * nodes anywhere below the current node rather than just its children.
+	 */
+	public boolean isAnywhere() {
+		return false;
+	}
+
 	@Override
 	public String toString() {
 		String inv = invert ? "!" : "";
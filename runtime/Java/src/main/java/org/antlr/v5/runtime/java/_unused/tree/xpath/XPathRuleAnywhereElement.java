@@ -6,6 +6,7 @@
 
 package org.antlr.v5.runtime.java._unused.tree.xpath;
 
+import org.antlr.v5.runtime.core.context.ParserRuleContext;
 import org.antlr.v5.runtime.core.tree.ParseTree;
 import org.antlr.v5.runtime.core.tree.Trees;
 
@@ -25,4 +26,14 @@ public class XPathRuleAnywhereElement extends XPathElement {
 	public Collection<ParseTree> evaluate(ParseTree t) {
 		return Trees.INSTANCE.findAllRuleNodes(t, ruleIndex);
 	}
+
+	@Override
+	public boolean matches(ParseTree t) {
+		return t instanceof ParserRuleContext && ((ParserRuleContext)t).getRuleIndex() == ruleIndex;
+	}
+
+	@Override
+	public boolean isAnywhere() {
+		return true;
+	}
 }
@@ -38,4 +38,10 @@ public class XPathRuleElement extends XPathElement {
 		}
 		return nodes;
 	}
+
+	@Override
+	public boolean matches(ParseTree t) {
+		return t instanceof ParserRuleContext &&
+			   (((ParserRuleContext)t).getRuleIndex() == ruleIndex) != invert;
+	}
 }
@@ -7,6 +7,7 @@
 package org.antlr.v5.runtime.java._unused.tree.xpath;
 
 import org.antlr.v5.runtime.core.tree.ParseTree;
+import org.antlr.v5.runtime.core.tree.TerminalNode;
 import org.antlr.v5.runtime.core.tree.Trees;
 
 import java.util.Collection;
@@ -22,4 +23,14 @@ public class XPathTokenAnywhereElement extends XPathElement {
 	public Collection<ParseTree> evaluate(ParseTree t) {
 		return Trees.INSTANCE.findAllTokenNodes(t, tokenType);
 	}
+
+	@Override
+	public boolean matches(ParseTree t) {
+		return t instanceof TerminalNode && ((TerminalNode)t).getSymbol().getType() == tokenType;
+	}
+
+	@Override
+	public boolean isAnywhere() {
+		return true;
+	}
 }
@@ -38,4 +38,10 @@ public class XPathTokenElement extends XPathElement {
 		}
 		return nodes;
 	}
+
+	@Override
+	public boolean matches(ParseTree t) {
+		return t instanceof TerminalNode &&
+			   (((TerminalNode)t).getSymbol().getType() == tokenType) != invert;
+	}
 }
@@ -22,4 +22,14 @@ public class XPathWildcardAnywhereElement extends XPathElement {
 		if ( invert ) return new ArrayList<ParseTree>(); // !* is weird but valid (empty)
 		return Trees.INSTANCE.getDescendants(t);
 	}
+
+	@Override
+	public boolean matches(ParseTree t) {
+		return !invert;
+	}
+
+	@Override
+	public boolean isAnywhere() {
+		return true;
+	}
 }
@@ -28,4 +28,9 @@ public class XPathWildcardElement extends XPathElement {
 		}
 		return kids;
 	}
+
+	@Override
+	public boolean matches(ParseTree t) {
+		return !invert;
+	}
 }
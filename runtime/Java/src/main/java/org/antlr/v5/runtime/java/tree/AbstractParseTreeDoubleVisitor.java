@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.runtime.java.tree;
+
+import org.antlr.v5.runtime.core.tree.*;
+
+/**
+ * Like {@link AbstractParseTreeVisitor}, but returning {@code double} so that
+ * evaluating large trees does not box every intermediate result. Generated
+ * base visitors provide a subclass with a visit method per rule or labeled
+ * alternative.
+ */
+public abstract class AbstractParseTreeDoubleVisitor {
+	/** Visit a parse tree, and return a user-defined result of the operation. */
+	public double visit(ParseTree tree) {
+		return dispatch(tree);
+	}
+
+	/**
+	 * Call the visitor method for {@code tree}. Generated subclasses switch on
+	 * the rule index of the tree; this implementation handles terminal and
+	 * error nodes, and visits the children of any other node.
+	 */
+	protected double dispatch(ParseTree tree) {
+		if ( tree instanceof ErrorNode ) {
+			return visitErrorNode((ErrorNode)tree);
+		}
+		if ( tree instanceof TerminalNode ) {
+			return visitTerminal((TerminalNode)tree);
+		}
+		return visitChildren((RuleNode)tree);
+	}
+
+	/**
+	 * Visit the children of a node, combining their results with
+	 * {@link #aggregateResult}, as in {@link AbstractParseTreeVisitor#visitChildren}.
+	 */
+	public double visitChildren(RuleNode node) {
+		double result = defaultResult();
+		int n = node.getChildCount();
+		for (int i=0; i<n; i++) {
+			if (!shouldVisitNextChild(node, result)) {
+				break;
+			}
+
+			result = aggregateResult(result, dispatch(node.getChild(i)));
+		}
+
+		return result;
+	}
+
+	public double visitTerminal(TerminalNode node) {
+		return defaultResult();
+	}
+
+	public double visitErrorNode(ErrorNode node) {
+		return defaultResult();
+	}
+
+	/** The base implementation returns {@code 0.0}. */
+	protected double defaultResult() {
+		return 0.0;
+	}
+
+	/** The base implementation returns {@code nextResult}. */
+	protected double aggregateResult(double aggregate, double nextResult) {
+		return nextResult;
+	}
+
+	/** The base implementation always returns {@code true}. */
+	protected boolean shouldVisitNextChild(RuleNode node, double currentResult) {
+		return true;
+	}
+}
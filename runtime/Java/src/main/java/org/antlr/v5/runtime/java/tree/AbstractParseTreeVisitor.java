@@ -12,11 +12,23 @@ public abstract class AbstractParseTreeVisitor<T> implements ParseTreeVisitor<T>
 	/**
 	 * {@inheritDoc}
 	 *
-	 * <p>The default implementation calls {@link ParseTree#accept} on the
+	 * <p>The default implementation calls {@link #dispatch} on the
 	 * specified tree.</p>
 	 */
 	@Override
 	public T visit(ParseTree tree) {
+		return dispatch(tree);
+	}
+
+	/**
+	 * Call the visitor method for {@code tree}. This is used by both
+	 * {@link #visit} and {@link #visitChildren}.
+	 *
+	 * <p>The default implementation calls {@link ParseTree#accept} on the
+	 * specified tree. Generated base visitors override it to switch on the
+	 * rule index of the tree instead.</p>
+	 */
+	protected T dispatch(ParseTree tree) {
 		return tree.accept(this);
 	}
 
@@ -45,7 +57,7 @@ public abstract class AbstractParseTreeVisitor<T> implements ParseTreeVisitor<T>
 			}
 
 			ParseTree c = node.getChild(i);
-			T childResult = c.accept(this);
+			T childResult = dispatch(c);
 			result = aggregateResult(result, childResult);
 		}
 
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.runtime.java.tree;
+
+import org.antlr.v5.runtime.core.tree.ParseTreeListener;
+
+/**
+ * Implemented by generated {@code BaseListener} classes so that a
+ * {@link ParseTreeDispatcher} can tell which rules a listener subclass
+ * actually handles and skip the others without calling into it.
+ */
+public interface ListenerDispatchTable extends ParseTreeListener {
+	/**
+	 * For each rule index, the names of the listener methods for that rule
+	 * without their {@code enter}/{@code exit} prefix: the rule name, or the
+	 * names of its labeled alternatives.
+	 */
+	String[][] getRuleListenerMethods();
+
+	/**
+	 * The generated class whose listener methods do nothing; a method counts
+	 * as handled if it is overridden below this class.
+	 */
+	Class<?> getBaseListenerClass();
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.runtime.java.tree;
+
+import org.antlr.v5.runtime.core.context.ParserRuleContext;
+import org.antlr.v5.runtime.core.tree.*;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Walks a parse tree once, delivering the events of every node to several
+ * listeners. For each node, listeners are called in the order they were
+ * given, both on enter and on exit.
+ *
+ * <p>Like {@link IterativeParseTreeWalker}, the walk does not use the thread
+ * stack. Its stacks are kept between walks, so walking does not allocate
+ * once they have grown to the depth of the tree; a dispatcher must therefore
+ * not be used by several threads at once.</p>
+ *
+ * <p>Listeners extending a generated {@code BaseListener} implement
+ * {@link ListenerDispatchTable}. For those, the dispatcher looks up once per
+ * listener class which rule methods, {@code enterEveryRule},
+ * {@code exitEveryRule}, {@code visitTerminal} and {@code visitErrorNode} are
+ * overridden, and only calls the listener for those events. Other listeners
+ * receive every event, as with {@link ParseTreeWalker}.</p>
+ *
+ * <pre>
+ * ParseTreeDispatcher dispatcher = new ParseTreeDispatcher(symbols, unusedVars, metrics);
+ * dispatcher.walk(tree);
+ * </pre>
+ */
+public class ParseTreeDispatcher {
+	/** Which events a listener class handles */
+	protected static class Handlers {
+		static final Handlers ALL = new Handlers(true, true, true, true, null, null);
+
+		final boolean enterEveryRule;
+		final boolean exitEveryRule;
+		final boolean visitTerminal;
+		final boolean visitErrorNode;
+
+		/** Rule index &rarr; does the listener override an {@code enter} method for it; {@code null} for all */
+		final boolean[] enterRule;
+		/** Rule index &rarr; does the listener override an {@code exit} method for it; {@code null} for all */
+		final boolean[] exitRule;
+
+		Handlers(boolean enterEveryRule, boolean exitEveryRule, boolean visitTerminal, boolean visitErrorNode,
+				 boolean[] enterRule, boolean[] exitRule)
+		{
+			this.enterEveryRule = enterEveryRule;
+			this.exitEveryRule = exitEveryRule;
+			this.visitTerminal = visitTerminal;
+			this.visitErrorNode = visitErrorNode;
+			this.enterRule = enterRule;
+			this.exitRule = exitRule;
+		}
+
+		boolean handlesEnter(int ruleIndex) {
+			return enterRule==null || ruleIndex<0 || ruleIndex>=enterRule.length || enterRule[ruleIndex];
+		}
+
+		boolean handlesExit(int ruleIndex) {
+			return exitRule==null || ruleIndex<0 || ruleIndex>=exitRule.length || exitRule[ruleIndex];
+		}
+	}
+
+	/** Bits of the entries in {@link #enterDispatch} and {@link #exitDispatch}, below the listener index */
+	protected static final int EVERY_RULE = 1;
+	protected static final int RULE = 2;
+	protected static final int SHIFT = 2;
+
+	private static final Map<Class<?>, Handlers> handlersCache =
+		Collections.synchronizedMap(new WeakHashMap<Class<?>, Handlers>());
+
+	private static final int[] NONE = new int[0];
+
+	protected final ParseTreeListener[] listeners;
+
+	protected final Handlers[] handlers;
+
+	/** Indexes of the listeners handling {@code visitTerminal} */
+	protected final int[] terminalListeners;
+
+	/** Indexes of the listeners handling {@code visitErrorNode} */
+	protected final int[] errorNodeListeners;
+
+	/**
+	 * Rule index + 1 &rarr; listener index &lt;&lt; {@link #SHIFT} | {@link #EVERY_RULE} |
+	 * {@link #RULE} for the listeners to call on entering a node of that rule;
+	 * built as rule indexes are encountered. Slot 0 is used for contexts
+	 * without a rule index.
+	 */
+	protected int[][] enterDispatch = new int[0][];
+	protected int[][] exitDispatch = new int[0][];
+
+	private ParseTree[] nodeStack = new ParseTree[16];
+	private int[] indexStack = new int[16];
+
+	public ParseTreeDispatcher(ParseTreeListener... listeners) {
+		this.listeners = listeners.clone();
+		this.handlers = new Handlers[listeners.length];
+		int terminals = 0;
+		int errorNodes = 0;
+		for (int i = 0; i < listeners.length; i++) {
+			handlers[i] = handlersFor(listeners[i]);
+			if ( handlers[i].visitTerminal ) terminals++;
+			if ( handlers[i].visitErrorNode ) errorNodes++;
+		}
+
+		terminalListeners = new int[terminals];
+		errorNodeListeners = new int[errorNodes];
+		terminals = 0;
+		errorNodes = 0;
+		for (int i = 0; i < listeners.length; i++) {
+			if ( handlers[i].visitTerminal ) terminalListeners[terminals++] = i;
+			if ( handlers[i].visitErrorNode ) errorNodeListeners[errorNodes++] = i;
+		}
+	}
+
+	public ParseTreeDispatcher(List<? extends ParseTreeListener> listeners) {
+		this(listeners.toArray(new ParseTreeListener[0]));
+	}
+
+	public List<ParseTreeListener> getListeners() {
+		return Collections.unmodifiableList(Arrays.asList(listeners));
+	}
+
+	/**
+	 * Walk {@code t} in depth-first order, calling the listeners on entering
+	 * and exiting each rule node and on visiting each terminal or error node.
+	 */
+	public void walk(ParseTree t) {
+		int depth = 0;
+		ParseTree node = t;
+		try {
+			while ( true ) {
+				// pre-order visit
+				if ( node instanceof ErrorNode ) {
+					visitErrorNode((ErrorNode)node);
+				}
+				else if ( node instanceof TerminalNode ) {
+					visitTerminal((TerminalNode)node);
+				}
+				else {
+					enterRule((ParserRuleContext)((RuleNode)node).getRuleContext());
+				}
+
+				// Move down to first child, if exists
+				if ( node.getChildCount()>0 ) {
+					if ( depth==nodeStack.length ) {
+						nodeStack = Arrays.copyOf(nodeStack, depth*2);
+						indexStack = Arrays.copyOf(indexStack, depth*2);
+					}
+					nodeStack[depth] = node;
+					indexStack[depth] = 0;
+					depth++;
+					node = node.getChild(0);
+					continue;
+				}
+
+				// No child nodes: exit and move to the next sibling of the
+				// closest ancestor that has one
+				while ( true ) {
+					// post-order visit
+					if ( node instanceof RuleNode ) {
+						exitRule((ParserRuleContext)((RuleNode)node).getRuleContext());
+					}
+					if ( depth==0 ) return;
+
+					ParseTree parent = nodeStack[depth-1];
+					int next = ++indexStack[depth-1];
+					if ( next<parent.getChildCount() ) {
+						node = parent.getChild(next);
+						break;
+					}
+					nodeStack[--depth] = null;
+					node = parent;
+				}
+			}
+		}
+		finally {
+			// don't keep the tree alive through the stack
+			Arrays.fill(nodeStack, 0, depth, null);
+		}
+	}
+
+	protected void visitTerminal(TerminalNode node) {
+		int[] indexes = terminalListeners;
+		for (int i = 0; i < indexes.length; i++) {
+			listeners[indexes[i]].visitTerminal(node);
+		}
+	}
+
+	protected void visitErrorNode(ErrorNode node) {
+		int[] indexes = errorNodeListeners;
+		for (int i = 0; i < indexes.length; i++) {
+			listeners[indexes[i]].visitErrorNode(node);
+		}
+	}
+
+	protected void enterRule(ParserRuleContext ctx) {
+		int[] dispatch = dispatchFor(ctx.getRuleIndex(), true);
+		for (int i = 0; i < dispatch.length; i++) {
+			int d = dispatch[i];
+			ParseTreeListener listener = listeners[d >>> SHIFT];
+			if ( (d & EVERY_RULE)!=0 ) listener.enterEveryRule(ctx);
+			if ( (d & RULE)!=0 ) ctx.enterRule(listener);
+		}
+	}
+
+	protected void exitRule(ParserRuleContext ctx) {
+		int[] dispatch = dispatchFor(ctx.getRuleIndex(), false);
+		for (int i = 0; i < dispatch.length; i++) {
+			int d = dispatch[i];
+			ParseTreeListener listener = listeners[d >>> SHIFT];
+			if ( (d & RULE)!=0 ) ctx.exitRule(listener);
+			if ( (d & EVERY_RULE)!=0 ) listener.exitEveryRule(ctx);
+		}
+	}
+
+	protected int[] dispatchFor(int ruleIndex, boolean enter) {
+		int slot = Math.max(ruleIndex, -1) + 1;
+		int[][] table = enter ? enterDispatch : exitDispatch;
+		if ( slot<table.length && table[slot]!=null ) {
+			return table[slot];
+		}
+
+		int[] dispatch = buildDispatch(ruleIndex, enter);
+		if ( slot>=table.length ) {
+			table = Arrays.copyOf(table, Math.max(slot+1, table.length*2));
+			if ( enter ) enterDispatch = table;
+			else exitDispatch = table;
+		}
+		table[slot] = dispatch;
+		return dispatch;
+	}
+
+	protected int[] buildDispatch(int ruleIndex, boolean enter) {
+		int[] dispatch = new int[listeners.length];
+		int n = 0;
+		for (int i = 0; i < listeners.length; i++) {
+			Handlers h = handlers[i];
+			int d = 0;
+			if ( enter ? h.enterEveryRule : h.exitEveryRule ) d |= EVERY_RULE;
+			if ( enter ? h.handlesEnter(ruleIndex) : h.handlesExit(ruleIndex) ) d |= RULE;
+			if ( d!=0 ) dispatch[n++] = i << SHIFT | d;
+		}
+		return n==0 ? NONE : Arrays.copyOf(dispatch, n);
+	}
+
+	protected static Handlers handlersFor(ParseTreeListener listener) {
+		if ( !(listener instanceof ListenerDispatchTable) ) {
+			return Handlers.ALL;
+		}
+
+		Class<?> c = listener.getClass();
+		Handlers h = handlersCache.get(c);
+		if ( h==null ) {
+			h = computeHandlers((ListenerDispatchTable)listener);
+			handlersCache.put(c, h);
+		}
+		return h;
+	}
+
+	/** Find the listener methods that are overridden below the generated base listener. */
+	protected static Handlers computeHandlers(ListenerDispatchTable listener) {
+		Class<?> base = listener.getBaseListenerClass();
+		Map<String, Boolean> overridden = new HashMap<String, Boolean>();
+		for (Method m : listener.getClass().getMethods()) {
+			boolean o = m.getDeclaringClass()!=base && !m.isBridge();
+			Boolean previous = overridden.get(m.getName());
+			overridden.put(m.getName(), o || (previous!=null && previous));
+		}
+
+		String[][] ruleMethods = listener.getRuleListenerMethods();
+		boolean[] enterRule = new boolean[ruleMethods.length];
+		boolean[] exitRule = new boolean[ruleMethods.length];
+		for (int r = 0; r < ruleMethods.length; r++) {
+			for (String name : ruleMethods[r]) {
+				enterRule[r] |= isOverridden(overridden, "enter"+name);
+				exitRule[r] |= isOverridden(overridden, "exit"+name);
+			}
+		}
+
+		return new Handlers(isOverridden(overridden, "enterEveryRule"),
+							isOverridden(overridden, "exitEveryRule"),
+							isOverridden(overridden, "visitTerminal"),
+							isOverridden(overridden, "visitErrorNode"),
+							enterRule, exitRule);
+	}
+
+	private static boolean isOverridden(Map<String, Boolean> overridden, String method) {
+		Boolean o = overridden.get(method);
+		// a method missing from the class can't be called anyway, but be conservative
+		return o==null || o;
+	}
+}
@@ -8,6 +8,7 @@ package org.antlr.v5.runtime.kotlin
 import org.antlr.v5.runtime.core.Parser
 import org.antlr.v5.runtime.core.Recognizer
 import org.antlr.v5.runtime.core.atn.ATNConfigSet
+import org.antlr.v5.runtime.core.atn.PredictionLimits
 import org.antlr.v5.runtime.core.dfa.DFA
 import org.antlr.v5.runtime.core.error.ANTLRErrorListener
 import org.antlr.v5.runtime.core.error.RecognitionException
@@ -66,4 +67,16 @@ public open class BaseErrorListener : ANTLRErrorListener {
   ) {
     // Noop
   }
+
+  override fun reportPredictionLimitExceeded(
+    recognizer: Parser,
+    dfa: DFA,
+    startIndex: Int,
+    stopIndex: Int,
+    limit: PredictionLimits.Limit,
+    prediction: Int,
+    configs: ATNConfigSet?,
+  ) {
+    // Noop
+  }
 }
@@ -8,6 +8,7 @@ package org.antlr.v5.runtime.kotlin
 
 import org.antlr.v5.runtime.core.Parser
 import org.antlr.v5.runtime.core.atn.ATNConfigSet
+import org.antlr.v5.runtime.core.atn.PredictionLimits
 import org.antlr.v5.runtime.core.dfa.DFA
 import org.antlr.v5.runtime.core.jvm.BitSet
 import org.antlr.v5.runtime.core.misc.Interval
@@ -85,6 +86,21 @@ public open class DiagnosticErrorListener(protected val exactOnly: Boolean = tru
     recognizer.notifyErrorListeners(message)
   }
 
+  override fun reportPredictionLimitExceeded(
+    recognizer: Parser,
+    dfa: DFA,
+    startIndex: Int,
+    stopIndex: Int,
+    limit: PredictionLimits.Limit,
+    prediction: Int,
+    configs: ATNConfigSet?,
+  ) {
+    val decision = getDecisionDescription(recognizer, dfa)
+    val text = recognizer.tokenStream.getText(Interval.of(startIndex, stopIndex))
+    val message = "reportPredictionLimitExceeded d=$decision, limit=$limit, prediction=$prediction, input='$text'"
+    recognizer.notifyErrorListeners(message)
+  }
+
   protected open fun getDecisionDescription(recognizer: Parser, dfa: DFA): String {
     val decision = dfa.decision
     val ruleIndex = dfa.atnStartState.ruleIndex
@@ -8,6 +8,7 @@ package org.antlr.v5.runtime.kotlin
 import org.antlr.v5.runtime.core.Token
 import org.antlr.v5.runtime.core.TokenStream
 import org.antlr.v5.runtime.core.misc.Interval
+import java.util.TreeMap
 import kotlin.math.max
 import kotlin.math.min
 import kotlin.reflect.KClass
@@ -80,6 +81,9 @@ import kotlin.reflect.KClass
  *
  * If you don't use named rewrite streams, a "default" stream is used as the
  * first example shows.
+ *
+ * To render a large rewrite without building the whole result in memory,
+ * use [writeText] with a [java.io.Writer] or any other [Appendable].
  */
 @Suppress("MemberVisibilityCanBePrivate")
 public open class TokenStreamRewriter(public val tokenStream: TokenStream) {
@@ -116,7 +120,7 @@ public open class TokenStreamRewriter(public val tokenStream: TokenStream) {
      *
      * Return the index of the next token to operate on.
      */
-    public open fun execute(buf: StringBuilder): Int =
+    public open fun execute(buf: Appendable): Int =
       index
 
     override fun toString(): String {
@@ -126,8 +130,8 @@ public open class TokenStreamRewriter(public val tokenStream: TokenStream) {
   }
 
   internal open inner class InsertBeforeOp(index: Int, text: Any) : RewriteOperation(index, text) {
-    override fun execute(buf: StringBuilder): Int {
-      buf.append(text)
+    override fun execute(buf: Appendable): Int {
+      buf.append(text.toString())
 
       if (tokenStream[index].type != Token.EOF) {
         buf.append(tokenStream[index].text)
@@ -147,10 +151,14 @@ public open class TokenStreamRewriter(public val tokenStream: TokenStream) {
   /**
    * I'm going to try replacing range from `x..y` with `(y-x)+1` ReplaceOp instructions.
    */
-  internal inner class ReplaceOp(from: Int, var lastIndex: Int, text: Any) : RewriteOperation(from, text) {
-    override fun execute(buf: StringBuilder): Int {
+  internal inner class ReplaceOp(from: Int, var lastIndex: Int, text: Any?) : RewriteOperation(from) {
+    init {
+      this.text = text
+    }
+
+    override fun execute(buf: Appendable): Int {
       if (text != null) {
-        buf.append(text)
+        buf.append(text.toString())
       }
 
       return lastIndex + 1
@@ -262,7 +270,7 @@ public open class TokenStreamRewriter(public val tokenStream: TokenStream) {
       throw IllegalArgumentException("replace: range invalid: $from..$to(size=${tokenStream.size()})")
     }
 
-    val op = ReplaceOp(from, to, text!!)
+    val op = ReplaceOp(from, to, text)
     val rewrites = getProgram(programName)
     op.instructionIndex = rewrites.size
     rewrites.add(op)
@@ -326,6 +334,20 @@ public open class TokenStreamRewriter(public val tokenStream: TokenStream) {
     getText(DEFAULT_PROGRAM_NAME, interval)
 
   public fun getText(programName: String, interval: Interval = Interval.of(0, tokenStream.size() - 1)): String {
+    val buf = StringBuilder()
+    writeText(buf, programName, interval)
+    return buf.toString()
+  }
+
+  /**
+   * Like [getText], but append the text to [out] as it is produced
+   * instead of building a string.
+   */
+  public fun writeText(
+    out: Appendable,
+    programName: String = DEFAULT_PROGRAM_NAME,
+    interval: Interval = Interval.of(0, tokenStream.size() - 1),
+  ) {
     val rewrites = programs[programName]
     var start = interval.a
     var stop = interval.b
@@ -341,11 +363,10 @@ public open class TokenStreamRewriter(public val tokenStream: TokenStream) {
 
     if (rewrites.isNullOrEmpty()) {
       // No instructions to execute
-      return tokenStream.getText(interval)
+      out.append(tokenStream.getText(interval))
+      return
     }
 
-    val buf = StringBuilder()
-
     // First, optimize instruction stream
     val indexToOp = reduceToSingleOperationPerIndex(rewrites)
 
@@ -353,24 +374,22 @@ public open class TokenStreamRewriter(public val tokenStream: TokenStream) {
     var i = start
 
     while (i <= stop && i < tokenStream.size()) {
-      val op = indexToOp[i]
-
       // Remove so any left have index size-1
-      indexToOp.remove(i)
-
-      val t = tokenStream[i]
+      val op = indexToOp.remove(i)
 
       if (op == null) {
         // No operation at that index, just dump token
+        val t = tokenStream[i]
+
         if (t.type != Token.EOF) {
-          buf.append(t.text)
+          out.append(t.text)
         }
 
         // Move to next token
         i++
       } else {
         // Execute operation and skip
-        i = op.execute(buf)
+        i = op.execute(out)
       }
     }
 
@@ -380,14 +399,14 @@ public open class TokenStreamRewriter(public val tokenStream: TokenStream) {
     if (stop == tokenStream.size() - 1) {
       // Scan any remaining operations after last token
       // should be included (they will be inserts).
-      for (op in indexToOp.values) {
-        if (op.index >= tokenStream.size() - 1) {
-          buf.append(op.text)
-        }
+      val remaining = indexToOp.values
+        .filter { it.index >= tokenStream.size() - 1 }
+        .sortedBy { it.index }
+
+      for (op in remaining) {
+        out.append(op.text.toString())
       }
     }
-
-    return buf.toString()
   }
 
   /**
@@ -442,39 +461,68 @@ public open class TokenStreamRewriter(public val tokenStream: TokenStream) {
    * Return a map from token index to operation.
    */
   protected fun reduceToSingleOperationPerIndex(rewrites: MutableList<RewriteOperation?>): MutableMap<Int, RewriteOperation> {
+    // Rather than comparing each op with every op before it, index the
+    // live prior ops by token index. Live replaces never overlap one
+    // another, so the only ones a new op can interact with are found
+    // with a range query. The result is the same as checking the
+    // prior ops in instruction order.
+
+    // Live inserts seen so far, by token index, in instruction order
+    val insertsByIndex = TreeMap<Int, MutableList<InsertBeforeOp>>()
+
+    // Live replaces seen so far, by start index
+    val replacesByIndex = TreeMap<Int, ReplaceOp>()
+
     // WALK REPLACES
     for (i in rewrites.indices) {
       val op = rewrites[i]
 
+      if (op is InsertBeforeOp) {
+        insertsByIndex.getOrPut(op.index) { ArrayList(1) }.add(op)
+        continue
+      }
+
       if (op !is ReplaceOp) {
         continue
       }
 
-      // TODO(Edoardo): why are we picking again from the list? Just use 'op'
-      val rop = rewrites[i] as ReplaceOp
+      val rop = op
 
       // Wipe prior inserts within range
-      val inserts = getKindOfOps<InsertBeforeOp>(rewrites, InsertBeforeOp::class, i)
-
-      for (iop in inserts) {
-        if (iop.index == rop.index) {
-          // E.g., insert before 2, delete 2..2; update replace
-          // text to include insert before, kill insert
-          rewrites[iop.instructionIndex] = null
-          rop.text = iop.text!!.toString() + if (rop.text != null) rop.text!!.toString() else ""
-        } else if (iop.index > rop.index && iop.index <= rop.lastIndex) {
-          // Delete insert as it's a no-op
-          rewrites[iop.instructionIndex] = null
+      val insertsInRange = insertsByIndex.subMap(rop.index, true, rop.lastIndex, true)
+
+      for (inserts in insertsInRange.values) {
+        for (iop in inserts) {
+          if (iop.index == rop.index) {
+            // E.g., insert before 2, delete 2..2; update replace
+            // text to include insert before, kill insert
+            rewrites[iop.instructionIndex] = null
+            rop.text = iop.text!!.toString() + if (rop.text != null) rop.text!!.toString() else ""
+          } else {
+            // Delete insert as it's a no-op
+            rewrites[iop.instructionIndex] = null
+          }
         }
       }
 
+      insertsInRange.clear()
+
       // Drop any prior replaces contained within
-      val prevReplaces = getKindOfOps<ReplaceOp>(rewrites, ReplaceOp::class, i)
+      val prevReplaces = ArrayList<ReplaceOp>()
+      val left = replacesByIndex.lowerEntry(rop.index)
+
+      if (left != null && left.value.lastIndex >= rop.index) {
+        prevReplaces.add(left.value)
+      }
+
+      prevReplaces.addAll(replacesByIndex.subMap(rop.index, true, rop.lastIndex, true).values)
+      prevReplaces.sortBy { it.instructionIndex }
 
       for (prevRop in prevReplaces) {
         if (prevRop.index >= rop.index && prevRop.lastIndex <= rop.lastIndex) {
           // Delete replace as it's a no-op
           rewrites[prevRop.instructionIndex] = null
+          replacesByIndex.remove(prevRop.index)
           continue
         }
 
@@ -486,6 +534,7 @@ public open class TokenStreamRewriter(public val tokenStream: TokenStream) {
         if (prevRop.text == null && rop.text == null && !disjoint) {
           // Kill first delete
           rewrites[prevRop.instructionIndex] = null
+          replacesByIndex.remove(prevRop.index)
           rop.index = min(prevRop.index, rop.index)
           rop.lastIndex = max(prevRop.lastIndex, rop.lastIndex)
           System.out.println("new rop $rop")
@@ -493,44 +542,43 @@ public open class TokenStreamRewriter(public val tokenStream: TokenStream) {
           throw IllegalArgumentException("replace op boundaries of $rop overlap with previous $prevRop")
         }
       }
+
+      replacesByIndex[rop.index] = rop
     }
 
     // WALK INSERTS
+    // The live insert at each index; prior inserts at the same index
+    // are folded into the next one, so there is at most one
+    val insertAt = HashMap<Int, InsertBeforeOp>()
+
     for (i in rewrites.indices) {
-      val op = rewrites[i]
+      val iop = rewrites[i]
 
-      if (op !is InsertBeforeOp) {
+      if (iop !is InsertBeforeOp) {
         continue
       }
 
-      // TODO(Edoardo): why are we picking again from the list? Just use 'op'
-      val iop = rewrites[i] as InsertBeforeOp
-
       // Combine current insert with prior if any at same index
-      val prevInserts = getKindOfOps<InsertBeforeOp>(rewrites, InsertBeforeOp::class, i)
-
-      for (prevIop in prevInserts) {
-        if (prevIop.index == iop.index) {
-          @Suppress("USELESS_IS_CHECK")
-          if (prevIop is InsertAfterOp) {
-            iop.text = catOpText(prevIop.text, iop.text)
-            rewrites[prevIop.instructionIndex] = null
-          } else if (prevIop is InsertBeforeOp) {
-            // Combine objects.
-            // Convert to strings... We're in process of toString'ing
-            // whole token buffer so no lazy eval issue with any templates
-            iop.text = catOpText(iop.text, prevIop.text)
-
-            // Delete redundant prior insert
-            rewrites[prevIop.instructionIndex] = null
-          }
+      val prevIop = insertAt.remove(iop.index)
+
+      if (prevIop != null) {
+        if (prevIop is InsertAfterOp) {
+          iop.text = catOpText(prevIop.text, iop.text)
+        } else {
+          // Combine objects.
+          // Convert to strings... We're in process of toString'ing
+          // whole token buffer so no lazy eval issue with any templates
+          iop.text = catOpText(iop.text, prevIop.text)
         }
+
+        // Delete redundant prior insert
+        rewrites[prevIop.instructionIndex] = null
       }
 
       // Look for replaces where iop.index is in range; error
-      val prevReplaces = getKindOfOps<ReplaceOp>(rewrites, ReplaceOp::class, i)
+      val rop = replacesByIndex.floorEntry(iop.index)?.value
 
-      for (rop in prevReplaces) {
+      if (rop != null && rop.instructionIndex < i) {
         if (iop.index == rop.index) {
           rop.text = catOpText(iop.text, rop.text)
 
@@ -539,10 +587,12 @@ public open class TokenStreamRewriter(public val tokenStream: TokenStream) {
           continue
         }
 
-        if (iop.index >= rop.index && iop.index <= rop.lastIndex) {
+        if (iop.index <= rop.lastIndex) {
           throw IllegalArgumentException("insert op $iop within boundaries of previous $rop")
         }
       }
+
+      insertAt[iop.index] = iop
     }
 
     val m = HashMap<Int, RewriteOperation>()
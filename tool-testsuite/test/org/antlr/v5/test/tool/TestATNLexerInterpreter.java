@@ -535,8 +535,12 @@ public class TestATNLexerInterpreter {
 		assertEquals(expecting, result);
 	}
 
-	private static List<String> getTokenTypes(LexerGrammar lg, ATN atn, CharStream input) {
-		LexerATNSimulator interp = new LexerATNSimulator(atn, new DFA[]{new DFA(atn.getModeToStartState().get(Lexer.DEFAULT_MODE), 0)}, null);
+	protected LexerATNSimulator createLexerATNSimulator(ATN atn) {
+		return new LexerATNSimulator(atn, new DFA[]{new DFA(atn.getModeToStartState().get(Lexer.DEFAULT_MODE), 0)}, null);
+	}
+
+	private List<String> getTokenTypes(LexerGrammar lg, ATN atn, CharStream input) {
+		LexerATNSimulator interp = createLexerATNSimulator(atn);
 		List<String> tokenTypes = new ArrayList<>();
 		int ttype;
 		boolean hitEOF = false;
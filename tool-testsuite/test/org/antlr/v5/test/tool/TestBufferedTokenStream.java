@@ -147,4 +147,38 @@ public class TestBufferedTokenStream {
         assertEquals("=", t.getText());
     }
 
+    @Test public void testPrefetch() throws Exception {
+        LexerGrammar g = new LexerGrammar(
+            "lexer grammar t;\n"+
+            "ID : 'a'..'z'+;\n" +
+            "INT : '0'..'9'+;\n" +
+            "SEMI : ';';\n" +
+            "ASSIGN : '=';\n" +
+            "PLUS : '+';\n" +
+            "MULT : '*';\n" +
+            "WS : ' '+;\n");
+        // Tokens: 012345678901234567
+        // Input:  x = 3 * 0 + 2 * 0;
+        CharStream input = CharStreams.fromString("x = 3 * 0 + 2 * 0;");
+        LexerInterpreter lexEngine = g.createLexerInterpreter(input);
+        BufferedTokenStream tokens = (BufferedTokenStream)createTokenStream(lexEngine);
+        tokens.setPrefetchSize(8);
+
+        assertEquals("x", tokens.LT(1).getText());
+        assertEquals(8, tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            assertEquals(i, tokens.get(i).getTokenIndex());
+        }
+
+        Token t = tokens.LT(1);
+        while ( t.getType()!=Token.EOF ) {
+            tokens.consume();
+            t = tokens.LT(1);
+        }
+
+        assertEquals(19, tokens.size()); // 18 tokens and EOF
+        assertEquals(18, tokens.get(18).getTokenIndex());
+        assertEquals("x = 3 * 0 + 2 * 0;", tokens.getText());
+    }
+
 }
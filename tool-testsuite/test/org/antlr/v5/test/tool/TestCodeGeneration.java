@@ -29,8 +29,10 @@ import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TestCodeGeneration {
 	@Test public void testArgDecl() throws Exception { // should use template not string
@@ -64,6 +66,52 @@ public class TestCodeGeneration {
 		assertNotEquals(0, evals.size());
 	}
 
+	@Test public void testLargeRuleFunctionIsSplit() throws Exception {
+		ErrorQueue equeue = new ErrorQueue();
+		String code = generateParser(largeRuleGrammar("", false), equeue);
+		assertTrue(code.contains("private void _s_1(SContext _localctx) throws RecognitionException {"), code);
+		assertTrue(code.contains("_s_1(_localctx);"), code);
+		assertEquals(0, equeue.size(), equeue.toString());
+	}
+
+	@Test public void testLargeRuleFunctionWithLabeledAltsIsSplit() throws Exception {
+		ErrorQueue equeue = new ErrorQueue();
+		String code = generateParser(largeRuleGrammar("", true), equeue);
+		// The part takes the context of the alternative, which _localctx is declared as
+		assertTrue(code.contains("private void _s_1(A0Context _localctx) throws RecognitionException {"), code);
+		assertTrue(code.contains("_s_1((A0Context)_localctx);"), code);
+		assertEquals(0, equeue.size(), equeue.toString());
+	}
+
+	@Test public void testLargeRuleFunctionWithActionsIsReported() throws Exception {
+		ErrorQueue equeue = new ErrorQueue();
+		String code = generateParser(largeRuleGrammar("{int n = 0;}", false), equeue);
+		assertFalse(code.contains("_s_1("), code);
+		assertEquals(1, equeue.warnings.size(), equeue.toString());
+		assertEquals(org.antlr.v5.tool.ErrorType.RULE_FUNCTION_TOO_LARGE, equeue.warnings.get(0).getErrorType());
+	}
+
+	/** A rule of 40 alternatives of 14 tokens each, too large for one method */
+	private static String largeRuleGrammar(String action, boolean labeled) {
+		StringBuilder buf = new StringBuilder("grammar T;\ns : ").append(action);
+		for (int i = 0; i < 40; i++) {
+			if ( i>0 ) buf.append("\n  | ");
+			buf.append("'k").append(i).append("'");
+			for (int j = 0; j < 13; j++) buf.append(" ID");
+			if ( labeled ) buf.append(" # A").append(i);
+		}
+		buf.append("\n  ;\nID : [a-z]+ ;\n");
+		return buf.toString();
+	}
+
+	private static String generateParser(String grammarString, ErrorQueue equeue) throws RecognitionException {
+		Grammar g = new Grammar(grammarString, equeue);
+		SemanticPipeline sem = new SemanticPipeline(g);
+		sem.process();
+		g.atn = new ParserATNFactory(g).createATN();
+		return CodeGenerator.create(g).generateParser().render();
+	}
+
 	/** Add tags around each attribute/template/value write */
 	public static class DebugInterpreter extends Interpreter {
 		List<String> evals = new ArrayList<String>();
@@ -7,9 +7,15 @@
 package org.antlr.v5.test.tool;
 
 import org.antlr.v5.runtime.core.*;
+import org.antlr.v5.runtime.java.ListTokenSource;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class TestCommonTokenStream extends TestBufferedTokenStream {
@@ -275,4 +281,54 @@ public class TestCommonTokenStream extends TestBufferedTokenStream {
 		assertEquals(1, tokens.size());
 		assertThrows(IllegalStateException.class, tokens::consume);
 	}
+
+	@Test
+	public void testLookbackPastFirstToken() {
+		TokenSource source = new ListTokenSource(Arrays.asList(
+			new CommonToken(1, "a"),
+			new CommonToken(1, " ", Lexer.HIDDEN),
+			new CommonToken(1, "b"),
+			new CommonToken(Token.EOF, "")));
+
+		CommonTokenStream tokens = new CommonTokenStream(source);
+		tokens.consume();
+		tokens.consume();
+
+		assertEquals(Token.EOF, tokens.LA(1));
+		assertEquals("b", tokens.LT(-1).getText());
+		assertEquals("a", tokens.LT(-2).getText());
+		assertNull(tokens.LT(-3));
+	}
+
+	@Test
+	public void testChannelChangesInLongHiddenRun() {
+		List<Token> list = new ArrayList<Token>();
+		list.add(new CommonToken(1, "a"));
+		for (int i = 0; i < 40; i++) {
+			list.add(new CommonToken(1, " ", Lexer.HIDDEN));
+		}
+		list.add(new CommonToken(1, "b"));
+		list.add(new CommonToken(1, "c"));
+		list.add(new CommonToken(Token.EOF, ""));
+
+		CommonTokenStream tokens = new CommonTokenStream(new ListTokenSource(list));
+		tokens.fill();
+		assertEquals("a", tokens.LT(1).getText());
+		assertEquals("b", tokens.LT(2).getText());
+
+		// A token taken off the channel is skipped
+		((WritableToken)list.get(41)).setChannel(Lexer.HIDDEN);
+		assertEquals("c", tokens.LT(2).getText());
+
+		// A token put on the channel is seen
+		((WritableToken)list.get(20)).setText("x");
+		((WritableToken)list.get(20)).setChannel(Token.DEFAULT_CHANNEL);
+		assertEquals("x", tokens.LT(2).getText());
+		tokens.consume();
+		assertEquals("x", tokens.LT(1).getText());
+		assertEquals("a", tokens.LT(-1).getText());
+		tokens.consume();
+		assertEquals("c", tokens.LT(1).getText());
+		assertEquals("x", tokens.LT(-1).getText());
+	}
 }
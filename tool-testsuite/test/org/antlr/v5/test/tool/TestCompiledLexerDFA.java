@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.test.tool;
+
+import org.antlr.v5.runtime.core.Lexer;
+import org.antlr.v5.runtime.core.atn.ATN;
+import org.antlr.v5.runtime.core.atn.ATNDeserializer;
+import org.antlr.v5.runtime.core.atn.ATNSerializer;
+import org.antlr.v5.runtime.core.atn.CompiledLexerATNSimulator;
+import org.antlr.v5.runtime.core.atn.CompiledLexerDFA;
+import org.antlr.v5.runtime.core.atn.LexerATNSimulator;
+import org.antlr.v5.runtime.core.dfa.DFA;
+import org.antlr.v5.tool.LexerGrammar;
+import org.junit.jupiter.api.Test;
+
+import static org.antlr.v5.test.tool.ToolTestUtils.createATN;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Runs the tests of {@link TestATNLexerInterpreter} with the compiled DFA of
+ * each lexer, after a round trip through its serialized form; it must
+ * match the same tokens as the ATN simulator.
+ */
+public class TestCompiledLexerDFA extends TestATNLexerInterpreter {
+	@Override
+	protected LexerATNSimulator createLexerATNSimulator(ATN atn) {
+		CompiledLexerDFA compiled = CompiledLexerDFA.deserialize(
+			CompiledLexerDFA.compile(atn, CompiledLexerDFA.DEFAULT_MAX_TABLE_SIZE).serialize(atn).toArray(), atn);
+		DFA[] decisionToDFA = {new DFA(atn.getModeToStartState().get(Lexer.DEFAULT_MODE), 0)};
+		return new CompiledLexerATNSimulator(null, atn, decisionToDFA, null, compiled);
+	}
+
+	@Test public void testModesWithPredicatesOrCustomActionsAreNotCompiled() throws Exception {
+		LexerGrammar lg = new LexerGrammar(
+			"lexer grammar L;\n"+
+			"A : 'a' ;\n" +
+			"mode P;\n" +
+			"B : 'b' {true}? ;\n" +
+			"mode C;\n" +
+			"D : 'd' {System.out.println();} ;\n" +
+			"mode S;\n" +
+			"E : 'e' -> skip ;\n");
+		ATN atn = new ATNDeserializer().deserialize(ATNSerializer.Companion.getSerialized(createATN(lg, true)).toArray());
+		CompiledLexerDFA compiled = CompiledLexerDFA.compile(atn, CompiledLexerDFA.DEFAULT_MAX_TABLE_SIZE);
+		assertEquals(4, compiled.getModeCount());
+		assertNotNull(compiled.mode(0));
+		assertNull(compiled.mode(1));
+		assertNull(compiled.mode(2));
+		assertNotNull(compiled.mode(3));
+	}
+
+	@Test public void testEquivalentStatesAreMerged() throws Exception {
+		LexerGrammar lg = new LexerGrammar(
+			"lexer grammar L;\n"+
+			"ID : [a-z]+ ;\n" +
+			"INT : [0-9]+ ;\n");
+		ATN atn = createATN(lg, true);
+		CompiledLexerDFA.Mode mode = CompiledLexerDFA.compile(atn, CompiledLexerDFA.DEFAULT_MAX_TABLE_SIZE).mode(0);
+		// The start state, and one state for each token
+		assertEquals(3, mode.getSize());
+		int id = mode.target(mode.getStart(), 'q');
+		assertEquals(id, mode.target(id, 'a'));
+		assertEquals(CompiledLexerDFA.NONE, mode.target(id, '0'));
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.test.tool;
+
+import org.antlr.runtime.CharStream;
+import org.antlr.v5.misc.GrammarSourceCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+import static org.antlr.v5.test.runtime.FileUtils.writeFile;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class TestGrammarSourceCache {
+	@Test public void testReplacedFileIsReread(@TempDir Path tempDir) throws Exception {
+		Path grammar = tempDir.resolve("T.g4");
+		writeFile(grammar.toString(), "grammar T;\na : 'x' ;\n", null);
+		BasicFileAttributes attributes = Files.readAttributes(grammar, BasicFileAttributes.class);
+		assumeTrue(attributes.fileKey()!=null, "the file system has no file keys");
+
+		GrammarSourceCache cache = new GrammarSourceCache();
+		assertEquals("grammar T;\na : 'x' ;\n", text(cache.open(grammar.toString(), "UTF-8")));
+
+		// Saved by replacing the file, with the same size and time
+		Path saved = tempDir.resolve("T.g4.tmp");
+		writeFile(saved.toString(), "grammar T;\na : 'y' ;\n", null);
+		Files.setLastModifiedTime(saved, attributes.lastModifiedTime());
+		Files.move(saved, grammar, StandardCopyOption.REPLACE_EXISTING);
+		assertEquals(attributes.lastModifiedTime(), Files.getLastModifiedTime(grammar));
+
+		assertEquals("grammar T;\na : 'y' ;\n", text(cache.open(grammar.toString(), "UTF-8")));
+		assertEquals(0, cache.getHits());
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test public void testModifiedFileIsReread(@TempDir Path tempDir) throws Exception {
+		Path grammar = tempDir.resolve("T.g4");
+		writeFile(grammar.toString(), "grammar T;\na : 'x' ;\n", null);
+
+		GrammarSourceCache cache = new GrammarSourceCache();
+		cache.open(grammar.toString(), "UTF-8");
+		cache.open(grammar.toString(), "UTF-8");
+		assertEquals(1, cache.getHits());
+
+		writeFile(grammar.toString(), "grammar T;\na : 'y' ;\n", null);
+		Files.setLastModifiedTime(grammar, FileTime.fromMillis(Files.getLastModifiedTime(grammar).toMillis() + 1000));
+		assertEquals("grammar T;\na : 'y' ;\n", text(cache.open(grammar.toString(), "UTF-8")));
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test public void testLeastRecentlyOpenedFilesAreDropped(@TempDir Path tempDir) throws Exception {
+		String a = tempDir.resolve("A.g4").toString();
+		String b = tempDir.resolve("B.g4").toString();
+		String c = tempDir.resolve("C.g4").toString();
+		writeFile(a, "grammar A;\n", null);
+		writeFile(b, "grammar B;\n", null);
+		writeFile(c, "grammar C;\n", null);
+
+		GrammarSourceCache cache = new GrammarSourceCache(2);
+		cache.open(a, null);
+		cache.open(b, null);
+		cache.open(a, null);
+		cache.open(c, null); // drops B
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getHits());
+
+		cache.open(a, null);
+		assertEquals(2, cache.getHits());
+		cache.open(b, null);
+		assertEquals(2, cache.getHits());
+		assertEquals(4, cache.getMisses());
+	}
+
+	private static String text(CharStream in) {
+		return in.substring(0, in.size()-1);
+	}
+}
@@ -6,6 +6,7 @@
 
 package org.antlr.v5.test.tool;
 
+import org.antlr.v5.runtime.core.atn.PredictionContextMergeCache;
 import org.antlr.v5.runtime.core.context.ArrayPredictionContext;
 import org.antlr.v5.runtime.core.context.EmptyPredictionContext;
 import org.antlr.v5.runtime.core.context.PredictionContext;
@@ -19,6 +20,9 @@ import java.util.IdentityHashMap;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TestGraphNodes {
 	public boolean rootIsWildcard() { return true; }
@@ -742,6 +746,43 @@ public class TestGraphNodes {
 		assertEquals(expecting, toDOTString(r, rootIsWildcard()));
 	}
 
+	@Test public void testMergeCache() {
+		PredictionContextMergeCache cache = new PredictionContextMergeCache();
+		SingletonPredictionContext a1 = createSingleton(x(), 1);
+		SingletonPredictionContext b1 = createSingleton(y(), 2);
+		PredictionContext r = PredictionContext.Companion.merge(a1, b1, rootIsWildcard(), cache);
+		assertEquals(0, cache.getHits());
+		assertSame(r, PredictionContext.Companion.merge(b1, a1, rootIsWildcard(), cache));
+		assertEquals(1, cache.getHits());
+
+		// Keyed by identity and by the kind of merge
+		assertNull(cache.get(SingletonPredictionContext.Companion.create(x(), 1), b1, rootIsWildcard()));
+		assertNull(cache.get(a1, b1, fullCtx()));
+
+		cache.clear();
+		assertNull(cache.get(a1, b1, rootIsWildcard()));
+	}
+
+	@Test public void testMergeCacheIsBounded() {
+		PredictionContextMergeCache cache = new PredictionContextMergeCache(4);
+		SingletonPredictionContext[] contexts = new SingletonPredictionContext[100];
+		for (int i = 0; i < contexts.length; i++) {
+			contexts[i] = createSingleton(EmptyPredictionContext.getInstance(), i + 1);
+		}
+		for (int i = 1; i < contexts.length; i++) {
+			cache.put(contexts[i - 1], contexts[i], true, contexts[i]);
+		}
+		int found = 0;
+		for (int i = 1; i < contexts.length; i++) {
+			PredictionContext r = cache.get(contexts[i - 1], contexts[i], true);
+			if (r != null) {
+				assertSame(contexts[i], r);
+				found++;
+			}
+		}
+		assertTrue(found > 0 && found <= 4);
+	}
+
 
 	// ------------ SUPPORT -------------------------
 
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.test.tool;
+
+import org.antlr.v5.runtime.core.atn.PredictionContextCache;
+import org.antlr.v5.runtime.core.context.ArrayPredictionContext;
+import org.antlr.v5.runtime.core.context.EmptyPredictionContext;
+import org.antlr.v5.runtime.core.context.PredictionContext;
+import org.antlr.v5.runtime.core.context.SingletonPredictionContext;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Runs the merge tests of {@link TestGraphNodes} on contexts interned in
+ * an interning {@link PredictionContextCache}; merging must give the same
+ * graphs as without interning.
+ */
+public class TestInternedGraphNodes extends TestGraphNodes {
+	private final PredictionContextCache cache = new PredictionContextCache(true);
+
+	@Override
+	public SingletonPredictionContext createSingleton(PredictionContext parent, int payload) {
+		return cache.singleton(parent, payload);
+	}
+
+	@Override
+	public ArrayPredictionContext array(SingletonPredictionContext... nodes) {
+		PredictionContext[] parents = new PredictionContext[nodes.length];
+		int[] invokingStates = new int[nodes.length];
+		for (int i=0; i<nodes.length; i++) {
+			parents[i] = nodes[i].getParent();
+			invokingStates[i] = nodes[i].getReturnState();
+		}
+		return (ArrayPredictionContext)cache.array(parents, invokingStates);
+	}
+
+	@Test public void testEqualContextsAreSame() {
+		PredictionContext empty = EmptyPredictionContext.getInstance();
+		SingletonPredictionContext ax1 = createSingleton(createSingleton(empty, 9), 1);
+		SingletonPredictionContext ax2 = createSingleton(createSingleton(empty, 9), 1);
+		assertSame(ax1, ax2);
+
+		SingletonPredictionContext bx = createSingleton(createSingleton(empty, 9), 2);
+		PredictionContext r1 = PredictionContext.Companion.merge(ax1, bx, rootIsWildcard(), null);
+		PredictionContext r2 = PredictionContext.Companion.merge(bx, ax2, rootIsWildcard(), null);
+		assertSame(r1, r2);
+		assertSame(r1, array(ax1, bx));
+
+		// Contexts created without the cache are still compared structurally
+		SingletonPredictionContext ax3 = SingletonPredictionContext.Companion.create(
+			SingletonPredictionContext.Companion.create(empty, 9), 1);
+		assertNotSame(ax1, ax3);
+		assertEquals(ax1, ax3);
+		assertEquals(ax3, ax1);
+		assertNotEquals(ax1, bx);
+	}
+}
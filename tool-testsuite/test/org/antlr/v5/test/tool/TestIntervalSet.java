@@ -422,4 +422,54 @@ public class TestIntervalSet {
         String result = s.toString();
         assertEquals(expecting, result);
     }
+
+    @Test public void testIntervalAccessors() throws Exception {
+        IntervalSet s = new IntervalSet();
+        s.add(20, 30);
+        s.add(1, 5);
+        s.add(6, 8); // adjacent to 1..5, merged
+        assertEquals(2, s.getIntervalCount());
+        assertEquals(1, s.intervalStart(0));
+        assertEquals(8, s.intervalEnd(0));
+        assertEquals(20, s.intervalStart(1));
+        assertEquals(30, s.intervalEnd(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> s.intervalStart(2));
+        assertEquals("[1..8, 20..30]", s.getIntervals().toString());
+    }
+
+    @Test public void testAddBridgesManyIntervals() throws Exception {
+        IntervalSet s = new IntervalSet();
+        for (int i = 0; i < 100; i += 10) {
+            s.add(i, i + 2);
+        }
+        s.add(13, 71);
+        String expecting = "{0..2, 10..72, 80..82, 90..92}";
+        assertEquals(expecting, s.toString());
+    }
+
+    @Test public void testLargeSetAlgebra() throws Exception {
+        IntervalSet evens = new IntervalSet();
+        IntervalSet thirds = new IntervalSet();
+        for (int i = 0; i < 30000; i += 2) evens.add(i * 4, i * 4 + 3);
+        for (int i = 0; i < 30000; i += 3) thirds.add(i * 4, i * 4 + 3);
+        IntervalSet union = evens.or(thirds);
+        IntervalSet intersection = evens.and(thirds);
+        IntervalSet difference = evens.subtract(thirds);
+        assertEquals(evens.size() + thirds.size() - intersection.size(), union.size());
+        assertEquals(evens.size(), intersection.size() + difference.size());
+        assertTrue(intersection.contains(6 * 4 + 1));
+        assertFalse(difference.contains(6 * 4 + 1));
+        assertTrue(difference.contains(2 * 4 + 3));
+        assertEquals(union, difference.or(thirds));
+        assertEquals(union.hashCode(), difference.or(thirds).hashCode());
+    }
+
+    @Test public void testReadonlySetCannotBeModified() throws Exception {
+        IntervalSet s = IntervalSet.Companion.of(1, 10);
+        s.setReadonly(true);
+        assertThrows(IllegalStateException.class, () -> s.add(20));
+        assertThrows(IllegalStateException.class, () -> s.addAll(IntervalSet.Companion.of(30, 40)));
+        assertThrows(IllegalStateException.class, () -> s.remove(5));
+        assertEquals("{1..10}", s.toString());
+    }
 }
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.test.tool;
+
+import org.antlr.v5.automata.optimization.KeywordExtractor;
+import org.antlr.v5.runtime.core.KeywordTable;
+import org.antlr.v5.runtime.core.LexerInterpreter;
+import org.antlr.v5.runtime.core.Token;
+import org.antlr.v5.runtime.core.atn.ATN;
+import org.antlr.v5.runtime.core.atn.ATNDeserializer;
+import org.antlr.v5.runtime.core.atn.ATNSerializer;
+import org.antlr.v5.runtime.java.CharStreams;
+import org.antlr.v5.tool.LexerGrammar;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.antlr.v5.test.tool.ToolTestUtils.createATN;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestKeywordExtractor {
+	@Test public void testKeywordsAreMatchedAsIdentifiers() throws Exception {
+		LexerGrammar lg = new LexerGrammar(
+			"lexer grammar L;\n" +
+			"IF : 'if' ;\n" +
+			"WHILE : 'while' ;\n" +
+			"LE : '<=' ;\n" +
+			"ID : [a-z]+ ;\n" +
+			"WS : ' ' -> skip ;\n");
+		optimize(lg);
+		KeywordTable table = lg.keywordTables[0];
+		assertEquals(lg.getTokenType("ID"), table.getIdentifierType());
+		assertArrayEquals(new String[] {"if", "while"}, table.getKeywords());
+		assertFalse(table.getCaseInsensitive());
+		assertEquals("IF, ID, WHILE, LE, ID", lex(lg, "if iff while <= whil"));
+	}
+
+	@Test public void testCaseInsensitiveKeywords() throws Exception {
+		LexerGrammar lg = new LexerGrammar(
+			"lexer grammar L;\n" +
+			"options { caseInsensitive = true; }\n" +
+			"SELECT : 'select' ;\n" +
+			"FROM : 'from' ;\n" +
+			"ID : [a-z_]+ ;\n" +
+			"WS : ' ' -> skip ;\n");
+		optimize(lg);
+		assertTrue(lg.keywordTables[0].getCaseInsensitive());
+		assertEquals("SELECT, ID, FROM, FROM, SELECT, ID", lex(lg, "Select a FROM from SELECT select_"));
+	}
+
+	@Test public void testMixedCaseKeywordsAreChecked() throws Exception {
+		LexerGrammar lg = new LexerGrammar(
+			"lexer grammar L;\n" +
+			"SELECT options { caseInsensitive = true; } : 'select' ;\n" +
+			"ID : [a-z]+ | [A-Z]+ ;\n" +
+			"WS : ' ' -> skip ;\n");
+		optimize(lg);
+		// ID matches 'select' and 'SELECT', but not 'Select'
+		assertNull(lg.keywordTables);
+		assertEquals("SELECT, SELECT, SELECT, SELECT", lex(lg, "select SELECT Select sElEcT"));
+	}
+
+	@Test public void testDuplicateKeywords() throws Exception {
+		LexerGrammar lg = new LexerGrammar(
+			"lexer grammar L;\n" +
+			"A : 'x' ;\n" +
+			"B : 'x' ;\n" +
+			"ID : [a-z]+ ;\n" +
+			"WS : ' ' -> skip ;\n");
+		optimize(lg);
+		assertArrayEquals(new String[] {"x"}, lg.keywordTables[0].getKeywords());
+		assertEquals(lg.getTokenType("A"), lg.keywordTables[0].typeOf("x"));
+		assertEquals("A, ID, A", lex(lg, "x xx x"));
+	}
+
+	@Test public void testCaseInsensitiveDuplicateKeywords() throws Exception {
+		LexerGrammar lg = new LexerGrammar(
+			"lexer grammar L;\n" +
+			"options { caseInsensitive = true; }\n" +
+			"SELECT : 'select' ;\n" +
+			"SELECT2 : 'SELECT' ;\n" +
+			"ID : [a-z]+ ;\n" +
+			"WS : ' ' -> skip ;\n");
+		optimize(lg);
+		assertArrayEquals(new String[] {"select"}, lg.keywordTables[0].getKeywords());
+		assertEquals("SELECT, SELECT, SELECT, ID", lex(lg, "select SELECT Select selects"));
+	}
+
+	@Test public void testKeywordsMatchedByOtherRulesAreKept() throws Exception {
+		LexerGrammar lg = new LexerGrammar(
+			"lexer grammar L;\n" +
+			"IF : 'if' ;\n" +
+			"INT : 'int' ;\n" +
+			"NUM : 'int' [0-9]* ;\n" +
+			"ID : [a-z]+ ;\n" +
+			"WS : ' ' -> skip ;\n");
+		optimize(lg);
+		// NUM matches 'int' if INT is left out
+		assertArrayEquals(new String[] {"if"}, lg.keywordTables[0].getKeywords());
+		assertEquals("IF, INT, NUM, ID", lex(lg, "if int int8 i"));
+	}
+
+	@Test public void testIdentifierWithCommandIsNotUsed() throws Exception {
+		LexerGrammar lg = new LexerGrammar(
+			"lexer grammar L;\n" +
+			"IF : 'if' ;\n" +
+			"ID : [a-z]+ -> channel(HIDDEN) ;\n");
+		optimize(lg);
+		assertNull(lg.keywordTables);
+	}
+
+	@Test public void testModesWithPredicatesAreLeftAlone() throws Exception {
+		LexerGrammar lg = new LexerGrammar(
+			"lexer grammar L;\n" +
+			"IF : 'if' ;\n" +
+			"ID : [a-z]+ ;\n" +
+			"mode P;\n" +
+			"ELSE : 'else' ;\n" +
+			"NAME : [a-z]+ {true}? ;\n");
+		optimize(lg);
+		assertArrayEquals(new String[] {"if"}, lg.keywordTables[0].getKeywords());
+		assertNull(lg.keywordTables[1]);
+	}
+
+	private static void optimize(LexerGrammar lg) {
+		ATN atn = createATN(lg, false);
+		KeywordExtractor.optimize(lg, atn);
+	}
+
+	/** Lexes {@code input} with the optimized ATN and keyword tables, like
+	 *  a generated lexer.
+	 */
+	private static String lex(LexerGrammar lg, String input) {
+		ATN atn = new ATNDeserializer().deserialize(ATNSerializer.Companion.getSerialized(lg.atn).toArray());
+		KeywordTable[] keywordTables = lg.keywordTables;
+		LexerInterpreter lexer = new LexerInterpreter(
+			lg.fileName,
+			lg.getVocabulary(),
+			Arrays.asList(lg.getRuleNames()),
+			Arrays.asList("DEFAULT_TOKEN_CHANNEL", "HIDDEN"),
+			lg.modes.keySet(),
+			atn,
+			CharStreams.fromString(input))
+		{
+			@Override
+			public KeywordTable[] getKeywordTables() { return keywordTables; }
+		};
+		List<String> types = new ArrayList<String>();
+		for (Token t : lexer.getAllTokens()) {
+			types.add(lg.typeToTokenList.get(t.getType()));
+		}
+		return String.join(", ", types);
+	}
+}
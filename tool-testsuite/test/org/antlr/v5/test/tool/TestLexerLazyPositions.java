@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.test.tool;
+
+import org.antlr.v5.runtime.core.CharStream;
+import org.antlr.v5.runtime.core.LexerInterpreter;
+import org.antlr.v5.runtime.core.Token;
+import org.antlr.v5.runtime.core.atn.ATN;
+import org.antlr.v5.runtime.core.atn.ATNDeserializer;
+import org.antlr.v5.runtime.core.atn.ATNSerializer;
+import org.antlr.v5.runtime.core.ast.Point;
+import org.antlr.v5.runtime.core.ast.SourceText;
+import org.antlr.v5.runtime.core.context.RuleContext;
+import org.antlr.v5.runtime.java.CharStreams;
+import org.antlr.v5.tool.LexerGrammar;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class TestLexerLazyPositions {
+	private static final String GRAMMAR =
+		"lexer grammar L;\n" +
+		"LINE : '#line ' [0-9]+ {} ;\n" +
+		"COLUMN : '@' {} ;\n" +
+		"ID : [a-z]+ ;\n" +
+		"WS : [ \\n]+ -> skip ;\n";
+
+	@Test public void testSameAsTrackedPositions() throws Exception {
+		LexerGrammar lg = new LexerGrammar(GRAMMAR);
+		String input = "a bc\nd\n#line 10\nef @ g\nh @\n\n#line 3 i\n@j";
+		String expected =
+			"ID 1:0, ID 1:2, ID 2:0, LINE 3:0, ID 10:0, COLUMN 10:3, ID 10:41, " +
+			"ID 11:0, COLUMN 11:2, LINE 13:0, ID 2:8, COLUMN 3:0, ID 3:40";
+		assertEquals(expected, positions(lg, lex(lg, input, false)));
+		assertEquals(expected, positions(lg, lex(lg, input, true)));
+	}
+
+	/** Tokens keep their positions after their lexer moves to other input. */
+	@Test public void testPositionsAfterRecycle() throws Exception {
+		LexerGrammar lg = new LexerGrammar(GRAMMAR);
+		LexerInterpreter lexer = lexer(lg, CharStreams.fromString("a\nb c\n\nd"), true);
+		List<? extends Token> tokens = lexer.getAllTokens();
+		lexer.recycle(CharStreams.fromString("x\ny"));
+		lexer.getAllTokens();
+
+		assertEquals("ID 1:0, ID 2:0, ID 2:2, ID 4:0", positions(lg, tokens));
+	}
+
+	@Test public void testSourceText() throws Exception {
+		LexerGrammar lg = new LexerGrammar(GRAMMAR);
+		LexerInterpreter lexer = lexer(lg, CharStreams.fromString("a bc\n\nd e"), true);
+		SourceText source = lexer.getSourceText();
+		for (Token t : lexer.getAllTokens()) {
+			assertEquals(t.getStartIndex(), source.offset(new Point(t.getLine(), t.getCharPositionInLine())));
+		}
+		assertSame(source, lexer.getSourceText());
+
+		lexer.recycle(CharStreams.fromString("x"));
+		assertEquals("x", lexer.getSourceText().getText());
+	}
+
+	private static List<? extends Token> lex(LexerGrammar lg, String input, boolean lazyPositions) {
+		return lexer(lg, CharStreams.fromString(input), lazyPositions).getAllTokens();
+	}
+
+	/** A lexer whose {@code LINE} action starts the next line at the number
+	 *  it matched, and whose {@code COLUMN} action moves the next character
+	 *  to position 40.
+	 */
+	private static LexerInterpreter lexer(LexerGrammar lg, CharStream input, boolean lazyPositions) {
+		ATN atn = new ATNDeserializer().deserialize(ATNSerializer.Companion.getSerialized(lg.atn).toArray());
+		LexerInterpreter lexer = new LexerInterpreter(
+			lg.fileName,
+			lg.getVocabulary(),
+			Arrays.asList(lg.getRuleNames()),
+			Arrays.asList("DEFAULT_TOKEN_CHANNEL", "HIDDEN"),
+			lg.modes.keySet(),
+			atn,
+			input)
+		{
+			@Override
+			public void action(RuleContext localctx, int ruleIndex, int actionIndex) {
+				if ( getRuleNames()[ruleIndex].equals("LINE") ) {
+					setLine(Integer.parseInt(getText().substring("#line ".length())) - 1);
+				}
+				else {
+					setCharPositionInLine(40);
+				}
+			}
+		};
+		lexer.setLazyPositions(lazyPositions);
+		return lexer;
+	}
+
+	private static String positions(LexerGrammar lg, List<? extends Token> tokens) {
+		List<String> positions = new ArrayList<String>();
+		for (Token t : tokens) {
+			positions.add(lg.typeToTokenList.get(t.getType())+" "+t.getLine()+":"+t.getCharPositionInLine());
+		}
+		return String.join(", ", positions);
+	}
+}
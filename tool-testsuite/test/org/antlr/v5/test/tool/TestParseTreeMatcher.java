@@ -11,11 +11,13 @@ import org.antlr.v5.runtime.java._unused.tree.pattern.ParseTreeMatch;
 import org.antlr.v5.runtime.java._unused.tree.pattern.ParseTreePattern;
 import org.antlr.v5.runtime.java._unused.tree.pattern.ParseTreePatternCompiler;
 import org.antlr.v5.runtime.java._unused.tree.pattern.ParseTreePatternMatcher;
+import org.antlr.v5.runtime.java._unused.tree.pattern.ParseTreePatternSet;
 import org.antlr.v5.runtime.core.Lexer;
 import org.antlr.v5.runtime.core.Parser;
 import org.antlr.v5.runtime.core.Token;
 import org.antlr.v5.runtime.core.error.InputMismatchException;
 import org.antlr.v5.runtime.core.error.NoViableAltException;
+import org.antlr.v5.runtime.core.tree.ParseTree;
 import org.antlr.v5.test.runtime.RunOptions;
 import org.antlr.v5.test.runtime.java.JavaRunner;
 import org.antlr.v5.test.runtime.states.State;
@@ -207,6 +209,40 @@ public class TestParseTreeMatcher {
 		assertEquals(expected, results);
 	}
 
+	@Test
+	public void testPatternSetFindAll() throws Exception {
+		String grammar =
+			"grammar X2;\n" +
+			"s : stat+ ;\n" +
+			"stat : ID '=' expr ';' | 'print' expr ';' ;\n" +
+			"expr : ID | INT ;\n" +
+			"ID : [a-z]+ ;\n" +
+			"INT : [0-9]+ ;\n" +
+			"WS : [ \\r\\n\\t]+ -> skip ;\n";
+		ParseTreePatternMatcher m = getPatternMatcher(grammar);
+		int stat = m.getParser().getRuleIndex("stat");
+		// a pattern without tags parses to an ordinary parse tree
+		ParseTree tree = m.compile("x = 1 ; print x ; y = z ;", m.getParser().getRuleIndex("s")).getPatternTree();
+
+		ParseTreePatternSet set = new ParseTreePatternSet(m);
+		ParseTreePattern assign = set.add("<ID> = <expr> ;", stat);
+		ParseTreePattern print = set.add("print <expr> ;", stat);
+		ParseTreePattern assignX = set.add("x = <v:expr> ;", stat);
+		set.add("<INT>", m.getParser().getRuleIndex("expr"));
+		assertSame(assign, m.compile("<ID> = <expr> ;", stat));
+
+		List<ParseTreeMatch> matches = set.findAll(tree);
+		assertEquals(5, matches.size());
+		assertSame(assign, matches.get(0).getPattern());
+		assertSame(assignX, matches.get(1).getPattern());
+		assertEquals("1", matches.get(1).get("v").getText());
+		assertEquals("1", matches.get(2).get("INT").getText());
+		assertSame(print, matches.get(3).getPattern());
+		assertSame(assign, matches.get(4).getPattern());
+		assertEquals("y", matches.get(4).get("ID").getText());
+		assertEquals("z", matches.get(4).get("expr").getText());
+	}
+
 	@Test public void testIDNodeMatches() throws Exception {
 		String grammar =
 			"grammar X3;\n" +
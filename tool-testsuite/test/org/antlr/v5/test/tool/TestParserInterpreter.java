@@ -6,16 +6,37 @@
 
 package org.antlr.v5.test.tool;
 
+import org.antlr.v5.runtime.java.BaseErrorListener;
 import org.antlr.v5.runtime.java.CharStreams;
 import org.antlr.v5.runtime.core.CommonTokenStream;
 import org.antlr.v5.runtime.core.LexerInterpreter;
+import org.antlr.v5.runtime.core.Parser;
 import org.antlr.v5.runtime.core.ParserInterpreter;
+import org.antlr.v5.runtime.core.Recognizer;
+import org.antlr.v5.runtime.core.atn.ATN;
+import org.antlr.v5.runtime.core.atn.ATNConfigSet;
+import org.antlr.v5.runtime.core.atn.ATNDeserializer;
+import org.antlr.v5.runtime.core.atn.ATNSerializer;
+import org.antlr.v5.runtime.core.atn.FullContextPredictionCache;
+import org.antlr.v5.runtime.core.atn.PredictionLimits;
+import org.antlr.v5.runtime.core.context.RuleContext;
+import org.antlr.v5.runtime.core.dfa.DFA;
+import org.antlr.v5.runtime.core.error.RecognitionException;
+import org.antlr.v5.runtime.core.misc.ParseCancellationException;
+import org.antlr.v5.runtime.core.misc.ParseDeadline;
 import org.antlr.v5.runtime.core.tree.ParseTree;
 import org.antlr.v5.tool.Grammar;
 import org.antlr.v5.tool.LexerGrammar;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 public class TestParserInterpreter {
@@ -347,6 +368,191 @@ public class TestParserInterpreter {
 		testInterp(lg, g, "e", "NEW Abc (Not a AND not B)", "(e NEW Abc ( (e (e Not (e a)) AND (e not (e B))) ))");
 	}
 
+	@Test public void testParseDeadline() throws Exception {
+		LexerGrammar lg = new LexerGrammar(
+			"lexer grammar L;\n" +
+			"INT : [0-9]+ ;\n" +
+			"PLUS : '+' ;\n" +
+			"MULT : '*' ;\n");
+		Grammar g = new Grammar(
+			"parser grammar T;\n" +
+			"s : e EOF ;\n" +
+			"e : e MULT e\n" +
+			"  | e PLUS e\n" +
+			"  | INT\n" +
+			"  ;",
+			lg);
+
+		LexerInterpreter lexEngine = lg.createLexerInterpreter(CharStreams.fromString("1+2*3"));
+		lexEngine.setParseDeadline(new ParseDeadline(0, 1));
+		CommonTokenStream tokens = new CommonTokenStream(lexEngine);
+		ParseCancellationException e = assertThrows(ParseCancellationException.class, tokens::fill);
+		assertEquals("lexing deadline of 0ms exceeded in mode 0 at input index 0 line 1:0", e.getMessage());
+
+		lexEngine.setParseDeadline(null);
+		tokens.fill();
+		ParserInterpreter parser = g.createParserInterpreter(tokens);
+		parser.setParseDeadline(new ParseDeadline(0, 1));
+		e = assertThrows(ParseCancellationException.class, () -> parser.parse(g.rules.get("s").index));
+		assertTrue(e.getMessage().startsWith("parse deadline of 0ms exceeded in decision "), e.getMessage());
+
+		ParseDeadline token = new ParseDeadline();
+		parser.setParseDeadline(token);
+		parser.reset();
+		token.cancel();
+		e = assertThrows(ParseCancellationException.class, () -> parser.parse(g.rules.get("s").index));
+		assertTrue(e.getMessage().startsWith("parse cancelled in decision "), e.getMessage());
+
+		// the parser is still usable afterwards
+		parser.setParseDeadline(null);
+		parser.reset();
+		assertEquals("(s (e (e 1) + (e (e 2) * (e 3))) <EOF>)", parser.parse(g.rules.get("s").index).toStringTree(parser));
+	}
+
+	@Test public void testPredictionLimits() throws Exception {
+		LexerGrammar lg = new LexerGrammar(
+			"lexer grammar L;\n" +
+			"INT : [0-9]+ ;\n" +
+			"PLUS : '+' ;\n" +
+			"SEMI : ';' ;\n" +
+			"DOT : '.' ;\n");
+		Grammar g = new Grammar(
+			"parser grammar T;\n" +
+			"s : e ';'\n" +
+			"  | e '.'\n" +
+			"  ;\n" +
+			"e : INT ('+' INT)* ;",
+			lg);
+
+		final List<String> reports = new ArrayList<>();
+		LexerInterpreter lexEngine = lg.createLexerInterpreter(CharStreams.fromString("1+2+3+4."));
+		ParserInterpreter parser = g.createParserInterpreter(new CommonTokenStream(lexEngine));
+		parser.removeErrorListeners();
+		parser.addErrorListener(new BaseErrorListener() {
+			@Override
+			public void reportPredictionLimitExceeded(Parser recognizer, DFA dfa, int startIndex, int stopIndex,
+													  PredictionLimits.Limit limit, int prediction, ATNConfigSet configs)
+			{
+				reports.add(limit + " d=" + dfa.getDecision() + " " + startIndex + ".." + stopIndex + " alt=" + prediction);
+			}
+
+			@Override
+			public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+									int charPositionInLine, String msg, RecognitionException e)
+			{
+				reports.add(msg);
+			}
+		});
+
+		// the decision in s needs the whole input as lookahead
+		parser.getInterpreter().setPredictionLimits(new PredictionLimits(Integer.MAX_VALUE, 3, Integer.MAX_VALUE));
+		parser.parse(g.rules.get("s").index);
+		assertEquals(2, reports.size());
+		assertEquals("LOOKAHEAD d=0 0..3 alt=1", reports.get(0));
+		assertTrue(reports.get(1).startsWith("mismatched input '.'"), reports.get(1));
+
+		reports.clear();
+		parser.getInterpreter().setPredictionLimits(null);
+		parser.reset();
+		assertEquals("(s (e 1 + 2 + 3 + 4) .)", parser.parse(g.rules.get("s").index).toStringTree(parser));
+		assertEquals("[]", reports.toString());
+	}
+
+	@Test public void testFullContextPredictionCache() throws Exception {
+		LexerGrammar lg = new LexerGrammar(
+			"lexer grammar L;\n" +
+			"DOLLAR : '$' ;\n" +
+			"AT : '@' ;\n" +
+			"ID : [a-z]+ ;\n" +
+			"INT : [0-9]+ ;\n" +
+			"WS : [ ]+ -> skip ;\n");
+		Grammar g = new Grammar(
+			"parser grammar T;\n" +
+			"s : '$' a | '@' b ;\n" +
+			"a : e ID ;\n" +
+			"b : e INT ID ;\n" +
+			"e : INT | ;\n",
+			lg);
+
+		final List<String> reports = new ArrayList<>();
+		CommonTokenStream tokens = new CommonTokenStream(lg.createLexerInterpreter(CharStreams.fromString("$ 34 abc")));
+		ParserInterpreter parser = g.createParserInterpreter(tokens);
+		parser.removeErrorListeners();
+		parser.addErrorListener(new BaseErrorListener() {
+			@Override
+			public void reportAttemptingFullContext(Parser recognizer, DFA dfa, int startIndex, int stopIndex,
+													BitSet conflictingAlts, ATNConfigSet configs)
+			{
+				reports.add("d=" + dfa.getDecision() + " " + startIndex + ".." + stopIndex);
+			}
+		});
+
+		FullContextPredictionCache cache = new FullContextPredictionCache();
+		parser.getInterpreter().setFullContextCache(cache);
+		int s = g.rules.get("s").index;
+		String expecting = "(s $ (a (e 34) abc))";
+		assertEquals(expecting, parser.parse(s).toStringTree(parser));
+		assertEquals(1, reports.size());
+
+		// the same decision in the same invocation stack at the same token
+		tokens.seek(0);
+		assertEquals(expecting, parser.parse(s).toStringTree(parser));
+		assertEquals(1, reports.size());
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+
+		// a new input clears the cache
+		parser.setTokenStream(new CommonTokenStream(lg.createLexerInterpreter(CharStreams.fromString("$ 34 abc"))));
+		assertEquals(expecting, parser.parse(s).toStringTree(parser));
+		assertEquals(2, reports.size());
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test public void testFullContextPredictionCacheFollowsPredicates() throws Exception {
+		LexerGrammar lg = new LexerGrammar(
+			"lexer grammar L;\n" +
+			"DOLLAR : '$' ;\n" +
+			"AT : '@' ;\n" +
+			"ID : [a-z]+ ;\n" +
+			"INT : [0-9]+ ;\n" +
+			"WS : [ ]+ -> skip ;\n");
+		Grammar g = new Grammar(
+			"parser grammar T;\n" +
+			"s : '$' a | '@' b ;\n" +
+			"a : e x ;\n" +
+			"b : e INT ID ;\n" +
+			"e : | INT ;\n" +
+			"x : {p}? INT ID | ID ;\n",
+			lg);
+
+		// e is predicted with full context, where {p}? decides whether it
+		// can be empty
+		final boolean[] p = {true};
+		CommonTokenStream tokens = new CommonTokenStream(lg.createLexerInterpreter(CharStreams.fromString("$ 34 abc")));
+		ATN atn = new ATNDeserializer().deserialize(ATNSerializer.Companion.getSerialized(g.atn).toArray());
+		ParserInterpreter parser = new ParserInterpreter(g.fileName, g.getVocabulary(), Arrays.asList(g.getRuleNames()), atn, tokens) {
+			@Override
+			public boolean sempred(RuleContext _localctx, int ruleIndex, int actionIndex) {
+				return p[0];
+			}
+		};
+		parser.removeErrorListeners();
+
+		FullContextPredictionCache cache = new FullContextPredictionCache();
+		parser.getInterpreter().setFullContextCache(cache);
+		int s = g.rules.get("s").index;
+		assertEquals("(s $ (a e (x 34 abc)))", parser.parse(s).toStringTree(parser));
+
+		// the same call, but the predicate now fails
+		p[0] = false;
+		tokens.seek(0);
+		assertEquals("(s $ (a (e 34) (x abc)))", parser.parse(s).toStringTree(parser));
+		assertEquals(0, parser.getNumberOfSyntaxErrors());
+		assertEquals(0, cache.getHits());
+		assertEquals(2, cache.getMisses());
+	}
+
 	ParseTree testInterp(LexerGrammar lg, Grammar g,
 					String startRule, String input,
 					String expectedParseTree)
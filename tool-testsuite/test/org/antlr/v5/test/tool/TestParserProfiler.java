@@ -12,6 +12,8 @@ import org.antlr.v5.runtime.core.LexerInterpreter;
 import org.antlr.v5.runtime.core.ParserInterpreter;
 import org.antlr.v5.runtime.core.context.ParserRuleContext;
 import org.antlr.v5.runtime.core.info.DecisionInfo;
+import org.antlr.v5.runtime.core.info.ParseProfileSnapshot;
+import org.antlr.v5.runtime.core.info.SharedParseProfile;
 import org.antlr.v5.runtime.core.misc.IntegerList;
 import org.antlr.v5.test.runtime.states.ExecutedState;
 import org.antlr.v5.tool.Grammar;
@@ -224,6 +226,70 @@ public class TestParserProfiler {
 		assertEquals("", state.errors);
 	}
 
+	@Test public void testSharedProfile() throws Exception {
+		Grammar g = new Grammar(
+				"parser grammar T;\n" +
+				"s : ID ';'{}\n" +
+				"  | ID '.'\n" +
+				"  ;\n",
+				lg);
+
+		LexerInterpreter lexEngine = lg.createLexerInterpreter(CharStreams.fromString(""));
+		ParserInterpreter parser = g.createParserInterpreter(new MockIntTokenStream(new IntegerList()));
+		SharedParseProfile profile = SharedParseProfile.forDecisionToDFA(parser.getInterpreter().getDecisionToDFA());
+		parser.setProfile(profile);
+		for (String s : new String[] {"xyz;", "abc;"}) {
+			lexEngine.setInputStream(CharStreams.fromString(s));
+			parser.setTokenStream(new CommonTokenStream(lexEngine));
+			parser.parse(g.rules.get("s").index);
+		}
+
+		ParseProfileSnapshot snapshot = profile.snapshotAndReset();
+		assertEquals(2, snapshot.getTotalInvocations());
+		assertEquals(
+				"{decision=0, contextSensitivities=0, errors=0, ambiguities=0, SLL_lookahead=4, " +
+				"SLL_ATNTransitions=2, SLL_DFATransitions=2, LL_Fallback=0, LL_lookahead=0, LL_ATNTransitions=0}",
+				snapshot.getDecisionInfo()[0].toString());
+		assertEquals(2, snapshot.getDecisionInfo()[0].getSLL_MaxLook());
+		assertEquals(0, profile.snapshot().getTotalInvocations());
+	}
+
+	@Test public void testSharedProfileAcrossThreads() throws Exception {
+		final Grammar g = new Grammar(
+				"parser grammar T;\n" +
+				"s : ID ('.' ID)? ';'\n" +
+				"  | ID INT \n" +
+				"  ;\n",
+				lg);
+		final SharedParseProfile profile = new SharedParseProfile(g.atn.decisionToState.size(), 4);
+
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					LexerInterpreter lexEngine = lg.createLexerInterpreter(CharStreams.fromString(""));
+					ParserInterpreter parser = g.createParserInterpreter(new MockIntTokenStream(new IntegerList()));
+					parser.setProfile(profile);
+					for (int i = 0; i < 100; i++) {
+						lexEngine.setInputStream(CharStreams.fromString("a.b;"));
+						parser.setTokenStream(new CommonTokenStream(lexEngine));
+						parser.parse(g.rules.get("s").index);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		DecisionInfo[] info = profile.snapshot().getDecisionInfo();
+		assertEquals(400, info[0].getInvocations());
+		assertEquals(400, info[1].getInvocations());
+		assertEquals(800, info[1].getSLL_TotalLook());
+	}
+
 	public DecisionInfo[] interpAndGetDecisionInfo(
 			LexerGrammar lg, Grammar g,
 			String startRule, String... input)
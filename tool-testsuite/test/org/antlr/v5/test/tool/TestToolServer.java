@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.test.tool;
+
+import org.antlr.v5.ToolServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.antlr.v5.test.runtime.FileUtils.writeFile;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestToolServer {
+	@Test public void testSplitArgs() {
+		assertArrayEquals(new String[] {"-o", "/tmp/my dir", "T.g4"},
+						  ToolServer.splitArgs("-o\t/tmp/my dir\tT.g4"));
+		assertArrayEquals(new String[] {"-visitor", "T.g4"},
+						  ToolServer.splitArgs("-visitor   T.g4"));
+	}
+
+	@Test public void testRepeatedRequestsReuseGrammarText(@TempDir Path tempDir) throws Exception {
+		String dir = tempDir.toString();
+		writeFile(Paths.get(dir, "S.g4").toString(), "parser grammar S;\na : B ;\n", null);
+		writeFile(Paths.get(dir, "T.g4").toString(),
+				  "grammar T;\nimport S;\ns : a ;\nB : 'b' ;\n", null);
+		String grammar = Paths.get(dir, "T.g4").toString();
+		String out = Paths.get(dir, "out").toString();
+		String request = "-o\t" + out + "\t-lib\t" + dir + "\t" + grammar + "\n";
+
+		ToolServer server = new ToolServer();
+		StringWriter response = new StringWriter();
+		boolean keepGoing = server.serve(new BufferedReader(new StringReader(request + request + "stats\nshutdown\n")),
+										 new PrintWriter(response, true));
+
+		assertFalse(keepGoing);
+		String[] lines = response.toString().split("\\R");
+		assertEquals("done 0", lines[0]);
+		assertEquals("done 0", lines[1]);
+		// both T.g4 and S.g4 are read once and served from the cache the second time
+		assertTrue(lines[2].contains("cachedGrammars=2 hits=2 misses=2"), lines[2]);
+		assertTrue(new File(out, "TParser.java").exists());
+	}
+
+	@Test public void testErrorsAreReported(@TempDir Path tempDir) throws Exception {
+		String grammar = Paths.get(tempDir.toString(), "T.g4").toString();
+		writeFile(grammar, "grammar T;\ns : X ;\n", null);
+
+		ToolServer server = new ToolServer();
+		StringWriter response = new StringWriter();
+		server.serve(new BufferedReader(new StringReader("-o\t" + tempDir + "\t" + grammar + "\n")),
+					 new PrintWriter(response, true));
+
+		String[] lines = response.toString().split("\\R");
+		assertTrue(lines[0].startsWith("warning: "), lines[0]); // implicit token definition
+		assertEquals("done 0", lines[lines.length - 1]);
+	}
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.test.tool;
+
+import org.antlr.v5.runtime.core.CommonTokenStream;
+import org.antlr.v5.runtime.core.Parser;
+import org.antlr.v5.runtime.core.ParserInterpreter;
+import org.antlr.v5.runtime.core.context.ParserRuleContext;
+import org.antlr.v5.runtime.core.context.RuleContext;
+import org.antlr.v5.runtime.core.tree.ParseTree;
+import org.antlr.v5.runtime.core.tree.TerminalNode;
+import org.antlr.v5.runtime.java.CharStreams;
+import org.antlr.v5.runtime.java._unused.tree.xpath.ParseTreeIndex;
+import org.antlr.v5.runtime.java._unused.tree.xpath.XPath;
+import org.antlr.v5.runtime.java._unused.tree.xpath.XPathElement;
+import org.antlr.v5.tool.Grammar;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Checks the single-walk evaluation of {@link XPath} against the
+ *  element-by-element evaluation, on trees built by an interpreter of the
+ *  {@link TestXPath} grammar.
+ */
+public class TestXPathEvaluation {
+	private static final String[] PATHS = {
+		"/prog/func",
+		"/prog/*",
+		"/*/func",
+		"prog",
+		"/*",
+		"*",
+		"//ID",
+		"//expr/primary/ID",
+		"//body//ID",
+		"//'return'",
+		"//RETURN",
+		"//primary/*",
+		"//func/*/stat",
+		"/prog/func/'def'",
+		"//stat/';'",
+		"//expr/primary/!ID",
+		"//expr/!primary",
+		"//!*",
+		"/!*",
+		"//expr//ID",
+		"//*",
+		"//*/ID",
+		"//expr//expr",
+		"//!expr//INT",
+		"/prog//stat/expr",
+		"//body/*/!expr",
+		"/prog/func/body/stat/expr//*",
+	};
+
+	private Parser parser;
+	private ParseTree tree;
+
+	/** An {@link XPath} which can also be evaluated one element at a time */
+	private static class StepXPath extends XPath {
+		StepXPath(Parser parser, String path) {
+			super(parser, path);
+		}
+
+		Collection<ParseTree> evaluateStepwise(ParseTree t) {
+			ParserRuleContext dummyRoot = new ParserRuleContext();
+			dummyRoot.setChildren(Collections.singletonList(t));
+			return evaluateByElement(dummyRoot);
+		}
+
+		static XPathElement[] getCompiled(Parser parser, String path) {
+			synchronized (compiledPaths) {
+				Map<String, XPathElement[]> paths = compiledPaths.get(parser.getRuleNames());
+				return paths!=null ? paths.get(path) : null;
+			}
+		}
+	}
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		Grammar g = new Grammar(TestXPath.grammar);
+		CommonTokenStream tokens = new CommonTokenStream(
+			g.getImplicitLexer().createLexerInterpreter(CharStreams.fromString(TestXPath.SAMPLE_PROGRAM)));
+		ParserInterpreter interpreter = g.createParserInterpreter(tokens);
+		tree = interpreter.parse(g.rules.get("prog").index);
+		parser = interpreter;
+	}
+
+	@Test public void testSameAsElementByElement() {
+		for (String path : PATHS) {
+			assertEquals(sorted(positions(tree, new StepXPath(parser, path).evaluateStepwise(tree))),
+						 positions(tree, XPath.compile(parser, path).evaluate(tree)),
+						 "path "+path);
+		}
+	}
+
+	@Test public void testNodes() {
+		assertEquals("[func, func]", nodes("/prog/func"));
+		assertEquals("[prog]", nodes("/*"));
+		assertEquals("[f, x, y, x, y, g, x, x]", nodes("//ID"));
+		assertEquals("[x, y, x]", nodes("//body//ID"));
+		assertEquals("[3, 4, y, 1, 2, x]", nodes("//primary/*"));
+		assertEquals("[stat, stat, stat, stat]", nodes("//func/*/stat"));
+		assertEquals("[3, 4, 1, 2]", nodes("//expr/primary/!ID"));
+		assertEquals("[]", nodes("//!*"));
+		assertEquals("[y, x]", nodes("//expr//ID"));
+	}
+
+	/** Paths too long for the walk are evaluated element by element. */
+	@Test public void testLongPath() {
+		StringBuilder path = new StringBuilder();
+		for (int i = 0; i < 70; i++) {
+			path.append("//*");
+		}
+		path.append("/ID");
+		assertEquals(positions(tree, XPath.compile(parser, "//*/ID").evaluate(tree)),
+					 sorted(positions(tree, XPath.compile(parser, path.toString()).evaluate(tree))));
+	}
+
+	@Test public void testIndex() {
+		ParseTreeIndex index = new ParseTreeIndex(tree);
+		for (String path : PATHS) {
+			XPath xpath = XPath.compile(parser, path);
+			assertEquals(positions(tree, xpath.evaluate(tree)),
+						 positions(tree, xpath.evaluate(tree, index)),
+						 "path "+path);
+		}
+		assertEquals(8, index.getTokenNodes(parser.getTokenType("ID")).size());
+		assertThrows(IllegalArgumentException.class,
+					 () -> XPath.compile(parser, "//ID").evaluate(tree.getChild(0), index));
+	}
+
+	@Test public void testCompiledPathsAreCached() {
+		XPath first = XPath.compile(parser, "//expr/primary/ID");
+		XPathElement[] elements = StepXPath.getCompiled(parser, "//expr/primary/ID");
+		assertNotNull(elements);
+
+		XPath second = XPath.compile(parser, "//expr/primary/ID");
+		assertSame(elements, StepXPath.getCompiled(parser, "//expr/primary/ID"));
+		assertEquals(first.evaluate(tree), second.evaluate(tree));
+	}
+
+	@Test public void testCompiledPathsAreBounded() {
+		XPath.compile(parser, "//func");
+		StringBuilder path = new StringBuilder("/prog");
+		for (int i = 0; i < XPath.MAX_CACHED_PATHS; i++) {
+			path.append("/*");
+			XPath.compile(parser, path.toString());
+		}
+		assertNull(StepXPath.getCompiled(parser, "//func"));
+		assertNotNull(StepXPath.getCompiled(parser, path.toString()));
+	}
+
+	private String nodes(String path) {
+		List<String> nodes = new ArrayList<String>();
+		for (ParseTree t : XPath.compile(parser, path).evaluate(tree)) {
+			if ( t instanceof RuleContext ) {
+				nodes.add(parser.getRuleNames()[((RuleContext)t).getRuleIndex()]);
+			}
+			else {
+				nodes.add(((TerminalNode)t).getText());
+			}
+		}
+		return nodes.toString();
+	}
+
+	/** Return the preorder position within {@code t} of each node, or -1
+	 *  for the dummy root which {@code //*} also selects.
+	 */
+	private static List<Integer> positions(ParseTree t, Collection<ParseTree> nodes) {
+		Map<ParseTree, Integer> preorder = preorder(t);
+		List<Integer> positions = new ArrayList<Integer>();
+		for (ParseTree node : nodes) {
+			Integer position = preorder.get(node);
+			positions.add(position!=null ? position : -1);
+		}
+		return positions;
+	}
+
+	private static List<Integer> sorted(List<Integer> positions) {
+		Collections.sort(positions);
+		return positions;
+	}
+
+	private static Map<ParseTree, Integer> preorder(ParseTree t) {
+		Map<ParseTree, Integer> positions = new IdentityHashMap<ParseTree, Integer>();
+		List<ParseTree> pending = new ArrayList<ParseTree>();
+		pending.add(t);
+		while ( !pending.isEmpty() ) {
+			ParseTree node = pending.remove(pending.size()-1);
+			positions.put(node, positions.size());
+			for (int i = node.getChildCount()-1; i >= 0; i--) {
+				pending.add(node.getChild(i));
+			}
+		}
+		return positions;
+	}
+}
@@ -16,9 +16,14 @@ import org.antlr.v5.analysis.AnalysisPipeline;
 import org.antlr.v5.automata.ATNFactory;
 import org.antlr.v5.automata.LexerATNFactory;
 import org.antlr.v5.automata.ParserATNFactory;
+import org.antlr.v5.automata.optimization.KeywordExtractor;
 import org.antlr.v5.codegen.CodeGenPipeline;
 import org.antlr.v5.codegen.CodeGenerator;
+import org.antlr.v5.codegen.Target;
+import org.antlr.v5.codegen.target.JavaTarget;
+import org.antlr.v5.codegen.target.KotlinTarget;
 import org.antlr.v5.misc.Graph;
+import org.antlr.v5.misc.GrammarSourceCache;
 import org.antlr.v5.misc.LogManager;
 import org.antlr.v5.parse.ANTLRParser;
 import org.antlr.v5.parse.GrammarASTAdaptor;
@@ -112,6 +117,8 @@ public class Tool {
 	public boolean warnings_are_errors = false;
 	public boolean longMessages = false;
 	public boolean exact_output_dir = false;
+	public boolean compiled_lexer = false;
+	public boolean keyword_hash = false;
 
     public final static Option[] optionDefs = {
 		new Option("outputDirectory",             "-o", OptionArgType.STRING, "specify output directory where all output is generated"),
@@ -133,6 +140,8 @@ public class Tool {
 		new Option("force_atn",                   "-Xforce-atn", "use the ATN simulator for all predictions"),
 		new Option("log",                         "-Xlog", "dump lots of logging info to antlr-timestamp.log"),
 	    new Option("exact_output_dir",            "-Xexact-output-dir", "all output goes into -o dir regardless of paths/package"),
+		new Option("compiled_lexer",              "-Xcompiled-lexer", "generate lexer DFA tables for the Java and Kotlin targets"),
+		new Option("keyword_hash",                "-Xkeyword-hash", "look keywords up in a hash table for the Java and Kotlin targets"),
 	};
 
 	// helper vars for option management
@@ -147,6 +156,12 @@ public class Tool {
 	public ErrorManager errMgr;
     public LogManager logMgr = new LogManager();
 
+	/** If non-null, grammar text is served from this cache instead of
+	 *  being re-read from disk. Shared across tool instances by
+	 *  {@link ToolServer} and the Maven plugin.
+	 */
+	public GrammarSourceCache grammarSourceCache;
+
 	List<ANTLRToolListener> listeners = new CopyOnWriteArrayList<ANTLRToolListener>();
 
 	/** Track separately so if someone adds a listener, it's the only one
@@ -395,6 +410,12 @@ public class Tool {
 			}
 		}
 
+		// MATCH KEYWORDS AS IDENTIFIERS; the interpreter data keeps them
+		Target target = codeGenerator.getTarget();
+		if ( keyword_hash && g.isLexer() && (target instanceof JavaTarget || target instanceof KotlinTarget) ) {
+			KeywordExtractor.optimize((LexerGrammar)g, g.atn);
+		}
+
 		// PERFORM GRAMMAR ANALYSIS ON ATN: BUILD DECISION DFAs
 		AnalysisPipeline anal = new AnalysisPipeline(g);
 		anal.process();
@@ -578,7 +599,7 @@ public class Tool {
 				file = new File(inputDirectory, fileName);
 			}
 
-			ANTLRFileStream in = new ANTLRFileStream(file.getAbsolutePath(), grammarEncoding);
+			CharStream in = openGrammarFile(file.getAbsolutePath());
 			GrammarRootAST t = parse(fileName, in);
 			return t;
 		}
@@ -627,7 +648,7 @@ public class Tool {
 			}
 
 			String absolutePath = importedFile.getAbsolutePath();
-			ANTLRFileStream in = new ANTLRFileStream(absolutePath, grammarEncoding);
+			CharStream in = openGrammarFile(absolutePath);
 			GrammarRootAST root = parse(g.fileName, in);
 			if (root == null) {
 				return null;
@@ -641,6 +662,16 @@ public class Tool {
 		return imported;
 	}
 
+	/** Open a grammar file for parsing, going through
+	 *  {@link #grammarSourceCache} when one is set.
+	 */
+	protected CharStream openGrammarFile(String absolutePath) throws IOException {
+		if ( grammarSourceCache!=null ) {
+			return grammarSourceCache.open(absolutePath, grammarEncoding);
+		}
+		return new ANTLRFileStream(absolutePath, grammarEncoding);
+	}
+
 	public GrammarRootAST parseGrammarFromString(String grammar) {
 		return parse("<string>", new ANTLRStringStream(grammar));
 	}
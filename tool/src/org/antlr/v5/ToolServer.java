@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5;
+
+import org.antlr.v5.misc.GrammarSourceCache;
+import org.antlr.v5.tool.ANTLRMessage;
+import org.antlr.v5.tool.ANTLRToolListener;
+import org.antlr.v5.tool.Grammar;
+import org.antlr.v5.tool.ast.GrammarRootAST;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/** A long-lived ANTLR tool process. Each {@link Tool} run pays for class
+ *  loading, {@code STGroup} template loading, Unicode property tables and
+ *  JIT warm-up; all of those live in static state, so keeping one JVM
+ *  around makes edit-regenerate cycles much cheaper. Grammar text is kept
+ *  in a shared {@link GrammarSourceCache}.
+ *
+ *  <p>Requests are read one per line, from stdin by default or from a
+ *  loopback socket with {@code -port N}. A request is the usual tool
+ *  command line with arguments separated by tabs (or by whitespace if the
+ *  line contains no tab). Relative paths resolve against the server's
+ *  working directory. Every tool message is written back on its own line,
+ *  prefixed by {@code info:}, {@code warning:} or {@code error:}, and the
+ *  response ends with {@code done N} where N is the number of errors.</p>
+ *
+ *  <p>The commands {@code stats}, {@code clear} and {@code shutdown} manage
+ *  the server itself.</p>
+ *
+ *  <pre>
+ *  $ java org.antlr.v5.ToolServer -warm Java
+ *  -o	/tmp/out	-visitor	/src/T.g4
+ *  done 0
+ *  </pre>
+ */
+public class ToolServer {
+	public static final String DONE = "done";
+
+	protected final GrammarSourceCache sourceCache = new GrammarSourceCache();
+
+	protected int requests = 0;
+
+	public static void main(String[] args) throws IOException {
+		ToolServer server = new ToolServer();
+		int port = -1;
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if ( arg.equals("-port") && i+1 < args.length ) {
+				port = Integer.parseInt(args[++i]);
+			}
+			else if ( arg.equals("-warm") && i+1 < args.length ) {
+				for (String language : args[++i].split(",")) {
+					server.warmUp(language.trim());
+				}
+			}
+			else {
+				System.err.println("usage: java org.antlr.v5.ToolServer [-port N] [-warm Lang1,Lang2,...]");
+				System.exit(1);
+			}
+		}
+
+		if ( port<0 ) {
+			BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+			PrintWriter out = new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), true);
+			server.serve(in, out);
+			return;
+		}
+
+		try (ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+			System.out.println("ANTLR tool server listening on " + serverSocket.getLocalSocketAddress());
+			while ( true ) {
+				// one client at a time; Tool instances are not meant to run concurrently
+				try (Socket client = serverSocket.accept()) {
+					BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+					PrintWriter out = new PrintWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8), true);
+					if ( !server.serve(in, out) ) break;
+				}
+			}
+		}
+	}
+
+	/** Handle requests until end of input or {@code shutdown}. Return false
+	 *  if the server was asked to shut down.
+	 */
+	public boolean serve(BufferedReader in, PrintWriter out) throws IOException {
+		String line;
+		while ( (line = in.readLine())!=null ) {
+			line = line.trim();
+			if ( line.isEmpty() ) continue;
+			switch ( line ) {
+				case "shutdown":
+					out.println(DONE + " 0");
+					return false;
+				case "clear":
+					sourceCache.clear();
+					out.println(DONE + " 0");
+					break;
+				case "stats":
+					out.println("info: requests=" + requests +
+								" cachedGrammars=" + sourceCache.size() +
+								" hits=" + sourceCache.getHits() +
+								" misses=" + sourceCache.getMisses());
+					out.println(DONE + " 0");
+					break;
+				default:
+					int errors = process(splitArgs(line), out);
+					out.println(DONE + " " + errors);
+			}
+		}
+		return true;
+	}
+
+	/** Run the tool once with {@code args}, reporting messages to {@code out}.
+	 *  Return the number of errors.
+	 */
+	public int process(String[] args, final PrintWriter out) {
+		requests++;
+		Tool tool = new Tool(args);
+		tool.grammarSourceCache = sourceCache;
+		tool.addListener(new ResponseListener(tool, out));
+		try {
+			tool.processGrammarsOnCommandLine();
+		}
+		catch (Throwable t) {
+			out.println("error: " + oneLine(t.toString()));
+			return tool.getNumErrors() + 1;
+		}
+		return tool.getNumErrors();
+	}
+
+	/** Generate code for a small grammar into memory so that the target's
+	 *  templates, the Unicode property tables and the code paths used by a
+	 *  real request are loaded before the first one arrives.
+	 */
+	public void warmUp(String language) {
+		Tool tool = new Tool();
+		tool.outputDirectory = null; // write generated code to StringWriters
+		tool.addListener(new ResponseListener(tool, new PrintWriter(System.err, true)));
+		GrammarRootAST ast = tool.parseGrammarFromString(
+			"grammar Warmup;\n" +
+			"options { language=" + language + "; }\n" +
+			"s : e (';' e)* EOF ;\n" +
+			"e : e '*' e | e '+' e | ID | INT | '(' e ')' ;\n" +
+			"ID : [\\p{L}_] [\\p{L}\\p{Nd}_]* ;\n" +
+			"INT : [0-9]+ ;\n" +
+			"WS : [ \\t\\r\\n]+ -> skip ;\n");
+		if ( ast==null ) return;
+		Grammar g = tool.createGrammar(ast);
+		g.fileName = Grammar.GRAMMAR_FROM_STRING_NAME;
+		tool.process(g, true);
+	}
+
+	public static String[] splitArgs(String line) {
+		String[] parts = line.indexOf('\t')>=0 ? line.split("\t") : line.split("\\s+");
+		List<String> args = new ArrayList<String>(parts.length);
+		for (String p : parts) {
+			if ( !p.isEmpty() ) args.add(p);
+		}
+		return args.toArray(new String[0]);
+	}
+
+	protected static String oneLine(String msg) {
+		return msg.replace('\r', ' ').replace('\n', ' ');
+	}
+
+	protected static class ResponseListener implements ANTLRToolListener {
+		protected final Tool tool;
+		protected final PrintWriter out;
+
+		public ResponseListener(Tool tool, PrintWriter out) {
+			this.tool = tool;
+			this.out = out;
+		}
+
+		@Override
+		public void info(String msg) {
+			out.println("info: " + oneLine(msg));
+		}
+
+		@Override
+		public void error(ANTLRMessage msg) {
+			out.println("error: " + oneLine(tool.errMgr.getMessageTemplate(msg).render()));
+		}
+
+		@Override
+		public void warning(ANTLRMessage msg) {
+			out.println("warning: " + oneLine(tool.errMgr.getMessageTemplate(msg).render()));
+		}
+	}
+}
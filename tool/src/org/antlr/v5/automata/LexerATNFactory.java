@@ -19,7 +19,6 @@ import org.antlr.v5.runtime.core.IntStream;
 import org.antlr.v5.runtime.core.Lexer;
 import org.antlr.v5.runtime.core.action.*;
 import org.antlr.v5.runtime.core.atn.ATN;
-import org.antlr.v5.runtime.core.misc.Interval;
 import org.antlr.v5.runtime.core.misc.IntervalSet;
 import org.antlr.v5.runtime.core.state.ATNState;
 import org.antlr.v5.runtime.core.state.RuleStartState;
@@ -288,9 +287,8 @@ public class LexerATNFactory extends ParserATNFactory {
 		}
 		else {
 			Transition transition;
-			if (set.getIntervals().size() == 1) {
-				Interval interval = set.getIntervals().get(0);
-				transition = CodePointTransitions.INSTANCE.createWithCodePointRange(right, interval.getA(), interval.getB());
+			if (set.getIntervalCount() == 1) {
+				transition = CodePointTransitions.INSTANCE.createWithCodePointRange(right, set.intervalStart(0), set.intervalEnd(0));
 			}
 			else {
 				transition = new SetTransition(right, set);
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.automata.optimization;
+
+import org.antlr.v5.misc.GrammarLiteralParser;
+import org.antlr.v5.parse.ANTLRParser;
+import org.antlr.v5.runtime.core.KeywordTable;
+import org.antlr.v5.runtime.core.LexerInterpreter;
+import org.antlr.v5.runtime.core.atn.ATN;
+import org.antlr.v5.runtime.core.atn.LexerATNSimulator;
+import org.antlr.v5.runtime.core.error.LexerNoViableAltException;
+import org.antlr.v5.runtime.core.state.ATNState;
+import org.antlr.v5.runtime.core.state.RuleStartState;
+import org.antlr.v5.runtime.core.state.RuleStopState;
+import org.antlr.v5.runtime.core.state.TokensStartState;
+import org.antlr.v5.runtime.core.transition.AbstractPredicateTransition;
+import org.antlr.v5.runtime.core.transition.ActionTransition;
+import org.antlr.v5.runtime.core.transition.RuleTransition;
+import org.antlr.v5.runtime.core.transition.Transition;
+import org.antlr.v5.runtime.java.CharStreams;
+import org.antlr.v5.runtime.java.CodePointCharStream;
+import org.antlr.v5.tool.LexerGrammar;
+import org.antlr.v5.tool.Rule;
+import org.antlr.v5.tool.ast.GrammarAST;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/** Takes keyword rules out of the modes of a lexer ATN, to be matched by
+ *  an identifier rule and looked up in a {@link KeywordTable}; see the
+ *  {@code -Xkeyword-hash} option.
+ *
+ *  <p>A keyword rule matches a single string literal. It can be left out
+ *  of its mode if, without it, the mode matches its text with an
+ *  identifier rule defined after it, which has no commands or actions:
+ *  the identifier then matches the same input the keyword did, and the
+ *  lexer maps the text back to the keyword. Whether that holds is checked
+ *  by matching the text of each keyword with the ATN that is left, in
+ *  several mixes of lower and upper case too for case-insensitive keywords.
+ *  Modes with predicates are left alone, as they cannot be evaluated here.</p>
+ *
+ *  <p>A keyword rule with the same text as an earlier one, ignoring case if
+ *  both are case-insensitive, never matches; it is left out of the mode
+ *  along with the earlier rule, and not put in the table.</p>
+ */
+public class KeywordExtractor {
+	/** Removes the keyword rules of each mode of {@code atn} that can be
+	 *  matched as identifiers, and sets {@link LexerGrammar#keywordTables}
+	 *  if there are any.
+	 */
+	public static void optimize(LexerGrammar g, ATN atn) {
+		KeywordTable[] tables = new KeywordTable[atn.getModeToStartState().size()];
+		boolean found = false;
+		int mode = 0;
+		for (String modeName : g.modes.keySet()) {
+			tables[mode] = optimize(g, atn, mode, g.modes.get(modeName));
+			found |= tables[mode]!=null;
+			mode++;
+		}
+		if ( found ) g.keywordTables = tables;
+	}
+
+	protected static KeywordTable optimize(LexerGrammar g, ATN atn, int mode, List<Rule> rules) {
+		TokensStartState start = atn.getModeToStartState().get(mode);
+		if ( reaches(start, AbstractPredicateTransition.class) ) return null;
+
+		Map<Rule, String> keywords = new LinkedHashMap<Rule, String>();
+		Map<String, Rule> keywordsByKey = new HashMap<String, Rule>();
+		Map<Rule, List<Rule>> duplicates = new HashMap<Rule, List<Rule>>();
+		for (Rule r : rules) {
+			String text = getKeywordText(r);
+			if ( text==null ) continue;
+			String key = r.caseInsensitive+":"+(r.caseInsensitive ? fold(text) : text);
+			Rule first = keywordsByKey.get(key);
+			if ( first==null ) {
+				keywordsByKey.put(key, r);
+				keywords.put(r, text);
+			}
+			else {
+				// The ATN predicts the first rule for this text
+				if ( !duplicates.containsKey(first) ) duplicates.put(first, new ArrayList<Rule>());
+				duplicates.get(first).add(r);
+			}
+		}
+		if ( keywords.isEmpty() ) return null;
+
+		List<Transition> transitions = new ArrayList<Transition>(start.getTransitions());
+		Set<Rule> removed = new LinkedHashSet<Rule>(keywords.keySet());
+		Rule identifier = null;
+		while ( !removed.isEmpty() ) {
+			link(atn, start, transitions, withDuplicates(removed, duplicates));
+
+			// Which rule matches each keyword once they are removed?
+			LexerATNSimulator sim = newSimulator(g, atn);
+			Map<Rule, Rule> identifierOf = new HashMap<Rule, Rule>();
+			Map<Rule, Integer> counts = new HashMap<Rule, Integer>();
+			identifier = null;
+			for (Rule r : removed) {
+				Rule id = getIdentifierRule(atn, sim, mode, rules, r, keywords.get(r));
+				if ( id==null || id.index<r.index ) continue;
+				identifierOf.put(r, id);
+				int count = counts.containsKey(id) ? counts.get(id)+1 : 1;
+				counts.put(id, count);
+				if ( identifier==null || count>counts.get(identifier) ) identifier = id;
+			}
+			if ( identifier==null ) break;
+
+			// Keep the keywords of the most common identifier rule and case
+			// sensitivity; put the others back, and check again
+			Boolean caseInsensitive = null;
+			Set<Rule> kept = new LinkedHashSet<Rule>();
+			for (Rule r : removed) {
+				if ( identifierOf.get(r)!=identifier ) continue;
+				if ( caseInsensitive==null ) caseInsensitive = r.caseInsensitive;
+				if ( r.caseInsensitive==caseInsensitive ) kept.add(r);
+			}
+			if ( kept.equals(removed) ) break;
+			removed = kept;
+		}
+
+		if ( identifier==null || removed.isEmpty() ) {
+			link(atn, start, transitions, new HashSet<Rule>());
+			return null;
+		}
+
+		String[] texts = new String[removed.size()];
+		int[] types = new int[removed.size()];
+		int i = 0;
+		for (Rule r : removed) {
+			texts[i] = keywords.get(r);
+			types[i] = atn.getRuleToTokenType()[r.index];
+			i++;
+		}
+		int identifierType = atn.getRuleToTokenType()[identifier.index];
+		return KeywordTable.Companion.build(identifierType, texts, types, removed.iterator().next().caseInsensitive);
+	}
+
+	/** Returns {@code rules} and the rules with the same text. */
+	protected static Set<Rule> withDuplicates(Set<Rule> rules, Map<Rule, List<Rule>> duplicates) {
+		Set<Rule> all = new LinkedHashSet<Rule>(rules);
+		for (Rule r : rules) {
+			if ( duplicates.containsKey(r) ) all.addAll(duplicates.get(r));
+		}
+		return all;
+	}
+
+	/** Folds the case of {@code text} like {@link KeywordTable}. */
+	protected static String fold(String text) {
+		StringBuilder buf = new StringBuilder(text.length());
+		for (int i = 0; i < text.length(); i++) {
+			buf.append(Character.toLowerCase(Character.toUpperCase(text.charAt(i))));
+		}
+		return buf.toString();
+	}
+
+	/** The text of {@code r} if it only matches a string literal. */
+	protected static String getKeywordText(Rule r) {
+		if ( r.isFragment() ) return null;
+		GrammarAST block = (GrammarAST)r.ast.getFirstChildWithType(ANTLRParser.BLOCK);
+		if ( block==null || block.getChildCount()!=1 ) return null;
+		GrammarAST alt = (GrammarAST)block.getChild(0);
+		if ( alt.getType()!=ANTLRParser.ALT || alt.getChildCount()!=1 ) return null;
+		GrammarAST literal = (GrammarAST)alt.getChild(0);
+		if ( literal.getType()!=ANTLRParser.STRING_LITERAL ) return null;
+		String text = GrammarLiteralParser.parseStringFromStringLiteral(literal.getText());
+		return text!=null && !text.isEmpty() ? text : null;
+	}
+
+	/** Returns the rule that matches all of {@code text} in {@code mode},
+	 *  if it has no commands or actions, or else null.
+	 */
+	protected static Rule getIdentifierRule(ATN atn, LexerATNSimulator sim, int mode,
+											List<Rule> rules, Rule keyword, String text)
+	{
+		Set<String> variants = new LinkedHashSet<String>();
+		variants.add(text);
+		if ( keyword.caseInsensitive ) {
+			// Each character in both cases, next to characters of either case
+			String lower = text.toLowerCase(Locale.ROOT);
+			String upper = text.toUpperCase(Locale.ROOT);
+			variants.add(lower);
+			variants.add(upper);
+			if ( lower.length()==text.length() && upper.length()==text.length() ) {
+				StringBuilder even = new StringBuilder();
+				StringBuilder odd = new StringBuilder();
+				for (int i = 0; i < text.length(); i++) {
+					even.append(i%2==0 ? upper.charAt(i) : lower.charAt(i));
+					odd.append(i%2==0 ? lower.charAt(i) : upper.charAt(i));
+					variants.add(lower.substring(0, i)+upper.charAt(i)+lower.substring(i+1));
+					variants.add(upper.substring(0, i)+lower.charAt(i)+upper.substring(i+1));
+				}
+				variants.add(even.toString());
+				variants.add(odd.toString());
+			}
+		}
+
+		Rule identifier = null;
+		for (String variant : variants) {
+			CodePointCharStream input = CharStreams.fromString(variant);
+			int ttype;
+			sim.reset();
+			try {
+				ttype = sim.match(input, mode);
+			}
+			catch (LexerNoViableAltException e) {
+				return null;
+			}
+			if ( input.index()!=input.size() ) return null;
+
+			Rule matched = null;
+			for (Rule r : rules) {
+				if ( r.isFragment() || atn.getRuleToTokenType()[r.index]!=ttype ) continue;
+				if ( matched!=null ) return null; // can't tell which
+				matched = r;
+			}
+			if ( matched==null || identifier!=null && matched!=identifier ) return null;
+			identifier = matched;
+		}
+
+		RuleStartState start = atn.getRuleToStartState()[identifier.index];
+		return reaches(start, ActionTransition.class) ? null : identifier;
+	}
+
+	/** Links {@code start} to the rules of {@code transitions} that are
+	 *  not in {@code removed}, in order.
+	 */
+	protected static void link(ATN atn, TokensStartState start, List<Transition> transitions, Set<Rule> removed) {
+		Set<ATNState> removedStates = new HashSet<ATNState>();
+		for (Rule r : removed) removedStates.add(atn.getRuleToStartState()[r.index]);
+
+		start.clearTransitions();
+		for (Transition t : transitions) {
+			if ( !removedStates.contains(t.getTarget()) ) start.addTransition(t);
+		}
+	}
+
+	/** A simulator of {@code atn} as it is now. It has a lexer, which it
+	 *  needs to report input that no rule matches.
+	 */
+	protected static LexerATNSimulator newSimulator(LexerGrammar g, ATN atn) {
+		LexerInterpreter lexer = new LexerInterpreter(
+			g.fileName,
+			g.getVocabulary(),
+			Arrays.asList(g.getRuleNames()),
+			Arrays.asList("DEFAULT_TOKEN_CHANNEL", "HIDDEN"),
+			g.modes.keySet(),
+			atn,
+			CharStreams.fromString(""));
+		return lexer.getInterpreter();
+	}
+
+	/** Whether a transition of type {@code type} can be taken from
+	 *  {@code start}, in its rule or in the rules it calls.
+	 */
+	protected static boolean reaches(ATNState start, Class<? extends Transition> type) {
+		Set<ATNState> seen = new HashSet<ATNState>();
+		List<ATNState> pending = new ArrayList<ATNState>();
+		pending.add(start);
+		while ( !pending.isEmpty() ) {
+			ATNState s = pending.remove(pending.size()-1);
+			// Returns are followed from the rule transitions
+			if ( !seen.add(s) || s instanceof RuleStopState ) continue;
+			for (Transition t : s.getTransitions()) {
+				if ( type.isInstance(t) ) return true;
+				if ( t instanceof RuleTransition ) pending.add(((RuleTransition)t).getFollowState());
+				pending.add(t.getTarget());
+			}
+		}
+		return false;
+	}
+}
@@ -79,8 +79,9 @@ public class SetMerger {
 			}
 
 			// due to min alt resolution policies, can only collapse sequential alts
-			for (int i = setTransitions.getIntervals().size() - 1; i >= 0; i--) {
-				Interval interval = setTransitions.getIntervals().get(i);
+			List<Interval> sequentialAlts = setTransitions.getIntervals();
+			for (int i = sequentialAlts.size() - 1; i >= 0; i--) {
+				Interval interval = sequentialAlts.get(i);
 				if (interval.length() <= 1) {
 					continue;
 				}
@@ -104,9 +105,8 @@ public class SetMerger {
 				}
 
 				Transition newTransition;
-				if (matchSet.getIntervals().size() == 1) {
-					Interval matchInterval = matchSet.getIntervals().get(0);
-					newTransition = CodePointTransitions.INSTANCE.createWithCodePointRange(blockEndState, matchInterval.getA(), matchInterval.getB());
+				if (matchSet.getIntervalCount() == 1) {
+					newTransition = CodePointTransitions.INSTANCE.createWithCodePointRange(blockEndState, matchSet.intervalStart(0), matchSet.intervalEnd(0));
 				}
 				else {
 					newTransition = new SetTransition(blockEndState, matchSet);
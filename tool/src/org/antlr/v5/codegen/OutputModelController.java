@@ -168,6 +168,10 @@ public class OutputModelController {
 			buildNormalRuleFunction(r, function);
 		}
 
+		if ( RuleFunctionSplitter.appliesTo(delegate.getGenerator().getTarget()) ) {
+			new RuleFunctionSplitter(delegate, function).split();
+		}
+
 		Grammar g = getGrammar();
 		for (ActionAST a : r.actions) {
 			if ( a instanceof PredAST ) {
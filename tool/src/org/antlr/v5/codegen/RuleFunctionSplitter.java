@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.codegen;
+
+import org.antlr.v5.codegen.model.Action;
+import org.antlr.v5.codegen.model.CaptureNextToken;
+import org.antlr.v5.codegen.model.CaptureNextTokenType;
+import org.antlr.v5.codegen.model.Choice;
+import org.antlr.v5.codegen.model.CodeBlockForAlt;
+import org.antlr.v5.codegen.model.CodeBlockForOuterMostAlt;
+import org.antlr.v5.codegen.model.InvokeRule;
+import org.antlr.v5.codegen.model.InvokeRuleFunctionPart;
+import org.antlr.v5.codegen.model.LL1Choice;
+import org.antlr.v5.codegen.model.LL1Loop;
+import org.antlr.v5.codegen.model.LabeledOp;
+import org.antlr.v5.codegen.model.Loop;
+import org.antlr.v5.codegen.model.MatchSet;
+import org.antlr.v5.codegen.model.MatchToken;
+import org.antlr.v5.codegen.model.ModelElement;
+import org.antlr.v5.codegen.model.OutputModelObject;
+import org.antlr.v5.codegen.model.RuleFunction;
+import org.antlr.v5.codegen.model.RuleFunctionPart;
+import org.antlr.v5.codegen.model.SemPred;
+import org.antlr.v5.codegen.model.SrcOp;
+import org.antlr.v5.codegen.model.TestSetInline;
+import org.antlr.v5.codegen.model.ThrowRecognitionException;
+import org.antlr.v5.codegen.model.TokenInfo;
+import org.antlr.v5.codegen.model.chunk.ActionChunk;
+import org.antlr.v5.codegen.model.chunk.ActionText;
+import org.antlr.v5.codegen.model.decl.AltLabelStructDecl;
+import org.antlr.v5.codegen.model.decl.Decl;
+import org.antlr.v5.codegen.model.decl.StructDecl;
+import org.antlr.v5.codegen.target.JavaTarget;
+import org.antlr.v5.codegen.target.KotlinTarget;
+import org.antlr.v5.parse.ANTLRParser;
+import org.antlr.v5.tool.ErrorType;
+import org.antlr.v5.tool.Rule;
+import org.antlr.v5.tool.ast.ActionAST;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Moves alternatives out of rule functions that would be too large for
+ *  the JVM to compile, into private methods ({@link RuleFunctionPart}s).
+ *
+ *  <p>HotSpot never compiles a method with more than
+ *  {@link #HUGE_METHOD_LIMIT} bytes of bytecode, so a rule function over
+ *  that size is interpreted, many times slower. Large grammars get there
+ *  easily, with rules of hundreds of alternatives. The bytecode size of
+ *  the model is estimated op by op; while a function is over
+ *  {@link #MAX_FUNCTION_SIZE}, its largest alternative that fits in a
+ *  method of its own is moved out, and the parts are split the same
+ *  way.</p>
+ *
+ *  <p>Moved code sees the rule function's parameters, its
+ *  {@code _localctx} and fresh copies of its temporaries such as
+ *  {@code _la}, which are always assigned before they are read. So an
+ *  alternative is not moved if it assigns {@code _localctx} itself, as
+ *  the alternatives of left-recursive rules do, except in ops that stay in
+ *  front of the call. A rule with actions or an {@code @init} action is
+ *  not split at all, as they may declare variables used further on.</p>
+ *
+ *  <p>A rule whose functions remain over the limit is reported with
+ *  {@link ErrorType#RULE_FUNCTION_TOO_LARGE}.</p>
+ */
+public class RuleFunctionSplitter {
+	/** The size in bytes of the largest method HotSpot compiles,
+	 *  {@code -XX:HugeMethodLimit}.
+	 */
+	public static final int HUGE_METHOD_LIMIT = 8000;
+
+	/** Functions are split until their estimated size is at most this,
+	 *  which leaves room for errors of the estimate.
+	 */
+	public static final int MAX_FUNCTION_SIZE = 6000;
+
+	/** Alternatives smaller than this are not worth a method. */
+	public static final int MIN_PART_SIZE = 200;
+
+	/** Estimated size of the code around the body of a rule function:
+	 *  creating the context, enterRule, the catch and finally clauses.
+	 */
+	private static final int FUNCTION_OVERHEAD = 80;
+
+	protected final OutputModelFactory factory;
+	protected final RuleFunction function;
+
+	/** Number of ops assigning method variables seen so far by {@link #estimate}. */
+	private int assignments;
+
+	/** An alternative whose code can be moved out. */
+	protected static class Candidate {
+		/** The estimated size of the code to move. */
+		public final int size;
+		/** The type of {@code _localctx} where the code is. */
+		public final String ctxType;
+
+		public Candidate(int size, String ctxType) {
+			this.size = size;
+			this.ctxType = ctxType;
+		}
+	}
+
+	public RuleFunctionSplitter(OutputModelFactory factory, RuleFunction function) {
+		this.factory = factory;
+		this.function = function;
+	}
+
+	/** Only JVM targets have a limit on the size of compiled methods. */
+	public static boolean appliesTo(Target target) {
+		return target instanceof JavaTarget || target instanceof KotlinTarget;
+	}
+
+	public void split() {
+		boolean splittable = isSplittable(function.rule);
+		List<SrcOp> body = new ArrayList<SrcOp>(function.code);
+		if ( function.postamble!=null ) body.addAll(function.postamble);
+
+		int largest = fit(body, FUNCTION_OVERHEAD, splittable);
+		// parts are added while we go
+		for (int i = 0; i < function.parts.size(); i++) {
+			largest = Math.max(largest, fit(function.parts.get(i).code, 0, true));
+		}
+
+		if ( largest > HUGE_METHOD_LIMIT ) {
+			Rule r = function.rule;
+			factory.getGrammar().tool.errMgr.grammarError(ErrorType.RULE_FUNCTION_TOO_LARGE,
+														  factory.getGrammar().fileName, r.ast.getToken(),
+														  r.name, largest, HUGE_METHOD_LIMIT);
+		}
+	}
+
+	/** Can code be moved out of {@code r}'s function? */
+	protected static boolean isSplittable(Rule r) {
+		if ( r.namedActions.containsKey("init") ) return false;
+		for (ActionAST a : r.actions) {
+			if ( a.getType()==ANTLRParser.ACTION ) return false;
+		}
+		return true;
+	}
+
+	/** Moves alternatives out of {@code code} until it is small enough.
+	 *
+	 *  @return the estimated size of the method holding {@code code}
+	 */
+	protected int fit(List<SrcOp> code, int overhead, boolean splittable) {
+		while ( true ) {
+			Map<CodeBlockForAlt, Candidate> candidates = new LinkedHashMap<CodeBlockForAlt, Candidate>();
+			int size = overhead + estimate(code, function.ctxType, candidates);
+			if ( !splittable || size<=MAX_FUNCTION_SIZE ) return size;
+
+			// Prefer the largest alternative that fits in a method, or else
+			// the largest one, which is then split in turn
+			Map.Entry<CodeBlockForAlt, Candidate> best = null;
+			boolean bestFits = false;
+			for (Map.Entry<CodeBlockForAlt, Candidate> c : candidates.entrySet()) {
+				boolean fits = c.getValue().size<=MAX_FUNCTION_SIZE;
+				if ( best==null || fits && !bestFits || fits==bestFits && c.getValue().size>best.getValue().size ) {
+					best = c;
+					bestFits = fits;
+				}
+			}
+
+			if ( best==null ) return size;
+			outline(best.getKey(), best.getValue().ctxType);
+		}
+	}
+
+	/** Moves the ops of {@code blk} after its pinned ones to a new part. */
+	protected void outline(CodeBlockForAlt blk, String ctxType) {
+		int pinned = pinnedOps(blk);
+		List<SrcOp> moved = new ArrayList<SrcOp>(blk.ops.subList(pinned, blk.ops.size()));
+
+		String name = "_"+function.name+"_"+(function.parts.size()+1);
+		RuleFunctionPart part = new RuleFunctionPart(factory, function, name, ctxType, moved);
+		function.parts.add(part);
+
+		List<SrcOp> ops = new ArrayList<SrcOp>(blk.ops.subList(0, pinned));
+		ops.add(new InvokeRuleFunctionPart(factory, blk, part));
+		blk.ops = ops;
+	}
+
+	/** The number of leading ops of {@code blk} that must stay in the rule
+	 *  function: those code generation inserted for left-recursive rules.
+	 */
+	protected static int pinnedOps(CodeBlockForAlt blk) {
+		int n = 0;
+		while ( n<blk.ops.size() && isAssignment(blk.ops.get(n)) ) n++;
+		return n;
+	}
+
+	/** Actions code generation makes from templates, rather than from the
+	 *  grammar, may assign method variables such as {@code _localctx}.
+	 */
+	protected static boolean isAssignment(OutputModelObject o) {
+		return o instanceof Action && !(o instanceof SemPred) && o.ast==null;
+	}
+
+	/** Estimates the size in bytes of the bytecode for {@code o}, and
+	 *  records the alternatives in it that can be moved out.
+	 *
+	 *  @param ctxType The type of {@code _localctx} where {@code o} is
+	 */
+	protected int estimate(Object o, String ctxType, Map<CodeBlockForAlt, Candidate> candidates) {
+		if ( o==null ) return 0;
+		if ( o instanceof Object[] ) o = Arrays.asList((Object[])o);
+		if ( o instanceof Map ) o = ((Map<?, ?>)o).values();
+		if ( o instanceof Collection ) {
+			int size = 0;
+			for (Object e : (Collection<?>)o) size += estimate(e, ctxType, candidates);
+			return size;
+		}
+		// Declarations are not code of the function
+		if ( !(o instanceof OutputModelObject) || o instanceof Decl || o instanceof StructDecl ) return 0;
+
+		OutputModelObject omo = (OutputModelObject)o;
+		int size = cost(omo);
+		if ( isAssignment(omo) ) assignments++;
+
+		if ( omo instanceof CodeBlockForAlt ) {
+			CodeBlockForAlt blk = (CodeBlockForAlt)omo;
+			int pinned = pinnedOps(blk);
+			String label = null;
+			if ( blk instanceof CodeBlockForOuterMostAlt ) {
+				label = ((CodeBlockForOuterMostAlt)blk).altLabel;
+			}
+			else if ( pinned>0 ) {
+				// Left-recursive rules create the context of a labeled alternative first
+				List<ActionChunk> chunks = ((Action)blk.ops.get(0)).chunks;
+				StructDecl ctx = chunks.isEmpty() ? null : chunks.get(0).ctx;
+				if ( ctx instanceof AltLabelStructDecl ) label = ctx.derivedFromName;
+			}
+			if ( label!=null ) ctxType = factory.getGenerator().getTarget().getAltLabelContextStructName(label);
+
+			size += estimate(blk.ops.subList(0, pinned), ctxType, candidates);
+			int before = assignments;
+			int moved = estimate(blk.ops.subList(pinned, blk.ops.size()), ctxType, candidates);
+			boolean hasDecls = blk.locals!=null && !blk.locals.isEmpty() ||
+							   blk.preamble!=null && !blk.preamble.isEmpty();
+			if ( assignments==before && !hasDecls && moved>=MIN_PART_SIZE ) {
+				candidates.put(blk, new Candidate(moved, ctxType));
+			}
+			return size + moved + estimate(blk.locals, ctxType, candidates) + estimate(blk.preamble, ctxType, candidates);
+		}
+
+		for (Field f : omo.getClass().getFields()) {
+			if ( f.getAnnotation(ModelElement.class)==null ) continue;
+			try {
+				size += estimate(f.get(omo), ctxType, candidates);
+			}
+			catch (IllegalAccessException iae) {
+				// public fields
+			}
+		}
+		return size;
+	}
+
+	/** The estimated size of {@code o} itself, without nested model objects. */
+	protected static int cost(OutputModelObject o) {
+		int labels = o instanceof LabeledOp ? ((LabeledOp)o).getLabels().size() : 0;
+		if ( o instanceof MatchSet ) return 40 + 10*labels;
+		if ( o instanceof MatchToken ) return 16 + 10*labels;
+		if ( o instanceof InvokeRule ) return 16 + 10*labels;
+		if ( o instanceof InvokeRuleFunctionPart ) return 10;
+		if ( o instanceof CodeBlockForOuterMostAlt ) {
+			return ((CodeBlockForOuterMostAlt)o).altLabel!=null ? 25 : 12;
+		}
+		if ( o instanceof Choice ) {
+			Choice c = (Choice)o;
+			// setState and sync, then a case and a jump per alternative
+			int size = 20 + 8*c.alts.size();
+			if ( o instanceof LL1Choice ) {
+				for (TokenInfo[] look : ((LL1Choice)o).altLook) size += 8*look.length;
+			}
+			else if ( !(o instanceof LL1Loop) ) {
+				size += 15; // adaptivePredict
+			}
+			if ( o instanceof Loop || o instanceof LL1Loop ) size += 20;
+			return size;
+		}
+		if ( o instanceof TestSetInline ) {
+			int size = 0;
+			for (TestSetInline.Bitset bits : ((TestSetInline)o).bitsets) {
+				size += bits.getTokens().size()>2 ? 25 : 8*bits.getTokens().size();
+			}
+			return size;
+		}
+		if ( o instanceof SemPred ) return 30;
+		if ( o instanceof ActionText ) {
+			String text = ((ActionText)o).text;
+			return text!=null ? text.length()/2 : 0;
+		}
+		if ( o instanceof CaptureNextToken || o instanceof CaptureNextTokenType ) return 12;
+		if ( o instanceof ThrowRecognitionException ) return 10;
+		return 4;
+	}
+}
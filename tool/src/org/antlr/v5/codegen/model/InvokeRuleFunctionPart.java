@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.codegen.model;
+
+import org.antlr.v5.codegen.OutputModelFactory;
+import org.antlr.v5.codegen.model.decl.CodeBlock;
+
+/** Calls a {@link RuleFunctionPart} from the block its code was moved out of. */
+public class InvokeRuleFunctionPart extends SrcOp {
+	public final RuleFunctionPart part;
+	/** Whether {@code _localctx} is declared with another type than the part
+	 *  takes, the context of the rule rather than of a labeled alternative.
+	 */
+	public final boolean castCtx;
+
+	public InvokeRuleFunctionPart(OutputModelFactory factory, CodeBlock enclosingBlock, RuleFunctionPart part) {
+		super(factory);
+		this.enclosingBlock = enclosingBlock;
+		this.enclosingRuleRunction = part.function;
+		this.part = part;
+		this.castCtx = !part.ctxType.equals(part.function.ctxType);
+	}
+}
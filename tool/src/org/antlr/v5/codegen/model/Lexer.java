@@ -8,6 +8,13 @@ package org.antlr.v5.codegen.model;
 
 import org.antlr.v5.codegen.OutputModelFactory;
 import org.antlr.v5.codegen.Target;
+import org.antlr.v5.codegen.target.JavaTarget;
+import org.antlr.v5.codegen.target.KotlinTarget;
+import org.antlr.v5.runtime.core.KeywordTable;
+import org.antlr.v5.runtime.core.atn.ATN;
+import org.antlr.v5.runtime.core.atn.ATNDeserializer;
+import org.antlr.v5.runtime.core.atn.ATNSerializer;
+import org.antlr.v5.runtime.core.atn.CompiledLexerDFA;
 import org.antlr.v5.tool.Grammar;
 import org.antlr.v5.tool.LexerGrammar;
 import org.antlr.v5.tool.Rule;
@@ -24,6 +31,16 @@ public class Lexer extends Recognizer {
 	@ModelElement public LinkedHashMap<Rule, RuleActionFunction> actionFuncs =
 		new LinkedHashMap<Rule, RuleActionFunction>();
 
+	/** The DFA tables of the lexer with -Xcompiled-lexer, if at least one
+	 *  mode could be compiled; null otherwise.
+	 */
+	@ModelElement public SerializedLexerDFA compiledDFA;
+
+	/** The keyword tables of the lexer with -Xkeyword-hash, if keywords of
+	 *  at least one mode are looked up; null otherwise.
+	 */
+	@ModelElement public LexerKeywordTables keywordTables;
+
 	public Lexer(OutputModelFactory factory, LexerFile file) {
 		super(factory);
 		this.file = file; // who contains us?
@@ -44,5 +61,23 @@ public class Lexer extends Recognizer {
 		for (String mode : modes) {
 			escapedModeNames.add(target.escapeIfNeeded(mode));
 		}
+
+		if ( g.tool.compiled_lexer && (target instanceof JavaTarget || target instanceof KotlinTarget) ) {
+			// Compile the ATN the generated lexer deserializes
+			ATN atn = new ATNDeserializer().deserialize(ATNSerializer.Companion.getSerialized(g.atn).toArray());
+			CompiledLexerDFA dfa = CompiledLexerDFA.compile(atn, CompiledLexerDFA.DEFAULT_MAX_TABLE_SIZE);
+			for (int i = 0; i < dfa.getModeCount(); i++) {
+				if ( dfa.mode(i)!=null ) {
+					compiledDFA = new SerializedLexerDFA(factory, dfa, atn);
+					break;
+				}
+			}
+		}
+
+		// Set by KeywordExtractor, for the java and kotlin targets only
+		KeywordTable[] tables = ((LexerGrammar)g).keywordTables;
+		if ( tables!=null ) {
+			keywordTables = new LexerKeywordTables(factory, tables);
+		}
 	}
 }
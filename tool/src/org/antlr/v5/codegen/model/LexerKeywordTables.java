@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.codegen.model;
+
+import org.antlr.v5.codegen.OutputModelFactory;
+import org.antlr.v5.codegen.Target;
+import org.antlr.v5.runtime.core.KeywordTable;
+import org.antlr.v5.tool.Grammar;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** The {@link KeywordTable} of each mode of a lexer, made by
+ *  {@link org.antlr.v5.automata.optimization.KeywordExtractor}. Only for
+ *  the java and kotlin targets; see the {@code -Xkeyword-hash} option.
+ */
+public class LexerKeywordTables extends OutputModelObject {
+	/** One per mode; modes without keyword table have a null identifier. */
+	public final List<Table> tables = new ArrayList<Table>();
+
+	public static class Table {
+		public String identifier;
+		public final List<String> keywords = new ArrayList<String>();
+		public final List<String> types = new ArrayList<String>();
+		public final List<Integer> displacements = new ArrayList<Integer>();
+		public int seed;
+		public boolean caseInsensitive;
+	}
+
+	public LexerKeywordTables(OutputModelFactory factory, KeywordTable[] keywordTables) {
+		super(factory);
+		Grammar g = factory.getGrammar();
+		Target target = factory.getGenerator().getTarget();
+		for (KeywordTable keywordTable : keywordTables) {
+			Table table = new Table();
+			if ( keywordTable!=null ) {
+				table.identifier = target.getTokenTypeAsTargetLabel(g, keywordTable.getIdentifierType());
+				for (String keyword : keywordTable.getKeywords()) {
+					table.keywords.add(target.getTargetStringLiteralFromString(keyword));
+				}
+				for (int type : keywordTable.getTypes()) {
+					table.types.add(target.getTokenTypeAsTargetLabel(g, type));
+				}
+				for (int displacement : keywordTable.getDisplacements()) {
+					table.displacements.add(displacement);
+				}
+				table.seed = keywordTable.getSeed();
+				table.caseInsensitive = keywordTable.getCaseInsensitive();
+			}
+			tables.add(table);
+		}
+	}
+}
@@ -33,6 +33,11 @@ public class ListenerFile extends OutputFile {
 	 * context.
 	 */
 	public Map<String, String> listenerLabelRuleNames = new LinkedHashMap<String, String>();
+	/**
+	 * For each rule, in rule index order, the names of its listener
+	 * contexts: the rule name, or the labels of its outer alternatives.
+	 */
+	public List<Collection<String>> ruleListenerNames = new ArrayList<Collection<String>>();
 
 	@ModelElement public Action header;
 	@ModelElement public Map<String, Action> namedActions;
@@ -56,6 +61,10 @@ public class ListenerFile extends OutputFile {
 				listenerNames.add(r.name);
 			}
 		}
+		for (Rule r : g.indexToRule) {
+			Map<String, List<Pair<Integer,AltAST>>> labels = r.getAltLabels();
+			ruleListenerNames.add(labels!=null ? labels.keySet() : Collections.singletonList(r.name));
+		}
 		ActionAST ast = g.namedActions.get("header");
 		if ( ast!=null && ast.getScope()==null ) {
 			header = new Action(factory, ast);
@@ -28,7 +28,11 @@ import org.antlr.v5.runtime.core.misc.IntervalSet;
 import org.antlr.v5.misc.OrderedHashSet;
 import kotlin.Pair;
 import org.antlr.v5.tool.Attribute;
+import org.antlr.v5.tool.AttributeDict;
 import org.antlr.v5.tool.ErrorType;
+import org.antlr.v5.tool.Grammar;
+import org.antlr.v5.tool.LabelElementPair;
+import org.antlr.v5.tool.LeftRecursiveRule;
 import org.antlr.v5.tool.Rule;
 import org.antlr.v5.tool.ast.ActionAST;
 import org.antlr.v5.tool.ast.AltAST;
@@ -61,6 +65,8 @@ public class RuleFunction extends OutputModelObject {
 	public final Rule rule;
 	public final AltLabelStructDecl[] altToContext;
 	public boolean hasLookaheadBlock;
+	/** Can the parser reuse this rule's contexts when parsing without a tree? */
+	public final boolean recycleContext;
 
 	@ModelElement public List<SrcOp> code;
 	@ModelElement public OrderedHashSet<Decl> locals; // TODO: move into ctx?
@@ -71,6 +77,8 @@ public class RuleFunction extends OutputModelObject {
 	@ModelElement public Action finallyAction;
 	@ModelElement public List<ExceptionClause> exceptions;
 	@ModelElement public List<SrcOp> postamble;
+	/** Code moved out of this function to keep it small; see {@link org.antlr.v5.codegen.RuleFunctionSplitter} */
+	@ModelElement public List<RuleFunctionPart> parts = new ArrayList<RuleFunctionPart>();
 
 	public RuleFunction(OutputModelFactory factory, Rule r) {
 		super(factory);
@@ -115,6 +123,48 @@ public class RuleFunction extends OutputModelObject {
 		}
 
 		startState = factory.getGrammar().atn.getRuleToStartState()[r.index];
+		recycleContext = !(r instanceof LeftRecursiveRule) && hasPlainContext(r) && !isContextShared(factory.getGrammar(), r);
+	}
+
+	/** Does {@code r}'s context hold nothing but the parse position and tree? */
+	protected static boolean hasPlainContext(Rule r) {
+		return isEmpty(r.args) && isEmpty(r.retvals) && isEmpty(r.locals) &&
+			   r.actions.isEmpty() && r.namedActions.isEmpty() &&
+			   r.exceptions.isEmpty() && r.finallyAction==null &&
+			   r.getAltLabels()==null && r.getElementLabelNames().isEmpty();
+	}
+
+	private static boolean isEmpty(AttributeDict d) {
+		return d==null || d.attributes.isEmpty();
+	}
+
+	/**
+	 * Can a context of {@code r} be kept by its invoker, through a label or
+	 * through an action referring to {@code $r}?
+	 */
+	protected static boolean isContextShared(Grammar g, Rule r) {
+		for (Rule invoker : g.rules.values()) {
+			boolean hasActions = !invoker.actions.isEmpty() || !invoker.namedActions.isEmpty() ||
+								 !invoker.exceptions.isEmpty() || invoker.finallyAction!=null;
+			if ( hasActions && refersTo(invoker.ast, r) ) {
+				return true;
+			}
+			for (List<LabelElementPair> pairs : invoker.getElementLabelDefs().values()) {
+				for (LabelElementPair pair : pairs) {
+					if ( refersTo(pair.element, r) ) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	private static boolean refersTo(GrammarAST ast, Rule r) {
+		for (GrammarAST ref : ast.getNodesWithType(RULE_REF)) {
+			if ( ref.getText().equals(r.name) ) return true;
+		}
+		return false;
 	}
 
 	public void addContextGetters(OutputModelFactory factory, Rule r) {
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.codegen.model;
+
+import org.antlr.v5.codegen.OutputModelFactory;
+import org.antlr.v5.codegen.RuleFunctionSplitter;
+import org.antlr.v5.codegen.model.decl.AttributeDecl;
+import org.antlr.v5.codegen.model.decl.Decl;
+import org.antlr.v5.misc.OrderedHashSet;
+
+import java.util.Collection;
+import java.util.List;
+
+/** A private method holding the code of an alternative that
+ *  {@link RuleFunctionSplitter} moved out of a rule function.
+ */
+public class RuleFunctionPart extends OutputModelObject {
+	public final String name;
+	public final RuleFunction function;
+	/** The type of {@code _localctx} in the code: the context of the rule,
+	 *  or of the labeled alternative the code is in.
+	 */
+	public final String ctxType;
+
+	@ModelElement public Collection<AttributeDecl> args;
+	@ModelElement public OrderedHashSet<Decl> locals;
+	@ModelElement public List<SrcOp> code;
+
+	public RuleFunctionPart(OutputModelFactory factory, RuleFunction function,
+							String name, String ctxType, List<SrcOp> code)
+	{
+		super(factory);
+		this.name = name;
+		this.function = function;
+		this.ctxType = ctxType;
+		this.args = function.args;
+		this.locals = function.locals;
+		this.code = code;
+	}
+}
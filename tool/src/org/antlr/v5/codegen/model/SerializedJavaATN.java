@@ -16,12 +16,20 @@ public class SerializedJavaATN extends SerializedATN {
 	public SerializedJavaATN(OutputModelFactory factory, ATN atn) {
 		super(factory);
 		IntegerList data = ATNSerializer.Companion.getSerialized(atn);
+		segments = encodeSegments(factory, data);
+		serializedAsString = segments[0]; // serializedAsString is valid if only one segment
+	}
+
+	/** Encode {@code data} as 16-bit char escapes, split into segments no
+	 *  longer than the target's limit for a string literal.
+	 */
+	public static String[][] encodeSegments(OutputModelFactory factory, IntegerList data) {
 		data = encodeIntsWith16BitWords(data);
 
 		int size = data.size();
 		Target target = factory.getGenerator().getTarget();
 		int segmentLimit = target.getSerializedATNSegmentLimit();
-		segments = new String[(int)(((long)size + segmentLimit - 1) / segmentLimit)][];
+		String[][] segments = new String[(int)(((long)size + segmentLimit - 1) / segmentLimit)][];
 		int segmentIndex = 0;
 
 		for (int i = 0; i < size; i += segmentLimit) {
@@ -33,7 +41,7 @@ public class SerializedJavaATN extends SerializedATN {
 			}
 		}
 
-		serializedAsString = segments[0]; // serializedAsString is valid if only one segment
+		return segments;
 	}
 
 	public Object getSerialized() { return serializedAsString; }
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.codegen.model;
+
+import org.antlr.v5.codegen.OutputModelFactory;
+import org.antlr.v5.runtime.core.atn.ATN;
+import org.antlr.v5.runtime.core.atn.CompiledLexerDFA;
+
+/** The DFA tables of a lexer, made by {@link CompiledLexerDFA#compile} and
+ *  encoded like a {@link SerializedJavaATN}. Only for the java and kotlin
+ *  targets; see the {@code -Xcompiled-lexer} option.
+ */
+public class SerializedLexerDFA extends OutputModelObject {
+	private final String[] serializedAsString;
+	private final String[][] segments;
+
+	public SerializedLexerDFA(OutputModelFactory factory, CompiledLexerDFA dfa, ATN atn) {
+		super(factory);
+		segments = SerializedJavaATN.encodeSegments(factory, dfa.serialize(atn));
+		serializedAsString = segments[0]; // serializedAsString is valid if only one segment
+	}
+
+	public Object getSerialized() { return serializedAsString; }
+	public String[][] getSegments() { return segments; }
+}
@@ -30,6 +30,11 @@ public class VisitorFile extends OutputFile {
 	 * context.
 	 */
 	public Map<String, String> visitorLabelRuleNames = new LinkedHashMap<String, String>();
+	/**
+	 * Maps from a rule name to the names of its rule contexts which may need
+	 * to be visited: the rule name, or the labels of its outer alternatives.
+	 */
+	public Map<String, Collection<String>> ruleVisitorNames = new LinkedHashMap<String, Collection<String>>();
 
 	@ModelElement public Action header;
 	@ModelElement public Map<String, Action> namedActions;
@@ -47,10 +52,12 @@ public class VisitorFile extends OutputFile {
 					visitorNames.add(pair.getKey());
 					visitorLabelRuleNames.put(pair.getKey(), r.name);
 				}
+				ruleVisitorNames.put(r.name, labels.keySet());
 			}
 			else {
 				// if labels, must label all. no need for generic rule visitor then
 				visitorNames.add(r.name);
+				ruleVisitorNames.put(r.name, Collections.singletonList(r.name));
 			}
 		}
 		ActionAST ast = g.namedActions.get("header");
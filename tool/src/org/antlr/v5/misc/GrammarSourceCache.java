@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2012-present The ANTLR Project. All rights reserved.
+ * Use of this file is governed by the BSD 3-clause license that
+ * can be found in the LICENSE.txt file in the project root.
+ */
+
+package org.antlr.v5.misc;
+
+import org.antlr.runtime.ANTLRStringStream;
+import org.antlr.runtime.CharStream;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/** Keeps the decoded text of grammar files in memory so that a long-lived
+ *  tool process (see {@link org.antlr.v5.ToolServer}) or a build plugin
+ *  running many tool invocations in one JVM does not re-read and re-decode
+ *  unchanged root and imported grammars on every request.
+ *
+ *  We cache text, not {@code GrammarRootAST}s: the import merge in
+ *  {@code GrammarTransformPipeline} re-parents imported rule subtrees into
+ *  the root grammar, so parsed trees cannot be shared between runs.
+ *
+ *  An entry is reused only while the file's key (its inode, where the file
+ *  system has one), size, modification time (to the precision the file
+ *  system keeps, often nanoseconds) and requested encoding are unchanged.
+ *  Editors that save by replacing the file change its key even when the
+ *  size and time stay the same. At most {@link #getMaxEntries()} files
+ *  are kept; the least recently opened ones are dropped first.
+ */
+public class GrammarSourceCache {
+	public static final int DEFAULT_MAX_ENTRIES = 256;
+
+	protected static class Entry {
+		final Object fileKey;
+		final FileTime lastModified;
+		final long size;
+		final String encoding;
+		final char[] data;
+
+		Entry(BasicFileAttributes attributes, String encoding, char[] data) {
+			this.fileKey = attributes.fileKey();
+			this.lastModified = attributes.lastModifiedTime();
+			this.size = attributes.size();
+			this.encoding = encoding;
+			this.data = data;
+		}
+
+		boolean isValidFor(BasicFileAttributes attributes, String encoding) {
+			return Objects.equals(fileKey, attributes.fileKey()) &&
+				   lastModified.equals(attributes.lastModifiedTime()) &&
+				   size == attributes.size() &&
+				   Objects.equals(this.encoding, encoding);
+		}
+	}
+
+	protected final int maxEntries;
+
+	/** File name to entry, least recently opened first. */
+	protected final Map<String, Entry> entries;
+
+	protected int hits;
+	protected int misses;
+
+	public GrammarSourceCache() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+	public GrammarSourceCache(final int maxEntries) {
+		if ( maxEntries<1 ) throw new IllegalArgumentException("maxEntries must be positive: "+maxEntries);
+		this.maxEntries = maxEntries;
+		this.entries = Collections.synchronizedMap(new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > maxEntries;
+			}
+		});
+	}
+
+	/** Return a char stream over {@code fileName}, decoded with
+	 *  {@code encoding} or the platform default if {@code null}. The
+	 *  stream's source name is {@code fileName} so that error messages
+	 *  match those produced from an {@code ANTLRFileStream}.
+	 */
+	public CharStream open(String fileName, String encoding) throws IOException {
+		Path path = Paths.get(fileName);
+		BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		Entry e = entries.get(fileName);
+		if ( e==null || !e.isValidFor(attributes, encoding) ) {
+			byte[] bytes = Files.readAllBytes(path);
+			Charset charset = encoding!=null ? Charset.forName(encoding) : Charset.defaultCharset();
+			char[] data = new String(bytes, charset).toCharArray();
+			e = new Entry(attributes, encoding, data);
+			entries.put(fileName, e);
+			synchronized (this) { misses++; }
+		}
+		else {
+			synchronized (this) { hits++; }
+		}
+		ANTLRStringStream in = new ANTLRStringStream(e.data, e.data.length);
+		in.name = fileName;
+		return in;
+	}
+
+	public void invalidate(String fileName) { entries.remove(fileName); }
+
+	public void clear() { entries.clear(); }
+
+	public int size() { return entries.size(); }
+
+	public int getMaxEntries() { return maxEntries; }
+
+	public synchronized int getHits() { return hits; }
+
+	public synchronized int getMisses() { return misses; }
+}
@@ -1137,6 +1137,20 @@ public enum ErrorType {
 			ErrorSeverity.WARNING
 	),
 
+	/**
+	 * Compiler Warning 188.
+	 *
+	 * <p>The function generated for a rule is estimated to have more
+	 * bytecode than the JVM compiles, even after moving alternatives out
+	 * of it, so it will run in the interpreter. Rules with actions are not
+	 * split; large rules should be broken up by hand.</p>
+	 */
+	RULE_FUNCTION_TOO_LARGE(
+			188,
+			"rule <arg> generates an estimated <arg2> bytes of code in one method, more than the <arg3> bytes the JVM compiles",
+			ErrorSeverity.WARNING
+	),
+
 	/*
 	 * Backward incompatibility errors
 	 */
@@ -7,6 +7,8 @@
 package org.antlr.v5.tool;
 
 import org.antlr.v5.Tool;
+import org.antlr.v5.automata.optimization.KeywordExtractor;
+import org.antlr.v5.runtime.core.KeywordTable;
 import org.antlr.v5.runtime.java._unused.misc.MultiMap;
 import org.antlr.v5.runtime.core.error.RecognitionException;
 import org.antlr.v5.tool.ast.GrammarRootAST;
@@ -21,6 +23,11 @@ public class LexerGrammar extends Grammar {
 	/** DEFAULT_MODE rules are added first due to grammar syntax order */
 	public MultiMap<String, Rule> modes;
 
+	/** The keywords looked up in each mode with -Xkeyword-hash, if any;
+	 *  set by {@link KeywordExtractor}.
+	 */
+	public KeywordTable[] keywordTables;
+
 	public LexerGrammar(Tool tool, GrammarRootAST ast) {
 		super(tool, ast);
 	}
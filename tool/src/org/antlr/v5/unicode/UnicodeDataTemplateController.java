@@ -10,7 +10,6 @@ import com.ibm.icu.lang.UCharacter;
 import com.ibm.icu.lang.UProperty;
 import com.ibm.icu.text.UnicodeSet;
 import com.ibm.icu.util.RangeValueIterator;
-import org.antlr.v5.runtime.core.misc.Interval;
 import org.antlr.v5.runtime.core.misc.IntervalSet;
 
 import java.util.*;
@@ -99,12 +98,11 @@ public abstract class UnicodeDataTemplateController {
 	}
 
 	private static List<Integer> convertToRawArray(IntervalSet intervalSet) {
-		List<Interval> intervals = intervalSet.getIntervals();
-		int intervalSetSize = intervals.size();
+		int intervalSetSize = intervalSet.getIntervalCount();
 		List<Integer> rawArray = new ArrayList<>(intervalSetSize * 2);
-		for (Interval interval : intervals) {
-			rawArray.add(interval.getA());
-			rawArray.add(interval.getB());
+		for (int i = 0; i < intervalSetSize; i++) {
+			rawArray.add(intervalSet.intervalStart(i));
+			rawArray.add(intervalSet.intervalEnd(i));
 		}
 		return rawArray;
 	}